@@ -144,7 +144,7 @@ public final class BXCollection implements Collection, BXXMLDBText {
     if(del.data != data && del.data != null) throw new XMLDBException(
         ErrorCodes.NO_SUCH_RESOURCE, ERR_UNKNOWN + data.meta.name);
 
-    if(!data.startUpdate()) throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_LOCK);
+    startUpdate(data);
     data.delete(getResource(del.getId()).pos);
     ctx.update();
     data.finishUpdate();
@@ -182,7 +182,7 @@ public final class BXCollection implements Collection, BXXMLDBText {
     }
 
     final Data data = ctx.data();
-    if(!data.startUpdate()) throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_LOCK);
+    startUpdate(data);
     data.insert(data.meta.size, -1, new DataClip(md));
     ctx.update();
     data.finishUpdate();
@@ -282,4 +282,18 @@ public final class BXCollection implements Collection, BXXMLDBText {
     }
     return (BXXMLResource) res;
   }
+
+  /**
+   * Locks the specified database for write operations.
+   * @param data data reference
+   * @throws XMLDBException exception
+   */
+  private static void startUpdate(final Data data) throws XMLDBException {
+    try {
+      if(data.startUpdate()) return;
+    } catch(final IOException ex) {
+      throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
+    }
+    throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ERR_LOCK);
+  }
 }
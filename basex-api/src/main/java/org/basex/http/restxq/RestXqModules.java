@@ -4,6 +4,7 @@ import static org.basex.http.restxq.RestXqText.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import org.basex.core.*;
 import org.basex.http.*;
@@ -22,8 +23,12 @@ public final class RestXqModules {
   /** Class instance. */
   private static final RestXqModules INSTANCE = new RestXqModules();
 
-  /** Module cache. */
-  private HashMap<String, RestXqModule> modules = new HashMap<String, RestXqModule>();
+  /** Indicates if modules are currently checked for changes. */
+  private final AtomicBoolean parsing = new AtomicBoolean();
+  /** Parsed modules and their routes (replaced if modules have changed). */
+  private volatile RestXqRoutes routes;
+  /** Time of the last check for changes. */
+  private volatile long checked;
   /** RESTXQ path. */
   private IOFile restxq;
   /** Private constructor. */
@@ -43,7 +48,9 @@ public final class RestXqModules {
    * @return WADL description
    */
   public FElem wadl(final HTTPContext http) {
-    return new RestXqWadl(http).create(modules);
+    final RestXqRoutes rr = routes;
+    return new RestXqWadl(http).create(rr != null ? rr.modules :
+      new HashMap<String, RestXqModule>());
   }
 
   /**
@@ -55,14 +62,9 @@ public final class RestXqModules {
    * @throws Exception exception (including unexpected ones)
    */
   RestXqFunction find(final HTTPContext http, final QNm error) throws Exception {
-    cache(http);
-    // collect all functions
+    // collect all matching functions
     final ArrayList<RestXqFunction> list = new ArrayList<RestXqFunction>();
-    for(final RestXqModule mod : modules.values()) {
-      for(final RestXqFunction rxf : mod.functions()) {
-        if(rxf.matches(http, error)) list.add(rxf);
-      }
-    }
+    routes(http).find(http, error, list);
     // no path matches
     if(list.isEmpty()) return null;
     // choose most appropriate function
@@ -86,12 +88,36 @@ public final class RestXqModules {
     return first;
   }
 
+  /**
+   * Returns the current routes. The modules will be checked for changes if the
+   * timeout specified by {@link GlobalOptions#PARSERESTXQ} has expired. Requests
+   * arriving in the meantime will be served with the existing routes.
+   * @param http http context
+   * @return routes
+   * @throws Exception exception (including unexpected ones)
+   */
+  private RestXqRoutes routes(final HTTPContext http) throws Exception {
+    final RestXqRoutes rr = routes;
+    // first request: wait until all modules have been parsed
+    if(rr == null) return cache(http);
+
+    final long timeout = http.context().globalopts.get(GlobalOptions.PARSERESTXQ);
+    if(timeout < 0 || System.currentTimeMillis() - checked < timeout * 1000L ||
+        !parsing.compareAndSet(false, true)) return rr;
+    try {
+      return cache(http);
+    } finally {
+      parsing.set(false);
+    }
+  }
+
   /**
    * Updates the module cache. Parses new modules and discards obsolete ones.
    * @param http http context
+   * @return routes
    * @throws Exception exception (including unexpected ones)
    */
-  private synchronized void cache(final HTTPContext http) throws Exception {
+  private synchronized RestXqRoutes cache(final HTTPContext http) throws Exception {
     // initialize RESTXQ directory (may be relative against WEBPATH)
     if(restxq == null) {
       final File fl = new File(http.context().globalopts.get(GlobalOptions.RESTXQPATH));
@@ -99,44 +125,56 @@ public final class RestXqModules {
         new IOFile(http.context().globalopts.get(GlobalOptions.WEBPATH), fl.getPath());
     }
     // create new cache
+    final HashMap<String, RestXqModule> modules = routes != null ? routes.modules :
+      new HashMap<String, RestXqModule>();
     final HashMap<String, RestXqModule> cache = new HashMap<String, RestXqModule>();
-    cache(http, restxq, cache);
-    modules = cache;
+    final boolean changed = cache(http, restxq, modules, cache) ||
+        routes == null || cache.size() != modules.size();
+    // only replace routes if modules have been added, changed or removed
+    if(changed) routes = new RestXqRoutes(cache);
+    checked = System.currentTimeMillis();
+    return routes;
   }
 
   /**
    * Parses the specified path for RESTXQ modules and caches new entries.
-   * @param root root path
+   * Modified modules are parsed into new instances, as the existing instances
+   * may still be accessed by other requests.
    * @param http http context
+   * @param root root path
+   * @param modules existing modules
    * @param cache cached modules
+   * @return {@code true} if a new or modified module has been parsed
    * @throws Exception exception (including unexpected ones)
    */
-  private synchronized void cache(final HTTPContext http, final IOFile root,
-      final HashMap<String, RestXqModule> cache) throws Exception {
+  private static boolean cache(final HTTPContext http, final IOFile root,
+      final HashMap<String, RestXqModule> modules, final HashMap<String, RestXqModule> cache)
+      throws Exception {
 
+    boolean parsed = false;
     for(final IOFile file : root.children()) {
       if(file.isDir()) {
-        cache(http, file, cache);
+        parsed |= cache(http, file, modules, cache);
       } else {
         final String path = file.path();
         final boolean lib = path.endsWith(IO.XQMSUFFIX);
         if(lib || path.endsWith(IO.XQSUFFIX)) {
           RestXqModule module = modules.get(path);
-          boolean parsed = false;
-          if(module != null) {
-            // check if module has been modified
-            parsed = module.uptodate();
+          if(module != null && module.uptodate()) {
+            // add unchanged module
+            cache.put(path, module);
           } else {
-            // create new module
+            // create new module; add it if it contains annotations
             module = new RestXqModule(file, lib);
-          }
-          // add module if it has been parsed, and if it contains annotations
-          if(parsed || module.parse(http)) {
-            module.touch();
-            cache.put(path, module);
+            if(module.parse(http)) {
+              module.touch();
+              cache.put(path, module);
+              parsed = true;
+            }
           }
         }
       }
     }
+    return parsed;
   }
 }
@@ -46,7 +46,7 @@ final class RestXqPath implements Iterable<String>, Comparable<RestXqPath> {
    * @param s offset of segment
    * @return result of check
    */
-  private boolean isTemplate(final int s) {
+  boolean isTemplate(final int s) {
     return segment[s].trim().startsWith("{");
   }
 
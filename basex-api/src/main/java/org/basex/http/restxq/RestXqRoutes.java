@@ -0,0 +1,109 @@
+package org.basex.http.restxq;
+
+import java.util.*;
+
+import org.basex.http.*;
+import org.basex.query.value.item.*;
+
+/**
+ * This class contains an immutable snapshot of all parsed RESTXQ modules.
+ * The path annotations of the functions are indexed in a tree of path segments:
+ * literal segments are looked up in a hash map, and all template segments of
+ * a level share a single child node.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class RestXqRoutes {
+  /** Parsed modules, indexed by their paths. */
+  final HashMap<String, RestXqModule> modules;
+  /** Root of the path tree. */
+  private final Node root = new Node();
+  /** Functions with error annotations. */
+  private final ArrayList<RestXqFunction> errors = new ArrayList<RestXqFunction>();
+
+  /**
+   * Constructor.
+   * @param mods parsed modules
+   */
+  RestXqRoutes(final HashMap<String, RestXqModule> mods) {
+    modules = mods;
+    for(final RestXqModule mod : mods.values()) {
+      for(final RestXqFunction rxf : mod.functions()) {
+        if(rxf.path != null) root.add(rxf, 0);
+        if(rxf.error != null) errors.add(rxf);
+      }
+    }
+  }
+
+  /**
+   * Adds all functions to the specified list that match the current request
+   * or the specified error code.
+   * @param http HTTP context
+   * @param error error code (optional)
+   * @param list function list
+   */
+  void find(final HTTPContext http, final QNm error, final ArrayList<RestXqFunction> list) {
+    if(error == null) {
+      root.find(http, 0, list);
+    } else {
+      for(final RestXqFunction rxf : errors) {
+        if(rxf.matches(http, error)) list.add(rxf);
+      }
+    }
+  }
+
+  /** Node of the path tree. */
+  private static final class Node {
+    /** Child nodes of literal segments. */
+    private final HashMap<String, Node> children = new HashMap<String, Node>();
+    /** Child node of template segments. */
+    private Node template;
+    /** Functions whose paths end at this node. */
+    private final ArrayList<RestXqFunction> functions = new ArrayList<RestXqFunction>();
+
+    /**
+     * Adds a function to this node or one of its descendants.
+     * @param rxf function
+     * @param s offset of current path segment
+     */
+    void add(final RestXqFunction rxf, final int s) {
+      final RestXqPath path = rxf.path;
+      if(s == path.size) {
+        functions.add(rxf);
+        return;
+      }
+      Node node;
+      if(path.isTemplate(s)) {
+        if(template == null) template = new Node();
+        node = template;
+      } else {
+        node = children.get(path.segment[s]);
+        if(node == null) {
+          node = new Node();
+          children.put(path.segment[s], node);
+        }
+      }
+      node.add(rxf, s + 1);
+    }
+
+    /**
+     * Adds all functions of this node or its descendants that match the current request.
+     * @param http HTTP context
+     * @param s offset of current path segment
+     * @param list function list
+     */
+    void find(final HTTPContext http, final int s, final ArrayList<RestXqFunction> list) {
+      if(s == http.depth()) {
+        // check method, consumed and produced media types
+        for(final RestXqFunction rxf : functions) {
+          if(rxf.matches(http, null)) list.add(rxf);
+        }
+        return;
+      }
+      final Node node = children.get(http.segment(s));
+      if(node != null) node.find(http, s + 1, list);
+      if(template != null) template.find(http, s + 1, list);
+    }
+  }
+}
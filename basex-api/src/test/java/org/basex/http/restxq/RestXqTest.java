@@ -36,6 +36,8 @@ public final class RestXqTest extends HTTPTest {
   @BeforeClass
   public static void start() throws Exception {
     init(ROOT, true);
+    // check modules for changes on every request
+    HTTPContext.init().globalopts.set(GlobalOptions.PARSERESTXQ, 0);
   }
 
   // TEST METHODS =============================================================
@@ -82,6 +84,20 @@ public final class RestXqTest extends HTTPTest {
     getE(f, "x/a/b/d");
   }
 
+  /** Retrieve paths with literal and template segments on the same level.
+   * @throws Exception exception */
+  @Test public void getLiteralTemplate() throws Exception {
+    install("declare %R:path('a/b') function m:f() { 'literal' };" +
+        "declare %R:path('a/{$x}') function m:g($x) { $x };" +
+        "declare %R:path('{$x}/c') function m:h($x) { concat('root ', $x) };");
+    assertEquals("literal", get("a/b"));
+    assertEquals("z", get("a/z"));
+    assertEquals("root y", get("y/c"));
+    // literal segments are more specific than templates
+    assertEquals("c", get("a/c"));
+    getE("y/d");
+  }
+
   /** Retrieve path with typed variable.
    * @throws Exception exception */
   @Test public void getInteger() throws Exception {
@@ -392,6 +408,43 @@ public final class RestXqTest extends HTTPTest {
         "function m:b($x) { $x };", "", "!!!");
   }
 
+  /**
+   * Modules are parsed again after the specified timeout.
+   * @throws Exception exception */
+  @Test public void parseTimeout() throws Exception {
+    final GlobalOptions gopts = HTTPContext.init().globalopts;
+    get("declare %R:path('a') function m:f() { 'a' };", "a", "a");
+    gopts.set(GlobalOptions.PARSERESTXQ, 1);
+    try {
+      update("declare %R:path('b') function m:f() { 'b' };");
+      // existing routes are used until the timeout has expired
+      getE("b");
+      Performance.sleep(1500);
+      assertEquals("b", get("b"));
+      getE("a");
+    } finally {
+      gopts.set(GlobalOptions.PARSERESTXQ, 0);
+    }
+  }
+
+  /**
+   * Modules are never parsed again if the timeout is negative.
+   * @throws Exception exception */
+  @Test public void parseNever() throws Exception {
+    final GlobalOptions gopts = HTTPContext.init().globalopts;
+    get("declare %R:path('a') function m:f() { 'a' };", "a", "a");
+    gopts.set(GlobalOptions.PARSERESTXQ, -1);
+    try {
+      update("declare %R:path('b') function m:f() { 'b' };");
+      getE("b");
+      Performance.sleep(1500);
+      getE("b");
+    } finally {
+      gopts.set(GlobalOptions.PARSERESTXQ, 0);
+    }
+    assertEquals("b", get("b"));
+  }
+
   // PRIVATE METHODS ==========================================================
 
   /**
@@ -437,6 +490,19 @@ public final class RestXqTest extends HTTPTest {
     }
   }
 
+  /**
+   * Executes the specified GET request and tests for an error.
+   * @param query request
+   * @throws IOException I/O exception
+   */
+  private static void getE(final String query) throws IOException {
+    try {
+      get(query);
+      fail("Error expected: " + query);
+    } catch(final BaseXException ex) {
+    }
+  }
+
   /**
    * Executes the specified HEAD request and tests the result.
    *
@@ -476,6 +542,18 @@ public final class RestXqTest extends HTTPTest {
     module().write(new TokenBuilder(HEADER).add(function).finish());
   }
 
+  /**
+   * Replaces the contents of the current module.
+   * @param function function to be tested
+   * @throws IOException I/O exception
+   */
+  private static void update(final String function) throws IOException {
+    final String path = context.globalopts.get(GlobalOptions.WEBPATH);
+    final IOFile file = new IOFile(path, NAME + (count - 1) + IO.XQMSUFFIX);
+    assertTrue(file.exists());
+    file.write(new TokenBuilder(HEADER).add(function).finish());
+  }
+
   /**
    * Returns the XQuery test module.
    * @return test module
@@ -4,7 +4,9 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.io.*;
@@ -17,6 +19,12 @@ import org.basex.util.list.*;
  * This is the starter class for running the database server. It handles
  * concurrent requests from multiple users.
  *
+ * <p>Client connections are multiplexed by a single selector thread, which greets
+ * new clients and buffers incoming requests. Sessions that wait for their next
+ * request do not occupy a thread: only if a request has been completely received,
+ * a session is dispatched to a bounded pool of worker threads
+ * (see {@link GlobalOptions#SERVERTHREADS}).</p>
+ *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
  * @author Andreas Weiler
@@ -37,8 +45,14 @@ public final class BaseXServer extends Main implements Runnable {
   private EventListener events;
   /** Initial commands. */
   private StringList commands;
-  /** Server socket. */
-  private ServerSocket socket;
+  /** Server socket channel. */
+  private ServerSocketChannel socket;
+  /** Selector for client connections. */
+  private Selector selector;
+  /** Worker threads. */
+  private ExecutorService workers;
+  /** Sessions that wait for their next request. */
+  private final Queue<ClientListener> idle = new ConcurrentLinkedQueue<ClientListener>();
   /** Start as daemon. */
   private boolean service;
 
@@ -100,10 +114,22 @@ public final class BaseXServer extends Main implements Runnable {
       // execute command-line arguments
       for(final String c : commands) execute(c);
 
-      socket = new ServerSocket();
+      socket = ServerSocketChannel.open();
       // reuse address (on non-Windows machines: !Prop.WIN);
-      socket.setReuseAddress(true);
-      socket.bind(new InetSocketAddress(addr, port));
+      socket.socket().setReuseAddress(true);
+      socket.socket().bind(new InetSocketAddress(addr, port));
+      socket.configureBlocking(false);
+      selector = Selector.open();
+      socket.register(selector, SelectionKey.OP_ACCEPT);
+      workers = Executors.newFixedThreadPool(
+          Math.max(1, gopts.get(GlobalOptions.SERVERTHREADS)), new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          final Thread t = new Thread(r);
+          t.setDaemon(true);
+          return t;
+        }
+      });
       esocket = new ServerSocket();
       esocket.setReuseAddress(true);
       esocket.bind(new InetSocketAddress(addr, eport));
@@ -138,41 +164,79 @@ public final class BaseXServer extends Main implements Runnable {
   @Override
   public void run() {
     running = true;
+    long checked = System.currentTimeMillis();
     while(running) {
       try {
-        final Socket s = socket.accept();
-        if(stop.exists()) {
-          if(!stop.delete()) {
-            context.log.writeServer(ERROR + COL + Util.info(FILE_NOT_DELETED_X, stop));
+        selector.select(1000);
+        // register sessions that wait for their next request
+        for(ClientListener cl; (cl = idle.poll()) != null;) {
+          try {
+            cl.channel().register(selector, SelectionKey.OP_READ, cl);
+          } catch(final ClosedChannelException ex) {
+            // session has been closed in the meantime
           }
-          quit();
-        } else {
-          // drop inactive connections
-          final long ka = context.globalopts.get(GlobalOptions.KEEPALIVE) * 1000L;
-          if(ka > 0) {
-            final long ms = System.currentTimeMillis();
-            for(final ClientListener cs : context.sessions) {
-              if(ms - cs.last > ka) cs.quit();
+        }
+
+        final ArrayList<ClientListener> ready = new ArrayList<ClientListener>();
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while(keys.hasNext()) {
+          final SelectionKey key = keys.next();
+          keys.remove();
+          if(!key.isValid()) continue;
+          if(key.isAcceptable()) {
+            final SocketChannel ch = socket.accept();
+            if(ch == null) continue;
+            if(stop.exists()) {
+              if(!stop.delete()) {
+                context.log.writeServer(ERROR + COL + Util.info(FILE_NOT_DELETED_X, stop));
+              }
+              ch.close();
+              quit();
+              return;
             }
-          }
-          final ClientListener cl = new ClientListener(s, context, this);
-          // start authentication timeout
-          final long to = context.globalopts.get(GlobalOptions.KEEPALIVE) * 1000L;
-          if(to > 0) {
-            cl.auth.schedule(new TimerTask() {
-              @Override
-              public void run() {
-                cl.quitAuth();
+            ch.configureBlocking(false);
+            final ClientListener cl = new ClientListener(ch, context, this);
+            try {
+              cl.greet();
+            } catch(final IOException ex) {
+              Util.debug(ex);
+              ch.close();
+              continue;
+            }
+            // start authentication timeout
+            if(context.globalopts.get(GlobalOptions.KEEPALIVE) > 0) {
+              synchronized(auth) {
+                auth.add(cl);
               }
-            }, to);
-            auth.add(cl);
+            }
+            ch.register(selector, SelectionKey.OP_READ, cl);
+          } else if(key.isReadable()) {
+            final ClientListener cl = (ClientListener) key.attachment();
+            if(cl.fill()) {
+              // the channel can only be switched to blocking mode after deregistration
+              key.cancel();
+              ready.add(cl);
+            }
           }
-          cl.start();
         }
-      } catch(final SocketException ex) {
+        if(!ready.isEmpty()) {
+          selector.selectNow();
+          for(final ClientListener cl : ready) workers.execute(cl);
+        }
+
+        // drop inactive connections
+        final long ms = System.currentTimeMillis();
+        if(ms - checked >= 1000) {
+          checked = ms;
+          timeouts(ms);
+        }
+      } catch(final ClosedSelectorException ex) {
         break;
+      } catch(final IOException ex) {
+        if(!running) break;
+        // a single connection may have been unexpectedly closed
+        Util.debug(ex);
       } catch(final Throwable ex) {
-        // socket may have been unexpectedly closed
         Util.errln(ex);
         context.log.writeError(ex);
         break;
@@ -180,6 +244,61 @@ public final class BaseXServer extends Main implements Runnable {
     }
   }
 
+  /**
+   * Closes sessions that have not been authenticated in time or that have been
+   * inactive for too long. The sessions are closed by the worker threads.
+   * Sessions that are processed by a worker thread are not considered here:
+   * if they wait for the remaining bytes of a request, the socket timeout applies.
+   * @param ms current time
+   */
+  private void timeouts(final long ms) {
+    final long ka = context.globalopts.get(GlobalOptions.KEEPALIVE) * 1000L;
+    if(ka <= 0) return;
+    synchronized(auth) {
+      final Iterator<ClientListener> it = auth.iterator();
+      while(it.hasNext()) {
+        final ClientListener cl = it.next();
+        if(ms - cl.last > ka) {
+          it.remove();
+          final SelectionKey key = cl.channel().keyFor(selector);
+          if(key != null) key.cancel();
+          workers.execute(new Runnable() {
+            @Override
+            public void run() {
+              cl.quitAuth();
+            }
+          });
+        }
+      }
+    }
+    // only consider sessions that are currently waiting for their next request
+    for(final SelectionKey key : selector.keys()) {
+      final Object att = key.attachment();
+      if(att instanceof ClientListener && key.isValid()) {
+        final ClientListener cl = (ClientListener) att;
+        if(ms - cl.last > ka) {
+          key.cancel();
+          workers.execute(new Runnable() {
+            @Override
+            public void run() {
+              cl.quit();
+            }
+          });
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a session to the selector, which will dispatch it again as soon as
+   * the next request arrives.
+   * @param client client
+   */
+  public void idle(final ClientListener client) {
+    idle.add(client);
+    selector.wakeup();
+  }
+
   /**
    * Generates a stop file for the specified port.
    * @param port server port
@@ -194,9 +313,9 @@ public final class BaseXServer extends Main implements Runnable {
     if(!running) return;
     running = false;
 
-    for(final ClientListener cs : auth) {
-      remove(cs);
-      cs.quitAuth();
+    synchronized(auth) {
+      for(final ClientListener cs : auth) cs.quitAuth();
+      auth.clear();
     }
     for(final ClientListener cs : context.sessions) {
       cs.quit();
@@ -208,6 +327,8 @@ public final class BaseXServer extends Main implements Runnable {
       if(console) System.in.close();
       esocket.close();
       socket.close();
+      selector.close();
+      workers.shutdown();
     } catch(final IOException ex) {
       Util.errln(ex);
       context.log.writeError(ex);
@@ -347,7 +468,6 @@ public final class BaseXServer extends Main implements Runnable {
   public void remove(final ClientListener client) {
     synchronized(auth) {
       auth.remove(client);
-      client.auth.cancel();
     }
   }
 
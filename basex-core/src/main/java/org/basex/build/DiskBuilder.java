@@ -102,6 +102,12 @@ public final class DiskBuilder extends Builder {
     ta.close();
     in.close();
     md.dbfile(DATATMP).delete();
+    if(md.options.get(MainOptions.COLUMNAR)) TableColumnAccess.compress(md);
+    if(md.options.get(MainOptions.COMPRESSION)) {
+      CompressedFile.compress(md.dbfile(DATATXT));
+      CompressedFile.compress(md.dbfile(DATAATV));
+      md.compressed = true;
+    }
 
     // return database instance
     final DiskData data = new DiskData(md, tags, atts, path, ns);
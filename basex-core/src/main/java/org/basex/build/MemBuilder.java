@@ -72,6 +72,9 @@ public final class MemBuilder extends Builder {
     md.createattr = true;
     md.textindex = true;
     md.attrindex = true;
+    md.textinclude = "";
+    md.attrinclude = "";
+    md.compdefs = "";
     final IO file = parser.src;
     md.original = file != null ? file.path() : "";
     md.filesize = file != null ? file.length() : 0;
@@ -247,6 +247,20 @@ public abstract class Command extends Proc {
     return false;
   }
 
+  /**
+   * Starts an update operation on the specified database.
+   * Adds an error message if the database is pinned or cannot be prepared for updates.
+   * @param data data reference
+   * @return success flag
+   */
+  protected final boolean startUpdate(final Data data) {
+    try {
+      return data.startUpdate() || error(DB_PINNED_X, data.meta.name);
+    } catch(final IOException ex) {
+      return error(Util.message(ex));
+    }
+  }
+
   /**
    * Adds information on command execution.
    * @param str information to be added
@@ -307,6 +321,7 @@ public abstract class Command extends Proc {
    * @return closed flag
    */
   protected static boolean close(final Context ctx, final String db) {
+    ctx.release(db);
     final boolean close = ctx.data() != null &&
         db.equals(ctx.data().meta.name) && ctx.dbs.pins(db) == 1;
     return close && new Close().run(ctx);
@@ -199,12 +199,22 @@ public final class Context {
     current = null;
   }
 
+  /**
+   * Closes the compiled queries of all client sessions that are cached, but not
+   * currently evaluated, and that access the specified database.
+   * @param db name of database
+   */
+  public void release(final String db) {
+    for(final ClientListener cl : sessions) cl.release(db);
+  }
+
   /**
    * Checks if the specified database is pinned.
    * @param db name of database
    * @return result of check
    */
   public boolean pinned(final String db) {
+    release(db);
     return dbs.pinned(db) || TableDiskAccess.locked(db, this);
   }
 
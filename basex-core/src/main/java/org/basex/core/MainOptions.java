@@ -19,6 +19,12 @@ public final class MainOptions extends Options {
   public static final BooleanOption MAINMEM = new BooleanOption("MAINMEM", false);
   /** Flag for opening a database after creating it. */
   public static final BooleanOption CREATEONLY = new BooleanOption("CREATEONLY", false);
+  /** Flag for memory-mapped read access to the table and text files of opened databases. */
+  public static final BooleanOption MMAP = new BooleanOption("MMAP", false);
+  /** Flag for storing the table of new databases in a compressed, column-oriented format. */
+  public static final BooleanOption COLUMNAR = new BooleanOption("COLUMNAR", false);
+  /** Flag for block-compressing the texts and attribute values of new databases. */
+  public static final BooleanOption COMPRESSION = new BooleanOption("COMPRESSION", false);
 
   // Parsing
 
@@ -69,12 +75,28 @@ public final class MainOptions extends Options {
   public static final BooleanOption ATTRINDEX = new BooleanOption("ATTRINDEX", true);
   /** Flag for creating a full-text index. */
   public static final BooleanOption FTINDEX = new BooleanOption("FTINDEX", false);
+  /** Names of the elements whose texts are indexed, separated by commas (all if empty). */
+  public static final StringOption TEXTINCLUDE = new StringOption("TEXTINCLUDE", "");
+  /** Names of the attributes whose values are indexed, separated by commas (all if empty). */
+  public static final StringOption ATTRINCLUDE = new StringOption("ATTRINCLUDE", "");
+  /** Definitions of composite indexes, separated by semicolons
+   *  (example: {@code order(@region,@status)}). */
+  public static final StringOption COMPINDEX = new StringOption("COMPINDEX", "");
 
   /** Maximum number of text/attribute index entries
    *  to keep in memory during index creation. */
   public static final NumberOption INDEXSPLITSIZE = new NumberOption("INDEXSPLITSIZE", 0);
   /** Maximum number of fulltext index entries to keep in memory during index creation. */
   public static final NumberOption FTINDEXSPLITSIZE = new NumberOption("FTINDEXSPLITSIZE", 0);
+  /** Number of threads for creating index structures (0: number of processors). */
+  public static final NumberOption INDEXTHREADS = new NumberOption("INDEXTHREADS", 1);
+  /** Build indexes without blocking readers (the database is only write-locked
+   *  when the new index structures are swapped in). */
+  public static final BooleanOption ONLINEINDEX = new BooleanOption("ONLINEINDEX", false);
+  /** Maximum number of cached entries per index structure. */
+  public static final NumberOption INDEXCACHE = new NumberOption("INDEXCACHE", 65536);
+  /** Maximum memory consumption of the cached entries per index structure (in kilobytes). */
+  public static final NumberOption INDEXCACHEMEM = new NumberOption("INDEXCACHEMEM", 8192);
 
   /** Maximum length of index entries. */
   public static final NumberOption MAXLEN = new NumberOption("MAXLEN", 96);
@@ -82,6 +104,8 @@ public final class MainOptions extends Options {
   public static final NumberOption MAXCATS = new NumberOption("MAXCATS", 100);
   /** Flag for automatic index update. */
   public static final BooleanOption UPDINDEX = new BooleanOption("UPDINDEX", false);
+  /** Flag for creating numeric keys for value index range queries. */
+  public static final BooleanOption NUMINDEX = new BooleanOption("NUMINDEX", false);
 
   // Full-Text
 
@@ -110,10 +134,16 @@ public final class MainOptions extends Options {
   public static final NumberOption INLINELIMIT = new NumberOption("INLINELIMIT", 100);
   /** Flag for tail-call optimization. */
   public static final NumberOption TAILCALLS = new NumberOption("TAILCALLS", 256);
+  /** Number of threads for evaluating FLWOR expressions and function items in parallel. */
+  public static final NumberOption QUERYTHREADS = new NumberOption("QUERYTHREADS", 1);
+  /** Number of buffered items after which sorted and grouped tuples are spilled to disk. */
+  public static final NumberOption SPILLSIZE = new NumberOption("SPILLSIZE", 0);
   /** Favor global database when opening resources. */
   public static final BooleanOption DEFAULTDB = new BooleanOption("DEFAULTDB", false);
   /** Caches the query results. */
   public static final BooleanOption CACHEQUERY = new BooleanOption("CACHEQUERY", false);
+  /** Maximum number of compiled queries that are cached by a client session. */
+  public static final NumberOption PLANCACHE = new NumberOption("PLANCACHE", 16);
   /** Forces database creation for unknown documents. */
   public static final BooleanOption FORCECREATE = new BooleanOption("FORCECREATE", false);
   /** Validate string inputs. */
@@ -189,6 +189,8 @@ public interface Text {
   String LI_SIZE = LI + "Size: ";
   /** Index info. */
   String LI_ENTRIES = LI + "Entries: ";
+  /** Index info. */
+  String LI_CACHE = LI + "Cache: ";
 
   /** Index info. */
   String HASH = "Hash";
@@ -296,7 +298,7 @@ public interface Text {
     LI + CmdCreate.EVENT + " [" + S_NAME + "]: " + NL +
     "  " + lang("c_create9") + NL +
     LI + CmdCreate.INDEX + " [" + CmdIndex.TEXT + '|' + CmdIndex.ATTRIBUTE +
-    '|' + CmdIndex.FULLTEXT + "]:" + NL +
+    '|' + CmdIndex.FULLTEXT + '|' + CmdIndex.COMPOSITE + "]:" + NL +
     "  " + lang("c_create5") + NL +
     LI + CmdCreate.USER + " [" + S_NAME + "] ([" + S_PW + "]):" + NL +
     "  " + lang("c_create8")
@@ -364,8 +366,8 @@ public interface Text {
       "  " + lang("c_drop21") + NL +
     LI + CmdDrop.EVENT + " [" + S_NAME + "]:" + NL +
       "  " + lang("c_drop25", S_NAME) + NL +
-    LI + CmdDrop.INDEX + " [" + CmdIndex.TEXT + '|' +
-      CmdIndex.ATTRIBUTE + '|' + CmdIndex.FULLTEXT + "]:" + NL +
+    LI + CmdDrop.INDEX + " [" + CmdIndex.TEXT + '|' + CmdIndex.ATTRIBUTE +
+      '|' + CmdIndex.FULLTEXT + '|' + CmdIndex.COMPOSITE + "]:" + NL +
       "  " + lang("c_drop22") + NL +
     LI + CmdDrop.USER + " [" + S_NAME + "] (" + ON + " [database]): " + NL +
       "  " + lang("c_drop23")
@@ -828,6 +830,8 @@ public interface Text {
   String ATTRIBUTE_INDEX = lang("attribute_index");
   /** Info on full-text indexing. */
   String FULLTEXT_INDEX = lang("fulltext_index");
+  /** Info on composite indexing. */
+  String COMPOSITE_INDEX = lang("composite_index");
   /** Info on path summary. */
   String PATH_INDEX = lang("path_index");
   /** Info on up-to-date. */
@@ -842,6 +846,15 @@ public interface Text {
   /** Info on index. */
   String OUT_OF_DATE = lang("out_of_date");
 
+  /** "Page Cache". */
+  String PAGE_CACHE = lang("page_cache");
+  /** "Cached pages". */
+  String CACHED_PAGES = lang("cached_pages");
+  /** "Cache hits". */
+  String CACHE_HITS = lang("cache_hits");
+  /** "Cache misses". */
+  String CACHE_MISSES = lang("cache_misses");
+
   /** "Database Properties". */
   String DB_PROPS = lang("db_props");
   /** "General Information". */
@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 import static org.basex.data.DataText.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -22,6 +23,8 @@ import org.basex.util.*;
 public abstract class ACreate extends Command {
   /** Flag for closing a data instances before executing the command. */
   private boolean newData;
+  /** Indicates if the opened database is only read-locked (see {@link #online(Context)}). */
+  private boolean reading;
 
   /**
    * Protected constructor, specifying command arguments.
@@ -85,17 +88,165 @@ public abstract class ACreate extends Command {
    * @throws IOException I/O exception
    */
   static void create(final IndexType index, final Data data, final ACreate cmd) throws IOException {
-    if(data.inMemory()) return;
+    create(data, cmd, index);
+  }
+
+  /**
+   * Builds the specified indexes. If more than one thread is assigned to index
+   * creation, the table is scanned in parallel, and all indexes are built in a single
+   * pass.
+   * @param data data reference
+   * @param cmd calling command
+   * @param indexes indexes to be built
+   * @throws IOException I/O exception
+   */
+  static void create(final Data data, final ACreate cmd, final IndexType... indexes)
+      throws IOException {
+
+    if(data.inMemory() || indexes.length == 0) return;
+
+    final int il = indexes.length;
+    final IndexBuilder[] ibs = new IndexBuilder[il];
+    for(int i = 0; i < il; i++) ibs[i] = builder(indexes[i], data);
+    for(final IndexType index : indexes) data.closeIndex(index);
+    final Index[] built = build(data, cmd, ibs);
+    for(int i = 0; i < il; i++) data.setIndex(indexes[i], built[i]);
+  }
+
+  /**
+   * Runs the specified index builders. If more than one thread is assigned to index
+   * creation, the table is scanned in parallel.
+   * @param data data reference
+   * @param cmd calling command
+   * @param ibs index builders
+   * @return index instances ({@code null} references for indexes that are built online)
+   * @throws IOException I/O exception
+   */
+  private static Index[] build(final Data data, final ACreate cmd, final IndexBuilder[] ibs)
+      throws IOException {
+
+    final int il = ibs.length, threads = ParallelIndexBuilder.threads(data);
+    if(threads > 1 && il != 0) {
+      final ParallelIndexBuilder pib = new ParallelIndexBuilder(data, threads, ibs);
+      return (cmd == null ? pib : cmd.proc(pib)).build();
+    }
+    final Index[] built = new Index[il];
+    for(int i = 0; i < il; i++) built[i] = (cmd == null ? ibs[i] : cmd.proc(ibs[i])).build();
+    return built;
+  }
+
+  /**
+   * Checks if indexes will be built online (see {@link MainOptions#ONLINEINDEX}).
+   * If yes, the opened database will only be read-locked until
+   * {@link #online(Data, IndexBuilder...)} is called.
+   * @param ctx database context
+   * @return result of check
+   */
+  final boolean online(final Context ctx) {
+    reading = ctx.options.get(MainOptions.ONLINEINDEX);
+    return reading;
+  }
+
+  /**
+   * Indicates if indexes are built online.
+   * @return result of check
+   */
+  final boolean online() {
+    return reading;
+  }
+
+  /**
+   * Builds indexes online. The new index structures are written to separate files while
+   * the opened database is read-locked. Afterwards, the read lock is replaced with a write
+   * lock. If the database has been updated in the meantime, or if another command is
+   * building indexes online, the new structures are discarded, and the indexes must be
+   * built while the database is write-locked. In all cases, the write lock will be held
+   * when this method returns.
+   * @param data data reference
+   * @param ibs index builders
+   * @return {@code true} if the new index structures can be swapped in
+   *   (see {@link #swap(Data, IndexType[], IndexBuilder[])})
+   * @throws IOException I/O exception
+   */
+  final boolean online(final Data data, final IndexBuilder... ibs) throws IOException {
+    final MetaData meta = data.meta;
+    if(!reading || data.inMemory() || !meta.building.compareAndSet(false, true)) {
+      lock();
+      return false;
+    }
+    boolean ok = false;
+    try {
+      final int updates = meta.updates;
+      for(final IndexBuilder ib : ibs) ib.online();
+      build(data, this, ibs);
+      lock();
+      ok = meta.updates == updates;
+    } finally {
+      if(!ok) meta.drop(DATAONL + ".+");
+      meta.building.set(false);
+    }
+    return ok;
+  }
 
-    final IndexBuilder ib;
+  /**
+   * Swaps in the specified indexes, which have been built online.
+   * @param data data reference
+   * @param indexes index types
+   * @param ibs index builders
+   * @throws IOException I/O exception
+   */
+  static void swap(final Data data, final IndexType[] indexes, final IndexBuilder[] ibs)
+      throws IOException {
+
+    final int il = indexes.length;
+    for(int i = 0; i < il; i++) {
+      data.closeIndex(indexes[i]);
+      data.setIndex(indexes[i], ibs[i].swap());
+    }
+  }
+
+  /**
+   * Replaces the read lock on the opened database with a write lock.
+   */
+  private void lock() {
+    if(!reading) return;
+    reading = false;
+    if(!registered()) return;
+    context.unregister(this);
+    updating = true;
+    context.register(this);
+  }
+
+  /**
+   * Returns the indexes that are to be created for the specified database.
+   * @param meta meta data
+   * @return index types
+   */
+  static IndexType[] indexes(final MetaData meta) {
+    final ArrayList<IndexType> list = new ArrayList<IndexType>();
+    if(meta.createtext) list.add(IndexType.TEXT);
+    if(meta.createattr) list.add(IndexType.ATTRIBUTE);
+    if(meta.createftxt) list.add(IndexType.FULLTEXT);
+    if(!meta.compdefs.isEmpty()) list.add(IndexType.COMPOSITE);
+    return list.toArray(new IndexType[list.size()]);
+  }
+
+  /**
+   * Returns a builder for the specified index.
+   * @param index index to be built
+   * @param data data reference
+   * @return index builder
+   * @throws IOException I/O exception
+   */
+  static IndexBuilder builder(final IndexType index, final Data data)
+      throws IOException {
     switch(index) {
-      case TEXT:      ib = new ValueIndexBuilder(data, true); break;
-      case ATTRIBUTE: ib = new ValueIndexBuilder(data, false); break;
-      case FULLTEXT:  ib = new FTBuilder(data); break;
+      case TEXT:      return new ValueIndexBuilder(data, true);
+      case ATTRIBUTE: return new ValueIndexBuilder(data, false);
+      case FULLTEXT:  return new FTBuilder(data);
+      case COMPOSITE: return new CompositeIndexBuilder(data);
       default:        throw Util.notExpected();
     }
-    data.closeIndex(index);
-    data.setIndex(index, (cmd == null ? ib : cmd.proc(ib)).build());
   }
 
   /**
@@ -119,6 +270,10 @@ public abstract class ACreate extends Command {
         data.meta.ftxtindex = false;
         pat = DATAFTX;
         break;
+      case COMPOSITE:
+        data.meta.compindex = false;
+        pat = DATACMP;
+        break;
       default:
     }
     data.closeIndex(index);
@@ -135,7 +290,8 @@ public abstract class ACreate extends Command {
   @Override
   public void databases(final LockResult lr) {
     // default implementation for commands accessing (exclusively) the opened database
-    lr.write.add(DBLocking.CTX);
+    if(reading) lr.read.add(DBLocking.CTX);
+    else lr.write.add(DBLocking.CTX);
   }
 
   @Override
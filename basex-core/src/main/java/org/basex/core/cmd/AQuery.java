@@ -54,10 +54,7 @@ public abstract class AQuery extends Command {
    */
   final boolean query(final String query) {
     final Performance p = new Performance();
-    String err;
-    if(cause != null) {
-      err = Util.message(cause);
-    } else {
+    if(cause == null) {
       try {
         long hits = 0;
         final boolean run = options.get(MainOptions.RUNQUERY);
@@ -98,7 +95,9 @@ public abstract class AQuery extends Command {
             }
           }
           ser.close();
-          qp.close();
+          // the processor of the last run is closed after the query info has been created,
+          // as the info may refer to nodes of the accessed databases
+          if(r + 1 < runs) qp.close();
           info.serializing += p.time();
         }
         // dump some query info
@@ -112,15 +111,15 @@ public abstract class AQuery extends Command {
 
       } catch(final QueryException ex) {
         cause = ex;
-        err = Util.message(ex);
+        return extError(Util.message(ex));
       } catch(final IOException ex) {
         cause = ex;
-        err = Util.message(ex);
+        return extError(Util.message(ex));
       } catch(final ProcException ex) {
-        err = INTERRUPTED;
+        return extError(INTERRUPTED);
       } catch(final StackOverflowError ex) {
         Util.debug(ex);
-        err = BASX_STACKOVERFLOW.desc;
+        return extError(BASX_STACKOVERFLOW.desc);
       } catch(final RuntimeException ex) {
         extError("");
         Util.debug(info());
@@ -130,7 +129,7 @@ public abstract class AQuery extends Command {
         if(qp != null) qp.close();
       }
     }
-    return extError(err);
+    return extError(Util.message(cause));
   }
 
   /**
@@ -99,7 +99,7 @@ public final class Add extends ACreate {
       tmp = build.build();
       // skip update if fragment is empty
       if(tmp.meta.size > 1) {
-        if(lock && !data.startUpdate()) return error(DB_PINNED_X, data.meta.name);
+        if(lock && !startUpdate(data)) return false;
         data.insert(data.meta.size, -1, new DataClip(tmp));
         context.update();
         if(lock) data.finishUpdate();
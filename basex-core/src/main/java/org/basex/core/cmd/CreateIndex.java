@@ -9,6 +9,8 @@ import org.basex.core.parse.*;
 import org.basex.core.parse.Commands.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.ft.*;
+import org.basex.index.value.*;
 import org.basex.util.*;
 import org.basex.util.ft.*;
 
@@ -36,35 +38,86 @@ public final class CreateIndex extends ACreate {
     if(ci == null) return error(UNKNOWN_CMD_X, this);
     final IndexType index;
     switch(ci) {
+      case TEXT:      index = IndexType.TEXT; break;
+      case ATTRIBUTE: index = IndexType.ATTRIBUTE; break;
+      case FULLTEXT:  index = IndexType.FULLTEXT; break;
+      case COMPOSITE: index = IndexType.COMPOSITE; break;
+      default:        return error(UNKNOWN_CMD_X, this);
+    }
+
+    try {
+      // build index online: the meta data is only changed when the index is swapped in
+      final IndexBuilder ib = online() ? builder(index, data, options) : null;
+      final boolean swap = online(data, ib);
+
+      if(!startUpdate(data)) return false;
+      try {
+        assign(index, data.meta);
+        if(swap) swap(data, new IndexType[] { index }, new IndexBuilder[] { ib });
+        else create(index, data, this);
+        return info(INDEX_CREATED_X_X, index, perf);
+      } finally {
+        data.finishUpdate();
+      }
+    } catch(final IOException ex) {
+      return error(Util.message(ex));
+    }
+  }
+
+  @Override
+  public boolean updating(final Context ctx) {
+    // indexes that are built online only require a write lock when they are swapped in
+    return !online(ctx);
+  }
+
+  /**
+   * Assigns the index options to the meta data.
+   * @param index index type
+   * @param meta meta data
+   */
+  private void assign(final IndexType index, final MetaData meta) {
+    switch(index) {
       case TEXT:
-        data.meta.createtext = true;
-        index = IndexType.TEXT;
+        meta.createtext = true;
+        meta.textinclude = options.get(MainOptions.TEXTINCLUDE);
         break;
       case ATTRIBUTE:
-        data.meta.createattr = true;
-        index = IndexType.ATTRIBUTE;
+        meta.createattr = true;
+        meta.attrinclude = options.get(MainOptions.ATTRINCLUDE);
         break;
       case FULLTEXT:
-        data.meta.createftxt = true;
-        data.meta.stemming = options.get(MainOptions.STEMMING);
-        data.meta.casesens = options.get(MainOptions.CASESENS);
-        data.meta.diacritics = options.get(MainOptions.DIACRITICS);
-        data.meta.language = Language.get(options);
-        data.meta.stopwords = options.get(MainOptions.STOPWORDS);
-        index = IndexType.FULLTEXT;
+        meta.createftxt = true;
+        meta.stemming = options.get(MainOptions.STEMMING);
+        meta.casesens = options.get(MainOptions.CASESENS);
+        meta.diacritics = options.get(MainOptions.DIACRITICS);
+        meta.language = Language.get(options);
+        meta.stopwords = options.get(MainOptions.STOPWORDS);
         break;
       default:
-        return error(UNKNOWN_CMD_X, this);
+        meta.compdefs = options.get(MainOptions.COMPINDEX);
+        break;
     }
+  }
 
-    if(!data.startUpdate()) return error(DB_PINNED_X, data.meta.name);
-    try {
-      create(index, data, this);
-      return info(INDEX_CREATED_X_X, index, perf);
-    } catch(final IOException ex) {
-      return error(Util.message(ex));
-    } finally {
-      data.finishUpdate();
+  /**
+   * Returns a builder for the specified index, using the specified options.
+   * @param index index type
+   * @param data data reference
+   * @param opts options
+   * @return index builder
+   * @throws IOException I/O exception
+   */
+  private static IndexBuilder builder(final IndexType index, final Data data,
+      final MainOptions opts) throws IOException {
+    switch(index) {
+      case TEXT:
+        return new ValueIndexBuilder(data, true, opts.get(MainOptions.TEXTINCLUDE));
+      case ATTRIBUTE:
+        return new ValueIndexBuilder(data, false, opts.get(MainOptions.ATTRINCLUDE));
+      case FULLTEXT:
+        return new FTBuilder(data);
+      default:
+        return new CompositeIndexBuilder(data, opts.get(MainOptions.COMPINDEX));
     }
   }
 
@@ -45,11 +45,15 @@ public final class DropIndex extends ACreate {
         data.meta.createftxt = false;
         it = IndexType.FULLTEXT;
         break;
+      case COMPOSITE:
+        data.meta.compdefs = "";
+        it = IndexType.COMPOSITE;
+        break;
       default:
         return error(UNKNOWN_CMD_X, this);
     }
 
-    if(!data.startUpdate()) return error(DB_PINNED_X, data.meta.name);
+    if(!startUpdate(data)) return false;
     try {
       return drop(it, context.data()) ? info(INDEX_DROPPED_X_X, it, perf) :
         error(INDEX_NOT_DROPPED_X, it);
@@ -62,7 +62,11 @@ public final class DropUser extends AUser {
     }
 
     // try to lock database
-    if(!data.startUpdate()) return !info(DB_PINNED_X, data.meta.name);
+    try {
+      if(!data.startUpdate()) return !info(DB_PINNED_X, data.meta.name);
+    } catch(final IOException ex) {
+      return !info(Util.message(ex));
+    }
 
     // drop local user
     if(data.meta.users.drop(data.meta.users.get(user))) {
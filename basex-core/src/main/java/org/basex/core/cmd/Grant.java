@@ -80,7 +80,11 @@ public final class Grant extends AUser {
     }
 
     // try to lock database
-    if(!data.startUpdate()) return !info(DB_PINNED_X, data.meta.name);
+    try {
+      if(!data.startUpdate()) return !info(DB_PINNED_X, data.meta.name);
+    } catch(final IOException ex) {
+      return !info(Util.message(ex));
+    }
 
     User u = data.meta.users.get(user);
     // add local user reference
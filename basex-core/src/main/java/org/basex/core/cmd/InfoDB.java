@@ -61,6 +61,8 @@ public final class InfoDB extends AInfo {
     final int b = meta.path != null ? meta.binaries().descendants().size() : 0;
     info(tb, BINARIES, b);
     info(tb, TIMESTAMP, DateTime.format(new Date(meta.dbtime()), DateTime.DATETIME));
+    info(tb, MainOptions.COLUMNAR.name(), Util.flag(meta.columnar));
+    info(tb, MainOptions.COMPRESSION.name(), Util.flag(meta.compressed));
     if(meta.corrupt) tb.add(' ' + DB_CORRUPT + NL);
 
     tb.add(NL).addExt(header, RES_PROPS);
@@ -79,7 +81,12 @@ public final class InfoDB extends AInfo {
         info(tb, TEXT_INDEX, Util.flag(meta.textindex));
         info(tb, ATTRIBUTE_INDEX, Util.flag(meta.attrindex));
         info(tb, FULLTEXT_INDEX, Util.flag(meta.ftxtindex));
+        info(tb, COMPOSITE_INDEX, Util.flag(meta.compindex));
         info(tb, MainOptions.UPDINDEX.name(), Util.flag(meta.updindex));
+        info(tb, MainOptions.NUMINDEX.name(), Util.flag(meta.numindex));
+        info(tb, MainOptions.TEXTINCLUDE.name(), meta.textinclude);
+        info(tb, MainOptions.ATTRINCLUDE.name(), meta.attrinclude);
+        info(tb, MainOptions.COMPINDEX.name(), meta.compdefs);
         info(tb, MainOptions.MAXCATS.name(), meta.maxcats);
         info(tb, MainOptions.MAXLEN.name(), meta.maxlen);
       }
@@ -51,6 +51,7 @@ public final class InfoIndex extends AInfo {
     tb.add(info(CmdIndexInfo.TEXT, data));
     tb.add(info(CmdIndexInfo.ATTRIBUTE, data));
     tb.add(info(CmdIndexInfo.FULLTEXT, data));
+    if(data.meta.compindex) tb.add(info(CmdIndexInfo.COMPOSITE, data));
     tb.add(info(CmdIndexInfo.PATH, data));
     out.print(tb.finish());
     return true;
@@ -75,6 +76,7 @@ public final class InfoIndex extends AInfo {
       case TEXT:      return info(TEXT_INDEX, IndexType.TEXT, data, data.meta.textindex);
       case ATTRIBUTE: return info(ATTRIBUTE_INDEX, IndexType.ATTRIBUTE, data, data.meta.attrindex);
       case FULLTEXT:  return info(FULLTEXT_INDEX, IndexType.FULLTEXT, data, data.meta.ftxtindex);
+      case COMPOSITE: return info(COMPOSITE_INDEX, IndexType.COMPOSITE, data, data.meta.compindex);
       default:        return Token.token(LI + NOT_AVAILABLE);
     }
   }
@@ -10,6 +10,8 @@ import org.basex.core.*;
 import org.basex.core.parse.*;
 import org.basex.core.parse.Commands.*;
 import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -63,6 +65,7 @@ public final class InfoStorage extends AQuery {
       }
       out.print(table(data, ps, pe));
     }
+    if(!data.inMemory()) out.print(cache());
     return true;
   }
 
@@ -92,6 +95,20 @@ public final class InfoStorage extends AQuery {
     return tb.finish();
   }
 
+  /**
+   * Returns information on the shared page cache.
+   * @return info string
+   */
+  private static String cache() {
+    final PageCache pc = PageCache.get();
+    final TokenBuilder tb = new TokenBuilder().add(NL).add(PAGE_CACHE).add(COL).add(NL);
+    AInfo.info(tb, SIZE, Performance.format((long) pc.capacity() * IO.BLOCKSIZE));
+    AInfo.info(tb, CACHED_PAGES, pc.pages());
+    AInfo.info(tb, CACHE_HITS, pc.hits());
+    AInfo.info(tb, CACHE_MISSES, pc.misses());
+    return tb.toString();
+  }
+
   /**
    * Writes the header for the 'table' command.
    * @return table
@@ -3,10 +3,12 @@ package org.basex.core.cmd;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.ft.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -37,17 +39,33 @@ public final class Optimize extends ACreate {
     final MetaData m = data.meta;
     size = m.size;
 
-    if(!data.startUpdate()) return error(DB_PINNED_X, data.meta.name);
     try {
-      optimize(data, false, this);
-      return info(DB_OPTIMIZED_X, m.name, perf);
+      // build outdated indexes online; the remaining structures are refreshed afterwards
+      final IndexType[] indexes = online() ? outdated(m) : new IndexType[0];
+      final int il = indexes.length;
+      final IndexBuilder[] ibs = new IndexBuilder[il];
+      for(int i = 0; i < il; i++) ibs[i] = builder(indexes[i], data);
+      final boolean swap = online(data, ibs);
+
+      if(!startUpdate(data)) return false;
+      try {
+        if(swap) swap(data, indexes, ibs);
+        optimize(data, false, this);
+        return info(DB_OPTIMIZED_X, m.name, perf);
+      } finally {
+        data.finishUpdate();
+      }
     } catch(final IOException ex) {
       return error(Util.message(ex));
-    } finally {
-      data.finishUpdate();
     }
   }
 
+  @Override
+  public boolean updating(final Context ctx) {
+    // indexes that are built online only require a write lock when they are swapped in
+    return !online(ctx);
+  }
+
   @Override
   public double prog() {
     return (double) pre / size;
@@ -122,29 +140,48 @@ public final class Optimize extends ACreate {
     }
 
     // rebuild value indexes
-    optimize(IndexType.ATTRIBUTE, data, md.createattr, md.attrindex, rebuild, cmd);
-    optimize(IndexType.TEXT,      data, md.createtext, md.textindex, rebuild, cmd);
-    optimize(IndexType.FULLTEXT,  data, md.createftxt, md.ftxtindex, rebuild, cmd);
+    final ArrayList<IndexType> indexes = new ArrayList<IndexType>();
+    optimize(IndexType.ATTRIBUTE, data, md.createattr, md.attrindex, rebuild, indexes);
+    optimize(IndexType.TEXT,      data, md.createtext, md.textindex, rebuild, indexes);
+    optimize(IndexType.FULLTEXT,  data, md.createftxt, md.ftxtindex, rebuild, indexes);
+    optimize(IndexType.COMPOSITE, data, !md.compdefs.isEmpty(), md.compindex, rebuild, indexes);
+    create(data, cmd, indexes.toArray(new IndexType[indexes.size()]));
+    // merge pending full-text index updates
+    if(data.ftxindex instanceof FTIndex) ((FTIndex) data.ftxindex).merge();
+  }
+
+  /**
+   * Returns the indexes that are to be created, but not up-to-date.
+   * @param md meta data
+   * @return index types
+   */
+  private static IndexType[] outdated(final MetaData md) {
+    final ArrayList<IndexType> list = new ArrayList<IndexType>();
+    if(md.createtext && !md.textindex) list.add(IndexType.TEXT);
+    if(md.createattr && !md.attrindex) list.add(IndexType.ATTRIBUTE);
+    if(md.createftxt && !md.ftxtindex) list.add(IndexType.FULLTEXT);
+    if(!md.compdefs.isEmpty() && !md.compindex) list.add(IndexType.COMPOSITE);
+    return list.toArray(new IndexType[list.size()]);
   }
 
   /**
-   * Optimizes the specified index.
+   * Optimizes the specified index. Indexes to be created are added to the
+   * specified list and built together.
    * @param type index type
    * @param d data reference
    * @param create create flag
    * @param old old flag
    * @param rebuild rebuild all index structures
-   * @param cmd calling command instance
-   * @throws IOException I/O exception
+   * @param indexes indexes to be created
    */
   private static void optimize(final IndexType type, final Data d, final boolean create,
-      final boolean old, final boolean rebuild, final Optimize cmd) throws IOException {
+      final boolean old, final boolean rebuild, final ArrayList<IndexType> indexes) {
 
     // check if flags are nothing has changed
     if(!rebuild && create == old) return;
 
     // create or drop index
-    if(create) create(type, d, cmd);
+    if(create) indexes.add(type);
     else drop(type, d);
   }
 }
@@ -9,7 +9,6 @@ import org.basex.core.*;
 import org.basex.core.parse.*;
 import org.basex.core.parse.Commands.*;
 import org.basex.data.*;
-import org.basex.index.*;
 import org.basex.io.*;
 import org.basex.io.serial.*;
 import org.basex.query.value.node.*;
@@ -102,6 +101,7 @@ public final class OptimizeAll extends ACreate {
     if(cmd != null) cmd.size = m.size;
 
     // check if database is also pinned by other users
+    ctx.release(m.name);
     if(ctx.dbs.pins(m.name) > 1) throw new BaseXException(DB_PINNED_X, m.name);
 
     // find unique temporary database name
@@ -111,8 +111,12 @@ public final class OptimizeAll extends ACreate {
     ctx.options.set(MainOptions.CHOP, m.chop);
     // adopt original index options
     ctx.options.set(MainOptions.UPDINDEX, m.updindex);
+    ctx.options.set(MainOptions.NUMINDEX, m.numindex);
     ctx.options.set(MainOptions.MAXCATS,  m.maxcats);
     ctx.options.set(MainOptions.MAXLEN,   m.maxlen);
+    ctx.options.set(MainOptions.TEXTINCLUDE, m.textinclude);
+    ctx.options.set(MainOptions.ATTRINCLUDE, m.attrinclude);
+    ctx.options.set(MainOptions.COMPINDEX, m.compdefs);
     // adopt original full-text index options
     ctx.options.set(MainOptions.STEMMING,   m.stemming);
     ctx.options.set(MainOptions.CASESENS,   m.casesens);
@@ -124,9 +128,7 @@ public final class OptimizeAll extends ACreate {
     final DiskBuilder builder = new DiskBuilder(tname, new DBParser(old, cmd), ctx);
     try {
       final DiskData d = builder.build();
-      if(m.createtext) create(IndexType.TEXT, d, cmd);
-      if(m.createattr) create(IndexType.ATTRIBUTE, d, cmd);
-      if(m.createftxt) create(IndexType.FULLTEXT, d, cmd);
+      create(d, cmd, indexes(m));
       // adopt original meta data
       d.meta.createtext = m.createtext;
       d.meta.createattr = m.createattr;
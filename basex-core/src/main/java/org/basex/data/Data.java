@@ -2,6 +2,7 @@ package org.basex.data;
 
 import static org.basex.util.Token.*;
 
+import java.io.*;
 import java.util.*;
 
 import org.basex.core.cmd.*;
@@ -55,6 +56,9 @@ import org.basex.util.list.*;
  * - Byte    11:  NURI: Namespace (bits: 7-3)
  * </pre>
  *
+ * The table of a disk database can also be stored in a compressed, column-oriented
+ * format (see {@link TableColumnAccess}).
+ *
  * As all methods of this class are optimized for performance, no checks are
  * performed on the arguments (e.g.: if the string value of a text node is
  * requested, the specified pre value must point to a text node).
@@ -97,6 +101,8 @@ public abstract class Data {
   public Index atvindex;
   /** Full-text index instance. */
   public Index ftxindex;
+  /** Composite index instance. */
+  public Index cmpindex;
   /** Number of current database users. */
   public int pins = 1;
 
@@ -129,8 +135,9 @@ public abstract class Data {
    * Starts an update operation: writes a file to disk to indicate that an update is
    * going on, and exclusively locks the table.
    * @return success flag
+   * @throws IOException I/O exception
    */
-  public abstract boolean startUpdate();
+  public abstract boolean startUpdate() throws IOException;
 
   /**
    * Finishes an update operation: removes the update file and the exclusive lock.
@@ -177,6 +184,7 @@ public abstract class Data {
       case TEXT:      return txtindex;
       case ATTRIBUTE: return atvindex;
       case FULLTEXT:  return ftxindex;
+      case COMPOSITE: return cmpindex;
       case PATH:      return paths;
       default:        throw Util.notExpected();
     }
@@ -476,6 +484,8 @@ public abstract class Data {
       final int nuri = ne ? nspaces.add(npre, npre, prefix(name), uri, this) :
         ouri != 0 && eq(nspaces.uri(ouri), uri) ? ouri : 0;
 
+      // remove index entries that depend on the old name
+      if(meta.updindex) indexRename(pre, kind, false);
       // write namespace uri reference
       table.write1(pre, kind == ELEM ? 3 : 11, nuri);
       // write name reference
@@ -483,6 +493,8 @@ public abstract class Data {
         (kind == ELEM ? tagindex : atnindex).index(name, null, false));
       // write namespace flag
       table.write2(npre, 1, (ne || nsFlag(npre) ? 1 << 15 : 0) | name(npre));
+      // add index entries that depend on the new name
+      if(meta.updindex) indexRename(pre, kind, true);
     }
   }
 
@@ -574,7 +586,6 @@ public abstract class Data {
     }
 
     if(meta.updindex) {
-      indexEnd();
       // update ID -> PRE map:
       idmap.delete(tpre, id(tpre), -tsize);
       idmap.insert(tpre, meta.lastid - size + 1, size);
@@ -583,6 +594,8 @@ public abstract class Data {
     // update table:
     table.replace(tpre, buffer(), tsize);
     buffer(1);
+    // update indexes after the new nodes have been written to the table
+    if(meta.updindex) indexEnd();
 
     // no distance/size update if the two subtrees are of equal size
     if(diff == 0) return;
@@ -1056,6 +1069,14 @@ public abstract class Data {
   /** Notify the index structures that an update operation is finished. */
   void indexEnd() { }
 
+  /**
+   * Notify the index structures that an element or attribute is renamed.
+   * @param pre pre value of the renamed node
+   * @param kind node kind
+   * @param add add or remove the index entries that depend on the name of the node
+   */
+  void indexRename(final int pre, final int kind, final boolean add) { }
+
   /**
    * Delete a node and its descendants from the corresponding indexes.
    * @param pre pre value of the node to delete
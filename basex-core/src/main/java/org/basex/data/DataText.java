@@ -38,12 +38,22 @@ public interface DataText {
   String DBPTHIDX = "PTHINDEX";
   /** Automatic index update. */
   String DBUPDIDX = "UPDINDEX";
+  /** Numeric keys of value indexes. */
+  String DBNUMIDX = "NUMINDEX";
   /** Text indexing. */
   String DBTXTIDX = "TXTINDEX";
   /** Attribute indexing. */
   String DBATVIDX = "ATVINDEX";
   /** Full-text indexing. */
   String DBFTXIDX = "FTXINDEX";
+  /** Names of elements whose texts are indexed. */
+  String DBTXTINC = "TXTINCLUDE";
+  /** Names of attributes whose values are indexed. */
+  String DBATVINC = "ATVINCLUDE";
+  /** Composite indexing. */
+  String DBCMPIDX = "CMPINDEX";
+  /** Definitions of composite indexes. */
+  String DBCMPDEF = "CMPDEFS";
   /** Full-text stemming. */
   String DBFTST = "FTSTEM";
   /** Full-text language. */
@@ -54,6 +64,10 @@ public interface DataText {
   String DBFTCS = "FTCS";
   /** Full-text diacritics removal. */
   String DBFTDC = "FTDC";
+  /** Skip pointers of full-text posting lists. */
+  String DBFTSKIP = "FTSKIPS";
+  /** Node ids in full-text posting lists. */
+  String DBFTIDS = "FTIDS";
   /** Maximum token length. */
   String DBMAXLEN = "MAXLEN";
   /** Maximum number of categories. */
@@ -62,6 +76,10 @@ public interface DataText {
   String DBUPTODATE = "UPTODATE";
   /** Last (highest) id. */
   String DBLASTID = "LASTID";
+  /** Compressed table format. */
+  String DBCOLUMNAR = "COLUMNAR";
+  /** Block-compressed texts and attribute values. */
+  String DBCOMPRESSED = "COMPRESSED";
   /** Permissions. */
   String DBPERM = "PERM";
   /** Documents. */
@@ -101,10 +119,14 @@ public interface DataText {
   String DATAATV = "atv";
   /** Database - Full-text index. */
   String DATAFTX = "ftx";
+  /** Database - Composite index. */
+  String DATACMP = "cmp";
   /** Database - Stopword list. */
   String DATASWL = "swl";
   /** Database - Updating flag. */
   String DATAUPD = "upd";
+  /** Database - Prefix of index files that are built online. */
+  String DATAONL = "onl";
 
   // XML SERIALIZATION ============================================================================
 
@@ -47,6 +47,9 @@ public final class DiskData extends Data {
   private TokenObjMap<IntList> txts;
   /** Attribute values buffered for subsequent index updates. */
   private TokenObjMap<IntList> atvs;
+  /** Nodes whose values will be buffered when the update is finished, if the names
+   * of the indexed elements and attributes are restricted. */
+  private IntList pending;
   /** Closed flag. */
   private boolean closed;
 
@@ -89,6 +92,7 @@ public final class DiskData extends Data {
       if(meta.attrindex) atvindex = new DiskValues(this, false);
     }
     if(meta.ftxtindex) ftxindex = new FTIndex(this);
+    if(meta.compindex) cmpindex = new CompositeIndex(this);
     init();
   }
 
@@ -119,9 +123,14 @@ public final class DiskData extends Data {
    * @throws IOException I/O exception
    */
   void init() throws IOException {
-    table = new TableDiskAccess(meta, false);
-    texts = new DataAccess(meta.dbfile(DATATXT));
-    values = new DataAccess(meta.dbfile(DATAATV));
+    final boolean mmap = meta.options.get(MainOptions.MMAP);
+    TableColumnAccess.recover(meta);
+    DataAccess.recover(meta.dbfile(DATATXT), meta.compressed);
+    DataAccess.recover(meta.dbfile(DATAATV), meta.compressed);
+    table = meta.columnar ? new TableColumnAccess(meta, false) :
+      new TableDiskAccess(meta, false, mmap);
+    texts = new DataAccess(meta.dbfile(DATATXT), mmap, meta.compressed);
+    values = new DataAccess(meta.dbfile(DATAATV), mmap, meta.compressed);
   }
 
   /**
@@ -129,28 +138,34 @@ public final class DiskData extends Data {
    * @throws IOException I/O exception
    */
   private void write() throws IOException {
-    if(meta.dirty) {
-      final DataOutput out = new DataOutput(meta.dbfile(DATAINF));
-      meta.write(out);
-      out.writeToken(token(DBTAGS));
-      tagindex.write(out);
-      out.writeToken(token(DBATTS));
-      atnindex.write(out);
-      out.writeToken(token(DBPATH));
-      paths.write(out);
-      out.writeToken(token(DBNS));
-      nspaces.write(out);
-      out.writeToken(token(DBDOCS));
-      resources.write(out);
-      out.write(0);
-      out.close();
-      if(idmap != null) idmap.write(meta.dbfile(DATAIDP));
-      meta.dirty = false;
-    }
+    if(meta.dirty) writeMeta();
     // in all cases, remove updating file
     updateFile().delete();
   }
 
+  /**
+   * Writes the meta data and the structural information of the database to disk.
+   * @throws IOException I/O exception
+   */
+  private void writeMeta() throws IOException {
+    final DataOutput out = new DataOutput(meta.dbfile(DATAINF));
+    meta.write(out);
+    out.writeToken(token(DBTAGS));
+    tagindex.write(out);
+    out.writeToken(token(DBATTS));
+    atnindex.write(out);
+    out.writeToken(token(DBPATH));
+    paths.write(out);
+    out.writeToken(token(DBNS));
+    nspaces.write(out);
+    out.writeToken(token(DBDOCS));
+    resources.write(out);
+    out.write(0);
+    out.close();
+    if(idmap != null) idmap.write(meta.dbfile(DATAIDP));
+    meta.dirty = false;
+  }
+
   @Override
   public synchronized void close() {
     if(closed) return;
@@ -163,6 +178,7 @@ public final class DiskData extends Data {
       closeIndex(IndexType.TEXT);
       closeIndex(IndexType.ATTRIBUTE);
       closeIndex(IndexType.FULLTEXT);
+      closeIndex(IndexType.COMPOSITE);
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -181,6 +197,7 @@ public final class DiskData extends Data {
       case TEXT:      txtindex = null; break;
       case ATTRIBUTE: atvindex = null; break;
       case FULLTEXT:  ftxindex = null; break;
+      case COMPOSITE: cmpindex = null; break;
       default:        break;
     }
   }
@@ -192,14 +209,50 @@ public final class DiskData extends Data {
       case TEXT:      txtindex = index; break;
       case ATTRIBUTE: atvindex = index; break;
       case FULLTEXT:  ftxindex = index; break;
+      case COMPOSITE: cmpindex = index; break;
       default:        break;
     }
   }
 
   @Override
-  public boolean startUpdate() {
+  public boolean startUpdate() throws IOException {
     final IOFile uf = updateFile();
-    return (uf.exists() || uf.touch()) && table.lock(true);
+    if(!(uf.exists() || uf.touch()) || !table.lock(true)) return false;
+    final boolean columnar = meta.columnar, compressed = meta.compressed;
+    if(columnar || compressed) {
+      // convert compressed table and decompress texts. the meta data is written before the
+      // new files are swapped in, and an interrupted conversion will be completed by init()
+      try {
+        if(columnar) ((TableColumnAccess) table).convert();
+        if(compressed) {
+          texts.decompress();
+          values.decompress();
+        }
+        meta.columnar = false;
+        meta.compressed = false;
+        meta.dirty = true;
+        writeMeta();
+      } catch(final IOException ex) {
+        meta.columnar = columnar;
+        meta.compressed = compressed;
+        // discard temporary files and the update marker; otherwise, the database
+        // could not be opened anymore
+        if(columnar) TableColumnAccess.recover(meta);
+        if(compressed) {
+          DataAccess.recover(meta.dbfile(DATATXT), true);
+          DataAccess.recover(meta.dbfile(DATAATV), true);
+        }
+        table.lock(false);
+        uf.delete();
+        throw ex;
+      }
+      if(columnar) ((TableColumnAccess) table).swap();
+      if(compressed) {
+        texts.swap();
+        values.swap();
+      }
+    }
+    return true;
   }
 
   @Override
@@ -214,6 +267,7 @@ public final class DiskData extends Data {
       values.flush();
       if(txtindex != null) ((DiskValues) txtindex).flush();
       if(atvindex != null) ((DiskValues) atvindex).flush();
+      if(ftxindex != null) ((FTIndex) ftxindex).flush();
     } catch(final IOException ex) {
       Util.stack(ex);
     } finally {
@@ -252,9 +306,10 @@ public final class DiskData extends Data {
     final long o = textOff(pre);
     if(num(o)) return numDigits((int) o);
     final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
+    final long p = o & IO.OFFCOMP - 1;
+    final int l = da.num(p);
     // compressed: next number contains number of compressed bytes
-    return cpr(o) ? da.readNum() : l;
+    return cpr(o) ? da.num(p + Num.length(l)) : l;
   }
 
   /**
@@ -264,7 +319,7 @@ public final class DiskData extends Data {
    * @return text
    */
   private byte[] txt(final long o, final boolean text) {
-    final byte[] txt = (text ? texts : values).readToken(o & IO.OFFCOMP - 1);
+    final byte[] txt = (text ? texts : values).token(o & IO.OFFCOMP - 1);
     return cpr(o) ? COMP.get().unpack(txt) : txt;
   }
 
@@ -306,7 +361,9 @@ public final class DiskData extends Data {
       final byte[] oldval = text(pre, text);
       final DiskValues index = (DiskValues) (text ? txtindex : atvindex);
       // don't index document names
-      if(index != null && kind != DOC) index.replace(oldval, value, id);
+      if(index != null && kind != DOC && new IndexNames(this, text).contains(pre))
+        index.replace(oldval, value, id);
+      if(ftxindex != null && kind == TEXT) ((FTIndex) ftxindex).replace(id, oldval, value);
     }
 
     // reference to text store
@@ -348,10 +405,21 @@ public final class DiskData extends Data {
   protected void indexBegin() {
     txts = new TokenObjMap<IntList>();
     atvs = new TokenObjMap<IntList>();
+    pending = new IntList();
   }
 
   @Override
   protected void indexEnd() {
+    // the parents and names of new nodes can now be looked up in the table
+    if(!pending.isEmpty()) {
+      final IndexNames txtn = new IndexNames(this, true), atvn = new IndexNames(this, false);
+      final int ps = pending.size();
+      for(int p = 0; p < ps; p++) {
+        final int pre = pending.get(p);
+        final boolean text = kind(pre) != ATTR;
+        if((text ? txtn : atvn).contains(pre)) buffer(text ? txts : atvs, pre, text);
+      }
+    }
     if(!txts.isEmpty()) ((DiskValues) txtindex).index(txts);
     if(!atvs.isEmpty()) ((DiskValues) atvindex).index(atvs);
   }
@@ -370,14 +438,14 @@ public final class DiskData extends Data {
       m = meta.textindex && kind != DOC ? txts : null;
     }
 
+    // add text to full-text index
+    if(meta.updindex && ftxindex != null && kind == TEXT) ((FTIndex) ftxindex).index(id, value);
+
     // add text to map to index later
     if(meta.updindex && m != null && value.length <= meta.maxlen) {
-      IntList ids = m.get(value);
-      if(ids == null) {
-        ids = new IntList(1);
-        m.put(value, ids);
-      }
-      ids.add(id);
+      // indexed names are restricted: check node when the update is finished
+      if((kind == ATTR ? meta.attrinclude : meta.textinclude).isEmpty()) buffer(m, value, id);
+      else pending.add(pre);
     }
 
     // add text to text file
@@ -394,34 +462,80 @@ public final class DiskData extends Data {
 
   @Override
   protected void indexDelete(final int pre, final int size) {
-    if(!(meta.textindex || meta.attrindex)) return;
+    if(!(meta.textindex || meta.attrindex || meta.ftxtindex)) return;
 
     // collect all keys and ids
     txts = new TokenObjMap<IntList>();
     atvs = new TokenObjMap<IntList>();
+    final IndexNames txtn = new IndexNames(this, true), atvn = new IndexNames(this, false);
     final int l = pre + size;
     for(int p = pre; p < l; ++p) {
       final int k = kind(p);
+      if(k == TEXT && ftxindex != null) ((FTIndex) ftxindex).delete(id(p), text(p, true));
       final boolean isAttr = k == ATTR;
       // consider nodes which are attribute, text, comment, or proc. instruction
-      if(meta.attrindex && isAttr ||
-         meta.textindex && (k == TEXT || k == COMM || k == PI)) {
-        final byte[] key = text(p, !isAttr);
-        if(key.length <= meta.maxlen) {
-          final TokenObjMap<IntList> m = isAttr ? atvs : txts;
-          IntList ids = m.get(key);
-          if(ids == null) {
-            ids = new IntList(1);
-            m.put(key, ids);
-          }
-          ids.add(id(p));
-        }
+      if(meta.attrindex && isAttr && atvn.contains(p)) {
+        buffer(atvs, p, false);
+      } else if(meta.textindex && (k == TEXT || k == COMM || k == PI) && txtn.contains(p)) {
+        buffer(txts, p, true);
       }
     }
     if(!txts.isEmpty()) ((DiskValues) txtindex).delete(txts);
     if(!atvs.isEmpty()) ((DiskValues) atvindex).delete(atvs);
   }
 
+  @Override
+  void indexRename(final int pre, final int kind, final boolean add) {
+    // element names are only relevant for the text index
+    final boolean text = kind == ELEM;
+    if(!(text ? meta.textindex : meta.attrindex)) return;
+    final IndexNames names = new IndexNames(this, text);
+    if(names.all()) return;
+
+    final TokenObjMap<IntList> m = new TokenObjMap<IntList>();
+    if(text) {
+      // texts of child nodes
+      final int l = pre + size(pre, kind);
+      for(int p = pre + attSize(pre, kind); p < l; p += size(p, kind(p))) {
+        final int k = kind(p);
+        if((k == TEXT || k == COMM || k == PI) && names.contains(p)) buffer(m, p, true);
+      }
+    } else if(names.contains(pre)) {
+      buffer(m, pre, false);
+    }
+    if(m.isEmpty()) return;
+    final DiskValues index = (DiskValues) (text ? txtindex : atvindex);
+    if(add) index.index(m);
+    else index.delete(m);
+  }
+
+  /**
+   * Buffers the value of a text or attribute for subsequent index updates.
+   * Values exceeding the maximum index entry length are skipped.
+   * @param m map with buffered values
+   * @param pre pre value
+   * @param text text or attribute flag
+   */
+  private void buffer(final TokenObjMap<IntList> m, final int pre, final boolean text) {
+    final byte[] value = text(pre, text);
+    if(value.length <= meta.maxlen) buffer(m, value, id(pre));
+  }
+
+  /**
+   * Buffers a value for subsequent index updates.
+   * @param m map with buffered values
+   * @param value value
+   * @param id id of the node
+   */
+  private static void buffer(final TokenObjMap<IntList> m, final byte[] value, final int id) {
+    IntList ids = m.get(value);
+    if(ids == null) {
+      ids = new IntList(1);
+      m.put(value, ids);
+    }
+    ids.add(id);
+  }
+
   @Override
   public boolean inMemory() {
     return false;
@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.concurrent.atomic.*;
 
 import org.basex.build.*;
 import org.basex.core.*;
@@ -47,18 +48,33 @@ public final class MetaData {
   public volatile boolean chop;
   /** Flag for activated automatic index update. */
   public volatile boolean updindex;
+  /** Flag for numeric keys of value indexes. */
+  public volatile boolean numindex;
   /** Indicates if a text index exists. */
   public volatile boolean textindex;
   /** Indicates if a attribute index exists. */
   public volatile boolean attrindex;
   /** Indicates if a full-text index exists. */
   public volatile boolean ftxtindex;
+  /** Indicates if the posting lists of the full-text index contain skip pointers. */
+  public volatile boolean ftskips;
+  /** Indicates if the posting lists of the full-text index contain ids instead of pre
+   *  values. */
+  public volatile boolean ftids;
   /** Indicates if text index is to be recreated. */
   public volatile boolean createtext;
   /** Indicates if attribute index is to be recreated. */
   public volatile boolean createattr;
   /** Indicates if full-text index is to be recreated. */
   public volatile boolean createftxt;
+  /** Names of the elements whose texts are indexed (all if empty). */
+  public volatile String textinclude = "";
+  /** Names of the attributes whose values are indexed (all if empty). */
+  public volatile String attrinclude = "";
+  /** Indicates if a composite index exists. */
+  public volatile boolean compindex;
+  /** Definitions of the composite indexes (none if empty). */
+  public volatile String compdefs = "";
 
   /** Flag for full-text stemming. */
   public volatile boolean stemming;
@@ -84,6 +100,15 @@ public final class MetaData {
   public volatile boolean corrupt;
   /** Dirty flag. */
   public volatile boolean dirty;
+  /** Number of updates since the database has been opened (not stored on disk). */
+  public volatile int updates;
+  /** Indicates if indexes are currently built online (not stored on disk). */
+  public final AtomicBoolean building = new AtomicBoolean();
+
+  /** Indicates if the table is stored in the compressed, column-oriented format. */
+  public volatile boolean columnar;
+  /** Indicates if the text and attribute value files are block-compressed. */
+  public volatile boolean compressed;
 
   /** Table size. */
   public volatile int size;
@@ -128,10 +153,14 @@ public final class MetaData {
     createtext = options.get(MainOptions.TEXTINDEX);
     createattr = options.get(MainOptions.ATTRINDEX);
     createftxt = options.get(MainOptions.FTINDEX);
+    textinclude = options.get(MainOptions.TEXTINCLUDE);
+    attrinclude = options.get(MainOptions.ATTRINCLUDE);
+    compdefs = options.get(MainOptions.COMPINDEX);
     diacritics = options.get(MainOptions.DIACRITICS);
     stemming = options.get(MainOptions.STEMMING);
     casesens = options.get(MainOptions.CASESENS);
     updindex = options.get(MainOptions.UPDINDEX);
+    numindex = options.get(MainOptions.NUMINDEX);
     maxlen = options.get(MainOptions.MAXLEN);
     maxcats = options.get(MainOptions.MAXCATS);
     stopwords = options.get(MainOptions.STOPWORDS);
@@ -290,6 +319,9 @@ public final class MetaData {
         else if(k.equals(DBFNAME))    original   = v;
         else if(k.equals(DBENC))      encoding   = v;
         else if(k.equals(DBFTSW))     stopwords  = v;
+        else if(k.equals(DBTXTINC))   textinclude = v;
+        else if(k.equals(DBATVINC))   attrinclude = v;
+        else if(k.equals(DBCMPDEF))   compdefs   = v;
         else if(k.equals(DBFTLN))     language   = Language.get(v);
         else if(k.equals(DBSIZE))     size       = toInt(v);
         else if(k.equals(DBNDOCS))    ndocs      = toInt(v);
@@ -300,11 +332,15 @@ public final class MetaData {
         else if(k.equals(DBTIME))     time       = toLong(v);
         else if(k.equals(DBFSIZE))    filesize   = toLong(v);
         else if(k.equals(DBFTDC))     diacritics = toBool(v);
+        else if(k.equals(DBFTSKIP))   ftskips    = toBool(v);
+        else if(k.equals(DBFTIDS))    ftids      = toBool(v);
         else if(k.equals(DBCHOP))     chop       = toBool(v);
         else if(k.equals(DBUPDIDX))   updindex   = toBool(v);
+        else if(k.equals(DBNUMIDX))   numindex   = toBool(v);
         else if(k.equals(DBTXTIDX))   textindex  = toBool(v);
         else if(k.equals(DBATVIDX))   attrindex  = toBool(v);
         else if(k.equals(DBFTXIDX))   ftxtindex  = toBool(v);
+        else if(k.equals(DBCMPIDX))   compindex  = toBool(v);
         else if(k.equals(DBCRTTXT))   createtext = toBool(v);
         else if(k.equals(DBCRTATV))   createattr = toBool(v);
         else if(k.equals(DBCRTFTX))   createftxt = toBool(v);
@@ -312,6 +348,8 @@ public final class MetaData {
         else if(k.equals(DBFTST))     stemming   = toBool(v);
         else if(k.equals(DBFTCS))     casesens   = toBool(v);
         else if(k.equals(DBUPTODATE)) uptodate   = toBool(v);
+        else if(k.equals(DBCOLUMNAR)) columnar   = toBool(v);
+        else if(k.equals(DBCOMPRESSED)) compressed = toBool(v);
         // legacy: set up-to-date flag to false if path index does not exist
         else if(k.equals(DBPTHIDX) && !toBool(v)) uptodate = false;
       }
@@ -326,6 +364,8 @@ public final class MetaData {
     corrupt = dbfile(DATAUPD).exists();
     // deactivate full-text index if obsolete trie structure was used
     if(wcindex) ftxtindex = false;
+    // deactivate full-text index if it is incrementally updated, but references pre values
+    if(updindex && !ftids) ftxtindex = false;
   }
 
   /**
@@ -344,39 +384,61 @@ public final class MetaData {
     writeInfo(out, DBSIZE,     size);
     writeInfo(out, DBCHOP,     chop);
     writeInfo(out, DBUPDIDX,   updindex);
+    writeInfo(out, DBNUMIDX,   numindex);
     writeInfo(out, DBTXTIDX,   textindex);
     writeInfo(out, DBATVIDX,   attrindex);
     writeInfo(out, DBFTXIDX,   ftxtindex);
     writeInfo(out, DBCRTTXT,   createtext);
     writeInfo(out, DBCRTATV,   createattr);
     writeInfo(out, DBCRTFTX,   createftxt);
+    writeInfo(out, DBTXTINC,   textinclude);
+    writeInfo(out, DBATVINC,   attrinclude);
+    writeInfo(out, DBCMPIDX,   compindex);
+    writeInfo(out, DBCMPDEF,   compdefs);
     writeInfo(out, DBFTST,     stemming);
     writeInfo(out, DBFTCS,     casesens);
     writeInfo(out, DBFTDC,     diacritics);
+    writeInfo(out, DBFTSKIP,   ftskips);
+    writeInfo(out, DBFTIDS,    ftids);
     writeInfo(out, DBFTSW,     stopwords);
     writeInfo(out, DBMAXLEN,   maxlen);
     writeInfo(out, DBMAXCATS,  maxcats);
     writeInfo(out, DBUPTODATE, uptodate);
     writeInfo(out, DBLASTID,   lastid);
+    writeInfo(out, DBCOLUMNAR, columnar);
+    writeInfo(out, DBCOMPRESSED, compressed);
     if(language != null) writeInfo(out, DBFTLN, language.toString());
     out.writeToken(token(DBPERM));
     users.write(out);
     out.write(0);
   }
 
+  /**
+   * Returns a version number, which changes whenever the database is updated or its
+   * indexes are created or dropped (not stored on disk).
+   * @return version number
+   */
+  public long version() {
+    return (long) updates << 4 | (textindex ? 1 : 0) | (attrindex ? 2 : 0) |
+        (ftxtindex ? 4 : 0) | (compindex ? 8 : 0);
+  }
+
   /**
    * Notifies the meta structures of an update and invalidates the indexes.
    */
   public void update() {
     // update database timestamp
     time = System.currentTimeMillis();
+    updates++;
     uptodate = false;
     dirty = true;
+    // composite indexes are not updated incrementally
+    compindex = false;
     if(!updindex) {
       textindex = false;
       attrindex = false;
+      ftxtindex = false;
     }
-    ftxtindex = false;
   }
 
   // PRIVATE METHODS ==========================================================
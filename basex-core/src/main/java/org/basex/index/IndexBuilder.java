@@ -1,12 +1,16 @@
 package org.basex.index;
 
 import static org.basex.core.Text.*;
+import static org.basex.data.DataText.*;
 
 import java.io.*;
+import java.util.concurrent.atomic.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
+import org.basex.io.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This interface defines the functions which are needed for building
@@ -37,13 +41,138 @@ public abstract class IndexBuilder extends Proc {
   /** Threshold for freeing memory when estimating main memory consumption. */
   private int gcCount;
 
+  /** Ids of the partial index structures that have been written to disk. */
+  protected final IntList files = new IntList();
+  /** Counter for the ids of partial index structures, shared by the builders of all
+   * parts of the table ({@code null} if the index is built sequentially). */
+  AtomicInteger ids;
+  /** Indicates if the index is built online (see {@link #online()}). */
+  protected boolean online;
+
   /**
    * Builds the index structure and returns an index instance.
-   * @return index instance
+   * @return index instance, or {@code null} if the index is built online
    * @throws IOException I/O Exception
    */
   public abstract Index build() throws IOException;
 
+  /**
+   * Returns the prefix of the index files.
+   * @return prefix
+   */
+  protected abstract String prefix();
+
+  /**
+   * Opens the index structure that has been written to disk and marks it as
+   * available in the meta data.
+   * @return index instance
+   * @throws IOException I/O Exception
+   */
+  protected abstract Index open() throws IOException;
+
+  /**
+   * Creates a builder for a part of the table. It writes partial index structures,
+   * which will be merged by this builder (see {@link ParallelIndexBuilder}).
+   * @return builder
+   * @throws IOException I/O Exception
+   */
+  protected abstract IndexBuilder part() throws IOException;
+
+  /**
+   * Indexes the node with the current pre value.
+   * @throws IOException I/O Exception
+   */
+  protected abstract void index() throws IOException;
+
+  /**
+   * Writes the remaining entries of a part of the table to disk.
+   * @throws IOException I/O Exception
+   */
+  protected abstract void finishPart() throws IOException;
+
+  /**
+   * Merges the partial index structures of the specified parts and returns an
+   * index instance.
+   * @param parts builders of the parts of the table, in the order of the table
+   * @return index instance
+   * @throws IOException I/O Exception
+   */
+  protected abstract Index merge(final IndexBuilder[] parts) throws IOException;
+
+  @Override
+  protected abstract void abort();
+
+  /**
+   * Builds the index online. The index files are written next to the files of the
+   * existing index, which remains accessible until the new index is swapped in
+   * (see {@link #swap()}). The meta data will not be changed before that.
+   * @return self reference
+   */
+  public final IndexBuilder online() {
+    online = true;
+    return this;
+  }
+
+  /**
+   * Swaps in an index that has been built online: the files of the existing index are
+   * replaced with the new files, and the new index is opened. The existing index must
+   * have been closed, and the database must be write-locked.
+   * @return index instance
+   * @throws IOException I/O Exception
+   */
+  public final Index swap() throws IOException {
+    online = false;
+    abort();
+    final IOFile path = data.meta.path;
+    for(final IOFile file : path.children(DATAONL + prefix() + ".*")) {
+      final IOFile target = new IOFile(path, file.name().substring(DATAONL.length()));
+      if(!file.rename(target)) throw new BaseXException(FILE_NOT_RENAMED_X, target);
+    }
+    return open();
+  }
+
+  /**
+   * Returns the name of an index file. If the index is built online, the name is
+   * prefixed with {@link DataText#DATAONL}.
+   * @param name name of the file
+   * @return name
+   */
+  protected final String name(final String name) {
+    return online ? DATAONL + name : name;
+  }
+
+  /**
+   * Finishes the index creation.
+   * @return index instance, or {@code null} if the index is built online
+   * @throws IOException I/O Exception
+   */
+  protected final Index finish() throws IOException {
+    return online ? null : open();
+  }
+
+  /**
+   * Returns the id of the next partial index structure.
+   * @return id
+   */
+  protected final int nextSplit() {
+    final int id = ids != null ? ids.getAndIncrement() : splits;
+    files.add(id);
+    return id;
+  }
+
+  /**
+   * Adopts the ids of the partial index structures of the specified parts.
+   * @param parts builders of the parts of the table, in the order of the table
+   */
+  protected final void adopt(final IndexBuilder[] parts) {
+    for(final IndexBuilder part : parts) {
+      final int fs = part.files.size();
+      for(int f = 0; f < fs; f++) files.add(part.files.get(f));
+      count += part.count;
+    }
+    splits = files.size();
+  }
+
   /**
    * Checks if the command was interrupted, and prints some debug output.
    */
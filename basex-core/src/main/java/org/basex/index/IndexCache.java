@@ -1,89 +1,104 @@
 package org.basex.index;
 
+import static org.basex.core.Text.*;
 import static org.basex.util.Token.*;
 
-import java.lang.ref.*;
-import java.util.concurrent.locks.*;
-
+import org.basex.core.*;
 import org.basex.util.*;
 
 /**
  * This class caches sizes and pointers from index results.
  *
+ * <p>The cache is bounded by a maximum number of entries and an estimated memory
+ * budget (see {@link MainOptions#INDEXCACHE} and {@link MainOptions#INDEXCACHEMEM}).
+ * It is divided into segments, which are guarded by separate locks. Each segment
+ * stores its entries in a hash table and in a list that is ordered by the time of
+ * their last access. If a segment is full, the least recently used entry is only
+ * replaced if the new key has been requested more often (TinyLFU admission). The
+ * access frequencies are estimated by a count-min sketch, which is halved periodically
+ * to forget old accesses.</p>
+ *
  * @author BaseX Team 2005-13, BSD License
  * @author Dimitar Popov
  */
 public final class IndexCache {
-  /** Queue used to collect unused keys. */
-  private final ReferenceQueue<IndexEntry> queue = new ReferenceQueue<IndexEntry>();
-  /** Read-write lock. */
-  private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock(true);
-  /** Hash table buckets. */
-  private BucketEntry[] buckets = new BucketEntry[Array.CAPACITY];
-  /** Number of entries in the cache. */
-  private int size;
+  /** Number of segments (must be a power of two). */
+  private static final int SEGMENTS = 16;
+  /** Estimated memory consumption of an entry, excluding its key. */
+  private static final int OVERHEAD = 96;
+  /** Segments. */
+  private final Segment[] segments = new Segment[SEGMENTS];
+
+  /**
+   * Constructor, using the default budgets.
+   */
+  public IndexCache() {
+    this(MainOptions.INDEXCACHE.value, MainOptions.INDEXCACHEMEM.value * 1024L);
+  }
+
+  /**
+   * Constructor, using the budgets of the specified options.
+   * @param opts database options
+   */
+  public IndexCache(final MainOptions opts) {
+    this(opts.get(MainOptions.INDEXCACHE), opts.get(MainOptions.INDEXCACHEMEM) * 1024L);
+  }
+
+  /**
+   * Constructor.
+   * @param entries maximum number of entries
+   * @param bytes maximum memory consumption
+   */
+  public IndexCache(final int entries, final long bytes) {
+    final int me = Math.max(1, entries / SEGMENTS);
+    final long mb = Math.max(1, bytes / SEGMENTS);
+    for(int s = 0; s < SEGMENTS; s++) segments[s] = new Segment(me, mb);
+  }
 
   /**
    * Gets cached entry for the specified key.
    * @param key key
-   * @return cached entry or {@code null} if the entry is stale
+   * @return cached entry or {@code null} if the entry is not cached
    */
   public IndexEntry get(final byte[] key) {
-    final int hash = hash(key);
-    rwl.readLock().lock();
-
-    try {
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry e = buckets[i];
-      while(e != null) {
-        final IndexEntry entry = e.get();
-        if(entry != null && e.hash == hash && eq(entry.key, key)) return entry;
-        e = e.next;
+    final int hash = spread(hash(key));
+    final Segment seg = segment(hash);
+    synchronized(seg) {
+      seg.sketch.increment(hash);
+      final Node n = seg.find(hash, key);
+      if(n == null) {
+        seg.misses++;
+        return null;
       }
-    } finally {
-      rwl.readLock().unlock();
+      seg.hits++;
+      seg.touch(n);
+      return n.entry;
     }
-
-    return null;
   }
 
   /**
    * Adds a new cache entry. If an entry with the specified key already exists,
-   * it will be updated.
+   * it will be updated. If the cache is full and the key is requested less often than
+   * the entries that would have to be evicted, the entry is returned, but not cached.
    * @param key key
    * @param s number of index hits
    * @param p pointer to id list
    * @return cache entry
    */
   public IndexEntry add(final byte[] key, final int s, final long p) {
-    final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-
-      final int i = indexFor(hash, buckets.length);
-
-      BucketEntry current = buckets[i];
-      BucketEntry prev = current;
-      while(current != null) {
-        final BucketEntry next = current.next;
-        final IndexEntry entry = current.get();
-        if(entry == null) {
-          delete(i, current, prev, next);
-        } else if(current.hash == hash && eq(entry.key, key)) {
-          update(entry, s, p);
-          return entry;
-        }
-        prev = current;
-        current = next;
+    final int hash = spread(hash(key));
+    final Segment seg = segment(hash);
+    synchronized(seg) {
+      final Node n = seg.find(hash, key);
+      if(n != null) {
+        n.entry.size = s;
+        n.entry.pointer = p;
+        seg.touch(n);
+        return n.entry;
       }
-
       final IndexEntry entry = new IndexEntry(key, s, p);
-      add(i, hash, entry);
+      seg.add(hash, entry);
       return entry;
-    } finally {
-      rwl.writeLock().unlock();
     }
   }
 
@@ -92,149 +107,305 @@ public final class IndexCache {
    * @param key key
    */
   public void delete(final byte[] key) {
-    final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-
-      final int i = indexFor(hash, buckets.length);
-
-      BucketEntry e = buckets[i];
-      BucketEntry prev = e;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final IndexEntry entry = e.get();
-        if(entry == null) {
-          delete(i, e, prev, next);
-        } else if(e.hash == hash && eq(entry.key, key)) {
-          delete(i, e, prev, next);
-          break;
-        }
-        prev = e;
-        e = next;
-      }
-    } finally {
-      rwl.writeLock().unlock();
+    final int hash = spread(hash(key));
+    final Segment seg = segment(hash);
+    synchronized(seg) {
+      final Node n = seg.find(hash, key);
+      if(n != null) seg.remove(n);
     }
   }
 
   /**
-   * Purges stale entries from the cache.
+   * Adds statistics on the cache to the specified token builder.
+   * @param tb token builder
    */
-  private void purge() {
-    for(Object x; (x = queue.poll()) != null;) {
-      final BucketEntry e = (BucketEntry) x;
-      final int i = indexFor(e.hash, buckets.length);
-
-      BucketEntry prev = buckets[i];
-      BucketEntry p = prev;
-      while(p != null) {
-        final BucketEntry next = p.next;
-        if(p == e) {
-          delete(i, e, prev, next);
-          break;
-        }
-        prev = p;
-        p = next;
+  public void info(final TokenBuilder tb) {
+    long entries = 0, bytes = 0, hits = 0, misses = 0, evictions = 0, rejections = 0;
+    for(final Segment seg : segments) {
+      synchronized(seg) {
+        entries += seg.size;
+        bytes += seg.bytes;
+        hits += seg.hits;
+        misses += seg.misses;
+        evictions += seg.evictions;
+        rejections += seg.rejections;
       }
     }
+    final long requests = hits + misses;
+    tb.add(LI_CACHE).addLong(entries).add(" entries, ");
+    tb.add(Performance.format(bytes, true)).add(NL);
+    tb.add("  ").addLong(hits).add(" hits, ").addLong(misses).add(" misses");
+    if(requests != 0) tb.add(" (").addLong(hits * 100 / requests).add("% hits)");
+    tb.add(", ").addLong(evictions).add(" evictions, ").addLong(rejections);
+    tb.add(" rejections").add(NL);
   }
 
   /**
-   * Add a new index entry to the bucket with the specified index.
-   * @param i bucket index
-   * @param hash hash of the new index key
-   * @param entry index entry
+   * Returns the segment for the specified hash code.
+   * @param hash hash code
+   * @return segment
    */
-  private void add(final int i, final int hash, final IndexEntry entry) {
-    buckets[i] = new BucketEntry(hash, buckets[i], entry, queue);
-    if(++size == buckets.length) rehash();
+  private Segment segment(final int hash) {
+    return segments[hash >>> 28 & SEGMENTS - 1];
   }
 
   /**
-   * Update an existing index entry.
-   * @param entry index entry to update
-   * @param sz new size
-   * @param poi new pointer
+   * Spreads the bits of a hash code.
+   * @param h hash code
+   * @return resulting hash code
    */
-  private static void update(final IndexEntry entry, final int sz, final long poi) {
-    entry.size = sz;
-    entry.pointer = poi;
+  private static int spread(final int h) {
+    final int x = h * 0x9E3779B9;
+    return x ^ x >>> 16;
   }
 
-  /**
-   * Deletes a cached entry from the buckets with the specified index.
-   * @param i buckets index
-   * @param e cached entry to delete
-   * @param p previous cache entry
-   * @param n next cache entry
-   */
-  private void delete(final int i, final BucketEntry e, final BucketEntry p,
-      final BucketEntry n) {
-    if(p == e) buckets[i] = n;
-    else p.next = n;
-    e.next = null;
-    --size;
-  }
+  /** Cache segment. */
+  private static final class Segment {
+    /** Frequency sketch. */
+    final Sketch sketch;
+    /** Maximum number of entries. */
+    final int maxSize;
+    /** Maximum memory consumption. */
+    final long maxBytes;
 
-  /**
-   * Resizes the hash table.
-   */
-  private void rehash() {
-    purge();
-
-    final int s = size << 1;
-    final BucketEntry[] tmp = new BucketEntry[s];
-
-    final int l = buckets.length;
-    for(int i = 0; i < l; ++i) {
-      BucketEntry e = buckets[i];
-      buckets[i] = null;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final int p = indexFor(e.hash, tmp.length);
-        e.next = tmp[p];
-        tmp[p] = e;
-        e = next;
+    /** Hash table buckets. */
+    Node[] buckets = new Node[Array.CAPACITY];
+    /** Most recently used entry (head of the access list). */
+    Node head;
+    /** Least recently used entry (tail of the access list). */
+    Node tail;
+    /** Number of entries. */
+    int size;
+    /** Estimated memory consumption. */
+    long bytes;
+
+    /** Number of hits. */
+    long hits;
+    /** Number of misses. */
+    long misses;
+    /** Number of evicted entries. */
+    long evictions;
+    /** Number of rejected entries. */
+    long rejections;
+
+    /**
+     * Constructor.
+     * @param ms maximum number of entries
+     * @param mb maximum memory consumption
+     */
+    Segment(final int ms, final long mb) {
+      maxSize = ms;
+      maxBytes = mb;
+      // the number of entries is also limited by the memory budget
+      sketch = new Sketch((int) Math.min(ms, mb / OVERHEAD + 1));
+    }
+
+    /**
+     * Finds the node with the specified key.
+     * @param hash hash code
+     * @param key key
+     * @return node or {@code null}
+     */
+    Node find(final int hash, final byte[] key) {
+      for(Node n = buckets[hash & buckets.length - 1]; n != null; n = n.next) {
+        if(n.hash == hash && eq(n.entry.key, key)) return n;
       }
+      return null;
     }
-    buckets = tmp;
-  }
 
-  /**
-   * Returns buckets index for a hash code.
-   * @param h hash code
-   * @param n number of available buckets
-   * @return index of a buckets
-   */
-  private static int indexFor(final int h, final int n) {
-    return h & n - 1;
+    /**
+     * Adds a new entry if it fits into the budgets and is admitted.
+     * @param hash hash code
+     * @param entry entry
+     */
+    void add(final int hash, final IndexEntry entry) {
+      // the frequency of the key has already been recorded by the preceding lookup
+      final int freq = sketch.frequency(hash);
+      final long b = entry.key.length + OVERHEAD;
+      if(b > maxBytes) {
+        rejections++;
+        return;
+      }
+      // evict least recently used entries, unless they are accessed more frequently
+      while(size >= maxSize || bytes + b > maxBytes) {
+        if(sketch.frequency(tail.hash) >= freq) {
+          rejections++;
+          return;
+        }
+        remove(tail);
+        evictions++;
+      }
+
+      final Node n = new Node(hash, entry);
+      final int i = hash & buckets.length - 1;
+      n.next = buckets[i];
+      buckets[i] = n;
+      link(n);
+      bytes += b;
+      if(++size > buckets.length) rehash();
+    }
+
+    /**
+     * Removes the specified node.
+     * @param n node
+     */
+    void remove(final Node n) {
+      final int i = n.hash & buckets.length - 1;
+      if(buckets[i] == n) {
+        buckets[i] = n.next;
+      } else {
+        Node p = buckets[i];
+        while(p.next != n) p = p.next;
+        p.next = n.next;
+      }
+      unlink(n);
+      bytes -= n.entry.key.length + OVERHEAD;
+      size--;
+    }
+
+    /**
+     * Marks the specified node as most recently used.
+     * @param n node
+     */
+    void touch(final Node n) {
+      if(head == n) return;
+      unlink(n);
+      link(n);
+    }
+
+    /**
+     * Inserts a node at the head of the access list.
+     * @param n node
+     */
+    private void link(final Node n) {
+      n.prev = null;
+      n.after = head;
+      if(head != null) head.prev = n;
+      head = n;
+      if(tail == null) tail = n;
+    }
+
+    /**
+     * Removes a node from the access list.
+     * @param n node
+     */
+    private void unlink(final Node n) {
+      if(n.prev != null) n.prev.after = n.after;
+      else head = n.after;
+      if(n.after != null) n.after.prev = n.prev;
+      else tail = n.prev;
+      n.prev = null;
+      n.after = null;
+    }
+
+    /**
+     * Doubles the size of the hash table.
+     */
+    private void rehash() {
+      final int s = buckets.length << 1;
+      final Node[] tmp = new Node[s];
+      for(final Node b : buckets) {
+        Node n = b;
+        while(n != null) {
+          final Node next = n.next;
+          final int i = n.hash & s - 1;
+          n.next = tmp[i];
+          tmp[i] = n;
+          n = next;
+        }
+      }
+      buckets = tmp;
+    }
   }
 
-  /**
-   * Cache buckets entry. Used to implement a linked list of cache entries for
-   * each buckets. It also stores the hash of the current entry for better
-   * performance.
-   */
-  private static class BucketEntry extends SoftReference<IndexEntry> {
-    /** Hash code of the stored cache entry key. */
+  /** Cache node. */
+  private static final class Node {
+    /** Hash code of the key. */
     final int hash;
-    /** Next buckets entry or {@code null} if the last one for this buckets. */
-    BucketEntry next;
+    /** Index entry. */
+    final IndexEntry entry;
+    /** Next node in the same bucket. */
+    Node next;
+    /** Previous node in the access list (more recently used). */
+    Node prev;
+    /** Next node in the access list (less recently used). */
+    Node after;
 
     /**
      * Constructor.
-     * @param h hash code of the cache entry key
-     * @param n next buckets entry or {@code null} if the last one
-     * @param v stored cache entry
-     * @param rq reference queue
+     * @param h hash code
+     * @param e index entry
      */
-    BucketEntry(final int h, final BucketEntry n, final IndexEntry v,
-        final ReferenceQueue<IndexEntry> rq) {
-      super(v, rq);
+    Node(final int h, final IndexEntry e) {
       hash = h;
-      next = n;
+      entry = e;
+    }
+  }
+
+  /** Count-min sketch with four rows of saturating 4-bit counters. */
+  private static final class Sketch {
+    /** Maximum counter value. */
+    private static final int MAX = 15;
+    /** Seeds of the hash functions of the rows. */
+    private static final int[] SEEDS = { 0x97CB3127, 0xB7E15163, 0xC13FA9A9, 0x5851F42D };
+    /** Counters. */
+    private final byte[] counters;
+    /** Number of counters per row (power of two). */
+    private final int width;
+    /** Number of increments after which all counters are halved. */
+    private final int period;
+    /** Number of increments since the last halving. */
+    private int increments;
+
+    /**
+     * Constructor.
+     * @param entries maximum number of cached entries
+     */
+    Sketch(final int entries) {
+      // reserve four counters per row and entry to reduce collisions
+      int w = 64;
+      while(w < entries << 2 && w < 1 << 24) w <<= 1;
+      counters = new byte[w << 2];
+      width = w;
+      period = Math.max(16, entries) * 10;
+    }
+
+    /**
+     * Increments the counters of the specified hash code.
+     * @param hash hash code
+     */
+    void increment(final int hash) {
+      for(int r = 0; r < 4; r++) {
+        final int i = index(hash, r);
+        if(counters[i] < MAX) counters[i]++;
+      }
+      // halve all counters to age old accesses
+      if(++increments == period) {
+        for(int i = 0; i < counters.length; i++) counters[i] >>>= 1;
+        increments = 0;
+      }
+    }
+
+    /**
+     * Returns the estimated frequency of the specified hash code.
+     * @param hash hash code
+     * @return estimated frequency
+     */
+    int frequency(final int hash) {
+      int min = MAX;
+      for(int r = 0; r < 4; r++) min = Math.min(min, counters[index(hash, r)]);
+      return min;
+    }
+
+    /**
+     * Returns the counter position of a hash code in the specified row.
+     * @param hash hash code
+     * @param r row
+     * @return position
+     */
+    private int index(final int hash, final int r) {
+      final int h = (hash ^ SEEDS[r]) * 0x9E3779B9;
+      return r * width + ((h ^ h >>> 16) & width - 1);
     }
   }
 }
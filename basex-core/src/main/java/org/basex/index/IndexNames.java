@@ -0,0 +1,95 @@
+package org.basex.index;
+
+import static org.basex.util.Token.*;
+
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.index.name.*;
+import org.basex.query.value.item.*;
+import org.basex.util.hash.*;
+
+/**
+ * This class contains the names of the elements and attributes whose values are
+ * indexed (see {@link org.basex.core.MainOptions#TEXTINCLUDE}
+ * and {@link org.basex.core.MainOptions#ATTRINCLUDE}).
+ * If no names are specified, all values are indexed. Names are compared by their
+ * local names.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexNames {
+  /** Local names of the included elements or attributes (empty if all are included). */
+  private final TokenSet names = new TokenSet();
+  /** Data reference. */
+  private final Data data;
+  /** Text or attribute index. */
+  private final boolean text;
+  /** Cached results for name ids ({@code 0}: unknown, {@code 1}: included,
+   * {@code 2}: excluded). */
+  private byte[] cache = new byte[16];
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @param txt text or attribute index
+   */
+  public IndexNames(final Data d, final boolean txt) {
+    this(d, txt, txt ? d.meta.textinclude : d.meta.attrinclude);
+  }
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @param txt text or attribute index
+   * @param include names of the included elements or attributes, separated by commas
+   */
+  public IndexNames(final Data d, final boolean txt, final String include) {
+    data = d;
+    text = txt;
+    for(final String name : include.split(",")) {
+      final String n = name.trim();
+      if(!n.isEmpty()) names.add(local(token(n)));
+    }
+  }
+
+  /**
+   * Indicates if all values are indexed.
+   * @return result of check
+   */
+  public boolean all() {
+    return names.isEmpty();
+  }
+
+  /**
+   * Checks if the value of the specified node is indexed. For text nodes, the name of
+   * the parent element is checked.
+   * @param pre pre value of a text or attribute node
+   * @return result of check
+   */
+  public boolean contains(final int pre) {
+    if(names.isEmpty()) return true;
+    int p = pre;
+    if(text) {
+      p = data.parent(pre, data.kind(pre));
+      if(p == -1 || data.kind(p) != Data.ELEM) return false;
+    }
+    final int id = data.name(p);
+    if(id >= cache.length) cache = Arrays.copyOf(cache, Math.max(id + 1, cache.length << 1));
+    if(cache[id] == 0) {
+      final Names index = text ? data.tagindex : data.atnindex;
+      cache[id] = (byte) (names.contains(local(index.key(id))) ? 1 : 2);
+    }
+    return cache[id] == 1;
+  }
+
+  /**
+   * Checks if the values of elements or attributes with the specified name are indexed.
+   * @param name name
+   * @return result of check
+   */
+  public boolean contains(final QNm name) {
+    return names.isEmpty() || names.contains(name.local());
+  }
+}
@@ -17,6 +17,8 @@ public enum IndexType {
   ATTRIBUTE,
   /** Full-text index. */
   FULLTEXT,
+  /** Composite index. */
+  COMPOSITE,
   /** Path index. */
   PATH
 }
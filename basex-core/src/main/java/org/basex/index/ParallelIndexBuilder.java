@@ -0,0 +1,218 @@
+package org.basex.index;
+
+import static org.basex.core.Text.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.util.*;
+
+/**
+ * This class builds several index structures in parallel.
+ *
+ * The table is divided into contiguous ranges of pre values, which are scanned by
+ * separate threads. Each thread passes on the nodes of its range to the
+ * {@link IndexBuilder#part() part builders} of all requested index structures, and
+ * the partial index structures written by the part builders are finally merged by the
+ * original builders, which again run in parallel.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelIndexBuilder extends Proc {
+  /** Thread pool, creating new daemon threads if required. */
+  private static final ExecutorService POOL = Executors.newCachedThreadPool(
+    new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread th = new Thread(r, Util.className(ParallelIndexBuilder.class));
+        th.setDaemon(true);
+        return th;
+      }
+    });
+
+  /** Data reference. */
+  private final Data data;
+  /** Index builders. */
+  private final IndexBuilder[] builders;
+  /** Number of threads. */
+  private final int threads;
+  /** Number of scanned nodes. */
+  private final AtomicInteger scanned = new AtomicInteger();
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @param th number of threads
+   * @param ib builders of the index structures to be created
+   */
+  public ParallelIndexBuilder(final Data d, final int th, final IndexBuilder... ib) {
+    data = d;
+    builders = ib;
+    threads = Math.max(1, Math.min(th, d.meta.size));
+  }
+
+  /**
+   * Returns the number of threads that will be used for building the index
+   * structures of the specified database ({@link MainOptions#INDEXTHREADS}).
+   * @param data data reference
+   * @return number of threads
+   */
+  public static int threads(final Data data) {
+    final int th = data.meta.options.get(MainOptions.INDEXTHREADS);
+    return th > 0 ? th : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Builds the index structures and returns the index instances, in the order of the
+   * builders.
+   * @return index instances
+   * @throws IOException I/O Exception
+   */
+  public Index[] build() throws IOException {
+    // delete old indexes
+    for(final IndexBuilder ib : builders) ib.abort();
+
+    final Performance perf = Prop.debug ? new Performance() : null;
+    Util.debug(det());
+
+    final int bs = builders.length, size = data.meta.size;
+    final Index[] indexes = new Index[bs];
+    try {
+      // create part builders, sharing the ids of the partial index structures
+      final IndexBuilder[][] parts = new IndexBuilder[bs][threads];
+      for(int b = 0; b < bs; b++) {
+        final AtomicInteger ids = new AtomicInteger();
+        for(int t = 0; t < threads; t++) {
+          final IndexBuilder part = builders[b].part();
+          part.ids = ids;
+          part.online = builders[b].online;
+          parts[b][t] = part;
+        }
+      }
+
+      // scan the ranges of the table
+      run(threads, new Task() {
+        @Override
+        public void run(final int t) throws IOException {
+          final int end = (int) ((long) size * (t + 1) / threads);
+          for(int pre = (int) ((long) size * t / threads); pre < end; pre++) {
+            if((pre & 0x0FFF) == 0) {
+              checkStop();
+              scanned.addAndGet(0x1000);
+            }
+            for(int b = 0; b < bs; b++) {
+              final IndexBuilder part = parts[b][t];
+              part.pre = pre;
+              part.index();
+            }
+          }
+          for(int b = 0; b < bs; b++) parts[b][t].finishPart();
+        }
+      });
+
+      // merge the partial index structures
+      run(bs, new Task() {
+        @Override
+        public void run(final int b) throws IOException {
+          indexes[b] = builders[b].merge(parts[b]);
+        }
+      });
+    } catch(final IOException ex) {
+      abort();
+      throw ex;
+    } catch(final RuntimeException ex) {
+      abort();
+      throw ex;
+    } catch(final Error ex) {
+      abort();
+      throw ex;
+    }
+
+    if(Prop.debug) {
+      final StringBuilder sb = new StringBuilder();
+      sb.append(' ').append(threads).append(" threads, ");
+      sb.append(perf).append(" (").append(Performance.getMemory()).append(')');
+      Util.errln(sb);
+    }
+    return indexes;
+  }
+
+  /**
+   * Runs the specified number of tasks in parallel, including the calling thread.
+   * If a task fails, the first error is passed on.
+   * @param tasks number of tasks
+   * @param task task
+   * @throws IOException I/O Exception
+   */
+  private static void run(final int tasks, final Task task) throws IOException {
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    final Runnable[] runners = new Runnable[tasks];
+    for(int t = 0; t < tasks; t++) {
+      final int i = t;
+      runners[t] = new Runnable() {
+        @Override
+        public void run() {
+          try {
+            if(error.get() == null) task.run(i);
+          } catch(final Throwable th) {
+            error.compareAndSet(null, th);
+          }
+        }
+      };
+    }
+    final Future<?>[] futures = new Future<?>[tasks - 1];
+    for(int t = 1; t < tasks; t++) futures[t - 1] = POOL.submit(runners[t]);
+    runners[0].run();
+
+    // wait for remaining threads
+    for(final Future<?> f : futures) {
+      try {
+        f.get();
+      } catch(final InterruptedException ex) {
+        error.compareAndSet(null, ex);
+      } catch(final ExecutionException ex) {
+        error.compareAndSet(null, ex.getCause());
+      }
+    }
+
+    final Throwable th = error.get();
+    if(th instanceof IOException) throw (IOException) th;
+    if(th instanceof RuntimeException) throw (RuntimeException) th;
+    if(th instanceof Error) throw (Error) th;
+    if(th != null) throw Util.notExpected(th);
+  }
+
+  @Override
+  protected void abort() {
+    for(final IndexBuilder ib : builders) ib.abort();
+  }
+
+  @Override
+  public String tit() {
+    return CREATING_INDEXES;
+  }
+
+  @Override
+  public String det() {
+    return CREATING_INDEXES;
+  }
+
+  @Override
+  public double prog() {
+    return Math.min(1, (double) scanned.get() / (data.meta.size + 1));
+  }
+
+  /** Task, running in a separate thread. */
+  private interface Task {
+    /**
+     * Runs the task.
+     * @param t index of the task
+     * @throws IOException I/O exception
+     */
+    void run(final int t) throws IOException;
+  }
+}
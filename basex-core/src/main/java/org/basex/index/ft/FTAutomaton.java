@@ -0,0 +1,70 @@
+package org.basex.index.ft;
+
+import static org.basex.util.Token.*;
+
+/**
+ * Automaton for matching the tokens of a full-text index. The states are stored for
+ * each number of consumed characters: if the index tokens are processed in their
+ * sorted order, the states of a common prefix can be reused, and all tokens with a
+ * prefix that cannot match can be skipped.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+abstract class FTAutomaton {
+  /** Number of consumed characters. */
+  int depth;
+
+  /**
+   * Returns the characters of a token that will be consumed by the automaton.
+   * @param token token
+   * @return characters
+   */
+  int[] chars(final byte[] token) {
+    return cps(token);
+  }
+
+  /**
+   * Returns the prefix of all matches.
+   * @return prefix
+   */
+  byte[] prefix() {
+    return EMPTY;
+  }
+
+  /**
+   * Consumes the next character.
+   * @param ch character
+   * @return {@code false} if no match is possible anymore
+   */
+  abstract boolean step(final int ch);
+
+  /**
+   * Checks if the consumed characters are a match.
+   * @return result of check
+   */
+  abstract boolean accept();
+
+  /**
+   * Returns the minimum number of characters of a match.
+   * @return number of characters
+   */
+  abstract int min();
+
+  /**
+   * Returns the maximum number of characters of a match.
+   * @return number of characters
+   */
+  abstract int max();
+
+  /**
+   * Checks if the specified token is a match.
+   * @param token token
+   * @return result of check
+   */
+  final boolean matches(final byte[] token) {
+    depth = 0;
+    for(final int ch : chars(token)) if(!step(ch)) return false;
+    return accept();
+  }
+}
@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -53,11 +54,8 @@ public final class FTBuilder extends IndexBuilder {
     lex = new FTLexer(fto);
   }
 
-  /**
-   * Extracts and indexes words from the specified data reference.
-   * @throws IOException I/O Exception
-   */
-  private void index() throws IOException {
+  @Override
+  public Index build() throws IOException {
     // delete old index
     abort();
 
@@ -66,63 +64,89 @@ public final class FTBuilder extends IndexBuilder {
 
     for(pre = 0; pre < size; ++pre) {
       if((pre & 0xFFFF) == 0) check();
+      index();
+    }
 
-      final int k = data.kind(pre);
-      if(k != Data.TEXT) continue;
-
-      /* Current lexer position. */
-      final StopWords sw = lex.ftOpt().sw;
-      lex.init(data.text(pre, true));
-      int pos = -1;
-      while(lex.hasNext()) {
-        final byte[] tok = lex.nextToken();
-        ++pos;
-        // skip too long and stopword tokens
-        if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
-          // check if main memory is exhausted
-          if((ntok++ & 0x0FFF) == 0 && split()) {
-            writeIndex(true);
-            finishSplit();
-          }
-          tree.index(tok, pre, pos, splits);
-          count++;
+    // finalize partial or all index structures
+    writeIndex(splits > 0);
+    if(splits > 1) merge();
+    final Index index = finish();
+    finishIndex(perf);
+    return index;
+  }
+
+  @Override
+  protected FTBuilder part() throws IOException {
+    return new FTBuilder(data);
+  }
+
+  @Override
+  protected void index() throws IOException {
+    if(data.kind(pre) != Data.TEXT) return;
+
+    final StopWords sw = lex.ftOpt().sw;
+    lex.init(data.text(pre, true));
+    int pos = -1;
+    while(lex.hasNext()) {
+      final byte[] tok = lex.nextToken();
+      ++pos;
+      // skip too long and stopword tokens
+      if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
+        // check if main memory is exhausted
+        if((ntok++ & 0x0FFF) == 0 && split()) {
+          writeIndex(true);
+          finishSplit();
         }
+        tree.index(tok, data.meta.updindex ? data.id(pre) : pre, pos, splits);
+        count++;
       }
     }
+  }
 
-    // finalize partial or all index structures
-    write(splits > 0);
+  @Override
+  protected void finishPart() throws IOException {
+    // the trees are non-empty if at least one token has been indexed
+    if(count != 0) writeIndex(true);
+  }
 
-    data.meta.ftxtindex = true;
-    finishIndex(perf);
+  @Override
+  protected Index merge(final IndexBuilder[] parts) throws IOException {
+    adopt(parts);
+    if(splits == 0) writeIndex(false);
+    else merge();
+    return finish();
+  }
+
+  @Override
+  protected String prefix() {
+    return DATAFTX;
   }
 
   @Override
-  public FTIndex build() throws IOException {
-    index();
+  protected FTIndex open() throws IOException {
+    data.meta.ftxtindex = true;
+    data.meta.ftskips = !data.meta.updindex;
+    data.meta.ftids = data.meta.updindex;
     return new FTIndex(data);
   }
 
   /**
-   * Writes the index data to disk.
-   * @param partial write partial index
+   * Merges the partial index structures.
    * @throws IOException I/O exception
    */
-  private void write(final boolean partial) throws IOException {
-    writeIndex(partial);
-    if(!partial) return;
-
-    // merges temporary index files
-    final DataOutput outX = new DataOutput(data.meta.dbfile(DATAFTX + 'x'));
-    final DataOutput outY = new DataOutput(data.meta.dbfile(DATAFTX + 'y'));
-    final DataOutput outZ = new DataOutput(data.meta.dbfile(DATAFTX + 'z'));
+  private void merge() throws IOException {
+    final String name = name(DATAFTX);
+    final DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
+    final DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
+    final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'));
     final IntList ind = new IntList();
 
     // open all temporary sorted lists
     final FTList[] v = new FTList[splits];
-    for(int b = 0; b < splits; ++b) v[b] = new FTList(data, b);
+    for(int b = 0; b < splits; ++b) v[b] = new FTList(data, name + files.get(b));
 
     final IntList il = new IntList();
+    final boolean skips = !data.meta.updindex;
     while(check(v)) {
       il.reset();
       int m = 0;
@@ -151,7 +175,7 @@ public final class FTBuilder extends IndexBuilder {
       // pointer on full-text data
       outY.write5(outZ.size());
       // merge and write data size
-      outY.write4(merge(outZ, il, v));
+      outY.write4(merge(outZ, il, v, skips));
     }
     writeInd(outX, ind, ind.get(ind.size() - 2) + 1, (int) outY.size());
 
@@ -168,7 +192,7 @@ public final class FTBuilder extends IndexBuilder {
    * @param lp last offset
    * @throws IOException I/O exception
    */
-  private static void writeInd(final DataOutput outX, final IntList il,
+  static void writeInd(final DataOutput outX, final IntList il,
       final int ls, final int lp) throws IOException {
 
     final int is = il.size();
@@ -187,12 +211,14 @@ public final class FTBuilder extends IndexBuilder {
    * @throws IOException I/O exception
    */
   private void writeIndex(final boolean partial) throws IOException {
-    final String name = DATAFTX + (partial ? splits : "");
+    final String name = name(DATAFTX) + (partial ? nextSplit() : "");
     final DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
     final DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
     final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'));
 
     final IntList ind = new IntList();
+    // skip pointers are only added to the final index structure
+    final boolean skips = !partial && !data.meta.updindex;
     tree.init();
     long dr = 0;
     int tr = 0;
@@ -212,9 +238,10 @@ public final class FTBuilder extends IndexBuilder {
       // write pointer on full-text data
       outY.write5(dr);
       // write full-text data size (number of pre values)
-      outY.write4(t.nextNumPre());
+      final int np = t.nextNumPre();
+      outY.write4(np);
       // write compressed pre and pos arrays
-      writeFTData(outZ, t.nextPres(), t.nextPoss());
+      writeFTData(outZ, t.nextPres(), t.nextPoss(), np, skips);
 
       dr = outZ.size();
       tr = (int) outY.size();
@@ -235,11 +262,12 @@ public final class FTBuilder extends IndexBuilder {
    * @param out full-text data
    * @param il array mapping
    * @param v full-text list
+   * @param skips write skip pointers
    * @return written size
    * @throws IOException I/O exception
    */
-  private static int merge(final DataOutput out, final IntList il, final FTList[] v)
-      throws IOException {
+  private int merge(final DataOutput out, final IntList il, final FTList[] v,
+      final boolean skips) throws IOException {
 
     final TokenBuilder tbp = new TokenBuilder();
     final TokenBuilder tbo = new TokenBuilder();
@@ -261,23 +289,71 @@ public final class FTBuilder extends IndexBuilder {
     Num.size(po, po.length);
 
     // write full-text data
-    writeFTData(out, pr, po);
+    writeFTData(out, pr, po, s, skips);
     return s;
   }
 
   /**
    * Writes full-text data for a single token to disk.<br/>
-   * Format: {@code score? pre1 pos1 pre2 pos2 ... (0 score)? pre...}
+   * Format: {@code skips? pre1 pos1 pre2 pos2 ...}<br/>
+   * If skip pointers are requested and the list is long enough, a skip pointer is
+   * written in advance for each block (see {@link FTIndex#skips(int)}). It contains
+   * the first pre value and the relative offset of the block, the maximum number of
+   * positions of a pre value, and the minimum text length of the referenced nodes.
+   * If the positions of a pre value are spread over two blocks, they are counted
+   * in both blocks.
    * @param out DataOutput for disk access
    * @param vpre compressed pre values
    * @param vpos compressed pos values
+   * @param size number of entries
+   * @param skips write skip pointers
    * @throws IOException IOException
    */
-  private static void writeFTData(final DataOutput out, final byte[] vpre, final byte[] vpos)
-      throws IOException {
+  private void writeFTData(final DataOutput out, final byte[] vpre, final byte[] vpos,
+      final int size, final boolean skips) throws IOException {
 
     int np = 4, pp = 4;
-    final int ns = Num.size(vpre);
+    final int ns = Num.size(vpre), bs = skips ? FTIndex.skips(size) : 0;
+    if(bs != 0) {
+      final int[] pres = new int[bs], poss = new int[bs], lens = new int[bs];
+      final long[] offs = new long[bs];
+      Arrays.fill(lens, Integer.MAX_VALUE);
+      long off = 0;
+      // pre value and first entry of the current group of entries
+      int gp = -1, gs = 0;
+      for(int c = 0; c <= size; c++) {
+        final int pre = c < size ? Num.get(vpre, np) : -1;
+        if(pre != gp) {
+          if(c != 0) {
+            // assign statistics of the group to all affected blocks
+            final int tl = data.textLen(gp, true);
+            for(int b = gs / FTIndex.BLOCK; b <= (c - 1) / FTIndex.BLOCK; b++) {
+              poss[b] = Math.max(poss[b], c - gs);
+              lens[b] = Math.min(lens[b], tl);
+            }
+          }
+          gp = pre;
+          gs = c;
+        }
+        if(c == size) break;
+        if(c % FTIndex.BLOCK == 0) {
+          pres[c / FTIndex.BLOCK] = pre;
+          offs[c / FTIndex.BLOCK] = off;
+        }
+        final int nl = Num.length(vpre, np), pl = Num.length(vpos, pp);
+        off += nl + pl;
+        np += nl;
+        pp += pl;
+      }
+      for(int b = 0; b < bs; b++) {
+        out.write4(pres[b]);
+        out.write5(offs[b]);
+        out.write4(poss[b]);
+        out.write4(lens[b]);
+      }
+      np = 4;
+      pp = 4;
+    }
     while(np < ns) {
       // full-text data is stored here, with -scoreU, pre1, pos1, ...,
       // -scoreU, preU, posU
@@ -300,8 +376,8 @@ public final class FTBuilder extends IndexBuilder {
 
   @Override
   protected void abort() {
-    data.meta.drop(DATAFTX + ".*");
-    data.meta.ftxtindex = false;
+    data.meta.drop(name(DATAFTX) + ".*");
+    if(!online) data.meta.ftxtindex = false;
   }
 
   @Override
@@ -0,0 +1,180 @@
+package org.basex.index.ft;
+
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.ft.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class contains the pending updates of a full-text index (delta segment).
+ * It is only used if the index is incrementally updated ({@code UPDINDEX}).
+ * The tokens of inserted texts are stored in main memory, along with their id/pos
+ * references. The ids of deleted or replaced texts are marked as stale: their entries
+ * in the disk-based index structure will be ignored. The delta segment is merged
+ * with the index structure if it gets too large, or if the database is optimized.</p>
+ *
+ * <p>The pending updates are written to the file {@link DataText#DATAFTX} + {@code 'd'}:
+ * {@code [n, t0, s0, id/pos ..., t1, s1, ..., m, id0, id1, ...]}</p>
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class FTDelta {
+  /** Tokens and id/pos references of inserted texts (lists may be empty). */
+  final TokenObjMap<IntList> tokens = new TokenObjMap<IntList>();
+  /** Ids of texts whose entries in the index structure are invalid. */
+  IntSet stale = new IntSet();
+
+  /** Data reference. */
+  private final Data data;
+  /** Lexer. */
+  private final FTLexer lex;
+  /** Number of id/pos references. */
+  private int size;
+  /** Dirty flag. */
+  private boolean dirty;
+
+  /**
+   * Constructor, reading the pending updates from disk.
+   * @param d data reference
+   * @throws IOException I/O exception
+   */
+  FTDelta(final Data d) throws IOException {
+    data = d;
+    final FTOpt opt = new FTOpt().copy(d.meta);
+    opt.sw = new StopWords();
+    opt.sw.comp(d);
+    lex = new FTLexer(opt);
+
+    final IOFile file = file();
+    if(!file.exists()) return;
+    final DataInput in = new DataInput(file);
+    try {
+      for(int t = in.readNum(); t > 0; t--) {
+        final byte[] tok = in.readToken();
+        final int[] refs = in.readNums();
+        tokens.put(tok, new IntList(refs));
+        size += refs.length >>> 1;
+      }
+      for(final int id : in.readNums()) stale.add(id);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Indexes the tokens of an inserted text.
+   * @param id id of the text node
+   * @param text text
+   */
+  void index(final int id, final byte[] text) {
+    final StopWords sw = lex.ftOpt().sw;
+    lex.init(text);
+    int pos = -1;
+    while(lex.hasNext()) {
+      final byte[] tok = lex.nextToken();
+      ++pos;
+      // skip too long and stopword tokens
+      if(tok.length > data.meta.maxlen || !sw.isEmpty() && sw.contains(tok)) continue;
+      IntList refs = tokens.get(tok);
+      if(refs == null) {
+        refs = new IntList(2);
+        tokens.put(tok, refs);
+      }
+      refs.add(id);
+      refs.add(pos);
+      size++;
+    }
+    dirty = true;
+  }
+
+  /**
+   * Removes the tokens of a deleted text.
+   * @param id id of the text node
+   * @param text text
+   */
+  void delete(final int id, final byte[] text) {
+    stale.add(id);
+    lex.init(text);
+    while(lex.hasNext()) {
+      final byte[] tok = lex.nextToken();
+      final IntList refs = tokens.get(tok);
+      if(refs == null) continue;
+      // remove all references to the specified id
+      final int rs = refs.size();
+      int r = 0;
+      for(int i = 0; i < rs; i += 2) {
+        if(refs.get(i) == id) continue;
+        refs.set(r++, refs.get(i));
+        refs.set(r++, refs.get(i + 1));
+      }
+      size -= rs - r >>> 1;
+      refs.size(r);
+    }
+    dirty = true;
+  }
+
+  /**
+   * Returns the number of id/pos references and stale ids.
+   * @return size
+   */
+  int size() {
+    return size + stale.size();
+  }
+
+  /**
+   * Writes the pending updates to disk.
+   * @throws IOException I/O exception
+   */
+  void write() throws IOException {
+    if(!dirty) return;
+    final IOFile file = file();
+    if(size() == 0) {
+      file.delete();
+    } else {
+      final DataOutput out = new DataOutput(file);
+      try {
+        // skip tokens without references
+        int n = 0;
+        for(final IntList refs : tokens.values()) if(!refs.isEmpty()) n++;
+        out.writeNum(n);
+        for(final byte[] tok : tokens) {
+          final IntList refs = tokens.get(tok);
+          if(refs.isEmpty()) continue;
+          out.writeToken(tok);
+          out.writeNums(refs.toArray());
+        }
+        out.writeNums(stale.toArray());
+      } finally {
+        out.close();
+      }
+    }
+    dirty = false;
+  }
+
+  /**
+   * Removes all pending updates.
+   */
+  void clear() {
+    tokens.clear();
+    stale = new IntSet();
+    size = 0;
+    dirty = false;
+    file().delete();
+  }
+
+  /**
+   * Returns the file of the pending updates.
+   * @return file
+   */
+  private IOFile file() {
+    return data.meta.dbfile(DATAFTX + 'd');
+  }
+}
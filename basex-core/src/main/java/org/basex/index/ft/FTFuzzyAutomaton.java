@@ -0,0 +1,74 @@
+package org.basex.index.ft;
+
+import java.util.*;
+
+import org.basex.util.*;
+
+/**
+ * Levenshtein automaton, accepting all tokens that are similar to a query token.
+ * The states are the rows of the distance matrix.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class FTFuzzyAutomaton extends FTAutomaton {
+  /** Characters of the query token. */
+  private final int[] sub;
+  /** Number of allowed errors. */
+  private final int errors;
+  /** Rows of the distance matrix. */
+  private int[][] rows = new int[1][];
+  /** Consumed characters. */
+  private int[] chars = new int[1];
+
+  /**
+   * Constructor.
+   * @param token query token
+   * @param err number of allowed errors; dynamic calculation if value is 0
+   */
+  FTFuzzyAutomaton(final byte[] token, final int err) {
+    sub = Levenshtein.chars(token);
+    errors = Levenshtein.errors(sub.length, err);
+    final int sl = sub.length;
+    rows[0] = new int[sl + 1];
+    for(int s = 0; s <= sl; s++) rows[0][s] = s;
+  }
+
+  @Override
+  int[] chars(final byte[] token) {
+    return Levenshtein.chars(token);
+  }
+
+  @Override
+  boolean step(final int ch) {
+    // longer tokens are only accepted if they are equal to the query token
+    if(errors > 0 && depth == Levenshtein.MAX) return false;
+    if(depth + 1 == rows.length) {
+      final int s = depth + 1 << 1;
+      rows = Array.copyOf(rows, s);
+      chars = Arrays.copyOf(chars, s);
+    }
+    if(rows[depth + 1] == null) rows[depth + 1] = new int[sub.length + 1];
+    chars[depth] = ch;
+    final int pch = depth == 0 ? -1 : chars[depth - 1];
+    if(Levenshtein.row(rows[depth], rows[depth + 1], ch, pch, sub) > errors) return false;
+    depth++;
+    return true;
+  }
+
+  @Override
+  boolean accept() {
+    return depth > 0 && Math.abs(sub.length - depth) <= errors &&
+        rows[depth][sub.length] <= errors;
+  }
+
+  @Override
+  int min() {
+    return Math.max(1, sub.length - errors);
+  }
+
+  @Override
+  int max() {
+    return sub.length + errors;
+  }
+}
@@ -6,12 +6,15 @@ import static org.basex.util.Token.*;
 import static org.basex.util.ft.FTFlag.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.query.ft.*;
 import org.basex.util.*;
@@ -40,35 +43,64 @@ import org.basex.util.list.*;
  * </li>
  * <li>File <b>z</b> contains the {@code id/pos} references.
  *   The values are ordered, but not distinct:<br/>
- *   {@code pre1/pos1, pre2/pos2, pre3/pos3, ...} [{@link Num}]</li>
+ *   {@code pre1/pos1, pre2/pos2, pre3/pos3, ...} [{@link Num}]<br/>
+ *   If {@link MetaData#ftskips} is set, the entries of long lists are divided into
+ *   blocks of {@link #BLOCK} entries, and the references are preceded by a skip pointer
+ *   for each block. It contains the first pre value [int] and the relative offset [long]
+ *   of the block, the maximum number of positions of a pre value [int], and the minimum
+ *   text length of the referenced nodes [int]. Skip pointers allow iterators to jump
+ *   over blocks that cannot contain a requested pre value, and their statistics yield
+ *   upper bounds for the scores of the nodes in a block.</li>
+ * <li>File <b>r</b> is optional and references the tokens in reversed order
+ *   (see {@link FTSuffixes}).</li>
  * </ul>
  *
+ * <p>If the index is incrementally updated ({@link MetaData#updindex}), ids are
+ * stored instead of pre values ({@link MetaData#ftids}), and updates are collected in a {@link FTDelta}
+ * segment, which is merged with the index structure if it gets too large. The merged
+ * structure is written to files with the prefix {@code 'm'}; an additional marker file
+ * indicates that they are complete, and an interrupted merge will be completed when the
+ * index is opened again.</p>
+ *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
  */
 public final class FTIndex implements Index {
   /** Entry size. */
   private static final int ENTRY = 9;
+  /** Number of entries per block of a posting list. */
+  static final int BLOCK = 128;
+  /** Size of a skip pointer. */
+  private static final int SKIP = 17;
+  /** Minimum number of pending updates before they are merged. */
+  private static final int MINDELTA = 1 << 12;
+  /** Maximum number of pending updates before they are merged. */
+  private static final int MAXDELTA = 1 << 22;
+  /** Suffixes of the index files. */
+  private static final char[] XYZ = { 'x', 'y', 'z' };
 
   /** Cached texts. Increases used memory, but speeds up repeated queries. */
-  private final IntObjMap<byte[]> ctext = new IntObjMap<byte[]>();
-  /** Levenshtein reference. */
-  private final Levenshtein ls = new Levenshtein();
+  private IntObjMap<byte[]> ctext = new IntObjMap<byte[]>();
   /** Data reference. */
   private final Data data;
 
+  /** Pending updates ({@code null} if the index is not incrementally updated). */
+  private final FTDelta delta;
+  /** Reversed token dictionary ({@code null} if it has not been requested yet). */
+  private FTSuffixes suffixes;
+
   /** Index storing each unique token length and pointer
    * on the first token with this length. */
-  private final DataAccess inX;
+  private DataAccess inX;
   /** Index storing each token, its data size and pointer on the data. */
-  private final DataAccess inY;
+  private DataAccess inY;
   /** Storing pre and pos values for each token. */
-  private final DataAccess inZ;
+  private DataAccess inZ;
 
   /** Cache for number of hits and data reference per token. */
-  private final IndexCache cache = new IndexCache();
+  private IndexCache cache;
   /** Token positions. */
-  private final int[] tp;
+  private int[] tp;
 
   /**
    * Constructor, initializing the index structure.
@@ -77,12 +109,22 @@ public final class FTIndex implements Index {
    */
   public FTIndex(final Data d) throws IOException {
     data = d;
+    cache = new IndexCache(d.meta.options);
+    recover(d.meta);
+    open();
+    delta = d.meta.ftids ? new FTDelta(d) : null;
+  }
 
+  /**
+   * Opens the index files.
+   * @throws IOException I/O Exception
+   */
+  private void open() throws IOException {
     // cache token length index
-    inY = new DataAccess(d.meta.dbfile(DATAFTX + 'y'));
-    inZ = new DataAccess(d.meta.dbfile(DATAFTX + 'z'));
-    inX = new DataAccess(d.meta.dbfile(DATAFTX + 'x'));
-    tp = new int[d.meta.maxlen + 3];
+    inY = new DataAccess(data.meta.dbfile(DATAFTX + 'y'));
+    inZ = new DataAccess(data.meta.dbfile(DATAFTX + 'z'));
+    inX = new DataAccess(data.meta.dbfile(DATAFTX + 'x'));
+    tp = new int[data.meta.maxlen + 3];
     for(int i = 0; i < tp.length; ++i) tp[i] = -1;
     int is = inX.readNum();
     while(--is >= 0) {
@@ -113,7 +155,8 @@ public final class FTIndex implements Index {
     final FTOpt opt = ((FTLexer) it).ftOpt();
     if(opt.is(FZ) || opt.is(WC)) return Math.max(1, data.meta.size >> 4);
 
-    return entry(tok).size;
+    final IntList refs = delta != null ? delta.tokens.get(tok) : null;
+    return valid(entry(tok)) + (refs != null ? refs.size() >>> 1 : 0);
   }
 
   @Override
@@ -125,14 +168,16 @@ public final class FTIndex implements Index {
     if(opt.is(WC)) return wc(tok);
 
     // fuzzy search
-    if(opt.is(FZ)) {
-      final int k = data.meta.options.get(MainOptions.LSERROR);
-      return fuzzy(tok, k == 0 ? tok.length >> 2 : k);
-    }
+    if(opt.is(FZ)) return fuzzy(tok, data.meta.options.get(MainOptions.LSERROR));
 
     // return cached or new result
     final IndexEntry e = entry(tok);
-    return e.size > 0 ? iter(e.pointer, e.size, inZ, tok) : FTIndexIterator.FTEMPTY;
+    // entries are lazily decoded if they are sorted by their pre values
+    if(delta == null) return e.size == 0 ? FTIndexIterator.FTEMPTY : iter(e);
+    final IntList pr = new IntList(e.size), ps = new IntList(e.size);
+    if(e.size > 0) read(e.pointer, e.size, pr, ps);
+    if(delta != null) read(tok, pr, ps);
+    return pr.isEmpty() ? FTIndexIterator.FTEMPTY : iter(new FTCache(pr, ps), tok);
   }
 
   /**
@@ -150,8 +195,50 @@ public final class FTIndex implements Index {
   }
 
   @Override
-  public EntryIterator entries(final IndexEntries entries) {
+  public synchronized EntryIterator entries(final IndexEntries entries) {
     final byte[] prefix = entries.get();
+    final EntryIterator ei = entries(prefix);
+    if(delta == null || delta.size() == 0) return ei;
+
+    // merge entries with pending updates
+    final TokenIntMap map = new TokenIntMap();
+    for(byte[] t; (t = ei.next()) != null;) {
+      final int nr = delta.stale.isEmpty() ? ei.count() : valid(entry(t));
+      if(nr != 0) map.put(t, nr);
+    }
+    for(final byte[] t : delta.tokens) {
+      final int nr = delta.tokens.get(t).size() >>> 1;
+      if(nr != 0 && startsWith(t, prefix)) map.put(t, Math.max(0, map.get(t)) + nr);
+    }
+    final byte[][] keys = new TokenList(map).toArray();
+    // sort entries by length and value
+    Arrays.sort(keys, new Comparator<byte[]>() {
+      @Override
+      public int compare(final byte[] a, final byte[] b) {
+        final int d = a.length - b.length;
+        return d != 0 ? d : diff(a, b);
+      }
+    });
+    return new EntryIterator() {
+      int i = -1;
+
+      @Override
+      public byte[] next() {
+        return ++i < keys.length ? keys[i] : null;
+      }
+      @Override
+      public int count() {
+        return map.get(keys[i]);
+      }
+    };
+  }
+
+  /**
+   * Returns the entries of the index structure.
+   * @param prefix prefix
+   * @return entries
+   */
+  private EntryIterator entries(final byte[] prefix) {
     return new EntryIterator() {
       int ti = prefix.length - 1, i, e, nr;
       boolean inner;
@@ -232,6 +319,7 @@ public final class FTIndex implements Index {
       tb.addExt("- %: %" + NL, LANGUAGE, data.meta.language);
     final long l = inX.length() + inY.length() + inZ.length();
     tb.add(LI_SIZE + Performance.format(l, true) + NL);
+    cache.info(tb);
 
     final IndexStats stats = new IndexStats(data.meta.options.get(MainOptions.MAXSTAT));
     addOccs(stats);
@@ -241,9 +329,194 @@ public final class FTIndex implements Index {
 
   @Override
   public synchronized void close() {
+    if(delta != null) {
+      try {
+        delta.write();
+      } catch(final IOException ex) {
+        Util.debug(ex);
+      }
+    }
     inX.close();
     inY.close();
     inZ.close();
+    if(suffixes != null) {
+      suffixes.close();
+      suffixes = null;
+    }
+  }
+
+  /**
+   * Indexes the tokens of an inserted text node.
+   * @param id id of the node
+   * @param text text
+   */
+  public synchronized void index(final int id, final byte[] text) {
+    delta.index(id, text);
+  }
+
+  /**
+   * Removes the tokens of a deleted text node.
+   * @param id id of the node
+   * @param text text
+   */
+  public synchronized void delete(final int id, final byte[] text) {
+    delta.delete(id, text);
+  }
+
+  /**
+   * Replaces the tokens of a text node.
+   * @param id id of the node
+   * @param old old text
+   * @param text new text
+   */
+  public synchronized void replace(final int id, final byte[] old, final byte[] text) {
+    delta.delete(id, old);
+    delta.index(id, text);
+  }
+
+  /**
+   * Writes the pending updates to disk, or merges them with the index structure
+   * if their number exceeds a limit, which depends on the size of the index.
+   * @throws IOException I/O exception
+   */
+  public synchronized void flush() throws IOException {
+    if(delta == null) return;
+    final long limit = Math.min(MAXDELTA, Math.max(MINDELTA, inZ.length() >>> 4));
+    if(delta.size() > limit) merge();
+    else delta.write();
+  }
+
+  /**
+   * Merges the pending updates with the index structure.
+   * @throws IOException I/O exception
+   */
+  public synchronized void merge() throws IOException {
+    if(delta == null || delta.size() == 0) return;
+
+    // sort tokens with pending updates by length and value
+    final TokenList toks = new TokenList();
+    for(final byte[] t : delta.tokens) if(!delta.tokens.get(t).isEmpty()) toks.add(t);
+    final byte[][] dt = toks.toArray();
+    Arrays.sort(dt, new Comparator<byte[]>() {
+      @Override
+      public int compare(final byte[] a, final byte[] b) {
+        final int d = a.length - b.length;
+        return d != 0 ? d : diff(a, b);
+      }
+    });
+
+    final String name = DATAFTX + 'm';
+    final DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
+    final DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
+    final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'));
+    final IntList ind = new IntList();
+    try {
+      // merge entries of the index structure and the pending updates
+      int d = 0;
+      for(int ti = 0; ti < tp.length - 1; ti++) {
+        int p = tp[ti];
+        if(p == -1) continue;
+        int c = ti + 1, e;
+        do e = tp[c++]; while(e == -1);
+        for(; p < e; p += ti + ENTRY) {
+          final byte[] t = inY.readBytes(p, ti);
+          for(; d < dt.length && (dt[d].length < ti || dt[d].length == ti &&
+              diff(dt[d], t) < 0); d++) {
+            write(dt[d], -1, 0, outY, outZ, ind);
+          }
+          final boolean eq = d < dt.length && eq(dt[d], t);
+          write(t, pointer(p, ti), size(p, ti), outY, outZ, ind);
+          if(eq) d++;
+        }
+      }
+      for(; d < dt.length; d++) write(dt[d], -1, 0, outY, outZ, ind);
+      final int ls = ind.isEmpty() ? 1 : ind.get(ind.size() - 2) + 1;
+      FTBuilder.writeInd(outX, ind, ls, (int) outY.size());
+    } finally {
+      outX.close();
+      outY.close();
+      outZ.close();
+    }
+
+    // mark merged files as complete and replace index structure
+    data.meta.dbfile(name).write(new byte[0]);
+    close();
+    swap(data.meta);
+    open();
+    cache = new IndexCache(data.meta.options);
+    ctext = new IntObjMap<byte[]>();
+    delta.clear();
+  }
+
+  /**
+   * Completes or discards an interrupted merge.
+   * @param md meta data
+   * @throws IOException I/O exception
+   */
+  private static void recover(final MetaData md) throws IOException {
+    if(md.dbfile(DATAFTX + 'm').exists()) {
+      swap(md);
+    } else {
+      for(final char c : XYZ) md.dbfile(DATAFTX + 'm' + c).delete();
+    }
+  }
+
+  /**
+   * Replaces the index structure with the merged files, drops the reversed token
+   * dictionary and the pending updates, and finally deletes the marker file.
+   * @param md meta data
+   * @throws IOException I/O exception
+   */
+  private static void swap(final MetaData md) throws IOException {
+    md.dbfile(DATAFTX + 'r').delete();
+    for(final char c : XYZ) {
+      // skip files that have already been renamed
+      final IOFile src = md.dbfile(DATAFTX + 'm' + c), trg = md.dbfile(DATAFTX + c);
+      if(src.exists() && !src.rename(trg) && !(trg.delete() && src.rename(trg)))
+        throw new BaseXException(FILE_NOT_RENAMED_X, trg);
+    }
+    md.dbfile(DATAFTX + 'd').delete();
+    md.dbfile(DATAFTX + 'm').delete();
+  }
+
+  /**
+   * Writes a merged index entry.
+   * @param token token
+   * @param off offset on the entries of the index structure ({@code -1}: none)
+   * @param size number of entries in the index structure
+   * @param outY token output
+   * @param outZ entry output
+   * @param ind token length index
+   * @throws IOException I/O exception
+   */
+  private void write(final byte[] token, final long off, final int size,
+      final DataOutput outY, final DataOutput outZ, final IntList ind) throws IOException {
+
+    // collect ids, skip stale entries
+    final IntList refs = new IntList();
+    if(off != -1) {
+      inZ.cursor(postings(off, size));
+      for(int c = 0; c < size; c++) {
+        final int id = inZ.readNum(), pos = inZ.readNum();
+        if(delta.stale.contains(id)) continue;
+        refs.add(id);
+        refs.add(pos);
+      }
+    }
+    final IntList dl = delta.tokens.get(token);
+    if(dl != null) for(final int r : dl.toArray()) refs.add(r);
+    final int rs = refs.size();
+    if(rs == 0) return;
+
+    final int tl = token.length;
+    if(ind.isEmpty() || ind.get(ind.size() - 2) < tl) {
+      ind.add(tl);
+      ind.add((int) outY.size());
+    }
+    outY.writeBytes(token);
+    outY.write5(outZ.size());
+    outY.write4(rs >>> 1);
+    for(int r = 0; r < rs; r++) outZ.writeNum(refs.get(r));
   }
 
   /**
@@ -320,29 +593,13 @@ public final class FTIndex implements Index {
   /**
    * Performs a fuzzy search for the specified token with a maximum number of errors.
    * @param token token to look for
-   * @param k number of errors allowed
+   * @param err number of allowed errors; dynamic calculation if value is 0
    * @return iterator
    */
-  private synchronized IndexIterator fuzzy(final byte[] token, final int k) {
-    FTIndexIterator it = FTIndexIterator.FTEMPTY;
-    final int tl = token.length;
-    final int e = Math.min(tp.length - 1, tl + k);
-    int s = Math.max(1, tl - k) - 1;
-
-    while(++s <= e) {
-      int p = tp[s];
-      if(p == -1) continue;
-      int i = s + 1;
-      int r = -1;
-      while(i < tp.length && r == -1) r = tp[i++];
-      while(p < r) {
-        if(ls.similar(inY.readBytes(p, s), token, k)) {
-          it = FTIndexIterator.union(iter(pointer(p, s), size(p, s), inZ, token), it);
-        }
-        p += s + ENTRY;
-      }
-    }
-    return it;
+  private synchronized IndexIterator fuzzy(final byte[] token, final int err) {
+    final IntList pr = new IntList(), ps = new IntList();
+    scan(new FTFuzzyAutomaton(token, err), pr, ps);
+    return iter(new FTCache(pr, ps), token);
   }
 
   /**
@@ -355,53 +612,243 @@ public final class FTIndex implements Index {
     final FTWildcard wc = new FTWildcard(token);
     if(!wc.parse()) return it;
 
-    final IntList pr = new IntList();
-    final IntList ps = new IntList();
-    final byte[] pref = wc.prefix();
-    final int l = Math.min(tp.length - 1, wc.max());
-    for(int ti = pref.length; ti <= l; ti++) {
-      int i = tp[ti];
-      if(i == -1) continue;
-      int c = ti + 1;
-      int e = -1;
-      while(c < tp.length && e == -1) e = tp[c++];
-      i = find(pref, i, e, ti);
-
-      while(i < e) {
-        final byte[] t = inY.readBytes(i, ti);
+    final IntList pr = new IntList(), ps = new IntList();
+    if(!wc.automaton()) {
+      // no automaton: match all tokens with the common prefix
+      final byte[] pref = wc.prefix();
+      final int mx = wc.max();
+      // a character may take up to four bytes
+      final int ml = Math.min(tp.length - 2, mx > tp.length ? tp.length : mx << 2);
+      for(int ti = pref.length; ti <= ml; ti++) {
+        int p = tp[ti];
+        if(p == -1) continue;
+        int c = ti + 1, e;
+        do e = tp[c++]; while(e == -1);
+        p = find(pref, p, e, ti);
+        while(p < e) {
+          final byte[] t = inY.readBytes(p, ti);
+          if(!startsWith(t, pref)) break;
+          if(wc.match(t)) read(pointer(p, ti), size(p, ti), pr, ps);
+          p += ti + ENTRY;
+        }
+      }
+      if(delta != null) {
+        for(final byte[] t : delta.tokens) if(wc.match(t)) read(t, pr, ps);
+      }
+      return iter(new FTCache(pr, ps), token);
+    }
+
+    final FTWildcardAutomaton fa = new FTWildcardAutomaton(wc);
+    final byte[] suf = wc.suffix();
+    final FTSuffixes sfx = suf.length > wc.prefix().length ? suffixes() : null;
+    if(sfx != null) {
+      // use reversed token dictionary to find all tokens with the suffix
+      final IntList ptrs = new IntList(), lens = new IntList();
+      sfx.find(suf, inY, ptrs, lens);
+      final int ts = ptrs.size();
+      for(int t = 0; t < ts; t++) {
+        final int p = ptrs.get(t), tl = lens.get(t);
+        if(fa.matches(inY.readBytes(p, tl))) read(pointer(p, tl), size(p, tl), pr, ps);
+      }
+      if(delta != null) {
+        for(final byte[] t : delta.tokens) if(fa.matches(t)) read(t, pr, ps);
+      }
+    } else {
+      scan(fa, pr, ps);
+    }
+    return iter(new FTCache(pr, ps), token);
+  }
+
+  /**
+   * Adds the pre and pos values of all tokens that are accepted by the specified
+   * automaton. The tokens of each length are processed in their sorted order: the
+   * states of common prefixes are reused, and all tokens with a prefix that cannot
+   * match are skipped by a search.
+   * @param fa automaton
+   * @param pr pre values
+   * @param ps pos values
+   */
+  private void scan(final FTAutomaton fa, final IntList pr, final IntList ps) {
+    final byte[] pref = fa.prefix();
+    final int mn = fa.min(), mx = fa.max();
+    // a character may take up to four bytes
+    final int ml = Math.min(tp.length - 2, mx > tp.length ? tp.length : mx << 2);
+    for(int ti = Math.max(pref.length, mn); ti <= ml; ti++) {
+      int p = tp[ti];
+      if(p == -1) continue;
+      int c = ti + 1, e;
+      do e = tp[c++]; while(e == -1);
+
+      // start with first token with the common prefix
+      if(pref.length != 0) p = find(pref, p, e, ti);
+      fa.depth = 0;
+      int[] prev = {};
+      while(p < e) {
+        final byte[] t = inY.readBytes(p, ti);
         if(!startsWith(t, pref)) break;
-        if(wc.match(t)) {
-          inZ.cursor(pointer(i, ti));
-          final int s = size(i, ti);
-          for(int d = 0; d < s; d++) {
-            pr.add(inZ.readNum());
-            ps.add(inZ.readNum());
+        final int[] chars = fa.chars(t);
+        final int cl = chars.length;
+        if(cl < mn || cl > mx) {
+          p += ti + ENTRY;
+          continue;
+        }
+        // reuse states of common prefix
+        int d = 0;
+        while(d < fa.depth && d < cl && chars[d] == prev[d]) d++;
+        fa.depth = d;
+        while(d < cl && fa.step(chars[d])) d++;
+        prev = chars;
+
+        if(d == cl) {
+          if(fa.accept()) read(pointer(p, ti), size(p, ti), pr, ps);
+          p += ti + ENTRY;
+        } else {
+          // skip all tokens with the same prefix
+          int o = 0;
+          for(int i = 0; i <= d; i++) o += cl(t, o);
+          final byte[] next = Arrays.copyOf(t, o);
+          next[o - 1]++;
+          p = skip(next, p, e, ti);
+        }
+      }
+    }
+    // add pending updates
+    if(delta != null) {
+      for(final byte[] t : delta.tokens) if(fa.matches(t)) read(t, pr, ps);
+    }
+  }
+
+  /**
+   * Returns the position of the first token that is equal to or greater than the
+   * specified token. As the skipped ranges are usually small, an exponential search
+   * is performed, starting from the specified position.
+   * @param token token
+   * @param i position of a smaller token
+   * @param e end position
+   * @param ti token length
+   * @return position
+   */
+  private int skip(final byte[] token, final int i, final int e, final int ti) {
+    final int tl = ti + ENTRY;
+    int l = i, s = tl;
+    while(l + s < e && diff(inY.readBytes(l + s, ti), token) < 0) {
+      l += s;
+      s <<= 1;
+    }
+    // binary search in the remaining range
+    int h = Math.min(l + s, e);
+    l += tl;
+    while(l < h) {
+      final int m = l + (h - l) / tl / 2 * tl;
+      if(diff(inY.readBytes(m, ti), token) < 0) l = m + tl;
+      else h = m;
+    }
+    return l;
+  }
+
+  /**
+   * Returns the reversed token dictionary. It is created if it does not exist yet.
+   * @return dictionary, or {@code null} if it could not be created
+   */
+  private FTSuffixes suffixes() {
+    if(suffixes == null) {
+      final IOFile file = data.meta.dbfile(DATAFTX + 'r');
+      try {
+        if(!file.exists()) {
+          final TokenList tokens = new TokenList();
+          final IntList pointers = new IntList();
+          for(int ti = 0; ti < tp.length - 1; ti++) {
+            int p = tp[ti];
+            if(p == -1) continue;
+            int c = ti + 1, e;
+            do e = tp[c++]; while(e == -1);
+            for(; p < e; p += ti + ENTRY) {
+              tokens.add(inY.readBytes(p, ti));
+              pointers.add(p);
+            }
           }
+          FTSuffixes.write(file, tokens, pointers);
         }
-        i += ti + ENTRY;
+        suffixes = new FTSuffixes(file);
+      } catch(final IOException ex) {
+        Util.debug(ex);
       }
     }
-    return iter(new FTCache(pr, ps), token);
+    return suffixes;
   }
 
   /**
-   * Returns an iterator for an index entry.
+   * Adds the pre and pos values of an index entry. If the index is incrementally
+   * updated, stale entries are skipped, and ids are converted to pre values.
    * @param off offset on entries
    * @param size number of id/pos entries
-   * @param da data source
-   * @param token index token
-   * @return iterator
+   * @param pr pre values
+   * @param ps pos values
    */
-  private FTIndexIterator iter(final long off, final int size, final DataAccess da,
-      final byte[] token) {
-    da.cursor(off);
-    final IntList pr = new IntList(size);
-    final IntList ps = new IntList(size);
+  private void read(final long off, final int size, final IntList pr, final IntList ps) {
+    inZ.cursor(postings(off, size));
     for(int c = 0; c < size; c++) {
-      pr.add(da.readNum());
-      ps.add(da.readNum());
+      final int id = inZ.readNum(), pos = inZ.readNum();
+      if(delta == null) {
+        pr.add(id);
+        ps.add(pos);
+      } else if(!delta.stale.contains(id)) {
+        pr.add(data.pre(id));
+        ps.add(pos);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of entries of an index entry that are not stale.
+   * @param e index entry
+   * @return number of entries
+   */
+  private int valid(final IndexEntry e) {
+    if(delta == null || delta.stale.isEmpty() || e.size == 0) return e.size;
+    inZ.cursor(postings(e.pointer, e.size));
+    int nr = 0;
+    for(int c = 0; c < e.size; c++) {
+      if(!delta.stale.contains(inZ.readNum())) nr++;
+      inZ.readNum();
+    }
+    return nr;
+  }
+
+  /**
+   * Returns the number of skip pointers of a posting list.
+   * @param size number of entries
+   * @return number of skip pointers
+   */
+  static int skips(final int size) {
+    // skip pointers are only created for lists with at least three blocks
+    return size > BLOCK << 1 ? (size - 1) / BLOCK + 1 : 0;
+  }
+
+  /**
+   * Returns the offset of the first entry of a posting list.
+   * @param off offset of the posting list
+   * @param size number of entries
+   * @return offset
+   */
+  private long postings(final long off, final int size) {
+    return data.meta.ftskips ? off + (long) skips(size) * SKIP : off;
+  }
+
+  /**
+   * Adds the pre and pos values of a token with pending updates.
+   * @param token token
+   * @param pr pre values
+   * @param ps pos values
+   */
+  private void read(final byte[] token, final IntList pr, final IntList ps) {
+    final IntList refs = delta.tokens.get(token);
+    if(refs == null) return;
+    final int rs = refs.size();
+    for(int r = 0; r < rs; r += 2) {
+      pr.add(data.pre(refs.get(r)));
+      ps.add(refs.get(r + 1));
     }
-    return iter(new FTCache(pr, ps), token);
   }
 
   /**
@@ -456,6 +903,205 @@ public final class FTIndex implements Index {
     };
   }
 
+  /**
+   * Returns an iterator that lazily decodes the entries of a posting list in blocks.
+   * If the list contains skip pointers, they are used to jump over blocks that
+   * precede the pre value requested via {@link FTIndexIterator#advance(int)}, and
+   * to compute score bounds. The bounds of short lists are computed from all entries.
+   * @param entry index entry
+   * @return iterator
+   */
+  private FTIndexIterator iter(final IndexEntry entry) {
+    final int size = entry.size, skips = data.meta.ftskips ? skips(size) : 0;
+    final long start = entry.pointer + (long) skips * SKIP;
+
+    return new FTIndexIterator() {
+      final FTMatches all = new FTMatches();
+      /** Pre and pos values of the current block. */
+      final int[] pres = new int[Math.min(size, BLOCK)], poss = new int[pres.length];
+      /** Offset of the entries that follow the current block. */
+      long next = start;
+      /** Index of the first entry of the current block, and number of its entries. */
+      int first, count;
+      /** Index of the next entry. */
+      int e;
+      int pos, pre;
+      /** Last requested pre value and its block (see {@link #block(int)}). */
+      int bp = -1, bb;
+      /** Bounds of a short list ({@code -1}: not computed yet). */
+      int maxPos = -1, minLen;
+
+      @Override
+      public synchronized boolean more() {
+        if(!fetch()) return false;
+        all.reset(pos);
+        pre = pres[e - first];
+        do all.or(poss[e++ - first]); while(fetch() && pres[e - first] == pre);
+        return true;
+      }
+
+      @Override
+      public synchronized boolean advance(final int p) {
+        // jump to the last block whose first pre value is smaller than the target
+        if(skips != 0 && (e == first + count || pres[count - 1] < p)) {
+          final int b = search(p, e / BLOCK + 1, false);
+          if(b != -1) {
+            e = b * BLOCK;
+            first = e;
+            count = 0;
+            next = start + skip(b, 4);
+          }
+        }
+        while(more()) if(pre >= p) return true;
+        return false;
+      }
+
+      @Override
+      public synchronized int limit(final int p) {
+        if(skips == 0) return Integer.MAX_VALUE;
+        final int b = block(p) + 1;
+        return b < skips ? (int) skip(b, 0) : Integer.MAX_VALUE;
+      }
+
+      @Override
+      public synchronized int maxPositions(final int p) {
+        if(skips != 0) return (int) skip(block(p), 9);
+        stats();
+        return maxPos;
+      }
+
+      @Override
+      public synchronized int minLength(final int p) {
+        if(skips != 0) return (int) skip(block(p), 13);
+        stats();
+        return minLen;
+      }
+
+      /**
+       * Returns the block that contains the entries with the specified pre value.
+       * @param p pre value
+       * @return block
+       */
+      private int block(final int p) {
+        if(p != bp) {
+          bb = Math.max(0, search(p, 0, true));
+          bp = p;
+        }
+        return bb;
+      }
+
+      /**
+       * Returns the last block whose first pre value is smaller than the specified value.
+       * @param p pre value
+       * @param l first block to be considered
+       * @param eq include blocks whose first pre value is equal to the specified value
+       * @return block, or {@code -1} if no block was found
+       */
+      private int search(final int p, final int l, final boolean eq) {
+        int lo = l, hi = skips - 1, b = -1;
+        while(lo <= hi) {
+          final int m = lo + hi >>> 1;
+          final long f = skip(m, 0);
+          if(f < p || eq && f == p) {
+            b = m;
+            lo = m + 1;
+          } else {
+            hi = m - 1;
+          }
+        }
+        return b;
+      }
+
+      /**
+       * Computes the bounds of a list without skip pointers.
+       */
+      private void stats() {
+        if(maxPos != -1) return;
+        // bounds of long lists in legacy index structures are unknown
+        if(size > BLOCK << 1) {
+          maxPos = Integer.MAX_VALUE;
+          return;
+        }
+        final IntList pr = new IntList(size);
+        synchronized(FTIndex.this) {
+          inZ.cursor(start);
+          for(int c = 0; c < size; c++) {
+            pr.add(inZ.readNum());
+            inZ.readNum();
+          }
+        }
+        maxPos = 0;
+        minLen = Integer.MAX_VALUE;
+        for(int c = 0; c < size;) {
+          final int p = pr.get(c), s = c;
+          while(++c < size && pr.get(c) == p);
+          maxPos = Math.max(maxPos, c - s);
+          minLen = Math.min(minLen, data.textLen(p, true));
+        }
+      }
+
+      /**
+       * Makes sure that the next entry is available.
+       * @return {@code false} if all entries have been consumed
+       */
+      private boolean fetch() {
+        if(e == size) return false;
+        if(e == first + count) {
+          first = e;
+          count = Math.min(BLOCK, size - e);
+          synchronized(FTIndex.this) {
+            inZ.cursor(next);
+            for(int c = 0; c < count; c++) {
+              pres[c] = inZ.readNum();
+              poss[c] = inZ.readNum();
+            }
+            next = inZ.cursor();
+          }
+        }
+        return true;
+      }
+
+      /**
+       * Reads a value of a skip pointer.
+       * @param b block
+       * @param o offset of the value (0: pre value, 4: relative offset,
+       *   9: maximum number of positions, 13: minimum text length)
+       * @return value
+       */
+      private long skip(final int b, final int o) {
+        final long p = entry.pointer + (long) b * SKIP + o;
+        synchronized(FTIndex.this) {
+          return o == 4 ? inZ.read5(p) : inZ.read4(p);
+        }
+      }
+
+      @Override
+      public synchronized FTMatches matches() {
+        return all;
+      }
+
+      @Override
+      public synchronized int pre() {
+        return pre;
+      }
+
+      @Override
+      public void pos(final int p) {
+        pos = p;
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public String toString() {
+        return new TokenBuilder(entry.key).add('(').addExt(size).add("x)").toString();
+      }
+    };
+  }
+
   /**
    * Full-text cache.
    */
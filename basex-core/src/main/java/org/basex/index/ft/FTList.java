@@ -1,6 +1,5 @@
 package org.basex.index.ft;
 
-import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
@@ -54,17 +53,17 @@ final class FTList {
   /**
    * Constructor, initializing the index structure.
    * @param d data
-   * @param cf prefix
+   * @param pref prefix of the files
    * @throws IOException I/O exception
    */
-  FTList(final Data d, final int cf) throws IOException {
-    files = d.meta.dbfile(DATAFTX + cf + 'y');
-    filed = d.meta.dbfile(DATAFTX + cf + 'z');
+  FTList(final Data d, final String pref) throws IOException {
+    files = d.meta.dbfile(pref + 'y');
+    filed = d.meta.dbfile(pref + 'z');
     str = new DataAccess(files);
     dat = new DataAccess(filed);
     tp = new int[d.meta.maxlen + 3];
     for(int i = 0; i < tp.length; ++i) tp[i] = -1;
-    sizes = d.meta.dbfile(DATAFTX + cf + 'x');
+    sizes = d.meta.dbfile(pref + 'x');
     final DataAccess li = new DataAccess(sizes);
     int is = li.readNum();
     while(--is >= 0) {
@@ -0,0 +1,120 @@
+package org.basex.index.ft;
+
+import java.io.*;
+
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class provides access to the tokens of a full-text index, sorted by their
+ * reversed byte representations. It is used to find all tokens ending with the literal
+ * suffix of a wildcard expression. The dictionary is optional: it is created when
+ * it is requested for the first time, and it is dropped when the index changes.</p>
+ *
+ * <p>The dictionary is stored in the {@code DATAFTX + 'r'} file. It contains an entry
+ * for each token: {@code [p, l] ...}, where {@code p} is the pointer on the token
+ * in the {@code y} file [int], and {@code l} is the length of the token [int].</p>
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class FTSuffixes {
+  /** Entry size. */
+  private static final int ENTRY = 8;
+
+  /** Dictionary entries. */
+  private final DataAccess in;
+  /** Number of entries. */
+  private final int size;
+
+  /**
+   * Constructor, opening the dictionary.
+   * @param file dictionary file
+   * @throws IOException I/O exception
+   */
+  FTSuffixes(final IOFile file) throws IOException {
+    in = new DataAccess(file);
+    size = (int) (in.length() / ENTRY);
+  }
+
+  /**
+   * Writes a dictionary.
+   * @param file dictionary file
+   * @param tokens tokens
+   * @param pointers pointers on the tokens
+   * @throws IOException I/O exception
+   */
+  static void write(final IOFile file, final TokenList tokens, final IntList pointers)
+      throws IOException {
+
+    final int ts = tokens.size();
+    final byte[][] rev = new byte[ts][];
+    for(int t = 0; t < ts; t++) {
+      final byte[] tok = tokens.get(t).clone();
+      Array.reverse(tok);
+      rev[t] = tok;
+    }
+    final int[] order = Array.createOrder(rev, false, true);
+    final DataOutput out = new DataOutput(file);
+    try {
+      for(final int o : order) {
+        out.write4(pointers.get(o));
+        out.write4(tokens.get(o).length);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Adds the pointers and lengths of all tokens that end with the specified suffix.
+   * @param suffix suffix
+   * @param tokens token index
+   * @param pointers pointers on the tokens
+   * @param lengths lengths of the tokens
+   */
+  void find(final byte[] suffix, final DataAccess tokens, final IntList pointers,
+      final IntList lengths) {
+
+    // binary search for the first token with the suffix
+    int l = 0, h = size;
+    while(l < h) {
+      final int m = l + h >>> 1;
+      if(compare(m, suffix, tokens) < 0) l = m + 1;
+      else h = m;
+    }
+    for(; l < size && compare(l, suffix, tokens) == 0; l++) {
+      pointers.add(in.read4(l * (long) ENTRY));
+      lengths.add(in.read4());
+    }
+  }
+
+  /**
+   * Closes the dictionary.
+   */
+  void close() {
+    in.close();
+  }
+
+  /**
+   * Compares the reversed token of an entry with the reversed suffix.
+   * @param e entry
+   * @param suffix suffix
+   * @param tokens token index
+   * @return {@code 0} if the token ends with the suffix, a negative value if it
+   * is smaller, and a positive value if it is greater
+   */
+  private int compare(final int e, final byte[] suffix, final DataAccess tokens) {
+    final long p = in.read4(e * (long) ENTRY);
+    final byte[] tok = tokens.readBytes(p, in.read4());
+    final int tl = tok.length, sl = suffix.length;
+    for(int i = 1; i <= tl && i <= sl; i++) {
+      final int d = (tok[tl - i] & 0xFF) - (suffix[sl - i] & 0xFF);
+      if(d != 0) return d;
+    }
+    return tl < sl ? -1 : 0;
+  }
+}
@@ -0,0 +1,103 @@
+package org.basex.index.ft;
+
+import java.util.*;
+
+import org.basex.query.ft.*;
+
+/**
+ * Automaton, accepting all tokens that match a wildcard expression.
+ * The deterministic states are created on demand from the states of the expression,
+ * and the transitions of ASCII characters are cached.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class FTWildcardAutomaton extends FTAutomaton {
+  /** Wildcard expression. */
+  final FTWildcard wc;
+  /** Expression states of each automaton state. */
+  private final ArrayList<BitSet> sets = new ArrayList<BitSet>();
+  /** Automaton states of expression states. */
+  private final HashMap<BitSet, Integer> ids = new HashMap<BitSet, Integer>();
+  /** Transitions of each automaton state ({@code 0}: unknown, {@code -1}: no match,
+   * otherwise: target state + 1). */
+  private final ArrayList<int[]> trans = new ArrayList<int[]>();
+  /** Automaton states for each number of consumed characters. */
+  private int[] states = new int[1];
+
+  /**
+   * Constructor.
+   * @param wildcard parsed wildcard expression
+   */
+  FTWildcardAutomaton(final FTWildcard wildcard) {
+    wc = wildcard;
+    states[0] = id(wc.start());
+  }
+
+  @Override
+  byte[] prefix() {
+    return wc.prefix();
+  }
+
+  @Override
+  boolean step(final int ch) {
+    final int s = states[depth];
+    int n;
+    if(ch < 0x80) {
+      final int[] tr = trans.get(s);
+      n = tr[ch];
+      if(n == 0) {
+        n = next(s, ch);
+        tr[ch] = n;
+      }
+    } else {
+      n = next(s, ch);
+    }
+    if(n == -1) return false;
+    if(++depth == states.length) states = Arrays.copyOf(states, depth << 1);
+    states[depth] = n - 1;
+    return true;
+  }
+
+  @Override
+  boolean accept() {
+    return wc.accept(sets.get(states[depth]));
+  }
+
+  @Override
+  int min() {
+    return Math.max(1, wc.min());
+  }
+
+  @Override
+  int max() {
+    return wc.max();
+  }
+
+  /**
+   * Computes the transition of a state.
+   * @param s state
+   * @param ch character
+   * @return transition
+   */
+  private int next(final int s, final int ch) {
+    final BitSet set = wc.step(sets.get(s), ch);
+    return set.isEmpty() ? -1 : id(set) + 1;
+  }
+
+  /**
+   * Returns the automaton state of the specified expression states.
+   * @param set expression states
+   * @return state
+   */
+  private int id(final BitSet set) {
+    Integer id = ids.get(set);
+    if(id == null) {
+      id = sets.size();
+      sets.add(set);
+      ids.put(set, id);
+      trans.add(new int[0x80]);
+    }
+    return id;
+  }
+}
@@ -35,6 +35,49 @@ public abstract class FTIndexIterator extends IndexIterator {
    */
   public abstract void pos(final int p);
 
+  /**
+   * Moves to the next entry with a pre value that is equal to or greater than the
+   * specified value. Iterators can overwrite this method to skip entries without
+   * decoding them.
+   * @param pre pre value
+   * @return {@code true} if such an entry exists
+   */
+  public boolean advance(final int pre) {
+    while(more()) if(pre() >= pre) return true;
+    return false;
+  }
+
+  /**
+   * Returns the end of the range of pre values, starting from the specified value,
+   * for which the bounds returned by {@link #maxPositions(int)} and
+   * {@link #minLength(int)} are valid.
+   * @param pre pre value (equal to or greater than the current pre value)
+   * @return first pre value after the range, or {@link Integer#MAX_VALUE}
+   */
+  public int limit(final int pre) {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns the maximum number of positions of the entries in the range of pre values
+   * starting from the specified value (see {@link #limit(int)}).
+   * @param pre pre value
+   * @return maximum number of positions, or {@link Integer#MAX_VALUE} if it is unknown
+   */
+  public int maxPositions(final int pre) {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns the minimum text length of the nodes in the range of pre values
+   * starting from the specified value (see {@link #limit(int)}).
+   * @param pre pre value
+   * @return minimum text length
+   */
+  public int minLength(final int pre) {
+    return 0;
+  }
+
   /**
    * Merges two index array iterators.
    * @param i1 first index array iterator to merge
@@ -79,6 +122,23 @@ public abstract class FTIndexIterator extends IndexIterator {
         return i1.size() + i2.size();
       }
 
+      @Override
+      public int limit(final int pre) {
+        return Math.min(i1.limit(pre), i2.limit(pre));
+      }
+
+      @Override
+      public int maxPositions(final int pre) {
+        // the positions of both iterators are merged
+        return (int) Math.min(Integer.MAX_VALUE,
+            (long) i1.maxPositions(pre) + i2.maxPositions(pre));
+      }
+
+      @Override
+      public int minLength(final int pre) {
+        return Math.min(i1.minLength(pre), i2.minLength(pre));
+      }
+
       @Override
       public String toString() {
         return "(" + i1 + " | " + i2 + ')';
@@ -97,27 +157,43 @@ public abstract class FTIndexIterator extends IndexIterator {
       final int dis) {
 
     return new FTIndexIterator() {
-      private FTIndexIterator ii1, ii2;
       private FTMatches all;
 
       @Override
       public boolean more() {
-        int d = 0;
+        return i1.more() && next();
+      }
+
+      @Override
+      public boolean advance(final int pre) {
+        return i1.advance(pre) && next();
+      }
+
+      /**
+       * Moves both iterators to the next common pre value, starting from the
+       * current entry of the first iterator. The iterator that is behind skips all
+       * entries with smaller pre values.
+       * @return {@code true} if a common entry was found
+       */
+      private boolean next() {
+        if(!i2.advance(i1.pre())) return false;
         while(true) {
-          if(d <= 0) ii1 = i1.more() ? i1 : null;
-          if(d >= 0) ii2 = i2.more() ? i2 : null;
-          if(ii1 == null || ii2 == null) return false;
-          d = ii1.pre() - ii2.pre();
-          if(d != 0) continue;
-          all = ii1.matches();
-          final FTMatches all2 = ii2.matches();
-          if(dis == 0) {
-            for(final FTMatch m1 : all) {
-              for(final FTMatch m2 : all2) m1.add(m2);
+          final int d = i1.pre() - i2.pre();
+          if(d < 0) {
+            if(!i1.advance(i2.pre())) return false;
+          } else if(d > 0) {
+            if(!i2.advance(i1.pre())) return false;
+          } else {
+            all = i1.matches();
+            final FTMatches all2 = i2.matches();
+            if(dis == 0) {
+              for(final FTMatch m1 : all) {
+                for(final FTMatch m2 : all2) m1.add(m2);
+              }
+              return true;
             }
-            return true;
-          } else if(all.phrase(all2, dis)) {
-            return true;
+            if(all.phrase(all2, dis)) return true;
+            if(!i1.more() || !i2.advance(i1.pre())) return false;
           }
         }
       }
@@ -129,7 +205,7 @@ public abstract class FTIndexIterator extends IndexIterator {
 
       @Override
       public int pre() {
-        return ii1.pre();
+        return i1.pre();
       }
 
       @Override
@@ -143,6 +219,23 @@ public abstract class FTIndexIterator extends IndexIterator {
         return Math.min(i1.size(), i2.size());
       }
 
+      @Override
+      public int limit(final int pre) {
+        return Math.min(i1.limit(pre), i2.limit(pre));
+      }
+
+      @Override
+      public int maxPositions(final int pre) {
+        // the positions of the second iterator are attached to those of the first
+        return i1.maxPositions(pre);
+      }
+
+      @Override
+      public int minLength(final int pre) {
+        // results are contained in both iterators
+        return Math.max(i1.minLength(pre), i2.minLength(pre));
+      }
+
       @Override
       public String toString() {
         return "(" + i1 + " & " + i2 + ')';
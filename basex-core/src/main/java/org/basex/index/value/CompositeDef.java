@@ -0,0 +1,192 @@
+package org.basex.index.value;
+
+import static org.basex.util.Token.*;
+
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * Definition of a composite index, which indexes the combined values of two or more
+ * attributes or child elements of elements with a specific name
+ * (see {@link MainOptions#COMPINDEX}).
+ * A definition consists of the name of the element and the comma-separated names of
+ * its components in parentheses. Attribute names are prefixed with {@code @}.
+ * Names are compared by their local names. Example: {@code order(@region,@status)}.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class CompositeDef {
+  /** Local name of the indexed elements. */
+  public final byte[] name;
+  /** Local names of the components. */
+  public final byte[][] comps;
+  /** Attribute flags of the components. */
+  public final boolean[] attrs;
+  /** Key prefix (position of the definition). */
+  private final byte[] prefix;
+
+  /**
+   * Constructor.
+   * @param id position of the definition
+   * @param nm local name of the indexed elements
+   * @param cmp local names of the components
+   * @param att attribute flags of the components
+   */
+  private CompositeDef(final int id, final byte[] nm, final byte[][] cmp,
+      final boolean[] att) {
+    prefix = token(id);
+    name = nm;
+    comps = cmp;
+    attrs = att;
+  }
+
+  /**
+   * Parses the specified definitions, which are separated by semicolons.
+   * @param defs definitions
+   * @return definitions
+   * @throws BaseXException database exception
+   */
+  public static CompositeDef[] parse(final String defs) throws BaseXException {
+    final ArrayList<CompositeDef> list = new ArrayList<CompositeDef>();
+    for(final String def : defs.split(";")) {
+      final String d = def.trim();
+      if(d.isEmpty()) continue;
+      final int o = d.indexOf('('), c = d.length() - 1;
+      if(o < 1 || d.charAt(c) != ')') throw new BaseXException("Invalid index definition: %", d);
+
+      final String[] cs = d.substring(o + 1, c).split(",");
+      final int cl = cs.length;
+      if(cl < 2) throw new BaseXException("Index definition needs two components: %", d);
+      final byte[][] cmp = new byte[cl][];
+      final boolean[] att = new boolean[cl];
+      for(int i = 0; i < cl; i++) {
+        String n = cs[i].trim();
+        att[i] = n.startsWith("@");
+        if(att[i]) n = n.substring(1).trim();
+        if(!XMLToken.isName(token(n))) throw new BaseXException("Invalid name: %", cs[i]);
+        cmp[i] = local(token(n));
+      }
+      final byte[] nm = token(d.substring(0, o).trim());
+      if(!XMLToken.isName(nm)) throw new BaseXException("Invalid name: %", nm);
+      list.add(new CompositeDef(list.size(), local(nm), cmp, att));
+    }
+    return list.toArray(new CompositeDef[list.size()]);
+  }
+
+  /**
+   * Creates an index key from the specified component values.
+   * @param values values of the components
+   * @return key
+   */
+  public byte[] key(final byte[][] values) {
+    final TokenBuilder tb = new TokenBuilder().add(prefix);
+    for(final byte[] v : values) tb.addByte((byte) 0).add(v);
+    return tb.finish();
+  }
+
+  /**
+   * Returns the keys of the specified element. If components occur several times,
+   * keys are created for all combinations of their values. Values that exceed the
+   * maximum token length are skipped.
+   * @param data data reference
+   * @param pre pre value of an element
+   * @return keys (empty if the element is not indexed)
+   */
+  public TokenSet keys(final Data data, final int pre) {
+    final TokenSet keys = new TokenSet();
+    if(!eq(local(data.name(pre, Data.ELEM)), name)) return keys;
+
+    final int cl = comps.length;
+    final TokenList[] values = new TokenList[cl];
+    for(int c = 0; c < cl; c++) {
+      values[c] = values(data, pre, c);
+      if(values[c].isEmpty()) return keys;
+    }
+    // create all combinations of values
+    final int[] pos = new int[cl];
+    final byte[][] vals = new byte[cl][];
+    while(true) {
+      for(int c = 0; c < cl; c++) vals[c] = values[c].get(pos[c]);
+      keys.add(key(vals));
+      int c = cl;
+      while(--c >= 0 && ++pos[c] == values[c].size()) pos[c] = 0;
+      if(c < 0) return keys;
+    }
+  }
+
+  /**
+   * Returns the values of a component of the specified element. The values of child
+   * elements comprise their string values and the values of their text nodes.
+   * @param data data reference
+   * @param pre pre value of an element
+   * @param c index of the component
+   * @return values
+   */
+  private TokenList values(final Data data, final int pre, final int c) {
+    final TokenList list = new TokenList(1);
+    final int ml = data.meta.maxlen;
+    final int as = pre + data.attSize(pre, Data.ELEM);
+    if(attrs[c]) {
+      for(int p = pre + 1; p < as; p++) {
+        if(data.textLen(p, false) <= ml && eq(local(data.name(p, Data.ATTR)), comps[c])) {
+          list.add(data.text(p, false));
+        }
+      }
+    } else {
+      final int end = pre + data.size(pre, Data.ELEM);
+      for(int p = as; p < end; p += data.size(p, data.kind(p))) {
+        if(data.kind(p) != Data.ELEM || !eq(local(data.name(p, Data.ELEM)), comps[c]))
+          continue;
+        add(list, data.atom(p), ml);
+        final int ce = p + data.size(p, Data.ELEM);
+        for(int t = p + data.attSize(p, Data.ELEM); t < ce; t += data.size(t, data.kind(t))) {
+          if(data.kind(t) == Data.TEXT) add(list, data.text(t, true), ml);
+        }
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Adds a value to the specified list if it is not too long and not contained yet.
+   * @param list list
+   * @param value value
+   * @param ml maximum length
+   */
+  private static void add(final TokenList list, final byte[] value, final int ml) {
+    if(value.length <= ml && !list.contains(value)) list.add(value);
+  }
+
+  /**
+   * Returns a string representation of the specified key.
+   * @param key key
+   * @return string
+   */
+  public String toString(final byte[] key) {
+    final TokenBuilder tb = new TokenBuilder().add(name).add('(');
+    final byte[][] values = split(key, 0);
+    for(int c = 0; c < comps.length; c++) {
+      if(c > 0) tb.add(',');
+      if(attrs[c]) tb.add('@');
+      tb.add(comps[c]).add("=\"").add(values[c + 1]).add('"');
+    }
+    return tb.add(')').toString();
+  }
+
+  @Override
+  public String toString() {
+    final TokenBuilder tb = new TokenBuilder().add(name).add('(');
+    for(int c = 0; c < comps.length; c++) {
+      if(c > 0) tb.add(',');
+      if(attrs[c]) tb.add('@');
+      tb.add(comps[c]);
+    }
+    return tb.add(')').toString();
+  }
+}
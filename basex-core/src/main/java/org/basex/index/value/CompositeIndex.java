@@ -0,0 +1,123 @@
+package org.basex.index.value;
+
+import static org.basex.core.Text.*;
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * This class provides access to the composite indexes stored on disk.
+ * The data structure is described in the {@link CompositeIndexBuilder} class.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class CompositeIndex implements Index {
+  /** Index definitions. */
+  public final CompositeDef[] defs;
+  /** Key references. */
+  private final DataAccess idxr;
+  /** Keys and pre values. */
+  private final DataAccess idxl;
+  /** Number of index entries. */
+  private final int size;
+
+  /**
+   * Constructor, initializing the index structure.
+   * @param data data reference
+   * @throws IOException I/O Exception
+   */
+  public CompositeIndex(final Data data) throws IOException {
+    defs = CompositeDef.parse(data.meta.compdefs);
+    idxl = new DataAccess(data.meta.dbfile(DATACMP + 'l'));
+    idxr = new DataAccess(data.meta.dbfile(DATACMP + 'r'));
+    size = idxl.read4();
+  }
+
+  @Override
+  public void init() { }
+
+  @Override
+  public byte[] info() {
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add(LI_STRUCTURE + SORTED_LIST + NL);
+    tb.add(LI_SIZE + Performance.format(idxl.length() + idxr.length(), true) + NL);
+    tb.add(LI_ENTRIES + size + NL);
+    for(final CompositeDef def : defs) tb.add(LI).add(def.toString()).add(NL);
+    return tb.finish();
+  }
+
+  @Override
+  public EntryIterator entries(final IndexEntries entries) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public synchronized IndexIterator iter(final IndexToken token) {
+    final IntList pres = new IntList();
+    final int i = get(token.get());
+    if(i >= 0) {
+      final int s = idxl.readNum();
+      for(int p = 0, pre = 0; p < s; p++) {
+        pre += idxl.readNum();
+        pres.add(pre);
+      }
+    }
+    return new IndexIterator() {
+      final int s = pres.size();
+      int p = -1;
+
+      @Override
+      public boolean more() {
+        return ++p < s;
+      }
+
+      @Override
+      public int pre() {
+        return pres.get(p);
+      }
+
+      @Override
+      public int size() {
+        return s;
+      }
+    };
+  }
+
+  @Override
+  public synchronized int costs(final IndexToken token) {
+    return get(token.get()) >= 0 ? idxl.readNum() : 0;
+  }
+
+  /**
+   * Binary search for the specified key. If the key is found, the cursor of the
+   * list file points to the number of its pre values.
+   * @param key key to be found
+   * @return if the key is found: index of the key, else: {@code -1}
+   */
+  private int get(final byte[] key) {
+    int l = 0, h = size - 1;
+    while(l <= h) {
+      final int m = l + h >>> 1;
+      final int d = diff(idxl.readToken(idxr.read5(m * 5L)), key);
+      if(d == 0) return m;
+      if(d < 0) l = m + 1;
+      else h = m - 1;
+    }
+    return -1;
+  }
+
+  @Override
+  public synchronized void close() {
+    idxl.close();
+    idxr.close();
+  }
+}
@@ -0,0 +1,211 @@
+package org.basex.index.value;
+
+import static org.basex.core.Text.*;
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.io.out.DataOutput;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * <p>This class builds the composite indexes of a database and stores the result to
+ * disk (see {@link CompositeDef}).</p>
+ *
+ * <p>The data is stored on disk in the following format:</p>
+ * <ul>
+ * <li> {@code DATACMP + 'l'}: contains the sorted keys, followed by the pre values of
+ *   the indexed elements, which are stored in the {@link Num} format:
+ *   [key, size, pre1, pre2 - pre1, ...]. The number of index keys is stored in the
+ *   first 4 bytes of the file. A key consists of the position of the definition and
+ *   the values of the components, which are separated by zero bytes.</li>
+ * <li> {@code DATACMP + 'r'}: contains 5-byte references to the entries of all
+ *   keys.</li>
+ * </ul>
+ *
+ * <p>As the number of keys is limited by the number of elements, the entries are kept
+ * in main memory. The index is not updated incrementally; it is dropped by updates and
+ * rebuilt when the database is optimized.</p>
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class CompositeIndexBuilder extends IndexBuilder {
+  /** Index definitions. */
+  private final CompositeDef[] defs;
+  /** Definitions of element names ({@code null}: unknown). */
+  private CompositeDef[][] names = new CompositeDef[16][];
+  /** Temporary value tree. */
+  private IndexTree index = new IndexTree();
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @throws IOException I/O exception
+   */
+  public CompositeIndexBuilder(final Data d) throws IOException {
+    this(d, d.meta.compdefs);
+  }
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @param df index definitions, separated by semicolons
+   * @throws IOException I/O exception
+   */
+  public CompositeIndexBuilder(final Data d, final String df) throws IOException {
+    this(d, CompositeDef.parse(df));
+  }
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @param df index definitions
+   */
+  private CompositeIndexBuilder(final Data d, final CompositeDef[] df) {
+    super(d, 0);
+    defs = df;
+  }
+
+  @Override
+  public Index build() throws IOException {
+    // delete old index
+    abort();
+
+    final Performance perf = Prop.debug ? new Performance() : null;
+    Util.debug(det());
+
+    for(pre = 0; pre < size; ++pre) {
+      if((pre & 0x0FFF) == 0) check();
+      index();
+    }
+    write();
+    final Index ci = finish();
+    finishIndex(perf);
+    return ci;
+  }
+
+  @Override
+  protected CompositeIndexBuilder part() {
+    return new CompositeIndexBuilder(data, defs);
+  }
+
+  @Override
+  protected void index() {
+    if(data.kind(pre) != Data.ELEM) return;
+    for(final CompositeDef def : defs(data.name(pre))) {
+      for(final byte[] key : def.keys(data, pre)) {
+        index.index(key, pre);
+        count++;
+      }
+    }
+  }
+
+  @Override
+  protected void finishPart() { }
+
+  @Override
+  protected Index merge(final IndexBuilder[] parts) throws IOException {
+    // parts are merged in the order of the table, so the pre values remain sorted
+    for(final IndexBuilder ib : parts) {
+      final CompositeIndexBuilder part = (CompositeIndexBuilder) ib;
+      final IndexTree tree = part.index;
+      tree.init();
+      while(tree.more()) {
+        final int i = tree.next();
+        final byte[] key = tree.keys.get(i), values = tree.values.get(i);
+        final int vs = Num.size(values);
+        for(int v = 4; v < vs; v += Num.length(values, v)) index.index(key, Num.get(values, v));
+      }
+      count += part.count;
+      part.index = null;
+    }
+    write();
+    return finish();
+  }
+
+  @Override
+  protected String prefix() {
+    return DATACMP;
+  }
+
+  @Override
+  protected CompositeIndex open() throws IOException {
+    data.meta.compindex = true;
+    return new CompositeIndex(data);
+  }
+
+  /**
+   * Returns the definitions that apply to elements with the specified name.
+   * @param id id of the element name
+   * @return definitions
+   */
+  private CompositeDef[] defs(final int id) {
+    if(id >= names.length) {
+      final CompositeDef[][] tmp = new CompositeDef[Math.max(id + 1, names.length << 1)][];
+      System.arraycopy(names, 0, tmp, 0, names.length);
+      names = tmp;
+    }
+    CompositeDef[] ds = names[id];
+    if(ds == null) {
+      ds = new CompositeDef[0];
+      final byte[] ln = local(data.tagindex.key(id));
+      for(final CompositeDef def : defs) {
+        if(eq(def.name, ln)) ds = Array.add(ds, def);
+      }
+      names[id] = ds;
+    }
+    return ds;
+  }
+
+  /**
+   * Writes the index to disk.
+   * @throws IOException I/O exception
+   */
+  private void write() throws IOException {
+    final String name = name(DATACMP);
+    final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
+    final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'));
+    outL.write4(index.size());
+
+    final IntList il = new IntList();
+    index.init();
+    while(index.more()) {
+      checkStop();
+      final int i = index.next();
+      final byte[] values = index.values.get(i);
+      final int vs = Num.size(values);
+      for(int v = 4; v < vs; v += Num.length(values, v)) il.add(Num.get(values, v));
+
+      final int is = il.size();
+      outR.write5(outL.size());
+      outL.writeToken(index.keys.get(i));
+      outL.writeNum(is);
+      for(int v = 0, o = 0; v < is; v++) {
+        final int p = il.get(v);
+        outL.writeNum(p - o);
+        o = p;
+      }
+      il.reset();
+    }
+    outL.close();
+    outR.close();
+    index = null;
+  }
+
+  @Override
+  protected void abort() {
+    data.meta.drop(name(DATACMP) + ".+");
+    if(!online) data.meta.compindex = false;
+  }
+
+  @Override
+  protected String det() {
+    return CREATING_INDEXES;
+  }
+}
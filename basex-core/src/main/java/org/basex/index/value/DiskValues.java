@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 import java.util.concurrent.atomic.*;
 
 import org.basex.core.*;
@@ -12,6 +13,7 @@ import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
+import org.basex.io.*;
 import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
@@ -34,10 +36,15 @@ public class DiskValues implements Index {
   /** Data reference. */
   final Data data;
   /** Cached tokens. */
-  final IndexCache cache = new IndexCache();
+  final IndexCache cache;
   /** Cached texts. Increases used memory, but speeds up repeated queries. */
   final IntObjMap<byte[]> ctext = new IntObjMap<byte[]>();
 
+  /** Numeric keys file. */
+  private final IOFile numfile;
+  /** Numeric keys ({@code null} if they have not been created yet). */
+  private NumericKeys numkeys;
+
   /** Synchronization object. */
   private final Object monitor = new Object();
   /** Number of current index entries. */
@@ -63,9 +70,12 @@ public class DiskValues implements Index {
   DiskValues(final Data d, final boolean txt, final String pref) throws IOException {
     data = d;
     text = txt;
+    cache = new IndexCache(d.meta.options);
     idxl = new DataAccess(d.meta.dbfile(pref + 'l'));
     idxr = new DataAccess(d.meta.dbfile(pref + 'r'));
+    numfile = d.meta.dbfile(pref + 'n');
     size.set(idxl.read4());
+    if(d.meta.numindex) numkeys = NumericKeys.read(numfile);
   }
 
   @Override
@@ -80,6 +90,7 @@ public class DiskValues implements Index {
     synchronized(monitor) {
       final long l = idxl.length() + idxr.length();
       tb.add(LI_SIZE + Performance.format(l, true) + NL);
+      cache.info(tb);
       final int s = size.get();
       for(int m = 0; m < s; ++m) {
         final long pos = idxr.read5(m * 5L);
@@ -95,7 +106,10 @@ public class DiskValues implements Index {
   @Override
   public int costs(final IndexToken it) {
     if(it instanceof StringRange) return idRange((StringRange) it).size();
-    if(it instanceof NumericRange) return idRange((NumericRange) it).size();
+    if(it instanceof NumericRange) {
+      final NumericRange nr = (NumericRange) it;
+      return data.meta.numindex ? numCosts(nr) : idRange(nr).size();
+    }
     final byte[] key = it.get();
     return key.length <= data.meta.maxlen ? entry(key).size : Integer.MAX_VALUE;
   }
@@ -344,6 +358,8 @@ public class DiskValues implements Index {
    * @return results
    */
   final IndexIterator idRange(final NumericRange tok) {
+    if(data.meta.numindex) return numRange(tok);
+
     final double min = tok.min;
     final double max = tok.max;
 
@@ -378,6 +394,95 @@ public class DiskValues implements Index {
     return iter(pres.sort());
   }
 
+  /**
+   * Performs a range query with the numeric keys.
+   * <p><em>Important:</em> This method is thread-safe.</p>
+   * @param tok index term
+   * @return results
+   */
+  private IndexIterator numRange(final NumericRange tok) {
+    final IntList pres = new IntList();
+    synchronized(monitor) {
+      final NumericKeys nk = numKeys();
+      final int s = nk.values.length;
+      for(int n = nk.first(tok.min); n < s && nk.values[n] <= tok.max; n++) {
+        final int ds = idxl.readNum(idxr.read5(nk.keys[n] * 5L));
+        for(int d = 0, id = 0; d < ds; ++d) {
+          id += idxl.readNum();
+          pres.add(pre(id));
+        }
+      }
+    }
+    return iter(pres.sort());
+  }
+
+  /**
+   * Returns the number of results of a range query with the numeric keys.
+   * <p><em>Important:</em> This method is thread-safe.</p>
+   * @param tok index term
+   * @return number of results
+   */
+  private int numCosts(final NumericRange tok) {
+    int costs = 0;
+    synchronized(monitor) {
+      final NumericKeys nk = numKeys();
+      final int s = nk.values.length;
+      for(int n = nk.first(tok.min); n < s && nk.values[n] <= tok.max; n++) {
+        costs += idxl.readNum(idxr.read5(nk.keys[n] * 5L));
+      }
+    }
+    return costs;
+  }
+
+  /**
+   * Returns the numeric keys. If they do not exist yet, they are created and written
+   * to disk.
+   * <p><em>Important:</em> This method is NOT thread-safe.</p>
+   * @return numeric keys
+   */
+  private NumericKeys numKeys() {
+    if(numkeys != null) return numkeys;
+
+    final int s = size.get();
+    final IntList keys = new IntList();
+    double[] values = new double[Array.CAPACITY];
+    for(int l = 0; l < s; ++l) {
+      idxl.readNum(idxr.read5(l * 5L));
+      final double v = data.textDbl(pre(idxl.readNum()), text);
+      if(Double.isNaN(v)) continue;
+      if(keys.size() == values.length) values = Arrays.copyOf(values, Array.newSize(keys.size()));
+      values[keys.size()] = v;
+      keys.add(l);
+    }
+    keys.sort(values, true);
+    numkeys = new NumericKeys(Arrays.copyOf(values, keys.size()), keys.toArray());
+    try {
+      numkeys.write(numfile);
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+    return numkeys;
+  }
+
+  /**
+   * Creates the numeric keys.
+   */
+  final void createNumKeys() {
+    synchronized(monitor) {
+      numKeys();
+    }
+  }
+
+  /**
+   * Invalidates the numeric keys after an update.
+   */
+  final void dropNumKeys() {
+    synchronized(monitor) {
+      numkeys = null;
+      numfile.delete();
+    }
+  }
+
   /**
    * Returns an iterator for the specified id list.
    * @param pres pre values
@@ -0,0 +1,90 @@
+package org.basex.index.value;
+
+import java.io.*;
+
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+
+/**
+ * <p>This class contains the numeric keys of a value index, sorted by their double
+ * values. It is used to answer range queries by a binary search and a subsequent
+ * scan of the matching keys.</p>
+ *
+ * <p>The keys are stored in the {@code DATATXT/ATV + 'n'} file: the number of keys,
+ * the 8-byte double values in ascending order, and the positions of the keys in the
+ * string-sorted index structure.</p>
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class NumericKeys {
+  /** Double values in ascending order. */
+  final double[] values;
+  /** Key positions. */
+  final int[] keys;
+
+  /**
+   * Constructor.
+   * @param v double values in ascending order
+   * @param k key positions
+   */
+  NumericKeys(final double[] v, final int[] k) {
+    values = v;
+    keys = k;
+  }
+
+  /**
+   * Reads the keys from disk.
+   * @param file input file
+   * @return keys, or {@code null} if the file does not exist
+   * @throws IOException I/O exception
+   */
+  static NumericKeys read(final IOFile file) throws IOException {
+    if(!file.exists()) return null;
+    final DataInput in = new DataInput(file);
+    try {
+      final int s = in.readNum();
+      final long[] bits = in.readLongs(s);
+      final double[] v = new double[s];
+      for(int i = 0; i < s; i++) v[i] = Double.longBitsToDouble(bits[i]);
+      return new NumericKeys(v, in.readNums());
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Writes the keys to disk.
+   * @param file output file
+   * @throws IOException I/O exception
+   */
+  void write(final IOFile file) throws IOException {
+    final DataOutput out = new DataOutput(file);
+    try {
+      final int s = values.length;
+      final long[] bits = new long[s];
+      for(int i = 0; i < s; i++) bits[i] = Double.doubleToRawLongBits(values[i]);
+      out.writeLongs(bits);
+      out.writeNums(keys);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Returns the position of the first key that is equal to or greater than the
+   * specified value.
+   * @param min minimum value
+   * @return position
+   */
+  int first(final double min) {
+    int l = 0, h = values.length;
+    while(l < h) {
+      final int m = l + h >>> 1;
+      if(values[m] < min) l = m + 1;
+      else h = m;
+    }
+    return l;
+  }
+}
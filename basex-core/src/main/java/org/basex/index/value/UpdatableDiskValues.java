@@ -53,6 +53,7 @@ public final class UpdatableDiskValues extends DiskValues {
 
   @Override
   public synchronized void index(final TokenObjMap<IntList> m) {
+    if(data.meta.numindex) dropNumKeys();
     final int s = size.get();
     final int last = s - 1;
 
@@ -125,6 +126,7 @@ public final class UpdatableDiskValues extends DiskValues {
 
   @Override
   public synchronized void delete(final TokenObjMap<IntList> m) {
+    if(data.meta.numindex) dropNumKeys();
     // create a sorted list of all keys: allows faster binary search
     final TokenList allkeys = new TokenList(m).sort(true);
 
@@ -201,6 +203,7 @@ public final class UpdatableDiskValues extends DiskValues {
 
   @Override
   public synchronized void replace(final byte[] o, final byte[] n, final int id) {
+    if(data.meta.numindex) dropNumKeys();
     // delete the id from the old key
     final int p = get(o);
     if(p >= 0) {
@@ -29,6 +29,9 @@ import org.basex.util.list.*;
  *   structure. Instead, they can be found by following the id references to
  *   the main table.
  * </li>
+ * <li> {@code DATATXT/ATV + 'n'}: contains the numeric keys, sorted by their double
+ *   values, if the {@link MainOptions#NUMINDEX} option was enabled
+ *   (see {@link NumericKeys}).</li>
  * </ul>
  *
  * @author BaseX Team 2005-13, BSD License
@@ -39,6 +42,12 @@ public final class ValueIndexBuilder extends IndexBuilder {
   private IndexTree index = new IndexTree();
   /** Index type (attributes/texts). */
   private final boolean text;
+  /** Kind of the indexed nodes. */
+  private final int kind;
+  /** Names of the elements or attributes whose values are indexed, separated by commas. */
+  private final String include;
+  /** Names of the elements or attributes whose values are indexed. */
+  private final IndexNames names;
 
   /**
    * Constructor.
@@ -46,35 +55,34 @@ public final class ValueIndexBuilder extends IndexBuilder {
    * @param txt value type (text/attribute)
    */
   public ValueIndexBuilder(final Data d, final boolean txt) {
+    this(d, txt, txt ? d.meta.textinclude : d.meta.attrinclude);
+  }
+
+  /**
+   * Constructor.
+   * @param d data reference
+   * @param txt value type (text/attribute)
+   * @param inc names of the elements or attributes whose values are indexed
+   */
+  public ValueIndexBuilder(final Data d, final boolean txt, final String inc) {
     super(d, d.meta.options.get(MainOptions.INDEXSPLITSIZE));
     text = txt;
+    kind = txt ? Data.TEXT : Data.ATTR;
+    include = inc;
+    names = new IndexNames(d, txt, inc);
   }
 
   @Override
-  public DiskValues build() throws IOException {
+  public Index build() throws IOException {
     // delete old index
     abort();
 
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    final int k = text ? Data.TEXT : Data.ATTR;
-
     for(pre = 0; pre < size; ++pre) {
-      if((pre & 0x0FFF) == 0) {
-        check();
-        // check if main memory is exhausted
-        if(split()) {
-          writeIndex(true);
-          index = new IndexTree();
-          finishSplit();
-        }
-      }
-      // skip too long values
-      if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen) {
-        index.index(data.text(pre, text), data.meta.updindex ? data.id(pre) : pre);
-        count++;
-      }
+      if((pre & 0x0FFF) == 0) check();
+      index();
     }
 
     writeIndex(splits > 0);
@@ -84,13 +92,60 @@ public final class ValueIndexBuilder extends IndexBuilder {
       Performance.gc(1);
       merge();
     }
+    final Index values = finish();
+    finishIndex(perf);
+    return values;
+  }
+
+  @Override
+  protected ValueIndexBuilder part() {
+    return new ValueIndexBuilder(data, text, include);
+  }
+
+  @Override
+  protected void index() throws IOException {
+    // check if main memory is exhausted
+    if((pre & 0x0FFF) == 0 && split()) {
+      writeIndex(true);
+      index = new IndexTree();
+      finishSplit();
+    }
+    // skip too long values and values of excluded nodes
+    if(data.kind(pre) == kind && data.textLen(pre, text) <= data.meta.maxlen &&
+        names.contains(pre)) {
+      index.index(data.text(pre, text), data.meta.updindex ? data.id(pre) : pre);
+      count++;
+    }
+  }
+
+  @Override
+  protected void finishPart() throws IOException {
+    if(index.size() != 0) writeIndex(true);
+    index = null;
+  }
 
+  @Override
+  protected Index merge(final IndexBuilder[] parts) throws IOException {
+    adopt(parts);
+    if(splits == 0) writeIndex(false);
+    else merge();
+    return finish();
+  }
+
+  @Override
+  protected String prefix() {
+    return text ? DATATXT : DATAATV;
+  }
+
+  @Override
+  protected DiskValues open() throws IOException {
     if(text) data.meta.textindex = true;
     else data.meta.attrindex = true;
 
-    finishIndex(perf);
-    return data.meta.updindex ?
+    final DiskValues values = data.meta.updindex ?
         new UpdatableDiskValues(data, text) : new DiskValues(data, text);
+    if(data.meta.numindex) values.createNumKeys();
+    return values;
   }
 
   /**
@@ -98,7 +153,7 @@ public final class ValueIndexBuilder extends IndexBuilder {
    * @throws IOException I/O exception
    */
   private void merge() throws IOException {
-    final String f = text ? DATATXT : DATAATV;
+    final String f = name(prefix());
     final DataOutput outL = new DataOutput(data.meta.dbfile(f + 'l'));
     final DataOutput outR = new DataOutput(data.meta.dbfile(f + 'r'));
     outL.write4(0);
@@ -107,7 +162,7 @@ public final class ValueIndexBuilder extends IndexBuilder {
     final IntList ml = new IntList();
     final IntList il = new IntList();
     final ValueIndexMerger[] vm = new ValueIndexMerger[splits];
-    for(int i = 0; i < splits; ++i) vm[i] = new ValueIndexMerger(data, text, i);
+    for(int i = 0; i < splits; ++i) vm[i] = new ValueIndexMerger(data, text, f + files.get(i));
     int sz = 0;
 
     // parse through all values
@@ -165,7 +220,7 @@ public final class ValueIndexBuilder extends IndexBuilder {
    */
   private void writeIndex(final boolean partial) throws IOException {
     // write id arrays and references
-    final String name = (text ? DATATXT : DATAATV) + (partial ? splits : "");
+    final String name = name(prefix()) + (partial ? nextSplit() : "");
     final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
     final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'));
     outL.write4(index.size());
@@ -228,7 +283,8 @@ public final class ValueIndexBuilder extends IndexBuilder {
 
   @Override
   protected void abort() {
-    data.meta.drop((text ? DATATXT : DATAATV) + ".+");
+    data.meta.drop(name(prefix()) + ".+");
+    if(online) return;
     if(text) data.meta.textindex = false;
     else data.meta.attrindex = false;
   }
@@ -1,6 +1,5 @@
 package org.basex.index.value;
 
-import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
@@ -33,11 +32,11 @@ final class ValueIndexMerger {
    * Constructor.
    * @param d data reference
    * @param txt text flag
-   * @param i merge id
+   * @param pr prefix of the files
    * @throws IOException I/O exception
    */
-  ValueIndexMerger(final Data d, final boolean txt, final int i) throws IOException {
-    pref = (txt ? DATATXT : DATAATV) + i;
+  ValueIndexMerger(final Data d, final boolean txt, final String pr) throws IOException {
+    pref = pr;
     dk = new DataInput(d.meta.dbfile(pref + 't'));
     dv = new DiskValues(d, txt, pref);
     data = d;
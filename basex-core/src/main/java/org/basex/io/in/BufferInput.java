@@ -139,6 +139,27 @@ public class BufferInput extends InputStream {
     return bl.toArray();
   }
 
+  /**
+   * Reads the specified number of bytes and writes them to the specified output stream.
+   * Buffered bytes are passed on in blocks.
+   * @param os output stream
+   * @param n number of bytes
+   * @throws IOException I/O exception
+   */
+  public final void transfer(final OutputStream os, final int n) throws IOException {
+    for(int r = n; r > 0;) {
+      if(bpos >= bsize) {
+        // fill buffer
+        if(readByte() == -1) throw new EOFException();
+        bpos--;
+      }
+      final int l = Math.min(r, bsize - bpos);
+      os.write(buffer, bpos, l);
+      bpos += l;
+      r -= l;
+    }
+  }
+
   @Override
   public final void close() throws IOException {
     if(in != null && !(in instanceof ZipInputStream)) in.close();
@@ -152,6 +173,14 @@ public class BufferInput extends InputStream {
     return read + bpos;
   }
 
+  /**
+   * Returns the number of bytes that have been buffered, but not read yet.
+   * @return number of buffered bytes
+   */
+  public final int buffered() {
+    return bsize - bpos;
+  }
+
   /**
    * Returns the input length (may be {@code -1}).
    * @return input length
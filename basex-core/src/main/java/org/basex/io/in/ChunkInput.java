@@ -0,0 +1,85 @@
+package org.basex.io.in;
+
+import java.io.*;
+
+/**
+ * This client-side class wraps an {@link InputStream} sent by a database server.
+ * The incoming bytes are framed as chunks, as described in
+ * {@link org.basex.io.out.ChunkOutput}.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ChunkInput extends InputStream {
+  /** Input stream. */
+  private final BufferInput input;
+  /** Remaining bytes of the current chunk. */
+  private int remaining;
+  /** All bytes have been read. */
+  private boolean more = true;
+
+  /**
+   * Constructor.
+   * @param in buffer input to be wrapped
+   */
+  public ChunkInput(final BufferInput in) {
+    input = in;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if(remaining == 0 && !next()) return -1;
+    remaining--;
+    return input.read();
+  }
+
+  /**
+   * Writes all remaining bytes to the specified output stream.
+   * Chunks are passed on in blocks.
+   * @param os output stream
+   * @throws IOException I/O exception
+   */
+  public void transfer(final OutputStream os) throws IOException {
+    while(remaining != 0 || next()) {
+      input.transfer(os, remaining);
+      remaining = 0;
+    }
+  }
+
+  /**
+   * Flushes the remaining server data.
+   * @throws IOException I/O exception
+   */
+  public void flush() throws IOException {
+    while(read() != -1);
+  }
+
+  /**
+   * Reads the length of the next chunk.
+   * @return {@code false} if the end of the stream has been reached
+   * @throws IOException I/O exception
+   */
+  private boolean next() throws IOException {
+    if(more) {
+      final int v = input.read();
+      if(v == -1) throw new EOFException();
+      switch((v & 0xC0) >>> 6) {
+        case 0:
+          remaining = v;
+          break;
+        case 1:
+          remaining = (v & 0x3F) << 8 | input.read();
+          break;
+        case 2:
+          remaining = (v & 0x3F) << 24 | input.read() << 16 | input.read() << 8 |
+            input.read();
+          break;
+        default:
+          remaining = input.read() << 24 | input.read() << 16 | input.read() << 8 |
+            input.read();
+      }
+      more = remaining != 0;
+    }
+    return more;
+  }
+}
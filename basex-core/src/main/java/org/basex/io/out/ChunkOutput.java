@@ -0,0 +1,65 @@
+package org.basex.io.out;
+
+import java.io.*;
+
+/**
+ * This server-side class wraps an {@link OutputStream} that is sent to a database
+ * client. The outgoing bytes are framed as chunks:
+ * <ul>
+ * <li>each chunk is prefixed with its length as compressed integer
+ *   (see {@link DataOutput#writeNum})</li>
+ * <li>a chunk of length {@code 0}, and thus a single {@code 0x00} byte,
+ *   indicates the end of a stream</li>
+ * </ul>
+ * In contrast to {@link EncodingOutput}, the bytes are not escaped, and byte arrays
+ * are passed on without being copied. This stream should be wrapped by a buffered
+ * stream, as each single write operation results in a new chunk.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ChunkOutput extends OutputStream {
+  /** Output stream. */
+  private final OutputStream os;
+
+  /**
+   * Constructor.
+   * @param out output stream to be wrapped
+   */
+  public ChunkOutput(final OutputStream out) {
+    os = out;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    os.write(1);
+    os.write(b);
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    // empty chunks would terminate the stream
+    if(len == 0) return;
+    if(len > 0x3FFFFFFF) {
+      os.write(0xC0); os.write(len >>> 24); os.write(len >>> 16);
+      os.write(len >>> 8); os.write(len);
+    } else if(len > 0x3FFF) {
+      os.write(len >>> 24 | 0x80); os.write(len >>> 16); os.write(len >>> 8); os.write(len);
+    } else if(len > 0x3F) {
+      os.write(len >>> 8 | 0x40); os.write(len);
+    } else {
+      os.write(len);
+    }
+    os.write(b, off, len);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    os.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    os.close();
+  }
+}
@@ -59,6 +59,17 @@ public class PrintOutput extends OutputStream {
     if(size++ < max) os.write(b);
   }
 
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    // instances without output stream, or with exceeded limit, will write single bytes
+    if(os == null || size + len > max) {
+      super.write(b, off, len);
+    } else {
+      os.write(b, off, len);
+      size += len;
+    }
+  }
+
   /**
    * Writes a character as UTF8.
    * @param ch character to be printed
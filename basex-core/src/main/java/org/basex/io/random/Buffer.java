@@ -15,4 +15,8 @@ final class Buffer {
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+  /** Offset of the requested entry (used by read operations). */
+  int off;
+  /** Version of the file at the time the block was read (used by thread-local buffers). */
+  int version;
 }
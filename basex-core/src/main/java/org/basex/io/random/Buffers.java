@@ -1,7 +1,14 @@
 package org.basex.io.random;
 
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+import org.basex.io.*;
+
 /**
  * This class provides a simple, clock-based buffer management.
+ * Clean pages are additionally kept in the shared {@link PageCache}.
  *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
@@ -11,6 +18,10 @@ final class Buffers {
   private static final int BUFFERS = 1 << 4;
   /** Buffers. */
   private final Buffer[] buf = new Buffer[BUFFERS];
+  /** Shared page cache. */
+  private final PageCache cache = PageCache.get();
+  /** File id, used for addressing pages in the shared cache. */
+  private final int id = PageCache.id();
   /** Current buffer offset. */
   private int off;
 
@@ -50,4 +61,78 @@ final class Buffers {
     off = o + 1 & BUFFERS - 1;
     return true;
   }
+
+  /**
+   * Tries to fill the current buffer with a cached copy of the specified block.
+   * @param b block index
+   * @return {@code true} if the block was found in the page cache
+   */
+  boolean fetch(final long b) {
+    return fetch(b, current());
+  }
+
+  /**
+   * Tries to fill the specified buffer with a cached copy of the specified block.
+   * @param b block index
+   * @param bf buffer
+   * @return {@code true} if the block was found in the page cache
+   */
+  boolean fetch(final long b, final Buffer bf) {
+    return cache.read(PageCache.key(id, b), bf.data);
+  }
+
+  /**
+   * Adds a copy of the current buffer, which has just been read from disk,
+   * to the page cache.
+   * @param b block index
+   */
+  void cache(final long b) {
+    cache(b, current());
+  }
+
+  /**
+   * Adds a copy of the specified buffer, which has just been read from disk,
+   * to the page cache.
+   * @param b block index
+   * @param bf buffer
+   */
+  void cache(final long b, final Buffer bf) {
+    cache.add(PageCache.key(id, b), bf.data);
+  }
+
+  /**
+   * Fills the specified buffer with the contents of the specified block. The block is
+   * either taken from the page cache or read via positional access, which does not
+   * change the file pointer and can be performed concurrently.
+   * @param fc file channel
+   * @param b block index
+   * @param bf buffer
+   * @param len number of bytes to be read from disk
+   * @throws IOException I/O exception
+   */
+  void read(final FileChannel fc, final long b, final Buffer bf, final int len)
+      throws IOException {
+
+    if(fetch(b, bf)) return;
+    final ByteBuffer bb = ByteBuffer.wrap(bf.data, 0, len);
+    final long pos = b << IO.BLOCKPOWER;
+    while(bb.hasRemaining() && fc.read(bb, pos + bb.position()) != -1);
+    cache(b, bf);
+  }
+
+  /**
+   * Updates a cached copy of the specified buffer, which has just been written to disk.
+   * @param bf buffer
+   * @param b block index
+   */
+  void written(final Buffer bf, final long b) {
+    cache.update(PageCache.key(id, b), bf.data);
+  }
+
+  /**
+   * Discards all cached pages of this file.
+   */
+  void close() {
+    cache.remove(id);
+  }
 }
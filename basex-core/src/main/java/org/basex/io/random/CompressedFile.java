@@ -0,0 +1,236 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.util.*;
+
+/**
+ * This class provides read-only access to a block-compressed file.
+ *
+ * The original file is divided into chunks of {@link #CHUNKSIZE} bytes, which are
+ * compressed separately via {@link BlockCompress}. Chunks that cannot be compressed are
+ * stored unchanged. The file offsets of all chunks, the length of the original file and
+ * the offset of this index are appended to the compressed data.
+ *
+ * Decompressed chunks are cached in thread-local buffers, so read operations can be
+ * performed concurrently. Each thread holds one decompressed chunk per opened file
+ * ({@link #CHUNKSIZE} bytes) and a single buffer for compressed data, which is shared by
+ * all files. The buffers will be released when the thread terminates or the file is
+ * garbage-collected.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class CompressedFile {
+  /** Power of the chunk size. */
+  private static final int CHUNKPOWER = 16;
+  /** Chunk size. */
+  private static final int CHUNKSIZE = 1 << CHUNKPOWER;
+  /** Size of the trailing index information. */
+  private static final int TRAILER = 10;
+
+  /** Thread-local buffers for compressed data, shared by all files. */
+  private static final ThreadLocal<byte[]> PACKED = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[CHUNKSIZE];
+    }
+  };
+  /** Thread-local chunks. */
+  private final ThreadLocal<Chunk> local = new ThreadLocal<Chunk>() {
+    @Override
+    protected Chunk initialValue() {
+      return new Chunk();
+    }
+  };
+  /** File channel. */
+  private final FileChannel channel;
+  /** File offsets of all chunks; the last entry points to the index. */
+  private final long[] offsets;
+  /** Length of the original file. */
+  private final long length;
+
+  /**
+   * Constructor.
+   * @param file compressed file
+   * @throws IOException I/O exception
+   */
+  CompressedFile(final RandomAccessFile file) throws IOException {
+    channel = file.getChannel();
+    final byte[] trailer = new byte[TRAILER];
+    read(file.length() - TRAILER, trailer, TRAILER);
+    length = get5(trailer, 0);
+    final long ip = get5(trailer, 5);
+
+    final int cs = (int) ((length + CHUNKSIZE - 1) >>> CHUNKPOWER);
+    final byte[] index = new byte[cs * 5];
+    read(ip, index, index.length);
+    offsets = new long[cs + 1];
+    for(int c = 0; c < cs; c++) offsets[c] = get5(index, c * 5);
+    offsets[cs] = ip;
+  }
+
+  /**
+   * Compresses the specified file.
+   * @param fl file
+   * @throws IOException I/O exception
+   */
+  public static void compress(final IOFile fl) throws IOException {
+    final IOFile tmp = temp(fl);
+    final long len = fl.length();
+    final int cs = (int) ((len + CHUNKSIZE - 1) >>> CHUNKPOWER);
+    final long[] offsets = new long[cs];
+    final byte[] chunk = new byte[CHUNKSIZE];
+    final byte[] packed = new byte[BlockCompress.max(CHUNKSIZE)];
+    final BlockCompress bc = new BlockCompress();
+
+    final RandomAccessFile in = new RandomAccessFile(fl.file(), "r");
+    final DataOutput out = new DataOutput(tmp);
+    try {
+      for(int c = 0; c < cs; c++) {
+        final int l = (int) Math.min(CHUNKSIZE, len - ((long) c << CHUNKPOWER));
+        in.readFully(chunk, 0, l);
+        offsets[c] = out.size();
+        final int pl = bc.pack(chunk, l, packed);
+        if(pl < l) out.write(packed, 0, pl);
+        else out.write(chunk, 0, l);
+      }
+      final long ip = out.size();
+      for(final long o : offsets) out.write5(o);
+      out.write5(len);
+      out.write5(ip);
+    } finally {
+      out.close();
+      in.close();
+    }
+    replace(tmp, fl);
+  }
+
+  /**
+   * Returns the length of the original file.
+   * @return length
+   */
+  long length() {
+    return length;
+  }
+
+  /**
+   * Copies a block of the original file to the specified array.
+   * @param b block index
+   * @param data target array
+   * @throws IOException I/O exception
+   */
+  void read(final long b, final byte[] data) throws IOException {
+    final long p = b << IO.BLOCKPOWER;
+    final int o = (int) (p & CHUNKSIZE - 1);
+    final Chunk ch = chunk(p >>> CHUNKPOWER);
+    System.arraycopy(ch.data, o, data, 0, Math.min(IO.BLOCKSIZE, ch.size - o));
+  }
+
+  /**
+   * Writes the decompressed contents to the specified file.
+   * @param trg target file
+   * @throws IOException I/O exception
+   */
+  void decompress(final IOFile trg) throws IOException {
+    final DataOutput out = new DataOutput(trg);
+    try {
+      final int cs = offsets.length - 1;
+      for(int c = 0; c < cs; c++) {
+        final Chunk ch = chunk(c);
+        out.write(ch.data, 0, ch.size);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Returns a temporary file for the specified file.
+   * @param fl file
+   * @return temporary file
+   */
+  static IOFile temp(final IOFile fl) {
+    return new IOFile(fl.path() + ".tmp");
+  }
+
+  /**
+   * Replaces a file with another file.
+   * @param src file to be renamed
+   * @param trg file to be replaced
+   * @throws IOException I/O exception
+   */
+  static void replace(final IOFile src, final IOFile trg) throws IOException {
+    // the target is only deleted if it cannot be overwritten
+    if(!src.rename(trg) && !(trg.delete() && src.rename(trg)))
+      throw new IOException("File could not be replaced: " + trg);
+  }
+
+  /**
+   * Returns a thread-local buffer with the specified decompressed chunk.
+   * @param c chunk index
+   * @return chunk
+   * @throws IOException I/O exception
+   */
+  private Chunk chunk(final long c) throws IOException {
+    final Chunk ch = local.get();
+    if(ch.index != c) {
+      // invalidate chunk until it has been completely read
+      ch.index = -1;
+      final int i = (int) c;
+      final int l = (int) (offsets[i + 1] - offsets[i]);
+      final int s = (int) Math.min(CHUNKSIZE, length - ((long) i << CHUNKPOWER));
+      if(l == s) {
+        read(offsets[i], ch.data, l);
+      } else {
+        final byte[] packed = PACKED.get();
+        read(offsets[i], packed, l);
+        BlockCompress.unpack(packed, 0, l, ch.data);
+      }
+      ch.index = c;
+      ch.size = s;
+    }
+    return ch;
+  }
+
+  /**
+   * Reads bytes from the specified file offset.
+   * @param pos file offset
+   * @param data target array
+   * @param len number of bytes to read
+   * @throws IOException I/O exception
+   */
+  private void read(final long pos, final byte[] data, final int len) throws IOException {
+    final ByteBuffer bb = ByteBuffer.wrap(data, 0, len);
+    while(bb.hasRemaining()) {
+      if(channel.read(bb, pos + bb.position()) == -1) throw new EOFException();
+    }
+  }
+
+  /**
+   * Returns a 5-byte value from the specified array.
+   * @param b array
+   * @param o offset
+   * @return value
+   */
+  private static long get5(final byte[] b, final int o) {
+    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  }
+
+  /**
+   * Thread-local chunk.
+   */
+  private static final class Chunk {
+    /** Decompressed data. */
+    private final byte[] data = new byte[CHUNKSIZE];
+    /** Index of the current chunk. */
+    private long index = -1;
+    /** Size of the decompressed data. */
+    private int size;
+  }
+}
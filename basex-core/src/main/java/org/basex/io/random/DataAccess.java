@@ -7,6 +7,13 @@ import org.basex.util.*;
 
 /**
  * This class allows positional read and write access to a database file.
+ * The methods {@link #token(long)} and {@link #num(long)} can be called concurrently:
+ * as long as the file contains no unflushed changes, they read data via thread-local
+ * buffers and positional file access.
+ *
+ * If the file has been block-compressed (see {@link CompressedFile}), blocks are read
+ * from the decompressed chunks. Before the first update, the file must be decompressed
+ * via {@link #decompress()} and {@link #swap()}.
  *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
@@ -14,14 +21,33 @@ import org.basex.util.*;
 public final class DataAccess {
   /** Buffer manager. */
   private final Buffers bm = new Buffers();
+  /** File reference. */
+  private final IOFile io;
   /** Reference to the data input stream. */
-  private final RandomAccessFile file;
+  private RandomAccessFile file;
   /** File length. */
   private long len;
   /** Changed flag. */
   private boolean changed;
   /** Offset. */
   private int off;
+  /** Memory-mapped file (optional); will be discarded with the first update. */
+  private volatile MappedFile map;
+  /** Compressed file (optional); will be decompressed before the first update. */
+  private volatile CompressedFile comp;
+  /** File position, used if the file is memory-mapped. */
+  private long mpos;
+  /** Thread-local buffers, used for concurrent read operations. */
+  private final ThreadLocal<Buffer> local = new ThreadLocal<Buffer>() {
+    @Override
+    protected Buffer initialValue() {
+      return new Buffer();
+    }
+  };
+  /** Indicates if the file contains changes that have not been flushed yet. */
+  private volatile boolean modified;
+  /** File version; will be incremented whenever changes have been flushed. */
+  private volatile int version;
 
   /**
    * Constructor, initializing the file reader.
@@ -29,16 +55,46 @@ public final class DataAccess {
    * @throws IOException I/O Exception
    */
   public DataAccess(final IOFile fl) throws IOException {
+    this(fl, false);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param fl the file to be read
+   * @param mmap memory-map the file for read access
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile fl, final boolean mmap) throws IOException {
+    this(fl, mmap, false);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param fl the file to be read
+   * @param mmap memory-map the file for read access
+   * @param compressed file is block-compressed
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile fl, final boolean mmap, final boolean compressed)
+      throws IOException {
+
     RandomAccessFile f = null;
     try {
       f = new RandomAccessFile(fl.file(), "rw");
-      len = f.length();
+      if(compressed) {
+        comp = new CompressedFile(f);
+        len = comp.length();
+      } else {
+        len = f.length();
+      }
     } catch(final IOException ex) {
       if(f != null) f.close();
       throw ex;
     }
+    io = fl;
     file = f;
     cursor(0);
+    if(mmap && !compressed) map = MappedFile.get(f);
   }
 
   /**
@@ -51,6 +107,11 @@ public final class DataAccess {
         file.setLength(len);
         changed = false;
       }
+      if(modified) {
+        // invalidate thread-local buffers
+        ++version;
+        modified = false;
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -60,12 +121,58 @@ public final class DataAccess {
    * Closes the data access.
    */
   public synchronized void close() {
+    map = null;
     flush();
     try {
       file.close();
     } catch(final IOException ex) {
       Util.stack(ex);
     }
+    bm.close();
+  }
+
+  /**
+   * Indicates if the file is block-compressed.
+   * @return result of check
+   */
+  public boolean compressed() {
+    return comp != null;
+  }
+
+  /**
+   * Writes the decompressed contents of a block-compressed file to a temporary file.
+   * Does nothing if the file is not compressed.
+   * @throws IOException I/O exception
+   */
+  public synchronized void decompress() throws IOException {
+    final CompressedFile cf = comp;
+    if(cf != null) cf.decompress(CompressedFile.temp(io));
+  }
+
+  /**
+   * Replaces the block-compressed file with the file created by {@link #decompress()}.
+   * Does nothing if the file is not compressed.
+   * @throws IOException I/O exception
+   */
+  public synchronized void swap() throws IOException {
+    if(comp == null) return;
+    file.close();
+    CompressedFile.replace(CompressedFile.temp(io), io);
+    file = new RandomAccessFile(io.file(), "rw");
+    comp = null;
+  }
+
+  /**
+   * Completes or discards an interrupted decompression of the specified file.
+   * @param fl file
+   * @param compressed indicates if the file is still block-compressed
+   * @throws IOException I/O exception
+   */
+  public static void recover(final IOFile fl, final boolean compressed) throws IOException {
+    final IOFile tmp = CompressedFile.temp(fl);
+    if(!tmp.exists()) return;
+    if(compressed) tmp.delete();
+    else CompressedFile.replace(tmp, fl);
   }
 
   /**
@@ -73,7 +180,7 @@ public final class DataAccess {
    * @return position in the file
    */
   public long cursor() {
-    return buffer(false).pos + off;
+    return map != null ? mpos : buffer(false).pos + off;
   }
 
   /**
@@ -81,6 +188,7 @@ public final class DataAccess {
    * @param l file length
    */
   synchronized void length(final long l) {
+    modify();
     changed |= l != len;
     len = l;
   }
@@ -106,6 +214,7 @@ public final class DataAccess {
    * @return next byte
    */
   public int read() {
+    if(map != null) return map.read1(mpos++);
     final Buffer bf = buffer(off == IO.BLOCKSIZE);
     return bf.data[off++] & 0xFF;
   }
@@ -194,6 +303,56 @@ public final class DataAccess {
     return readBytes(l);
   }
 
+  /**
+   * Reads a token from the specified position. In contrast to {@link #readToken(long)},
+   * the file cursor will not be changed, and the method can be called concurrently.
+   * @param p text position
+   * @return text as byte array
+   */
+  public byte[] token(final long p) {
+    if(modified) return readToken(p);
+
+    final int l = num(p);
+    final byte[] b = new byte[l];
+    final long s = p + Num.length(l);
+    final MappedFile mf = map;
+    if(mf != null) {
+      mf.read(s, b, 0, l);
+    } else {
+      for(int o = 0; o < l;) {
+        final long fp = s + o;
+        final int bo = (int) (fp & IO.BLOCKSIZE - 1);
+        final int n = Math.min(l - o, IO.BLOCKSIZE - bo);
+        System.arraycopy(local(fp >>> IO.BLOCKPOWER).data, bo, b, o, n);
+        o += n;
+      }
+    }
+    return b;
+  }
+
+  /**
+   * Reads a {@link Num} value from the specified position. In contrast to
+   * {@link #readNum(long)}, the file cursor will not be changed, and the method can be
+   * called concurrently.
+   * @param p position
+   * @return read num
+   */
+  public int num(final long p) {
+    if(modified) return readNum(p);
+
+    final int v = get(p);
+    switch(v & 0xC0) {
+    case 0:
+      return v;
+    case 0x40:
+      return (v - 0x40 << 8) + get(p + 1);
+    case 0x80:
+      return (v - 0x80 << 24) + (get(p + 1) << 16) + (get(p + 2) << 8) + get(p + 3);
+    default:
+      return (get(p + 1) << 24) + (get(p + 2) << 16) + (get(p + 3) << 8) + get(p + 4);
+    }
+  }
+
   /**
    * Reads a number of bytes from the specified offset.
    * @param p position
@@ -211,6 +370,13 @@ public final class DataAccess {
    * @return byte array
    */
   public synchronized byte[] readBytes(final int n) {
+    if(map != null) {
+      final byte[] b = new byte[n];
+      map.read(mpos, b, 0, n);
+      mpos += n;
+      return b;
+    }
+
     int l = n;
     int ll = IO.BLOCKSIZE - off;
     final byte[] b = new byte[l];
@@ -234,19 +400,36 @@ public final class DataAccess {
    * @param p read position
    */
   public void cursor(final long p) {
+    if(map != null) {
+      mpos = p;
+      return;
+    }
     off = (int) (p & IO.BLOCKSIZE - 1);
     final long b = p - off;
     if(!bm.cursor(b)) return;
 
     final Buffer bf = bm.current();
+    final CompressedFile cf = comp;
     try {
       if(bf.dirty) writeBlock(bf);
       bf.pos = b;
-      file.seek(bf.pos);
-      if(bf.pos < file.length())
-        file.readFully(bf.data, 0, (int) Math.min(len - bf.pos, IO.BLOCKSIZE));
+      if(bf.pos < (cf != null ? len : file.length()) && !bm.fetch(b >>> IO.BLOCKPOWER)) {
+        if(cf != null) {
+          cf.read(b >>> IO.BLOCKPOWER, bf.data);
+        } else {
+          file.seek(bf.pos);
+          file.readFully(bf.data, 0, (int) Math.min(len - bf.pos, IO.BLOCKSIZE));
+        }
+        bm.cache(b >>> IO.BLOCKPOWER);
+      }
     } catch(final IOException ex) {
-      Util.stack(ex);
+      // compressed blocks cannot be read later on: invalidate buffer and raise error
+      if(cf == null) {
+        Util.stack(ex);
+      } else {
+        bf.pos = -1;
+        throw Util.notExpected(ex);
+      }
     }
   }
 
@@ -273,6 +456,7 @@ public final class DataAccess {
    * @param b byte to be written
    */
   public void write(final int b) {
+    modify();
     final Buffer bf = buffer(off == IO.BLOCKSIZE);
     bf.dirty = true;
     bf.data[off++] = (byte) b;
@@ -364,6 +548,7 @@ public final class DataAccess {
    * @param length token length
    */
   void writeToken(final byte[] buf, final int offset, final int length) {
+    modify();
     writeNum(length);
 
     final int last = offset + length;
@@ -441,6 +626,62 @@ public final class DataAccess {
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Marks the file as modified. Discards the memory-mapped file and continues with
+   * buffered access. An exception is raised if the file is still block-compressed.
+   */
+  private void modify() {
+    if(comp != null) throw Util.notExpected("File has not been decompressed: " + io);
+    if(!modified) modified = true;
+    if(map == null) return;
+    final long p = mpos;
+    map = null;
+    cursor(p);
+  }
+
+  /**
+   * Returns the byte at the specified position without changing the file cursor.
+   * @param p position
+   * @return byte value
+   */
+  private int get(final long p) {
+    final MappedFile mf = map;
+    if(mf != null) return mf.read1(p);
+    return local(p >>> IO.BLOCKPOWER).data[(int) (p & IO.BLOCKSIZE - 1)] & 0xFF;
+  }
+
+  /**
+   * Returns a thread-local buffer containing the specified block.
+   * An exception is raised if the block cannot be read.
+   * @param b block index
+   * @return buffer
+   */
+  private Buffer local(final long b) {
+    final int v = version;
+    final Buffer bf = local.get();
+    if(bf.pos != b || bf.version != v) {
+      // invalidate buffer until the block has been completely read
+      bf.pos = -1;
+      try {
+        final CompressedFile cf = comp;
+        if(cf != null) {
+          if(!bm.fetch(b, bf)) {
+            cf.read(b, bf.data);
+            bm.cache(b, bf);
+          }
+        } else {
+          final int l = (int) Math.min(len - (b << IO.BLOCKPOWER), IO.BLOCKSIZE);
+          bm.read(file.getChannel(), b, bf, l);
+        }
+        bf.pos = b;
+        bf.version = v;
+      } catch(final IOException ex) {
+        throw Util.notExpected(ex);
+      }
+    }
+    return bf;
+  }
+
   /**
    * Writes the specified block to disk.
    * @param bf buffer to write
@@ -450,6 +691,7 @@ public final class DataAccess {
     file.seek(bf.pos);
     file.write(bf.data);
     bf.dirty = false;
+    bm.written(bf, bf.pos >>> IO.BLOCKPOWER);
   }
 
   /**
@@ -0,0 +1,120 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * This class provides read-only access to a memory-mapped file.
+ * As a single mapped buffer cannot exceed 2 GB, the file is split into segments.
+ * Mapped buffers are only released by the garbage collector, so instances of this
+ * class should only be created for files that will rarely be updated.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class MappedFile {
+  /** Power of the segment size. */
+  private static final int SEGPOWER = 30;
+  /** Segment size. */
+  private static final int SEGSIZE = 1 << SEGPOWER;
+  /** Mapped segments. */
+  private final MappedByteBuffer[] segs;
+
+  /**
+   * Constructor.
+   * @param file file to be mapped
+   * @param len number of bytes to be mapped
+   * @throws IOException I/O exception
+   */
+  MappedFile(final RandomAccessFile file, final long len) throws IOException {
+    final FileChannel fc = file.getChannel();
+    final int ns = (int) ((len + SEGSIZE - 1) >>> SEGPOWER);
+    segs = new MappedByteBuffer[ns];
+    for(int s = 0; s < ns; s++) {
+      final long p = (long) s << SEGPOWER;
+      segs[s] = fc.map(MapMode.READ_ONLY, p, Math.min(SEGSIZE, len - p));
+    }
+  }
+
+  /**
+   * Tries to map the specified file. Returns {@code null} if the file is empty or
+   * cannot be mapped.
+   * @param file file to be mapped
+   * @return mapped file or {@code null}
+   */
+  static MappedFile get(final RandomAccessFile file) {
+    try {
+      final long len = file.length();
+      return len == 0 ? null : new MappedFile(file, len);
+    } catch(final IOException ex) {
+      // mapping may fail if the virtual address space is exhausted
+      return null;
+    }
+  }
+
+  /**
+   * Reads a byte value from the specified position.
+   * @param p position
+   * @return byte value
+   */
+  int read1(final long p) {
+    return segs[(int) (p >>> SEGPOWER)].get((int) (p & SEGSIZE - 1)) & 0xFF;
+  }
+
+  /**
+   * Reads a short value from the specified position.
+   * @param p position
+   * @return short value
+   */
+  int read2(final long p) {
+    final int o = (int) (p & SEGSIZE - 1);
+    if(o <= SEGSIZE - 2) return segs[(int) (p >>> SEGPOWER)].getShort(o) & 0xFFFF;
+    return (read1(p) << 8) + read1(p + 1);
+  }
+
+  /**
+   * Reads an integer value from the specified position.
+   * @param p position
+   * @return integer value
+   */
+  int read4(final long p) {
+    final int o = (int) (p & SEGSIZE - 1);
+    if(o <= SEGSIZE - 4) return segs[(int) (p >>> SEGPOWER)].getInt(o);
+    return (read1(p) << 24) + (read1(p + 1) << 16) + (read1(p + 2) << 8) + read1(p + 3);
+  }
+
+  /**
+   * Reads a 5-byte value from the specified position.
+   * @param p position
+   * @return long value
+   */
+  long read5(final long p) {
+    return ((long) read1(p) << 32) + (read4(p + 1) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Copies bytes from the specified position to an array.
+   * @param p position
+   * @param b target array
+   * @param o array offset
+   * @param l number of bytes to copy
+   */
+  void read(final long p, final byte[] b, final int o, final int l) {
+    long fp = p;
+    int bo = o;
+    int bl = l;
+    while(bl > 0) {
+      // duplicate buffer to keep concurrent read operations independent
+      final ByteBuffer bb = segs[(int) (fp >>> SEGPOWER)].duplicate();
+      final int so = (int) (fp & SEGSIZE - 1);
+      final int n = Math.min(bl, SEGSIZE - so);
+      bb.position(so);
+      bb.get(b, bo, n);
+      fp += n;
+      bo += n;
+      bl -= n;
+    }
+  }
+}
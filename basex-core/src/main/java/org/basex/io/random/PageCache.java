@@ -0,0 +1,338 @@
+package org.basex.io.random;
+
+import java.util.*;
+
+import org.basex.io.*;
+
+/**
+ * This class provides a page cache, which is shared by all open database files.
+ * Pages are managed by a scan-resistant 2Q policy: pages that are requested for the
+ * first time are placed in a FIFO queue, and only pages that are requested again
+ * after having left this queue are promoted to the main LRU queue. As a result,
+ * sequential scans will not evict frequently accessed pages.
+ *
+ * The cache contains copies of clean pages. Dirty pages are still managed by the
+ * {@link Buffers} of the respective file. The cache is split into segments, which are
+ * locked independently, so that concurrent readers will rarely block each other.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class PageCache {
+  /** Shared page cache. */
+  private static final PageCache INSTANCE = new PageCache(0);
+  /** Maximum number of segments (must be 1 << n). */
+  private static final int SEGMENTS = 1 << 4;
+  /** Minimum number of pages per segment. */
+  private static final int MINPAGES = 1 << 8;
+  /** File counter, used for assigning unique ids. */
+  private static int ids;
+
+  /** Segments. */
+  private volatile Segment[] segments;
+
+  /**
+   * Constructor.
+   * @param pages maximum number of pages
+   */
+  PageCache(final int pages) {
+    capacity(pages);
+  }
+
+  /**
+   * Returns the shared page cache.
+   * @return page cache
+   */
+  public static PageCache get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Assigns the size of the shared page cache.
+   * @param mb size in megabytes
+   */
+  public static void size(final int mb) {
+    INSTANCE.capacity((int) Math.min(Integer.MAX_VALUE,
+        Math.max(0, (long) mb << 20) / IO.BLOCKSIZE));
+  }
+
+  /**
+   * Returns a new file id.
+   * @return id
+   */
+  static synchronized int id() {
+    return ++ids;
+  }
+
+  /**
+   * Assigns a new capacity. All cached pages will be discarded.
+   * @param pages maximum number of pages
+   */
+  void capacity(final int pages) {
+    int n = 1;
+    while(n < SEGMENTS && pages / (n << 1) >= MINPAGES) n <<= 1;
+    final Segment[] segs = new Segment[n];
+    for(int s = 0; s < n; s++) segs[s] = new Segment(pages / n + (s < pages % n ? 1 : 0));
+    segments = segs;
+  }
+
+  /**
+   * Copies the contents of the specified page to the given array.
+   * @param key page key
+   * @param data target array
+   * @return {@code true} if the page was found
+   */
+  boolean read(final long key, final byte[] data) {
+    return segment(key).read(key, data);
+  }
+
+  /**
+   * Stores a copy of the page that has been read from disk.
+   * @param key page key
+   * @param data page contents
+   */
+  void add(final long key, final byte[] data) {
+    segment(key).add(key, data);
+  }
+
+  /**
+   * Updates a cached page after it has been written to disk.
+   * @param key page key
+   * @param data page contents
+   * @return {@code true} if the page was found
+   */
+  boolean update(final long key, final byte[] data) {
+    return segment(key).update(key, data);
+  }
+
+  /**
+   * Discards all pages of the specified file.
+   * @param id file id
+   */
+  void remove(final int id) {
+    for(final Segment s : segments) s.remove(id);
+  }
+
+  /**
+   * Returns the number of cache hits.
+   * @return hits
+   */
+  public long hits() {
+    long h = 0;
+    for(final Segment s : segments) h += s.hits();
+    return h;
+  }
+
+  /**
+   * Returns the number of cache misses.
+   * @return misses
+   */
+  public long misses() {
+    long m = 0;
+    for(final Segment s : segments) m += s.misses();
+    return m;
+  }
+
+  /**
+   * Returns the number of cached pages.
+   * @return number of pages
+   */
+  public int pages() {
+    int p = 0;
+    for(final Segment s : segments) p += s.pages();
+    return p;
+  }
+
+  /**
+   * Returns the maximum number of cached pages.
+   * @return capacity
+   */
+  public int capacity() {
+    int c = 0;
+    for(final Segment s : segments) c += s.capacity;
+    return c;
+  }
+
+  /**
+   * Returns a page key.
+   * @param id file id
+   * @param block block index
+   * @return key
+   */
+  static long key(final int id, final long block) {
+    return (long) id << 32 | block & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Returns the segment responsible for the specified key.
+   * @param key page key
+   * @return segment
+   */
+  private Segment segment(final long key) {
+    final Segment[] segs = segments;
+    return segs[(int) (key * 0x9E3779B97F4A7C15L >>> 32) & segs.length - 1];
+  }
+
+  /**
+   * Segment of the page cache, managed by the 2Q policy.
+   */
+  private static final class Segment {
+    /** Main LRU queue (A<sub>m</sub>). */
+    private final LinkedHashMap<Long, byte[]> am =
+        new LinkedHashMap<Long, byte[]>(16, 0.75f, true);
+    /** FIFO queue for pages that have been accessed once (A<sub>1in</sub>). */
+    private final LinkedHashMap<Long, byte[]> a1in = new LinkedHashMap<Long, byte[]>();
+    /** Keys of pages that have recently been evicted from the FIFO queue (A<sub>1out</sub>). */
+    private final LinkedHashSet<Long> a1out = new LinkedHashSet<Long>();
+    /** Maximum number of cached pages. */
+    final int capacity;
+    /** Maximum number of pages in the FIFO queue. */
+    private final int kin;
+    /** Maximum number of remembered keys of evicted pages. */
+    private final int kout;
+    /** Number of cache hits. */
+    private long hits;
+    /** Number of cache misses. */
+    private long misses;
+
+    /**
+     * Constructor.
+     * @param pages maximum number of pages
+     */
+    Segment(final int pages) {
+      capacity = pages;
+      kin = Math.max(1, pages >>> 2);
+      kout = pages >>> 1;
+    }
+
+    /**
+     * Copies the contents of the specified page to the given array.
+     * @param key page key
+     * @param data target array
+     * @return {@code true} if the page was found
+     */
+    synchronized boolean read(final long key, final byte[] data) {
+      final byte[] page = page(key);
+      if(page == null) {
+        ++misses;
+        return false;
+      }
+      ++hits;
+      System.arraycopy(page, 0, data, 0, page.length);
+      return true;
+    }
+
+    /**
+     * Stores a copy of the specified page.
+     * @param key page key
+     * @param data page contents
+     */
+    synchronized void add(final long key, final byte[] data) {
+      if(update(key, data) || capacity == 0) return;
+
+      // pages that are requested again after having been evicted are added to the main queue
+      final Long k = key;
+      final boolean main = a1out.remove(k);
+      byte[] page = reclaim();
+      if(page == null) page = new byte[data.length];
+      System.arraycopy(data, 0, page, 0, data.length);
+      if(main) am.put(k, page);
+      else a1in.put(k, page);
+    }
+
+    /**
+     * Updates a cached page.
+     * @param key page key
+     * @param data page contents
+     * @return {@code true} if the page was found
+     */
+    synchronized boolean update(final long key, final byte[] data) {
+      final byte[] page = page(key);
+      if(page == null) return false;
+      System.arraycopy(data, 0, page, 0, data.length);
+      return true;
+    }
+
+    /**
+     * Discards all pages of the specified file.
+     * @param id file id
+     */
+    synchronized void remove(final int id) {
+      remove(am.keySet(), id);
+      remove(a1in.keySet(), id);
+      remove(a1out, id);
+    }
+
+    /**
+     * Returns the number of cache hits.
+     * @return hits
+     */
+    synchronized long hits() {
+      return hits;
+    }
+
+    /**
+     * Returns the number of cache misses.
+     * @return misses
+     */
+    synchronized long misses() {
+      return misses;
+    }
+
+    /**
+     * Returns the number of cached pages.
+     * @return number of pages
+     */
+    synchronized int pages() {
+      return am.size() + a1in.size();
+    }
+
+    /**
+     * Returns the specified page.
+     * @param key page key
+     * @return page, or {@code null}
+     */
+    private byte[] page(final long key) {
+      final Long k = key;
+      final byte[] page = am.get(k);
+      return page != null ? page : a1in.get(k);
+    }
+
+    /**
+     * Evicts a page if the segment is full.
+     * @return contents of evicted page, or {@code null}
+     */
+    private byte[] reclaim() {
+      if(am.size() + a1in.size() < capacity) return null;
+      if(a1in.size() > kin || am.isEmpty()) {
+        final Iterator<Map.Entry<Long, byte[]>> it = a1in.entrySet().iterator();
+        final Map.Entry<Long, byte[]> e = it.next();
+        it.remove();
+        // remember key of evicted page
+        if(kout > 0) {
+          a1out.add(e.getKey());
+          if(a1out.size() > kout) {
+            final Iterator<Long> ki = a1out.iterator();
+            ki.next();
+            ki.remove();
+          }
+        }
+        return e.getValue();
+      }
+      final Iterator<byte[]> it = am.values().iterator();
+      final byte[] page = it.next();
+      it.remove();
+      return page;
+    }
+
+    /**
+     * Removes all keys of the specified file.
+     * @param keys keys
+     * @param id file id
+     */
+    private static void remove(final Collection<Long> keys, final int id) {
+      final Iterator<Long> it = keys.iterator();
+      while(it.hasNext()) if(it.next() >>> 32 == id) it.remove();
+    }
+  }
+}
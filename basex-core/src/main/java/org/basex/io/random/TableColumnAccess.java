@@ -0,0 +1,678 @@
+package org.basex.io.random;
+
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
+import org.basex.io.out.DataOutput;
+import org.basex.util.*;
+
+/**
+ * This class stores the table in a compressed, column-oriented format.
+ *
+ * The table is divided into blocks of {@link #ENTRIES} entries. Each entry is split
+ * into four 32-bit columns, which are stored one after another. The values of a column
+ * are bit-packed as offsets to the smallest value, as differences to their predecessors,
+ * or as references to a dictionary of distinct values, whichever needs least space.
+ * If it saves space, the values of each node kind are encoded separately. As distances,
+ * sizes, text references and ids of nodes in document order change slowly, most
+ * columns can be represented by a few bits per entry. The byte offsets of all blocks
+ * are stored in the table index file.
+ *
+ * Blocks are read into thread-local buffers, and columns are only decoded when they
+ * are requested for the first time. The compressed table is read-only: before the first
+ * update, it will be converted to the regular format (see {@link #convert()} and
+ * {@link #swap()}), and all further operations will be delegated to a
+ * {@link TableDiskAccess} instance.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class TableColumnAccess extends TableAccess {
+  /** Power of the number of entries per block. */
+  private static final int POWER = 10;
+  /** Number of entries per block. */
+  private static final int ENTRIES = 1 << POWER;
+  /** Number of columns. */
+  private static final int COLUMNS = IO.NODESIZE >>> 2;
+  /** Number of node kinds (rounded up to a power of two). */
+  private static final int KINDS = 1 << 3;
+  /** Encoding: offsets to the smallest value. */
+  private static final int RAW = 0;
+  /** Encoding: differences to the preceding values. */
+  private static final int DELTA = 1;
+  /** Encoding: references to a dictionary of distinct values. */
+  private static final int DICT = 2;
+  /** Name of the temporary table files; an index file with the suffix 'i' is added. */
+  private static final String TEMP = DATATBL + "tmp";
+
+  /** Thread-local blocks. */
+  private final ThreadLocal<Block> local = new ThreadLocal<Block>() {
+    @Override
+    protected Block initialValue() {
+      return new Block();
+    }
+  };
+  /** Offsets of all blocks; the last offset indicates the file size. */
+  private final long[] offsets;
+  /** File storing all blocks. */
+  private RandomAccessFile file;
+  /** File lock. */
+  private FileLock fl;
+  /** Regular table; will be assigned with the first update. */
+  private volatile TableDiskAccess table;
+
+  /**
+   * Constructor.
+   * @param md meta data
+   * @param lock exclusive access
+   * @throws IOException I/O exception
+   */
+  public TableColumnAccess(final MetaData md, final boolean lock) throws IOException {
+    super(md);
+    final DataInput in = new DataInput(meta.dbfile(DATATBL + 'i'));
+    try {
+      offsets = in.readLongs(in.readNum());
+    } finally {
+      in.close();
+    }
+    file = new RandomAccessFile(meta.dbfile(DATATBL).file(), "rw");
+    if(!lck(!lock)) throw new BaseXException(Text.DB_PINNED_X, md.name);
+  }
+
+  /**
+   * Converts the regular table of a database to the compressed format.
+   * @param md meta data
+   * @throws IOException I/O exception
+   */
+  public static void compress(final MetaData md) throws IOException {
+    final int size = md.size;
+    final long[] offsets = new long[(size + ENTRIES - 1 >>> POWER) + 1];
+    final int[][] values = new int[COLUMNS][ENTRIES];
+
+    final TableDiskAccess ta = new TableDiskAccess(md, true);
+    final DataOutput out = new DataOutput(md.dbfile(TEMP));
+    try {
+      for(int b = 0, pre = 0; pre < size; b++, pre += ENTRIES) {
+        offsets[b] = out.size();
+        final int n = Math.min(ENTRIES, size - pre);
+        for(int e = 0; e < n; e++) {
+          for(int c = 0; c < COLUMNS; c++) values[c][e] = ta.read4(pre + e, c << 2);
+        }
+        encode(values, n, out);
+      }
+      offsets[offsets.length - 1] = out.size();
+    } finally {
+      out.close();
+      ta.close();
+    }
+
+    final DataOutput idx = new DataOutput(md.dbfile(TEMP + 'i'));
+    try {
+      idx.writeLongs(offsets);
+    } finally {
+      idx.close();
+    }
+    replace(md);
+    md.columnar = true;
+    md.dirty = true;
+  }
+
+  /**
+   * Writes the entries of the compressed table to temporary files in the regular format.
+   * The files will be swapped in by {@link #swap()}, which must only be called after the
+   * updated meta data has been written to disk.
+   * @throws IOException I/O exception
+   */
+  public synchronized void convert() throws IOException {
+    final int size = meta.size;
+    final DataOutput out = new DataOutput(new TableOutput(meta, TEMP));
+    try {
+      for(int pre = 0; pre < size; pre++) {
+        final Block bl = block(pre >>> POWER);
+        final int e = pre & ENTRIES - 1;
+        for(int c = 0; c < COLUMNS; c++) out.write4(bl.value(c, e));
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Replaces the compressed table with the files created by {@link #convert()}.
+   * All further operations will be delegated to the regular table.
+   * @throws IOException I/O exception
+   */
+  public synchronized void swap() throws IOException {
+    // release lock and replace compressed table
+    file.close();
+    replace(meta);
+    table = new TableDiskAccess(meta, true);
+  }
+
+  /**
+   * Completes or discards an interrupted conversion of the table. If the meta data
+   * indicates that the table has already been converted, the remaining temporary files
+   * are swapped in. Otherwise, they are deleted.
+   * @param md meta data
+   * @throws IOException I/O exception
+   */
+  public static void recover(final MetaData md) throws IOException {
+    if(md.columnar) {
+      md.dbfile(TEMP).delete();
+      md.dbfile(TEMP + 'i').delete();
+    } else {
+      replace(md);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    final TableDiskAccess t = table;
+    if(t != null) t.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    final TableDiskAccess t = table;
+    if(t != null) {
+      t.close();
+    } else {
+      file.close();
+    }
+  }
+
+  @Override
+  public synchronized boolean lock(final boolean excl) {
+    final TableDiskAccess t = table;
+    if(t != null) return t.lock(excl);
+    try {
+      if(lck(!excl)) return true;
+      if(excl && lck(true)) return false;
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+    throw Util.notExpected((excl ? "Exclusive" : "Shared") + " lock could not be acquired.");
+  }
+
+  @Override
+  public int read1(final int pre, final int off) {
+    final TableDiskAccess t = table;
+    return t != null ? t.read1(pre, off) : (int) read(pre, off, 1);
+  }
+
+  @Override
+  public int read2(final int pre, final int off) {
+    final TableDiskAccess t = table;
+    return t != null ? t.read2(pre, off) : (int) read(pre, off, 2);
+  }
+
+  @Override
+  public int read4(final int pre, final int off) {
+    final TableDiskAccess t = table;
+    return t != null ? t.read4(pre, off) : (int) read(pre, off, 4);
+  }
+
+  @Override
+  public long read5(final int pre, final int off) {
+    final TableDiskAccess t = table;
+    return t != null ? t.read5(pre, off) : read(pre, off, 5);
+  }
+
+  @Override
+  public void write1(final int pre, final int off, final int v) {
+    regular().write1(pre, off, v);
+  }
+
+  @Override
+  public void write2(final int pre, final int off, final int v) {
+    regular().write2(pre, off, v);
+  }
+
+  @Override
+  public void write4(final int pre, final int off, final int v) {
+    regular().write4(pre, off, v);
+  }
+
+  @Override
+  public void write5(final int pre, final int off, final long v) {
+    regular().write5(pre, off, v);
+  }
+
+  @Override
+  protected void dirty() {
+    regular().dirty();
+  }
+
+  @Override
+  protected void copy(final byte[] entries, final int pre, final int last) {
+    regular().copy(entries, pre, last);
+  }
+
+  @Override
+  public void delete(final int pre, final int nr) {
+    regular().delete(pre, nr);
+  }
+
+  @Override
+  public void insert(final int pre, final byte[] entries) {
+    regular().insert(pre, entries);
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the specified bytes of an entry.
+   * @param pre pre value
+   * @param off offset
+   * @param len number of bytes (1-5)
+   * @return value
+   */
+  private long read(final int pre, final int off, final int len) {
+    if(pre < 0 || pre >= meta.size) throw Util.notExpected(
+        "Data Access out of bounds:\n- pre value: " + pre + "\n- table size: " + meta.size);
+
+    final Block bl = block(pre >>> POWER);
+    final int e = pre & ENTRIES - 1, c = off >>> 2, s = off & 3;
+    final long mask = (1L << (len << 3)) - 1;
+    final long v = bl.value(c, e) & 0xFFFFFFFFL;
+    if(s + len <= 4) return v >>> (4 - s - len << 3) & mask;
+    // value spans two columns
+    final long w = v << 32 | bl.value(c + 1, e) & 0xFFFFFFFFL;
+    return w >>> (8 - s - len << 3) & mask;
+  }
+
+  /**
+   * Returns a thread-local buffer with the specified block.
+   * @param b index of the block
+   * @return block
+   */
+  private Block block(final int b) {
+    final Block bl = local.get();
+    if(bl.index != b) {
+      final int len = (int) (offsets[b + 1] - offsets[b]);
+      if(bl.data.length < len) bl.data = new byte[len];
+      // invalidate block until it has been completely read
+      bl.index = -1;
+      try {
+        final FileChannel fc = file.getChannel();
+        final ByteBuffer bb = ByteBuffer.wrap(bl.data, 0, len);
+        final long pos = offsets[b];
+        while(bb.hasRemaining()) {
+          if(fc.read(bb, pos + bb.position()) == -1) throw new EOFException();
+        }
+      } catch(final IOException ex) {
+        throw Util.notExpected(ex);
+      }
+      bl.init(b, Math.min(ENTRIES, meta.size - (b << POWER)));
+    }
+    return bl;
+  }
+
+  /**
+   * Returns the regular table.
+   * @return table
+   */
+  private TableDiskAccess regular() {
+    final TableDiskAccess t = table;
+    if(t == null) throw Util.notExpected("Compressed table has not been converted.");
+    return t;
+  }
+
+  /**
+   * Acquires a lock on the file. Does nothing if the correct lock has already been
+   * acquired. Otherwise, releases an existing lock.
+   * @param shared shared/exclusive lock
+   * @return success flag
+   * @throws IOException I/O exception
+   */
+  private boolean lck(final boolean shared) throws IOException {
+    if(fl != null && shared == fl.isShared()) return true;
+    if(fl != null) fl.release();
+    fl = file.getChannel().tryLock(0, Long.MAX_VALUE, shared);
+    return fl != null;
+  }
+
+  /**
+   * Replaces the table files with the temporary files. Files that have already been
+   * replaced are skipped.
+   * @param md meta data
+   * @throws IOException I/O exception
+   */
+  private static void replace(final MetaData md) throws IOException {
+    for(final String fn : new String[] { DATATBL, DATATBL + 'i' }) {
+      final IOFile src = md.dbfile(TEMP + fn.substring(DATATBL.length()));
+      if(!src.exists()) continue;
+      // the target is only deleted if it cannot be overwritten
+      final IOFile trg = md.dbfile(fn);
+      if(!src.rename(trg) && !(trg.delete() && src.rename(trg)))
+        throw new IOException("Table could not be replaced: " + trg);
+    }
+  }
+
+  /**
+   * Encodes a block.
+   * @param values values of all columns
+   * @param n number of entries
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private static void encode(final int[][] values, final int n, final DataOutput out)
+      throws IOException {
+
+    final int[] kinds = new int[n];
+    for(int e = 0; e < n; e++) kinds[e] = kind(values[0][e]);
+
+    final byte[][] cols = new byte[COLUMNS][];
+    for(int c = 0; c < COLUMNS; c++) {
+      final ArrayOutput ao = new ArrayOutput();
+      encode(values[c], n, c == 0 ? null : kinds, new DataOutput(ao));
+      cols[c] = ao.toArray();
+    }
+    // write offsets of all columns except the first one
+    int off = COLUMNS - 1 << 2;
+    for(int c = 1; c < COLUMNS; c++) {
+      off += cols[c - 1].length;
+      out.write4(off);
+    }
+    for(final byte[] col : cols) out.writeBytes(col);
+  }
+
+  /**
+   * Encodes the values of a column. If node kinds are specified, and if it saves space,
+   * the values of each node kind are encoded separately.
+   * @param values values
+   * @param n number of values
+   * @param kinds node kinds (can be {@code null})
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private static void encode(final int[] values, final int n, final int[] kinds,
+      final DataOutput out) throws IOException {
+
+    if(kinds != null) {
+      // group values by node kinds
+      final int[][] groups = new int[KINDS][n];
+      final int[] sizes = new int[KINDS];
+      for(int e = 0; e < n; e++) {
+        final int k = kinds[e];
+        groups[k][sizes[k]++] = values[e];
+      }
+      long cost = 8;
+      int mask = 0;
+      for(int k = 0; k < KINDS; k++) {
+        if(sizes[k] == 0) continue;
+        cost += cost(groups[k], sizes[k]) >>> 2;
+        mask |= 1 << k;
+      }
+      if(cost < 8 + (cost(values, n) >>> 2)) {
+        out.write1(mask);
+        for(int k = 0; k < KINDS; k++) {
+          if(sizes[k] != 0) encodeValues(groups[k], sizes[k], out);
+        }
+        return;
+      }
+    }
+    out.write1(0);
+    encodeValues(values, n, out);
+  }
+
+  /**
+   * Encodes a sequence of values with the encoding that requires the least space.
+   * @param values values
+   * @param n number of values
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private static void encodeValues(final int[] values, final int n, final DataOutput out)
+      throws IOException {
+
+    final int mode = (int) cost(values, n) & 3;
+    final int[] x = new int[n];
+    int bits;
+    if(mode == DICT) {
+      final int[] dict = dictionary(values, n);
+      final int ds = dict[n];
+      bits = bits(ds - 1);
+      out.write1(bits << 2 | DICT);
+      out.write2(ds);
+      for(int d = 0; d < ds; d++) out.write4(dict[d]);
+      for(int e = 0; e < n; e++) x[e] = Arrays.binarySearch(dict, 0, ds, values[e]);
+      pack(x, 0, n, bits, out);
+    } else if(mode == DELTA) {
+      int min = 0, max = 0;
+      for(int e = 1; e < n; e++) {
+        final int d = values[e] - values[e - 1];
+        if(e == 1 || d < min) min = d;
+        if(e == 1 || d > max) max = d;
+      }
+      bits = bits((long) max - min);
+      out.write1(bits << 2 | DELTA);
+      out.write4(values[0]);
+      out.write4(min);
+      for(int e = 1; e < n; e++) x[e] = values[e] - values[e - 1] - min;
+      pack(x, 1, n, bits, out);
+    } else {
+      int min = values[0], max = min;
+      for(int e = 1; e < n; e++) {
+        final int v = values[e];
+        if(v < min) min = v;
+        if(v > max) max = v;
+      }
+      bits = bits((long) max - min);
+      out.write1(bits << 2 | RAW);
+      out.write4(min);
+      for(int e = 0; e < n; e++) x[e] = values[e] - min;
+      pack(x, 0, n, bits, out);
+    }
+  }
+
+  /**
+   * Computes the size of the most compact encoding of the specified values.
+   * @param values values
+   * @param n number of values
+   * @return size in bits, shifted by two bits, and encoding
+   */
+  private static long cost(final int[] values, final int n) {
+    int min = values[0], max = min, dmin = 0, dmax = 0;
+    for(int e = 1; e < n; e++) {
+      final int v = values[e], d = v - values[e - 1];
+      if(v < min) min = v;
+      if(v > max) max = v;
+      if(e == 1 || d < dmin) dmin = d;
+      if(e == 1 || d > dmax) dmax = d;
+    }
+    final long raw = 40 + (long) bits((long) max - min) * n;
+    final long delta = 72 + (long) bits((long) dmax - dmin) * (n - 1);
+    final int ds = dictionary(values, n)[n];
+    final long dict = 24 + 32L * ds + (long) bits(ds - 1) * n;
+    if(dict < raw && dict < delta) return dict << 2 | DICT;
+    return delta < raw ? delta << 2 | DELTA : raw << 2 | RAW;
+  }
+
+  /**
+   * Returns the distinct values in ascending order.
+   * @param values values
+   * @param n number of values
+   * @return distinct values; the number of values is stored at position {@code n}
+   */
+  private static int[] dictionary(final int[] values, final int n) {
+    final int[] dict = Arrays.copyOf(values, n + 1);
+    Arrays.sort(dict, 0, n);
+    int ds = n == 0 ? 0 : 1;
+    for(int e = 1; e < n; e++) if(dict[e] != dict[ds - 1]) dict[ds++] = dict[e];
+    dict[n] = ds;
+    return dict;
+  }
+
+  /**
+   * Writes bit-packed values.
+   * @param x values (unsigned)
+   * @param s first value
+   * @param e last value (exclusive)
+   * @param bits number of bits per value
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private static void pack(final int[] x, final int s, final int e, final int bits,
+      final DataOutput out) throws IOException {
+
+    long acc = 0;
+    int have = 0;
+    for(int i = s; i < e; i++) {
+      acc |= (x[i] & 0xFFFFFFFFL) << have;
+      for(have += bits; have >= 8; have -= 8) {
+        out.write1((int) acc);
+        acc >>>= 8;
+      }
+    }
+    if(have > 0) out.write1((int) acc);
+  }
+
+  /**
+   * Returns the number of bits required to represent the specified range.
+   * @param range range (positive)
+   * @return number of bits
+   */
+  private static int bits(final long range) {
+    return 64 - Long.numberOfLeadingZeros(range);
+  }
+
+  /**
+   * Returns the node kind of the first column of an entry.
+   * @param v value of the first column
+   * @return node kind
+   */
+  private static int kind(final int v) {
+    return v >>> 24 & KINDS - 1;
+  }
+
+  /**
+   * Returns an integer value from the specified array.
+   * @param b array
+   * @param o offset
+   * @return value
+   */
+  private static int get4(final byte[] b, final int o) {
+    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  }
+
+  /**
+   * Thread-local block, containing the compressed data and the decoded columns.
+   */
+  private static final class Block {
+    /** Decoded values. */
+    private final int[][] values = new int[COLUMNS][ENTRIES];
+    /** Offsets of the encoded columns. */
+    private final int[] starts = new int[COLUMNS];
+    /** Flags for decoded columns. */
+    private final boolean[] decoded = new boolean[COLUMNS];
+    /** Entries of a single node kind. */
+    private final int[] entries = new int[ENTRIES];
+    /** Compressed data. */
+    private byte[] data = new byte[IO.BLOCKSIZE];
+    /** Index of the current block. */
+    private int index = -1;
+    /** Number of entries. */
+    private int size;
+
+    /**
+     * Assigns a new block.
+     * @param b block index
+     * @param n number of entries
+     */
+    void init(final int b, final int n) {
+      index = b;
+      size = n;
+      starts[0] = COLUMNS - 1 << 2;
+      for(int c = 1; c < COLUMNS; c++) starts[c] = get4(data, c - 1 << 2);
+      Arrays.fill(decoded, false);
+    }
+
+    /**
+     * Returns a value, and decodes its column if necessary.
+     * @param c column
+     * @param e entry
+     * @return value
+     */
+    int value(final int c, final int e) {
+      if(!decoded[c]) decode(c);
+      return values[c][e];
+    }
+
+    /**
+     * Decodes the values of the specified column.
+     * @param c column
+     */
+    private void decode(final int c) {
+      int p = starts[c];
+      final int mask = data[p++] & 0xFF;
+      if(mask == 0) {
+        decode(p, size, values[c], null);
+      } else {
+        // values have been grouped by node kinds
+        if(!decoded[0]) decode(0);
+        final int[] first = values[0];
+        for(int k = 0; k < KINDS; k++) {
+          if((mask & 1 << k) == 0) continue;
+          int n = 0;
+          for(int e = 0; e < size; e++) if(kind(first[e]) == k) entries[n++] = e;
+          p = decode(p, n, values[c], entries);
+        }
+      }
+      decoded[c] = true;
+    }
+
+    /**
+     * Decodes a sequence of values.
+     * @param pos offset of the encoded values
+     * @param n number of values
+     * @param target target array
+     * @param ents target entries (if {@code null}, values will be stored in order)
+     * @return offset after the encoded values
+     */
+    private int decode(final int pos, final int n, final int[] target, final int[] ents) {
+      int p = pos;
+      final int h = data[p++] & 0xFF, mode = h & 3, bits = h >>> 2;
+      int base = 0, prev = 0, dict = 0, e = 0;
+      if(mode == DICT) {
+        dict = p + 2;
+        p = dict + (((data[p] & 0xFF) << 8) + (data[p + 1] & 0xFF) << 2);
+      } else {
+        base = get4(data, p);
+        p += 4;
+        if(mode == DELTA) {
+          prev = base;
+          target[ents == null ? 0 : ents[0]] = prev;
+          base = get4(data, p);
+          p += 4;
+          e = 1;
+        }
+      }
+
+      final long mask = (1L << bits) - 1;
+      long acc = 0;
+      int have = 0;
+      for(; e < n; e++) {
+        for(; have < bits; have += 8) acc |= (data[p++] & 0xFFL) << have;
+        final int x = (int) (acc & mask);
+        acc >>>= bits;
+        have -= bits;
+        final int v = mode == DICT ? get4(data, dict + (x << 2)) : mode == DELTA ?
+          prev + base + x : base + x;
+        prev = v;
+        target[ents == null ? e : ents[e]] = v;
+      }
+      return p;
+    }
+  }
+}
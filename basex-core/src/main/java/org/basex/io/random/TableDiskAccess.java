@@ -16,7 +16,9 @@ import org.basex.util.*;
 /**
  * This class stores the table on disk and reads it block-wise.
  *
- * NOTE: this class is not thread-safe.
+ * Read operations can be performed concurrently: as long as the table contains no
+ * unflushed changes, entries are read via thread-local buffers and positional file
+ * access. Updates must be performed exclusively.
  *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
@@ -31,6 +33,19 @@ public final class TableDiskAccess extends TableAccess {
   private BitArray usedPages;
   /** File lock. */
   private FileLock fl;
+  /** Memory-mapped file (optional); will be discarded with the first update. */
+  private volatile MappedFile map;
+  /** Thread-local buffers, used for concurrent read operations. */
+  private final ThreadLocal<Buffer> local = new ThreadLocal<Buffer>() {
+    @Override
+    protected Buffer initialValue() {
+      return new Buffer();
+    }
+  };
+  /** Indicates if the table contains changes that have not been flushed yet. */
+  private volatile boolean changed;
+  /** Table version; will be incremented whenever changes have been flushed. */
+  private volatile int version;
 
   /** First pre values (ascending order); will be initialized with the first update. */
   private int[] fpres;
@@ -56,6 +71,19 @@ public final class TableDiskAccess extends TableAccess {
    * @throws IOException I/O exception
    */
   public TableDiskAccess(final MetaData md, final boolean lock) throws IOException {
+    this(md, lock, false);
+  }
+
+  /**
+   * Constructor.
+   * @param md meta data
+   * @param lock exclusive access
+   * @param mmap memory-map the table for read access
+   * @throws IOException I/O exception
+   */
+  public TableDiskAccess(final MetaData md, final boolean lock, final boolean mmap)
+      throws IOException {
+
     super(md);
 
     // read meta and index data
@@ -87,6 +115,7 @@ public final class TableDiskAccess extends TableAccess {
     if(lock) exclusiveLock();
     else sharedLock();
     if(fl == null) throw new BaseXException(Text.DB_PINNED_X, md.name);
+    if(mmap) map = MappedFile.get(file);
   }
 
   /**
@@ -118,6 +147,11 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public synchronized void flush() throws IOException {
     for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
+    if(changed) {
+      // invalidate thread-local buffers
+      ++version;
+      changed = false;
+    }
     if(!dirty) return;
 
     final DataOutput out = new DataOutput(meta.dbfile(DATATBL + 'i'));
@@ -137,8 +171,10 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public synchronized void close() throws IOException {
+    map = null;
     flush();
     file.close();
+    bm.close();
   }
 
   @Override
@@ -190,37 +226,64 @@ public final class TableDiskAccess extends TableAccess {
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return b[o] & 0xFF;
+  public int read1(final int pre, final int off) {
+    final MappedFile mf = map;
+    if(mf != null) return mf.read1(position(pre) + off);
+    if(changed) {
+      synchronized(this) {
+        final int o = off + cursor(pre);
+        return get1(bm.current().data, o);
+      }
+    }
+    final Buffer bf = local(pre);
+    return get1(bf.data, off + bf.off);
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  public int read2(final int pre, final int off) {
+    final MappedFile mf = map;
+    if(mf != null) return mf.read2(position(pre) + off);
+    if(changed) {
+      synchronized(this) {
+        final int o = off + cursor(pre);
+        return get2(bm.current().data, o);
+      }
+    }
+    final Buffer bf = local(pre);
+    return get2(bf.data, off + bf.off);
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
-      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  public int read4(final int pre, final int off) {
+    final MappedFile mf = map;
+    if(mf != null) return mf.read4(position(pre) + off);
+    if(changed) {
+      synchronized(this) {
+        final int o = off + cursor(pre);
+        return get4(bm.current().data, o);
+      }
+    }
+    final Buffer bf = local(pre);
+    return get4(bf.data, off + bf.off);
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
-      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  public long read5(final int pre, final int off) {
+    final MappedFile mf = map;
+    if(mf != null) return mf.read5(position(pre) + off);
+    if(changed) {
+      synchronized(this) {
+        final int o = off + cursor(pre);
+        return get5(bm.current().data, o);
+      }
+    }
+    final Buffer bf = local(pre);
+    return get5(bf.data, off + bf.off);
   }
 
   @Override
   public void write1(final int pre, final int off, final int v) {
+    change();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -230,6 +293,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write2(final int pre, final int off, final int v) {
+    change();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -240,6 +304,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write4(final int pre, final int off, final int v) {
+    change();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -252,6 +317,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write5(final int pre, final int off, final long v) {
+    change();
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -467,6 +533,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   protected void dirty() {
+    change();
     // initialize data structures required for performing updates
     if(fpres == null) {
       final int b = blocks;
@@ -490,30 +557,106 @@ public final class TableDiskAccess extends TableAccess {
    * @return offset of the entry in the block
    */
   private int cursor(final int pre) {
+    if(pre < fpre || pre >= npre) readPage(find(pre));
+    return pre - fpre << IO.NODEPOWER;
+  }
+
+  /**
+   * Returns the file offset of the entry for the specified pre value.
+   * This method is called if the table is memory-mapped.
+   * @param pre pre of the entry to search for
+   * @return file offset of the entry
+   */
+  private long position(final int pre) {
+    final int p = search(pre);
+    return ((long) page(p) << IO.BLOCKPOWER) + (pre - fpre(p) << IO.NODEPOWER);
+  }
+
+  /**
+   * Returns a thread-local buffer with the block containing the entry for the specified
+   * pre value, and assigns the offset of the entry to {@link Buffer#off}.
+   * An exception is raised if the block cannot be read.
+   * @param pre pre of the entry to search for
+   * @return buffer
+   */
+  private Buffer local(final int pre) {
+    final int p = search(pre);
+    final long b = page(p);
+    final int v = version;
+    final Buffer bf = local.get();
+    if(bf.pos != b || bf.version != v) {
+      // invalidate buffer until the block has been completely read
+      bf.pos = -1;
+      try {
+        bm.read(file.getChannel(), b, bf, IO.BLOCKSIZE);
+        bf.pos = b;
+        bf.version = v;
+      } catch(final IOException ex) {
+        throw Util.notExpected(ex);
+      }
+    }
+    bf.off = pre - fpre(p) << IO.NODEPOWER;
+    return bf;
+  }
+
+  /**
+   * Searches for the index of the block containing the entry for the specified pre value.
+   * In contrast to {@link #find}, this method does not rely on the current page pointers
+   * and can be called concurrently.
+   * @param pre pre of the entry to search for
+   * @return index of the block
+   */
+  private int search(final int pre) {
+    if(pre < 0 || pre >= meta.size) throw Util.notExpected(
+        "Data Access out of bounds:\n- pre value: " + pre + "\n- table size: " + meta.size);
+    // regular table: block can be calculated
+    if(fpres == null) return pre >>> IO.BLOCKPOWER - IO.NODEPOWER;
+
+    int l = 0;
+    int h = used - 1;
+    while(l < h) {
+      final int m = l + h + 1 >>> 1;
+      if(fpres[m] <= pre) l = m;
+      else h = m - 1;
+    }
+    return l;
+  }
+
+  /**
+   * Searches for the block containing the entry for the specified pre value.
+   * @param pre pre of the entry to search for
+   * @return index of the block
+   */
+  private int find(final int pre) {
     int fp = fpre;
     int np = npre;
-    if(pre < fp || pre >= np) {
-      final int last = used - 1;
-      int l = 0;
-      int h = last;
-      int m = page;
-      while(l <= h) {
-        if(pre < fp) h = m - 1;
-        else if(pre >= np) l = m + 1;
-        else break;
-        m = h + l >>> 1;
-        fp = fpre(m);
-        np = m == last ? meta.size : fpre(m + 1);
-      }
-      if(l > h) throw Util.notExpected(
-          "Data Access out of bounds:" +
-          "\n- pre value: " + pre +
-          "\n- #used blocks: " + used +
-          "\n- #total locks: " + blocks +
-          "\n- access: " + m + " (" + l + " > " + h + ']');
-      readPage(m);
+    final int last = used - 1;
+    int l = 0;
+    int h = last;
+    int m = page;
+    while(l <= h) {
+      if(pre < fp) h = m - 1;
+      else if(pre >= np) l = m + 1;
+      else break;
+      m = h + l >>> 1;
+      fp = fpre(m);
+      np = m == last ? meta.size : fpre(m + 1);
     }
-    return pre - fpre << IO.NODEPOWER;
+    if(l > h) throw Util.notExpected(
+        "Data Access out of bounds:" +
+        "\n- pre value: " + pre +
+        "\n- #used blocks: " + used +
+        "\n- #total locks: " + blocks +
+        "\n- access: " + m + " (" + l + " > " + h + ']');
+    return m;
+  }
+
+  /**
+   * Marks the table as changed and discards the memory-mapped file.
+   */
+  private void change() {
+    map = null;
+    changed = true;
   }
 
   /**
@@ -566,9 +709,10 @@ public final class TableDiskAccess extends TableAccess {
       bf.pos = b;
       if(b >= blocks) {
         blocks = b + 1;
-      } else {
+      } else if(!bm.fetch(b)) {
         file.seek(bf.pos * IO.BLOCKSIZE);
         file.readFully(bf.data);
+        bm.cache(b);
       }
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -595,6 +739,7 @@ public final class TableDiskAccess extends TableAccess {
     file.seek(bf.pos * IO.BLOCKSIZE);
     file.write(bf.data);
     bf.dirty = false;
+    bm.written(bf, bf.pos);
   }
 
   /**
@@ -644,4 +789,46 @@ public final class TableDiskAccess extends TableAccess {
   private int occSpace(final int i) {
     return (i + 1 < used ? fpres[i + 1] : meta.size) - fpres[i];
   }
+
+  /**
+   * Returns a byte value from the specified array.
+   * @param b array
+   * @param o offset
+   * @return value
+   */
+  private static int get1(final byte[] b, final int o) {
+    return b[o] & 0xFF;
+  }
+
+  /**
+   * Returns a short value from the specified array.
+   * @param b array
+   * @param o offset
+   * @return value
+   */
+  private static int get2(final byte[] b, final int o) {
+    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  }
+
+  /**
+   * Returns an integer value from the specified array.
+   * @param b array
+   * @param o offset
+   * @return value
+   */
+  private static int get4(final byte[] b, final int o) {
+    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  }
+
+  /**
+   * Returns a 5-byte value from the specified array.
+   * @param b array
+   * @param o offset
+   * @return value
+   */
+  private static long get5(final byte[] b, final int o) {
+    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  }
 }
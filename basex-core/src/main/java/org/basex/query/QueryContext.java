@@ -50,14 +50,14 @@ public final class QueryContext extends Proc {
   /** The evaluation stack. */
   public final QueryStack stack = new QueryStack();
   /** Static variables. */
-  public final Variables vars = new Variables();
+  public final Variables vars;
   /** Functions. */
-  public final StaticFuncs funcs = new StaticFuncs();
+  public final StaticFuncs funcs;
   /** Externally bound variables. */
   private final HashMap<QNm, Expr> bindings = new HashMap<QNm, Expr>();
 
   /** Query resources. */
-  public final QueryResources resource = new QueryResources(this);
+  public final QueryResources resource;
   /** Database context. */
   public final Context context;
 
@@ -148,6 +148,15 @@ public final class QueryContext extends Proc {
   public final QueryInfo info;
   /** Indicates if the query context has been closed. */
   private boolean closed;
+  /** Indicates if this is a worker context (see {@link #worker()}). */
+  public final boolean worker;
+  /** Indicates if the compiled query will be evaluated repeatedly (external variables
+   *  will not be inlined, and their values can be replaced via {@link #rebind}). */
+  public boolean prepared;
+  /** Indicates if the compiled query can be evaluated again (see {@link #reusable()}). */
+  private boolean reusable;
+  /** Locks of a prepared query, which are determined before its compilation. */
+  private LockResult locks;
 
   /**
    * Constructor.
@@ -168,6 +177,59 @@ public final class QueryContext extends Proc {
     nodes = ctx.current();
     modules = new ModuleLoader(ctx);
     info = new QueryInfo(this);
+    vars = new Variables();
+    funcs = new StaticFuncs();
+    resource = new QueryResources(this);
+    worker = false;
+  }
+
+  /**
+   * Constructor for worker contexts.
+   * @param parent parent context
+   * @param frame size of the current stack frame
+   */
+  private QueryContext(final QueryContext parent, final int frame) {
+    context = parent.context;
+    nodes = parent.nodes;
+    modules = new ModuleLoader(context);
+    info = new QueryInfo(this);
+    vars = parent.vars;
+    funcs = parent.funcs;
+    resource = parent.resource;
+    parentCtx = parent;
+    listen = parent.listen;
+    worker = true;
+    stack.enterFrame(frame);
+  }
+
+  /**
+   * Creates a context for evaluating parts of this query in another thread.
+   * The returned context shares the resources, variables and functions of this context,
+   * inherits the focus and the dynamic context, and enters a stack frame that has the
+   * size of the current frame. It must not be closed.
+   * @return worker context
+   * @throws QueryException query exception
+   */
+  public QueryContext worker() throws QueryException {
+    // the date and time must be identical in all contexts
+    initDateTime();
+    final QueryContext qc = new QueryContext(this, stack.frame().length);
+    qc.value = value;
+    qc.pos = pos;
+    qc.size = size;
+    qc.collations = collations;
+    qc.ftToken = ftToken;
+    qc.ftOpt = ftOpt;
+    qc.date = date;
+    qc.dtm = dtm;
+    qc.time = time;
+    qc.zone = zone;
+    qc.http = http;
+    qc.stop = stop;
+    qc.thes = thes;
+    qc.maxCalls = maxCalls;
+    qc.serialOpts = serialOpts;
+    return qc;
   }
 
   /**
@@ -252,6 +314,10 @@ public final class QueryContext extends Proc {
     // set tail call option after assignment database option
     maxCalls = context.options.get(MainOptions.TAILCALLS);
 
+    // prepared queries can only be reused if no values are assigned at compile time
+    reusable = prepared && !updating && ctxItem == null && value == null &&
+        o.size() == 0 && constant();
+
     // bind external variables
     vars.bindExternal(this, bindings);
 
@@ -281,6 +347,47 @@ public final class QueryContext extends Proc {
     // dynamic compilation
     analyze();
     info.runtime = true;
+    // the current date and time may have been pre-evaluated
+    if(date != null || ftPosData != null) reusable = false;
+  }
+
+  /**
+   * Checks if the compiled query can be evaluated again. This is the case if it was
+   * prepared, if it performs no updates, if none of its expressions was assigned a
+   * dynamic value at compile time, and if it only accesses persistent databases.
+   * @return result of check
+   */
+  public boolean reusable() {
+    if(!reusable || closed) return false;
+    for(final Data d : resource.datas()) if(d.inMemory()) return false;
+    return true;
+  }
+
+  /**
+   * Resets the dynamic context of a compiled query before it is evaluated again.
+   */
+  public void reset() {
+    date = null;
+    dtm = null;
+    time = null;
+    zone = null;
+    tailCalls = 0;
+    info.reset();
+  }
+
+  /**
+   * Replaces the value of an external variable of a compiled query.
+   * See {@link #bind(String, Object, String)} for more infos.
+   * @param name name of variable
+   * @param val value to be bound
+   * @param type data type (may be {@code null})
+   * @return {@code false} if the query needs to be compiled again
+   * @throws QueryException query exception
+   */
+  public boolean rebind(final String name, final Object val, final String type)
+      throws QueryException {
+    final QNm nm = qname(name);
+    return nm == null || vars.rebind(nm, cast(val, type), this);
   }
 
   /**
@@ -377,6 +484,27 @@ public final class QueryContext extends Proc {
 
   @Override
   public void databases(final LockResult lr) {
+    if(!prepared) {
+      locks(lr);
+      return;
+    }
+    // compiled expressions may not reveal the accessed databases anymore:
+    // locks of prepared queries are determined only once, before compilation
+    if(locks == null) {
+      locks = new LockResult();
+      locks(locks);
+    }
+    lr.read.add(locks.read);
+    lr.write.add(locks.write);
+    lr.readAll |= locks.readAll;
+    lr.writeAll |= locks.writeAll;
+  }
+
+  /**
+   * Adds the databases that will be touched by the query to the specified lock result.
+   * @param lr lock result
+   */
+  private void locks(final LockResult lr) {
     lr.read.add(readLocks);
     lr.write.add(writeLocks);
     if(root == null || !root.databases(lr, this)) {
@@ -610,6 +738,17 @@ public final class QueryContext extends Proc {
    * @param e value to be bound
    */
   private void bind(final String name, final Expr e) {
+    final QNm nm = qname(name);
+    // [LW] better throw an error
+    if(nm != null) bindings.put(nm, e);
+  }
+
+  /**
+   * Returns the QName of an external variable.
+   * @param name name of variable
+   * @return QName, or {@code null} if the name is invalid
+   */
+  private static QNm qname(final String name) {
     // remove optional $ prefix
     String nm = name.indexOf('$') == 0 ? name.substring(1) : name;
     byte[] uri = EMPTY;
@@ -623,12 +762,19 @@ public final class QueryContext extends Proc {
       nm = m.group(6);
     }
     final byte[] ln = token(nm);
+    return nm.isEmpty() || !XMLToken.isNCName(ln) ? null : new QNm(ln, uri);
+  }
 
-    // [LW] better throw an error
-    if(nm.isEmpty() || !XMLToken.isNCName(ln)) return;
-
-    // bind variable
-    bindings.put(new QNm(ln, uri), e);
+  /**
+   * Checks if all global variables are external or bound to constant values.
+   * @return result of check
+   */
+  private boolean constant() {
+    for(final StaticVar v : vars) {
+      if(v == null || (v.expr == null ? !v.external() : !(v.expr instanceof Value)))
+        return false;
+    }
+    return true;
   }
 
   /**
@@ -75,7 +75,7 @@ public final class QueryInfo {
    * Adds some evaluation info.
    * @param string evaluation info
    */
-  public void evalInfo(final String string) {
+  public synchronized void evalInfo(final String string) {
     if(verbose) evaluate.add(token(string.replaceAll("\r?\n\\s*", " ")));
   }
 
@@ -120,6 +120,14 @@ public final class QueryInfo {
     return tb.toString();
   }
 
+  /**
+   * Resets the evaluation info before a compiled query is evaluated again.
+   */
+  void reset() {
+    evaluate.reset();
+    parsing = 0;
+  }
+
   /**
    * Adopts query info from the specified context.
    * @param parent parent context
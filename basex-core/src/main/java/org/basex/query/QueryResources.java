@@ -18,6 +18,8 @@ import org.basex.util.list.*;
 
 /**
  * This class provides access to resources used by an XQuery expression.
+ * Its methods are synchronized, as the resources are shared with worker contexts
+ * (see {@link QueryContext#worker()}).
  *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
@@ -41,6 +43,10 @@ public final class QueryResources {
   private String[] collName = new String[1];
   /** Number of collections. */
   private int colls;
+  /** Temporary files. */
+  private final ArrayList<IOFile> temps = new ArrayList<IOFile>();
+  /** Resources that access the temporary files. */
+  private final ArrayList<Closeable> owners = new ArrayList<Closeable>();
 
   /**
    * Constructor.
@@ -55,7 +61,7 @@ public final class QueryResources {
    * @param nodes input node set
    * @throws QueryException query exception
    */
-  void compile(final Nodes nodes) throws QueryException {
+  synchronized void compile(final Nodes nodes) throws QueryException {
     final Data d = nodes.data;
     if(!ctx.context.perm(Perm.READ, d.meta)) throw BASX_PERM.get(null, Perm.READ);
 
@@ -74,9 +80,43 @@ public final class QueryResources {
   /**
    * Closes all opened data references that have not been added by the global context.
    */
-  void close() {
+  synchronized void close() {
     for(int d = 0; d < datas; d++) Close.close(data[d], ctx.context);
     datas = 0;
+    // close open streams before the files are deleted
+    for(final Closeable owner : owners) {
+      try {
+        owner.close();
+      } catch(final IOException ex) {
+        Util.debug(ex);
+      }
+    }
+    owners.clear();
+    for(final IOFile file : temps) file.delete();
+    temps.clear();
+  }
+
+  /**
+   * Returns all opened data references.
+   * @return data references
+   */
+  public synchronized Data[] datas() {
+    return Arrays.copyOf(data, datas);
+  }
+
+  /**
+   * Returns a new temporary file in the database directory.
+   * The file will be deleted when the query is closed.
+   * @param owner resource that accesses the file, which will be closed before
+   * @return file
+   */
+  public synchronized IOFile temp(final Closeable owner) {
+    final GlobalOptions gopts = ctx.context.globalopts;
+    gopts.dbpath().md();
+    final IOFile file = gopts.dbpath(gopts.random(".tmp"));
+    temps.add(file);
+    owners.add(owner);
+    return file;
   }
 
   /**
@@ -86,7 +126,9 @@ public final class QueryResources {
    * @return database instance
    * @throws QueryException query exception
    */
-  public Data database(final String name, final InputInfo info) throws QueryException {
+  public synchronized Data database(final String name, final InputInfo info)
+      throws QueryException {
+
     // check if a database with the same name has already been opened
     for(int d = 0; d < datas; ++d) {
       final String n = data[d].meta.name;
@@ -113,7 +155,7 @@ public final class QueryResources {
    * @return document
    * @throws QueryException query exception
    */
-  public DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
+  public synchronized DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
       throws QueryException {
 
     // favor default database
@@ -148,7 +190,7 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final InputInfo info) throws QueryException {
+  public synchronized Value collection(final InputInfo info) throws QueryException {
     if(colls == 0) throw NODEFCOLL.get(info);
     return coll[0];
   }
@@ -162,8 +204,8 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final QueryInput qi, final IO baseIO, final InputInfo info)
-      throws QueryException {
+  public synchronized Value collection(final QueryInput qi, final IO baseIO,
+      final InputInfo info) throws QueryException {
 
     // favor default database
     if(ctx.context.options.get(MainOptions.DEFAULTDB) && ctx.nodes != null) {
@@ -212,7 +254,7 @@ public final class QueryResources {
    * @param baseIO base URI
    * @throws QueryException query exception
    */
-  public void addDoc(final String name, final String path, final IO baseIO)
+  public synchronized void addDoc(final String name, final String path, final IO baseIO)
       throws QueryException {
 
     final QueryInput qi = new QueryInput(path);
@@ -225,7 +267,7 @@ public final class QueryResources {
    * @param uri resource uri
    * @param strings resource strings (path, encoding)
    */
-  public void addResource(final String uri, final String... strings) {
+  public synchronized void addResource(final String uri, final String... strings) {
     resources.put(uri, strings);
   }
 
@@ -236,8 +278,8 @@ public final class QueryResources {
    * @param baseIO base URI
    * @throws QueryException query exception
    */
-  public void addCollection(final String name, final String[] paths, final IO baseIO)
-      throws QueryException {
+  public synchronized void addCollection(final String name, final String[] paths,
+      final IO baseIO) throws QueryException {
 
     final int ns = paths.length;
     final DBNode[] nodes = new DBNode[ns];
@@ -342,7 +384,7 @@ public final class QueryResources {
    * Adds a data reference.
    * @param d data reference to be added
    */
-  public void addData(final Data d) {
+  public synchronized void addData(final Data d) {
     if(datas == data.length) data = Array.copy(data, new Data[Array.newSize(datas)]);
     data[datas++] = d;
   }
@@ -351,7 +393,7 @@ public final class QueryResources {
    * Removes and closes a database if it has not been added by the global context.
    * @param name name of database to be removed
    */
-  public void removeData(final String name) {
+  public synchronized void removeData(final String name) {
     for(int d = ctx.nodes != null ? 1 : 0; d < datas; d++) {
       if(data[d].meta.name.equals(name)) {
         Close.close(data[d], ctx.context);
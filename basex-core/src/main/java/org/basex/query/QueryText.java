@@ -780,6 +780,10 @@ public interface QueryText {
   /** Optimization info. */
   String OPTPRED = "rewriting % to predicate(s)";
   /** Optimization info. */
+  String OPTJOIN = "rewriting % to hash join";
+  /** Optimization info. */
+  String OPTTOPK = "limiting % to % tuples";
+  /** Optimization info. */
   String OPTCAST = "removing redundant % cast.";
   /** Optimization info. */
   String OPTVAR = "removing variable %";
@@ -798,6 +802,8 @@ public interface QueryText {
   /** Optimization info. */
   String OPTSRNGINDEX = "applying string range index";
   /** Optimization info. */
+  String OPTCMPINDEX = "applying composite index";
+  /** Optimization info. */
   String OPTNOINDEX = "removing path with no index results";
   /** Optimization info. */
   String OPTBIND = "binding static variable %";
@@ -0,0 +1,223 @@
+package org.basex.query.expr;
+
+import static org.basex.query.QueryText.*;
+import static org.basex.util.Token.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.index.value.*;
+import org.basex.query.*;
+import org.basex.query.expr.CmpG.OpG;
+import org.basex.query.path.*;
+import org.basex.query.path.Test.Mode;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * Conjunction of equality comparisons on the components of a composite index
+ * (see {@link CompositeDef}). The comparisons are merged by the compiler if the
+ * predicates of a location step match a composite index definition, and they are
+ * evaluated by a single index access.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class CmpComposite extends Arr {
+  /** Index definition. */
+  private final CompositeDef def;
+  /** Index keys (assigned when checking index access). */
+  private byte[][] keys;
+
+  /**
+   * Constructor.
+   * @param ii input info
+   * @param d index definition
+   * @param e comparisons, in the order of the components
+   */
+  private CmpComposite(final InputInfo ii, final CompositeDef d, final Expr... e) {
+    super(ii, e);
+    def = d;
+    type = SeqType.BLN;
+  }
+
+  /**
+   * Merges the predicates of the specified step that match the components of a
+   * composite index.
+   * @param step location step
+   * @param data data reference
+   * @return resulting predicates
+   */
+  public static Expr[] merge(final Step step, final Data data) {
+    Expr[] preds = step.preds;
+    if(!data.meta.compindex || !(data.cmpindex instanceof CompositeIndex) ||
+        !matches(step, NodeType.ELM)) return preds;
+
+    for(final CompositeDef def : ((CompositeIndex) data.cmpindex).defs) {
+      if(!eq(step.test.name.local(), def.name)) continue;
+      // find a comparison for each component
+      final int cl = def.comps.length;
+      final int[] pos = new int[cl];
+      int c = 0;
+      for(; c < cl; c++) {
+        pos[c] = -1;
+        for(int p = 0; p < preds.length && pos[c] == -1; p++) {
+          if(preds[p] instanceof CmpG && matches((CmpG) preds[p], def, c)) {
+            boolean used = false;
+            for(int i = 0; i < c; i++) used |= pos[i] == p;
+            if(!used) pos[c] = p;
+          }
+        }
+        if(pos[c] == -1) break;
+      }
+      if(c < cl) continue;
+
+      // replace the first comparison with the merged expression
+      final Expr[] cmps = new Expr[cl];
+      int first = preds.length;
+      for(c = 0; c < cl; c++) {
+        cmps[c] = preds[pos[c]];
+        first = Math.min(first, pos[c]);
+      }
+      final ExprList el = new ExprList(preds.length - cl + 1);
+      for(int p = 0; p < preds.length; p++) {
+        if(p == first) el.add(new CmpComposite(step.info, def, cmps));
+        else if(!new IntList(pos).contains(p)) el.add(preds[p]);
+      }
+      preds = el.finish();
+    }
+    return preds;
+  }
+
+  /**
+   * Checks if the specified comparison matches a component of an index definition.
+   * @param cmp comparison
+   * @param def index definition
+   * @param c index of the component
+   * @return result of check
+   */
+  private static boolean matches(final CmpG cmp, final CompositeDef def, final int c) {
+    if(cmp.op != OpG.EQ || cmp.collation != null || !cmp.expr[1].isValue() ||
+        !(cmp.expr[0] instanceof AxisPath)) return false;
+
+    // accept single attribute or element steps, and text steps of elements
+    final AxisPath path = (AxisPath) cmp.expr[0];
+    final int sl = path.steps.length;
+    if(path.root != null || sl > (def.attrs[c] ? 1 : 2)) return false;
+    final Step s = path.step(0);
+    if(!s.axis(def.attrs[c] ? Axis.ATTR : Axis.CHILD) ||
+        !matches(s, def.attrs[c] ? NodeType.ATT : NodeType.ELM) ||
+        !eq(s.test.name.local(), def.comps[c])) return false;
+    if(sl == 2) {
+      final Step t = path.step(1);
+      if(!t.axis(Axis.CHILD) || t.test != Test.TXT || t.preds.length != 0) return false;
+    }
+
+    // accept strings and untyped values
+    for(final Item it : (Value) cmp.expr[1]) {
+      if(!it.type.isStringOrUntyped()) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the specified step has no predicates and a name test of the specified type.
+   * @param step step
+   * @param nt node type
+   * @return result of check
+   */
+  private static boolean matches(final Step step, final NodeType nt) {
+    final Test t = step.test;
+    return t.type == nt && t.name != null && (t.mode == Mode.LN || t.mode == Mode.STD) &&
+        (nt == NodeType.ELM || step.preds.length == 0);
+  }
+
+  @Override
+  public Bln item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    for(final Expr e : expr) {
+      if(!e.ebv(ctx, info).bool(info)) return Bln.FALSE;
+    }
+    return Bln.TRUE;
+  }
+
+  @Override
+  public boolean indexAccessible(final IndexCosts ic) throws QueryException {
+    final Data data = ic.ictx.data;
+    if(!data.meta.compindex) return false;
+
+    // collect the distinct values of all components
+    final int cl = expr.length, ml = data.meta.maxlen;
+    final TokenList[] values = new TokenList[cl];
+    long combs = 1;
+    for(int c = 0; c < cl; c++) {
+      // skip comparisons that have been rewritten in the meantime
+      if(!(expr[c] instanceof CmpG) || !((CmpG) expr[c]).expr[1].isValue()) return false;
+      values[c] = new TokenList();
+      for(final Item it : (Value) ((CmpG) expr[c]).expr[1]) {
+        final byte[] v = it.string(info);
+        // values exceeding the maximum length are not indexed
+        if(v.length > ml) return false;
+        if(!values[c].contains(v)) values[c].add(v);
+      }
+      combs *= values[c].size();
+    }
+    if(combs > data.meta.size) return false;
+
+    // compute costs of all combinations
+    final TokenList kl = new TokenList();
+    ic.costs(0);
+    if(combs != 0) {
+      final int[] pos = new int[cl];
+      final byte[][] vals = new byte[cl][];
+      int c;
+      do {
+        for(c = 0; c < cl; c++) vals[c] = values[c].get(pos[c]);
+        final byte[] key = def.key(vals);
+        final int is = data.costs(new StringToken(IndexType.COMPOSITE, key));
+        // add only keys that yield results
+        if(is != 0) {
+          kl.add(key);
+          ic.addCosts(is);
+        }
+        c = cl;
+        while(--c >= 0 && ++pos[c] == values[c].size()) pos[c] = 0;
+      } while(c >= 0);
+    }
+    keys = kl.toArray();
+    return true;
+  }
+
+  @Override
+  public Expr indexEquivalent(final IndexCosts ic) {
+    // will only be called for costs != 0
+    ic.ctx.compInfo(OPTCMPINDEX);
+    // the index returns candidates, which are checked by the original comparisons
+    final CompositeAccess ca = new CompositeAccess(info, def, keys, ic.ictx);
+    return Path.get(info, ca, Step.get(info, Axis.SELF, ic.step.test, expr));
+  }
+
+  @Override
+  public CmpComposite copy(final QueryContext ctx, final VarScope scp,
+      final IntObjMap<Var> vs) {
+    final CmpComposite cc = new CmpComposite(info, def, copyAll(ctx, scp, vs, expr));
+    cc.keys = keys;
+    return cc;
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(NAM, def), expr);
+  }
+
+  @Override
+  public String toString() {
+    return toString(' ' + AND + ' ');
+  }
+}
@@ -288,6 +288,15 @@ public final class CmpG extends Cmp {
     throw Err.INVTYPECMP.get(info, ta, tb);
   }
 
+  /**
+   * Checks if this is an equality comparison that uses the default collation.
+   * Such comparisons can be evaluated by hashing the atomized operands.
+   * @return result of check
+   */
+  public boolean equality() {
+    return op == OpG.EQ && collation == null;
+  }
+
   @Override
   public CmpG invert() {
     return expr[0].size() != 1 || expr[1].size() != 1 ? this :
@@ -321,7 +330,7 @@ public final class CmpG extends Cmp {
     final Data data = ic.ictx.data;
     final boolean text = s.test.type == NodeType.TXT && data.meta.textindex;
     final boolean attr = s.test.type == NodeType.ATT && data.meta.attrindex;
-    if(!text && !attr) return false;
+    if(!text && !attr || !ic.includes(expr[0], text)) return false;
 
     // support expressions
     final IndexType ind = text ? IndexType.TEXT : IndexType.ATTRIBUTE;
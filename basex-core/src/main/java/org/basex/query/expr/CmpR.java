@@ -132,16 +132,19 @@ public final class CmpR extends Single {
     // check which index applies
     final boolean text = s.test.type == NodeType.TXT && data.meta.textindex;
     final boolean attr = s.test.type == NodeType.ATT && data.meta.attrindex;
-    if(!text && !attr || !mni || !mxi) return false;
+    // exclusive limits can only be resolved with numeric keys
+    if(!text && !attr || !(mni && mxi || data.meta.numindex) || !ic.includes(expr, text))
+      return false;
 
     final Stats key = key(ic, text);
     if(key == null) return false;
 
     // estimate costs for range access; all values out of range: no results
+    final double mn = mni ? min : Math.nextUp(min), mx = mxi ? max : -Math.nextUp(-max);
     rt = new NumericRange(text ? IndexType.TEXT : IndexType.ATTRIBUTE,
-        Math.max(min, key.min), Math.min(max, key.max));
+        Math.max(mn, key.min), Math.min(mx, key.max));
     ic.costs(rt.min > rt.max || rt.max < key.min || rt.min > key.max ? 0 :
-      Math.max(1, data.meta.size / 5));
+      data.meta.numindex ? data.costs(rt) : Math.max(1, data.meta.size / 5));
 
     // use index if costs are zero, or if min/max is not infinite
     return ic.costs() == 0 || min != Double.NEGATIVE_INFINITY &&
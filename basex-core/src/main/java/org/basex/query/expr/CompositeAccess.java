@@ -0,0 +1,103 @@
+package org.basex.query.expr;
+
+import static org.basex.query.QueryText.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.index.value.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * This index class retrieves elements from a composite index.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class CompositeAccess extends IndexAccess {
+  /** Index definition. */
+  private final CompositeDef def;
+  /** Index keys. */
+  private final byte[][] keys;
+
+  /**
+   * Constructor.
+   * @param ii input info
+   * @param d index definition
+   * @param k index keys
+   * @param ic index context
+   */
+  CompositeAccess(final InputInfo ii, final CompositeDef d, final byte[][] k,
+      final IndexContext ic) {
+    super(ic, ii);
+    def = d;
+    keys = k;
+  }
+
+  @Override
+  public AxisIter iter(final QueryContext ctx) {
+    // access index if it exists; otherwise, scan data sequentially
+    final Data data = ictx.data;
+    final IntList pres = new IntList();
+    if(data.meta.compindex) {
+      for(final byte[] key : keys) {
+        final IndexIterator ii = data.iter(new StringToken(IndexType.COMPOSITE, key));
+        while(ii.more()) pres.add(ii.pre());
+      }
+      if(keys.length > 1) pres.sort();
+    } else {
+      final TokenSet ks = new TokenSet();
+      for(final byte[] key : keys) ks.add(key);
+      final int size = data.meta.size;
+      for(int pre = 0; pre < size; pre++) {
+        if(data.kind(pre) != Data.ELEM) continue;
+        for(final byte[] key : def.keys(data, pre)) {
+          if(ks.contains(key)) {
+            pres.add(pre);
+            break;
+          }
+        }
+      }
+    }
+
+    return new AxisIter() {
+      final int s = pres.size();
+      int p = -1;
+
+      @Override
+      public ANode next() {
+        // skip duplicates
+        while(++p < s && p > 0 && pres.get(p) == pres.get(p - 1));
+        return p < s ? new DBNode(data, pres.get(p), Data.ELEM) : null;
+      }
+    };
+  }
+
+  @Override
+  public Expr copy(final QueryContext ctx, final VarScope scp, final IntObjMap<Var> vs) {
+    return new CompositeAccess(info, def, keys, ictx);
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    final FElem el = planElem(DATA, ictx.data.meta.name, TYP, IndexType.COMPOSITE);
+    for(final byte[] key : keys) el.add(new FElem(VAL).add(def.toString(key)));
+    addPlan(plan, el);
+  }
+
+  @Override
+  public String toString() {
+    final TokenBuilder tb = new TokenBuilder(Util.className(this)).add(PAR1);
+    tb.add(Str.get(ictx.data.meta.name).toString());
+    for(final byte[] key : keys) tb.add(SEP).add(Str.get(def.toString(key)).toString());
+    return tb.add(PAR2).toString();
+  }
+}
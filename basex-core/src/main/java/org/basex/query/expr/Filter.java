@@ -1,6 +1,7 @@
 package org.basex.query.expr;
 
 import org.basex.query.*;
+import org.basex.query.gflwor.*;
 import org.basex.query.path.*;
 import org.basex.query.util.*;
 import org.basex.query.value.*;
@@ -100,6 +101,10 @@ public abstract class Filter extends Preds {
     // no numeric predicates.. use simple iterator
     if(!super.has(Flag.FCS)) return new IterFilter(this);
 
+    // only the first results will be requested: limit number of sorted tuples
+    if(preds[0] instanceof Pos && root instanceof GFLWOR)
+      ((GFLWOR) root).limit(((Pos) preds[0]).max, ctx);
+
     // one single position() or last() function specified: return single value
     if(preds.length == 1 && (last || pos != null) && root.isValue() && t.one() &&
         (last || pos.min == 1 && pos.max == 1)) return optPre(root, ctx);
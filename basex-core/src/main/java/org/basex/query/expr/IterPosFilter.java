@@ -36,6 +36,7 @@ final class IterPosFilter extends Filter {
       boolean skip, direct;
       Iter iter;
       long cpos;
+      Pos ps = pos;
 
       @Override
       public Item next() throws QueryException {
@@ -50,19 +51,19 @@ final class IterPosFilter extends Filter {
             final Expr e = Pos.get(l, l, info);
             // don't accept fractional numbers
             if(l != it.dbl(info) || !(e instanceof Pos)) return null;
-            pos = (Pos) e;
+            ps = (Pos) e;
           }
 
           iter = ctx.iter(root);
           cpos = 1;
 
-          if(pos != null || last) {
+          if(ps != null || last) {
             // runtime optimization:
             // items can be directly accessed if the iterator size is known
             final long s = iter.size();
             if(s == 0) return null;
             if(s != -1) {
-              cpos = last ? s : pos.min;
+              cpos = last ? s : ps.min;
               if(cpos > s) return null;
               direct = preds.length == 1;
             }
@@ -97,7 +98,7 @@ final class IterPosFilter extends Filter {
           }
 
           // check if more items can be expected
-          skip = last || pos != null && pos.skip(ctx);
+          skip = last || ps != null && ps.skip(ctx);
           if(skip && direct) iter.reset();
           return item;
         } finally {
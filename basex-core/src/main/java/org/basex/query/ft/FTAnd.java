@@ -76,17 +76,18 @@ public final class FTAnd extends FTExpr {
             return null;
           }
 
+          // skip all nodes that precede the current node of the other iterator
           final int d = it[0].pre - it[i].pre;
           if(neg[i]) {
             if(d >= 0) {
               if(d == 0) it[0] = ir[0].next();
-              it[i] = ir[i].next();
+              it[i] = d == 0 ? ir[i].next() : ir[i].next(it[0].pre);
               i = -1;
             }
           } else {
             if(d != 0) {
-              if(d < 0) i = 0;
-              it[i] = ir[i].next();
+              if(d < 0) it[0] = ir[0].next(it[i].pre);
+              else it[i] = ir[i].next(it[0].pre);
               i = -1;
             }
           }
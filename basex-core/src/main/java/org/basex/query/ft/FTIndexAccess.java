@@ -25,6 +25,8 @@ public final class FTIndexAccess extends Simple {
   private final FTExpr ftexpr;
   /** Database name. */
   private final IndexContext ictx;
+  /** Maximum number of returned nodes with the highest scores ({@code 0}: all nodes). */
+  private final int top;
 
   /**
    * Constructor.
@@ -33,14 +35,36 @@ public final class FTIndexAccess extends Simple {
    * @param ic index context
    */
   public FTIndexAccess(final InputInfo ii, final FTExpr ex, final IndexContext ic) {
+    this(ii, ex, ic, 0);
+  }
+
+  /**
+   * Constructor.
+   * @param ii input info
+   * @param ex contains, select and optional ignore expression
+   * @param ic index context
+   * @param t maximum number of returned nodes with the highest scores ({@code 0}: all)
+   */
+  public FTIndexAccess(final InputInfo ii, final FTExpr ex, final IndexContext ic,
+      final int t) {
     super(ii);
     ftexpr = ex;
     ictx = ic;
+    top = Math.max(0, t);
   }
 
   @Override
   public NodeIter iter(final QueryContext ctx) throws QueryException {
-    final FTIter ir = ftexpr.iter(ctx);
+    final FTIter ir;
+    if(top == 0) {
+      ir = ftexpr.iter(ctx);
+    } else if(ftexpr instanceof FTWords) {
+      // skip index entries that cannot be part of the result
+      ir = ((FTWords) ftexpr).iter(ctx, top);
+    } else {
+      // evaluate expression once and cache the nodes with the highest scores
+      ir = new FTTop(top).add(ftexpr.iter(ctx)).iter();
+    }
 
     return new NodeIter() {
       @Override
@@ -82,7 +106,7 @@ public final class FTIndexAccess extends Simple {
 
   @Override
   public Expr copy(final QueryContext ctx, final VarScope scp, final IntObjMap<Var> vs) {
-    return new FTIndexAccess(info, ftexpr.copy(ctx, scp, vs), ictx);
+    return new FTIndexAccess(info, ftexpr.copy(ctx, scp, vs), ictx, top);
   }
 
   @Override
@@ -0,0 +1,189 @@
+package org.basex.query.ft;
+
+import java.util.*;
+
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.node.*;
+import org.basex.util.*;
+
+/**
+ * This class selects the full-text nodes with the highest scores. The scores and pre
+ * values of the best nodes that have been found so far are stored in a min-heap.
+ * If two nodes have the same score, the node that occurs first in document order
+ * is preferred. If the nodes are added by an iterator, they are cached as well,
+ * so that the iterator needs to be evaluated only once.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class FTTop {
+  /** Maximum number of nodes. */
+  private final int max;
+  /** Scores. */
+  private double[] scores;
+  /** Pre values. */
+  private int[] pres;
+  /** Nodes (only assigned if nodes are cached). */
+  private FTNode[] nodes;
+  /** Number of nodes. */
+  private int size;
+
+  /**
+   * Constructor.
+   * @param m maximum number of nodes
+   */
+  FTTop(final int m) {
+    max = m;
+    final int s = Math.min(m, Array.CAPACITY);
+    scores = new double[s];
+    pres = new int[s];
+  }
+
+  /**
+   * Checks if the maximum number of nodes has been found.
+   * @return result of check
+   */
+  boolean full() {
+    return size == max;
+  }
+
+  /**
+   * Returns the lowest score of the selected nodes.
+   * @return score
+   */
+  double min() {
+    return scores[0];
+  }
+
+  /**
+   * Adds and caches all nodes of the specified iterator.
+   * @param ir iterator
+   * @return self reference
+   * @throws QueryException query exception
+   */
+  FTTop add(final FTIter ir) throws QueryException {
+    nodes = new FTNode[pres.length];
+    for(FTNode n; (n = ir.next()) != null;) add(n.pre, n.score(), n);
+    return this;
+  }
+
+  /**
+   * Adds a node if it is one of the nodes with the highest scores.
+   * @param pre pre value
+   * @param score score
+   */
+  void add(final int pre, final double score) {
+    add(pre, score, null);
+  }
+
+  /**
+   * Adds a node if it is one of the nodes with the highest scores.
+   * @param pre pre value
+   * @param score score
+   * @param node node to be cached (can be {@code null})
+   */
+  private void add(final int pre, final double score, final FTNode node) {
+    if(size < max) {
+      if(size == pres.length) {
+        final int s = Math.min(max, Array.newSize(size));
+        scores = Arrays.copyOf(scores, s);
+        pres = Arrays.copyOf(pres, s);
+        if(nodes != null) nodes = Arrays.copyOf(nodes, s);
+      }
+      // insert new node and move it up
+      int i = size++;
+      scores[i] = score;
+      pres[i] = pre;
+      if(nodes != null) nodes[i] = node;
+      while(i > 0 && less(i, i - 1 >> 1)) {
+        swap(i, i - 1 >> 1);
+        i = i - 1 >> 1;
+      }
+    } else if(score > scores[0]) {
+      // replace node with lowest score and move new node down
+      scores[0] = score;
+      pres[0] = pre;
+      if(nodes != null) nodes[0] = node;
+      int i = 0;
+      while(true) {
+        final int l = (i << 1) + 1, r = l + 1;
+        int m = i;
+        if(l < size && less(l, m)) m = l;
+        if(r < size && less(r, m)) m = r;
+        if(m == i) break;
+        swap(i, m);
+        i = m;
+      }
+    }
+  }
+
+  /**
+   * Returns an iterator for the cached nodes in document order.
+   * @return iterator
+   */
+  FTIter iter() {
+    final FTNode[] ns = Arrays.copyOf(nodes, size);
+    Arrays.sort(ns, new Comparator<FTNode>() {
+      @Override
+      public int compare(final FTNode a, final FTNode b) {
+        return a.pre < b.pre ? -1 : a.pre > b.pre ? 1 : 0;
+      }
+    });
+    return new FTIter() {
+      int i;
+
+      @Override
+      public FTNode next() {
+        return i < ns.length ? ns[i++] : null;
+      }
+    };
+  }
+
+  /**
+   * Returns an iterator for the selected nodes in document order.
+   * @param ir iterator that returns all nodes
+   * @return iterator
+   */
+  FTIter iter(final FTIter ir) {
+    final int[] ps = Arrays.copyOf(pres, size);
+    Arrays.sort(ps);
+    return new FTIter() {
+      int i;
+
+      @Override
+      public FTNode next() throws QueryException {
+        return i < ps.length ? ir.next(ps[i++]) : null;
+      }
+    };
+  }
+
+  /**
+   * Checks if the first node has a lower rank than the second one.
+   * @param a first node
+   * @param b second node
+   * @return result of check
+   */
+  private boolean less(final int a, final int b) {
+    return scores[a] < scores[b] || scores[a] == scores[b] && pres[a] > pres[b];
+  }
+
+  /**
+   * Swaps two nodes.
+   * @param a first node
+   * @param b second node
+   */
+  private void swap(final int a, final int b) {
+    final double s = scores[a];
+    scores[a] = scores[b];
+    scores[b] = s;
+    final int p = pres[a];
+    pres[a] = pres[b];
+    pres[b] = p;
+    if(nodes != null) {
+      final FTNode n = nodes[a];
+      nodes[a] = nodes[b];
+      nodes[b] = n;
+    }
+  }
+}
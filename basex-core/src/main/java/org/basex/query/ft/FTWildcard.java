@@ -2,10 +2,22 @@ package org.basex.query.ft;
 
 import static org.basex.util.Token.*;
 
+import java.util.*;
+
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
- * Wildcard expression.
+ * <p>Wildcard expression.</p>
+ *
+ * <p>The parsed expression is compiled to a nondeterministic automaton. Its states
+ * are the positions between the expanded characters of the expression, and the
+ * current states are represented as bit sets. As the states only depend on the
+ * characters that have already been processed, the automaton can also be used to
+ * skip all index tokens with a prefix that cannot match.</p>
+ *
+ * <p>Bounded repetitions are expanded to single states. Expressions that would result in
+ * more than {@link #MAXSTATES} states are not compiled and matched recursively.</p>
  *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
@@ -14,6 +26,8 @@ import org.basex.util.*;
 public final class FTWildcard {
   /** Value encoding the wildcard dot. */
   private static final int DOT = -1;
+  /** Maximum number of states of the automaton. */
+  private static final int MAXSTATES = 1 << 12;
   /** Original query. */
   private final byte[] query;
   /** Characters. */
@@ -24,6 +38,12 @@ public final class FTWildcard {
   private int[] max;
   /** Array length. */
   private int size;
+  /** Characters of the automaton. */
+  private int[] chars;
+  /** Optional characters. */
+  private boolean[] opt;
+  /** Repeated characters. */
+  private boolean[] loop;
 
   /**
    * Constructor.
@@ -43,8 +63,10 @@ public final class FTWildcard {
     min = new int[q.length];
     max = new int[q.length];
     size = 0;
+    chars = null;
 
     final int ql = q.length;
+    long states = 0;
     for(int qi = 0; qi < ql;) {
       int n = 1;
       int m = 1;
@@ -94,10 +116,46 @@ public final class FTWildcard {
       min[size] = n;
       max[size] = m;
       size++;
+      // limit the number of states of the automaton
+      states += m == Integer.MAX_VALUE ? n + 1L : m < 0 ? MAXSTATES + 1L : m;
     }
+    if(states <= MAXSTATES) compile();
     return true;
   }
 
+  /**
+   * Compiles the parsed expression to an automaton.
+   */
+  private void compile() {
+    final IntList cs = new IntList();
+    final BoolList os = new BoolList(), ls = new BoolList();
+    for(int s = 0; s < size; s++) {
+      final int n = min[s], m = max[s];
+      for(int i = 0; i < n; i++) {
+        cs.add(wc[s]);
+        os.add(false);
+        ls.add(false);
+      }
+      final int o = m == Integer.MAX_VALUE ? 1 : m - n;
+      for(int i = 0; i < o; i++) {
+        cs.add(wc[s]);
+        os.add(true);
+        ls.add(m == Integer.MAX_VALUE);
+      }
+    }
+    chars = cs.toArray();
+    opt = os.toArray();
+    loop = ls.toArray();
+  }
+
+  /**
+   * Indicates if the expression has been compiled to an automaton.
+   * @return result of check
+   */
+  public boolean automaton() {
+    return chars != null;
+  }
+
   /**
    * Returns the maximum length of a potential match.
    * @return {@code true} if a match is found
@@ -112,6 +170,16 @@ public final class FTWildcard {
     return c;
   }
 
+  /**
+   * Returns the minimum length of a potential match.
+   * @return minimum length
+   */
+  public int min() {
+    int c = 0;
+    for(int s = 0; s < size; s++) c += min[s];
+    return c;
+  }
+
   /**
    * Returns the wildcard prefix, which is the same for all matches.
    * @return prefix
@@ -122,17 +190,69 @@ public final class FTWildcard {
     return tb.finish();
   }
 
+  /**
+   * Returns the wildcard suffix, which is the same for all matches.
+   * @return suffix
+   */
+  public byte[] suffix() {
+    int s = size;
+    while(s > 0 && wc[s - 1] != DOT) s--;
+    final TokenBuilder tb = new TokenBuilder();
+    for(; s < size; s++) tb.add(wc[s]);
+    return tb.finish();
+  }
+
+  /**
+   * Returns the initial states of the automaton.
+   * @return states
+   */
+  public BitSet start() {
+    final BitSet states = new BitSet();
+    states.set(0);
+    return closure(states);
+  }
+
+  /**
+   * Returns the states that are reached by consuming a character.
+   * @param states current states
+   * @param ch character
+   * @return new states (empty if no match is possible anymore)
+   */
+  public BitSet step(final BitSet states, final int ch) {
+    final BitSet next = new BitSet();
+    final int cl = chars.length;
+    for(int s = states.nextSetBit(0); s >= 0 && s < cl; s = states.nextSetBit(s + 1)) {
+      if(chars[s] == DOT || chars[s] == ch) next.set(loop[s] ? s : s + 1);
+    }
+    return closure(next);
+  }
+
+  /**
+   * Checks if the specified states include the final state.
+   * @param states states
+   * @return result of check
+   */
+  public boolean accept(final BitSet states) {
+    return states.get(chars.length);
+  }
+
   /**
    * Checks if the wildcard can match a sub-string in a string.
    * @param t token to search for match
    * @return {@code true} if a match is found
    */
   public boolean match(final byte[] t) {
-    return match(cps(t), 0, 0);
+    if(chars == null) return match(cps(t), 0, 0);
+    BitSet states = start();
+    for(int i = 0; i < t.length && !states.isEmpty(); i += cl(t, i)) {
+      states = step(states, cp(t, i));
+    }
+    return accept(states);
   }
 
   /**
    * Checks if the wildcard can match a sub-string in a string.
+   * This method is called if no automaton has been compiled.
    * @param t token to search for match
    * @param tp input position
    * @param qp query position
@@ -156,4 +276,17 @@ public final class FTWildcard {
     }
     return ti == tl;
   }
+
+  /**
+   * Adds the states that can be reached without consuming a character.
+   * @param states states
+   * @return states
+   */
+  private BitSet closure(final BitSet states) {
+    final int cl = chars.length;
+    for(int s = states.nextSetBit(0); s >= 0 && s < cl; s = states.nextSetBit(s + 1)) {
+      if(opt[s]) states.set(s + 1);
+    }
+    return states;
+  }
 }
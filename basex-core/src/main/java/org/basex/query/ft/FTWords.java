@@ -111,65 +111,168 @@ public final class FTWords extends FTExpr {
 
   @Override
   public FTIter iter(final QueryContext ctx) {
-    final Data data = ictx.data;
-    return new FTIter() {
-      FTIndexIterator ftiter;
-      int len;
+    return new IndexIter(ctx);
+  }
 
-      @Override
-      public FTNode next() throws QueryException {
-        if(ftiter == null) {
-          final FTLexer lex = new FTLexer(ftt.opt);
-
-          // index iterator tree
-          // number of distinct tokens
-          int t = 0;
-          // loop through unique tokens
-          for(final byte[] k : unique(txt != null ? txt : tokens(ctx))) {
-            lex.init(k);
-            if(!lex.hasNext()) return null;
-
-            int d = 0;
-            FTIndexIterator ii = null;
-            do {
-              final byte[] tok = lex.nextToken();
-              t += tok.length;
-              if(ftt.opt.sw != null && ftt.opt.sw.contains(tok)) {
-                ++d;
+  /**
+   * Returns an iterator for the specified number of nodes with the highest scores.
+   * The nodes are returned in document order. Ranges of pre values are skipped if
+   * the bounds of the index iterator indicate that they cannot contain nodes with
+   * higher scores than the ones that have already been found.
+   * @param ctx query context
+   * @param top number of nodes
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  public FTIter iter(final QueryContext ctx, final int top) throws QueryException {
+    final FTTop ft = new FTTop(top);
+    final IndexIter ir = new IndexIter(ctx);
+    if(ir.init()) {
+      final FTIndexIterator it = ir.ftiter;
+      final Data data = ictx.data;
+      final int is = it.size();
+      int p = 0;
+      // indicates if the current index entry has not been processed yet
+      boolean cur = false;
+      while(true) {
+        final int lim = it.limit(p);
+        if(ft.full() && bound(it, p, is, ir.len) <= ft.min()) {
+          // skip range: no entry can have a higher score
+          if(lim == Integer.MAX_VALUE) break;
+          p = lim;
+          cur = false;
+          continue;
+        }
+        if(!cur && !it.advance(p)) break;
+        cur = true;
+        // score all entries in the range
+        while(it.pre() < lim) {
+          final int pre = it.pre();
+          ft.add(pre, Scoring.textNode(it.matches().size(), is, ir.len,
+              data.textLen(pre, true)));
+          if(!it.more()) {
+            cur = false;
+            break;
+          }
+        }
+        if(!cur) break;
+        p = it.pre();
+      }
+    }
+    return ft.iter(new IndexIter(ctx));
+  }
+
+  /**
+   * Returns an upper bound for the scores of the entries in the range of pre values
+   * starting from the specified value.
+   * @param it index iterator
+   * @param pre pre value
+   * @param is number of index entries
+   * @param len token length
+   * @return upper bound
+   */
+  private static double bound(final FTIndexIterator it, final int pre, final int is,
+      final int len) {
+    final int mp = it.maxPositions(pre);
+    return mp == Integer.MAX_VALUE ? Double.POSITIVE_INFINITY :
+      Scoring.textNode(mp, is, len, it.minLength(pre));
+  }
+
+  /**
+   * Index-based iterator.
+   */
+  private final class IndexIter extends FTIter {
+    /** Query context. */
+    private final QueryContext ctx;
+    /** Data reference. */
+    private final Data data;
+    /** Index iterator. */
+    FTIndexIterator ftiter;
+    /** Token length. */
+    int len;
+
+    /**
+     * Constructor.
+     * @param c query context
+     */
+    IndexIter(final QueryContext c) {
+      ctx = c;
+      data = ictx.data;
+    }
+
+    @Override
+    public FTNode next() throws QueryException {
+      return init() && ftiter.more() ? node() : null;
+    }
+
+    @Override
+    public FTNode next(final int pre) throws QueryException {
+      return init() && ftiter.advance(pre) ? node() : null;
+    }
+
+    /**
+     * Returns the node of the current index entry.
+     * @return node
+     */
+    private FTNode node() {
+      // [CG] XQuery, Full-Text: check scoring in index-based model
+      return new FTNode(ftiter.matches(), data, ftiter.pre(), len, ftiter.size(), -1);
+    }
+
+    /**
+     * Initializes the index iterator.
+     * @return {@code false} if no results will be returned
+     * @throws QueryException query exception
+     */
+    boolean init() throws QueryException {
+      if(ftiter == null) {
+        final FTLexer lex = new FTLexer(ftt.opt);
+
+        // index iterator tree
+        // number of distinct tokens
+        int t = 0;
+        // loop through unique tokens
+        for(final byte[] k : unique(txt != null ? txt : tokens(ctx))) {
+          lex.init(k);
+          if(!lex.hasNext()) return false;
+
+          int d = 0;
+          FTIndexIterator ii = null;
+          do {
+            final byte[] tok = lex.nextToken();
+            t += tok.length;
+            if(ftt.opt.sw != null && ftt.opt.sw.contains(tok)) {
+              ++d;
+            } else {
+              final FTIndexIterator ir = lex.get().length > data.meta.maxlen ? scan(lex) :
+                (FTIndexIterator) data.iter(lex);
+              ir.pos(++ctx.ftPos);
+              if(ii == null) {
+                ii = ir;
               } else {
-                final FTIndexIterator ir = lex.get().length > data.meta.maxlen ? scan(lex) :
-                  (FTIndexIterator) data.iter(lex);
-                ir.pos(++ctx.ftPos);
-                if(ii == null) {
-                  ii = ir;
-                } else {
-                  ii = FTIndexIterator.intersect(ii, ir, ++d);
-                  d = 0;
-                }
+                ii = FTIndexIterator.intersect(ii, ir, ++d);
+                d = 0;
               }
-            } while(lex.hasNext());
-
-            // create or combine iterator
-            if(ftiter == null) {
-              len = t;
-              ftiter = ii;
-            } else if(mode == FTMode.ALL || mode == FTMode.ALL_WORDS) {
-              if(ii.size() == 0) return null;
-              len += t;
-              ftiter = FTIndexIterator.intersect(ftiter, ii, 0);
-            } else {
-              if(ii.size() == 0) continue;
-              len = Math.max(t, len);
-              ftiter = FTIndexIterator.union(ftiter, ii);
             }
+          } while(lex.hasNext());
+
+          // create or combine iterator
+          if(ftiter == null) {
+            len = t;
+            ftiter = ii;
+          } else if(mode == FTMode.ALL || mode == FTMode.ALL_WORDS) {
+            if(ii.size() == 0) return false;
+            len += t;
+            ftiter = FTIndexIterator.intersect(ftiter, ii, 0);
+          } else {
+            if(ii.size() == 0) continue;
+            len = Math.max(t, len);
+            ftiter = FTIndexIterator.union(ftiter, ii);
           }
         }
-
-        // [CG] XQuery, Full-Text: check scoring in index-based model
-        return ftiter == null || !ftiter.more() ? null :
-          new FTNode(ftiter.matches(), data, ftiter.pre(), len, ftiter.size(), -1);
       }
-    };
+      return ftiter != null;
+    }
   }
 
   /**
@@ -213,7 +213,8 @@ public final class FNFt extends StandardFunc {
     ctx.ftOpt(opt);
     final FTExpr fte = new FTWords(info, ic, terms, mode).compile(ctx, null);
     ctx.ftOpt(tmp);
-    return new FTIndexAccess(info, options(fte, opts), ic).iter(ctx);
+    final int top = opts.get(FTIndexOptions.TOP);
+    return new FTIndexAccess(info, options(fte, opts), ic, top).iter(ctx);
   }
 
   /**
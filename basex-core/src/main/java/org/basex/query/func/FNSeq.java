@@ -8,6 +8,7 @@ import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.expr.CmpV.OpV;
 import org.basex.query.expr.*;
+import org.basex.query.gflwor.*;
 import org.basex.query.iter.*;
 import org.basex.query.path.*;
 import org.basex.query.util.*;
@@ -164,6 +165,18 @@ public final class FNSeq extends StandardFunc {
     else if(sig == Function.HEAD) o = Occ.ZERO_ONE;
     type = SeqType.get(t, o);
 
+    // only the first results will be requested: limit number of sorted tuples
+    if(expr[0] instanceof GFLWOR) {
+      if(sig == Function.HEAD) {
+        ((GFLWOR) expr[0]).limit(1, ctx);
+      } else if(sig == Function.SUBSEQUENCE && expr.length > 2 &&
+          expr[1] instanceof ANum && expr[2] instanceof ANum) {
+        final double s = ((ANum) expr[1]).dbl(), l = ((ANum) expr[2]).dbl();
+        if(s + l < Long.MAX_VALUE >>> 1)
+          ((GFLWOR) expr[0]).limit(StrictMath.round(s) + StrictMath.round(l) - 1, ctx);
+      }
+    }
+
     return this;
   }
 
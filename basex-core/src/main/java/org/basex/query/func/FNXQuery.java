@@ -15,6 +15,7 @@ import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
+import org.basex.query.value.type.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
 
@@ -39,22 +40,24 @@ public final class FNXQuery extends StandardFunc {
   @Override
   public Iter iter(final QueryContext ctx) throws QueryException {
     switch(sig) {
-      case _XQUERY_EVAL:     return eval(ctx, true);
-      case _XQUERY_EVALUATE: return eval(ctx, false);
-      case _XQUERY_INVOKE:   return invoke(ctx);
-      case _XQUERY_TYPE:     return value(ctx).iter();
-      default:               return super.iter(ctx);
+      case _XQUERY_EVAL:      return eval(ctx, true);
+      case _XQUERY_EVALUATE:  return eval(ctx, false);
+      case _XQUERY_INVOKE:    return invoke(ctx);
+      case _XQUERY_TYPE:      return value(ctx).iter();
+      case _XQUERY_FORK_JOIN: return forkJoin(ctx);
+      default:                return super.iter(ctx);
     }
   }
 
   @Override
   public Value value(final QueryContext ctx) throws QueryException {
     switch(sig) {
-      case _XQUERY_EVAL:     return eval(ctx, true).value();
-      case _XQUERY_EVALUATE: return eval(ctx, false).value();
-      case _XQUERY_INVOKE:   return invoke(ctx).value();
-      case _XQUERY_TYPE:     return type(ctx).value(ctx);
-      default:               return super.value(ctx);
+      case _XQUERY_EVAL:      return eval(ctx, true).value();
+      case _XQUERY_EVALUATE:  return eval(ctx, false).value();
+      case _XQUERY_INVOKE:    return invoke(ctx).value();
+      case _XQUERY_TYPE:      return type(ctx).value(ctx);
+      case _XQUERY_FORK_JOIN: return forkJoin(ctx).value();
+      default:                return super.value(ctx);
     }
   }
 
@@ -135,6 +138,40 @@ public final class FNXQuery extends StandardFunc {
     }
   }
 
+  /**
+   * Performs the fork-join function.
+   * The function items are evaluated in parallel, using the number of threads specified
+   * by {@link MainOptions#QUERYTHREADS}. If only one thread is specified, they are
+   * evaluated sequentially.
+   * @param ctx query context
+   * @return resulting value
+   * @throws QueryException query exception
+   */
+  private ValueBuilder forkJoin(final QueryContext ctx) throws QueryException {
+    final ArrayList<FItem> funcs = new ArrayList<FItem>();
+    final Iter ir = ctx.iter(expr[0]);
+    for(Item it; (it = ir.next()) != null;) {
+      if(!(it instanceof FItem) || ((FItem) it).arity() != 0)
+        throw Err.typeError(this, FuncType.arity(0), it);
+      funcs.add((FItem) it);
+    }
+
+    final ValueBuilder vb = new ValueBuilder();
+    final int threads = ctx.context.options.get(MainOptions.QUERYTHREADS);
+    if(threads < 2) {
+      for(final FItem func : funcs) vb.add(func.invokeValue(ctx, info));
+    } else {
+      final Value[] results = new Parallel() {
+        @Override
+        protected Value task(final int t, final QueryContext qc) throws QueryException {
+          return funcs.get(t).invokeValue(qc, info);
+        }
+      }.eval(funcs.size(), threads, ctx);
+      for(final Value v : results) vb.add(v);
+    }
+    return vb;
+  }
+
   /**
    * Dumps the argument's type and size and returns it unchanged.
    * @param ctx query context
@@ -1010,6 +1010,9 @@ public enum Function {
   _XQUERY_INVOKE(FNXQuery.class, "invoke(uri[,bindings])", arg(STR, ITEM), ITEM_ZM, flag(NDT)),
   /** XQuery function. */
   _XQUERY_TYPE(FNXQuery.class, "type(value)", arg(ITEM_ZM), ITEM_ZM),
+  /** XQuery function. */
+  _XQUERY_FORK_JOIN(FNXQuery.class, "fork-join(functions)", arg(FUN_ZM), ITEM_ZM,
+      flag(Flag.HOF)),
 
   /* FNXslt functions. */
 
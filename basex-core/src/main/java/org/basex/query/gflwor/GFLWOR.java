@@ -2,6 +2,8 @@ package org.basex.query.gflwor;
 
 import java.util.*;
 
+import org.basex.core.*;
+import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.func.*;
@@ -25,6 +27,8 @@ import org.basex.util.hash.*;
  * @author Leo Woerteler
  */
 public final class GFLWOR extends ParseExpr {
+  /** Power of the number of tuples per thread that are evaluated in parallel. */
+  private static final int BATCHPOWER = 8;
   /** Return expression. */
   private Expr ret;
   /** FLWOR clauses. */
@@ -43,7 +47,7 @@ public final class GFLWOR extends ParseExpr {
   }
 
   @Override
-  public Iter iter(final QueryContext ctx) {
+  public Iter iter(final QueryContext ctx) throws QueryException {
     // Start evaluator, doing nothing, once.
     Eval e = new Eval() {
       /** First-evaluation flag. */
@@ -59,6 +63,11 @@ public final class GFLWOR extends ParseExpr {
     for(final Clause cls : clauses) e = cls.eval(e);
     final Eval ev = e;
 
+    // evaluate independent return expressions in parallel
+    final int threads = ctx.context.options.get(MainOptions.QUERYTHREADS);
+    if(threads > 1 && !ctx.worker && !ret.has(Flag.UPD) && !ret.has(Flag.NDT))
+      return parallel(ev, threads, ctx);
+
     return new Iter() {
       /** Return iterator. */
       private Iter sub = Empty.ITER;
@@ -80,6 +89,57 @@ public final class GFLWOR extends ParseExpr {
     };
   }
 
+  /**
+   * Returns an iterator that evaluates the return expression in parallel.
+   * The tuples are generated in batches. For each tuple, the bindings of the current
+   * stack frame are cached, and the return expression is evaluated by worker threads.
+   * @param ev clause evaluator
+   * @param threads number of threads
+   * @param ctx query context
+   * @return iterator
+   */
+  private Iter parallel(final Eval ev, final int threads, final QueryContext ctx) {
+    final int batch = threads << BATCHPOWER;
+    return new Iter() {
+      /** Return iterator. */
+      private Iter sub = Empty.ITER;
+      /** Results of the current batch. */
+      private Value[] results = {};
+      /** Index of the next result. */
+      private int r;
+      /** If the tuple stream has been emptied. */
+      private boolean drained;
+      @Override
+      public Item next() throws QueryException {
+        while(true) {
+          final Item it = sub.next();
+          if(it != null) return it;
+          if(r < results.length) {
+            sub = results[r++].iter();
+          } else {
+            if(drained) return null;
+            final ArrayList<Value[]> tuples = new ArrayList<Value[]>();
+            while(tuples.size() < batch) {
+              if(!ev.next(ctx)) {
+                drained = true;
+                break;
+              }
+              tuples.add(ctx.stack.frame());
+            }
+            results = new Parallel() {
+              @Override
+              protected Value task(final int t, final QueryContext qc) throws QueryException {
+                qc.stack.frame(tuples.get(t));
+                return qc.value(ret);
+              }
+            }.eval(tuples.size(), threads, ctx);
+            r = 0;
+          }
+        }
+      }
+    };
+  }
+
   @Override
   public Expr compile(final QueryContext ctx, final VarScope scp) throws QueryException {
     int i = 0;
@@ -418,7 +478,7 @@ public final class GFLWOR extends ParseExpr {
         if(!curr.skippable(let)) break;
         // insert directly above the highest skippable for or window clause
         // this guarantees that no unnecessary swaps occur
-        if(curr instanceof For || curr instanceof Window) insert = j;
+        if(curr instanceof For || curr instanceof Window || curr instanceof Join) insert = j;
       }
 
       if(insert >= 0) {
@@ -476,7 +536,8 @@ public final class GFLWOR extends ParseExpr {
         final int newPos = insert < 0 ? i : insert;
         for(int b4 = newPos; --b4 >= 0;) {
           final Clause before = clauses.get(b4);
-          if(before instanceof For && ((For) before).toPred(ctx, scp, wh.pred)) {
+          if(before instanceof For && (toJoin(ctx, scp, b4, wh) ||
+              ((For) before).toPred(ctx, scp, wh.pred))) {
             clauses.remove(newPos);
             i--;
             change = true;
@@ -491,6 +552,58 @@ public final class GFLWOR extends ParseExpr {
     return change;
   }
 
+  /**
+   * Tries to rewrite a for clause and a subsequent where clause to a hash join.
+   * The predicate must be an equality comparison with one operand that only depends
+   * on the variable of the for clause and another operand that depends on preceding
+   * clauses. The bound expression must be independent of the preceding clauses.
+   * @param ctx query context
+   * @param scp variable scope
+   * @param f position of the for clause
+   * @param wh where clause
+   * @return success
+   * @throws QueryException query exception
+   */
+  private boolean toJoin(final QueryContext ctx, final VarScope scp, final int f,
+      final Where wh) throws QueryException {
+
+    final For fr = (For) clauses.get(f);
+    if(fr.vars.length != 1 || fr.empty || !(wh.pred instanceof CmpG) ||
+        !((CmpG) wh.pred).equality() || fr.expr.has(Flag.NDT) || fr.expr.has(Flag.CNS) ||
+        wh.pred.has(Flag.NDT)) return false;
+
+    // find operands that reference the for clause and the preceding clauses
+    final Expr[] ops = ((Arr) wh.pred).expr;
+    if(ops[0].uses(fr.var) == ops[1].uses(fr.var)) return false;
+    final boolean k0 = ops[0].uses(fr.var);
+    final Expr key = ops[k0 ? 0 : 1], probe = ops[k0 ? 1 : 0];
+    // variables bound before the first loop are constant for all tuples
+    boolean loop = false, uses = false;
+    for(int c = 0; c < f; c++) {
+      final Clause cl = clauses.get(c);
+      loop |= cl instanceof For || cl instanceof Window || cl instanceof Join;
+      if(!loop) continue;
+      for(final Var v : cl.vars) {
+        if(fr.expr.uses(v) || key.uses(v)) return false;
+        uses |= probe.uses(v);
+      }
+    }
+    if(!loop || !uses) return false;
+
+    // skip paths that may be rewritten for index access
+    if(fr.expr instanceof AxisPath) {
+      final Expr rt = ((Path) fr.expr).root;
+      final Value v = rt == null ? ctx.value : rt instanceof Value ? (Value) rt : null;
+      final Data data = v != null ? v.data() : null;
+      if(data != null && data.meta.uptodate && (data.meta.textindex || data.meta.attrindex))
+        return false;
+    }
+
+    ctx.compInfo(QueryText.OPTJOIN, fr);
+    clauses.set(f, new Join(fr.var, fr.expr, wh.pred, fr.info).optimize(ctx, scp));
+    return true;
+  }
+
   /** Merges consecutive {@code where} clauses. */
   private void mergeWheres() {
     Where before = null;
@@ -518,6 +631,23 @@ public final class GFLWOR extends ParseExpr {
     }
   }
 
+  /**
+   * Limits the number of tuples that will be sorted by a final {@code order by} clause
+   * if only the first results of this expression will be requested.
+   * @param n maximum number of requested results
+   * @param ctx query context
+   */
+  public void limit(final long n, final QueryContext ctx) {
+    final Clause last = clauses.isEmpty() ? null : clauses.getLast();
+    final long s = ret.size();
+    if(!(last instanceof OrderBy) || s < 1) return;
+    final OrderBy ob = (OrderBy) last;
+    final long m = Math.max(0, n), l = m / s + (m % s == 0 ? 0 : 1);
+    if(l >= ob.limit) return;
+    ctx.compInfo(QueryText.OPTTOPK, ob, l);
+    ob.limit = l;
+  }
+
   @Override
   public boolean isVacuous() {
     return ret.isVacuous();
@@ -615,7 +745,8 @@ public final class GFLWOR extends ParseExpr {
     final ListIterator<Clause> iter = clauses.listIterator(idx);
     while(iter.hasPrevious()) {
       final Clause b4 = iter.previous();
-      if(b4 instanceof For || b4 instanceof Window || b4 instanceof Where) {
+      if(b4 instanceof For || b4 instanceof Window || b4 instanceof Where ||
+          b4 instanceof Join) {
         iter.next();
         while(iter.hasNext()) {
           iter.next();
@@ -4,12 +4,14 @@ import static org.basex.query.QueryText.*;
 
 import java.util.*;
 
+import org.basex.core.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.func.*;
 import org.basex.query.gflwor.GFLWOR.Eval;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
@@ -26,6 +28,8 @@ import org.basex.util.hash.*;
  * @author Leo Woerteler
  */
 public final class GroupBy extends GFLWOR.Clause {
+  /** Number of hash partitions for spilled groups (must be a power of two). */
+  private static final int PARTITIONS = 64;
   /** Grouping specs. */
   private final Spec[] specs;
   /** Non-grouping variable expressions. */
@@ -90,11 +94,33 @@ public final class GroupBy extends GFLWOR.Clause {
       private Group[] groups;
       /** Current position. */
       private int pos;
+      /** Collations of the non-occluded grouping specs. */
+      private Collation[] colls;
+      /** Groups that are currently built. */
+      private ArrayList<Group> grps;
+      /** Hash table for the groups that are currently built. */
+      private IntObjMap<Group> map;
+      /** Partitions with spilled groups ({@code null} if all groups are kept in memory). */
+      private TupleFile[] parts;
+      /** Index of the next partition to be returned. */
+      private int part;
 
       @Override
       public boolean next(final QueryContext ctx) throws QueryException {
         if(groups == null) groups = init(ctx);
-        if(pos == groups.length) return false;
+        while(pos == groups.length) {
+          if(parts == null || part == parts.length) return false;
+          // build and return groups of the next partition
+          final TupleFile tf = parts[part++];
+          if(tf == null) continue;
+          grps = new ArrayList<Group>();
+          map = new IntObjMap<Group>();
+          load(tf);
+          groups = grps.toArray(new Group[grps.size()]);
+          grps = null;
+          map = null;
+          pos = 0;
+        }
 
         final Group curr = groups[pos];
         // be nice to the garbage collector
@@ -112,68 +138,153 @@ public final class GroupBy extends GFLWOR.Clause {
       }
 
       /**
-       * Builds up the groups.
+       * Builds up the groups. If the number of buffered items exceeds
+       * {@link MainOptions#SPILLSIZE}, the groups are spilled to hash partitions on disk.
        * @param ctx query context
+       * @return groups
        * @throws QueryException query exception
        */
       private Group[] init(final QueryContext ctx) throws QueryException {
-        final ArrayList<Group> grps = new ArrayList<Group>();
-        final IntObjMap<Group> map = new IntObjMap<Group>();
-        final Collation[] colls = new Collation[nonOcc];
+        colls = new Collation[nonOcc];
         for(int i = 0, p = 0; i < specs.length; i++)
           if(!specs[i].occluded) colls[p++] = specs[i].coll;
+        grps = new ArrayList<Group>();
+        map = new IntObjMap<Group>();
 
+        final long max = ctx.context.options.get(MainOptions.SPILLSIZE);
+        boolean spill = max > 0;
+        long items = 0;
         while(sub.next(ctx)) {
           final Item[] key = new Item[nonOcc];
-          int p = 0, hash = 1;
+          int p = 0;
           for(final Spec spec : specs) {
             final Item ki = spec.item(ctx, info),
                 atom = ki == null ? null : StandardFunc.atom(ki, info);
-            if(!spec.occluded) {
-              key[p++] = atom;
-              // If the values are compared using a special collation, we let them collide
-              // here and let the comparison do all the work later.
-              // This enables other non-collation specs to avoid the collision.
-              hash = 31 * hash +
-                  (atom == null || spec.coll != null ? 0 : atom.hash(info));
-            }
+            if(!spec.occluded) key[p++] = atom;
             ctx.set(spec.var, atom == null ? Empty.SEQ : atom, info);
           }
-
-          // find the group for this key
-          final Group fst;
-          Group grp = null;
-          // no collations, so we can use hashing
-          for(Group g = fst = map.get(hash); g != null; g = g.next) {
-            if(eq(key, g.key, colls)) {
-              grp = g;
-              break;
-            }
-          }
-
-          if(grp == null) {
-            // new group, add it to the list
-            final ValueBuilder[] ngs = new ValueBuilder[preExpr.length];
-            for(int i = 0; i < ngs.length; i++) ngs[i] = new ValueBuilder();
-            grp = new Group(key, ngs);
-            grps.add(grp);
-
-            // insert the group into the hash table
-            if(fst == null) {
-              map.put(hash, grp);
-            } else {
-              final Group nxt = fst.next;
-              fst.next = grp;
-              grp.next = nxt;
+          final Value[] vals = new Value[preExpr.length];
+          for(int j = 0; j < preExpr.length; j++) vals[j] = preExpr[j].value(ctx);
+
+          if(spill && !(TupleFile.supported(key) && TupleFile.supported(vals))) {
+            // values cannot be spilled: keep all groups in main memory
+            if(parts != null) {
+              spill(ctx);
+              final TupleFile[] tfs = parts;
+              parts = null;
+              for(final TupleFile tf : tfs) if(tf != null) load(tf);
             }
+            spill = false;
           }
 
           // add values of non-grouping variables to the group
-          for(int j = 0; j < preExpr.length; j++) grp.ngv[j].add(preExpr[j].value(ctx));
+          final Group grp = group(key);
+          for(int j = 0; j < vals.length; j++) grp.ngv[j].add(vals[j]);
+          if(!spill) continue;
+
+          items += key.length;
+          for(final Value v : vals) items += v.size();
+          if(items > max) {
+            spill(ctx);
+            items = 0;
+          }
         }
 
+        if(parts != null) {
+          spill(ctx);
+          return new Group[0];
+        }
         // we're finished, copy the array so the list can be garbage-collected
-        return grps.toArray(new Group[grps.size()]);
+        final Group[] gs = grps.toArray(new Group[grps.size()]);
+        grps = null;
+        map = null;
+        return gs;
+      }
+
+      /**
+       * Returns the group for the specified key. A new group is created if no group exists.
+       * @param key grouping key
+       * @return group
+       * @throws QueryException query exception
+       */
+      private Group group(final Item[] key) throws QueryException {
+        final int hash = hash(key);
+        // find the group for this key
+        final Group fst;
+        // no collations, so we can use hashing
+        for(Group g = fst = map.get(hash); g != null; g = g.next) {
+          if(eq(key, g.key, colls)) return g;
+        }
+
+        // new group, add it to the list
+        final ValueBuilder[] ngs = new ValueBuilder[preExpr.length];
+        for(int i = 0; i < ngs.length; i++) ngs[i] = new ValueBuilder();
+        final Group grp = new Group(key, ngs);
+        grps.add(grp);
+
+        // insert the group into the hash table
+        if(fst == null) {
+          map.put(hash, grp);
+        } else {
+          final Group nxt = fst.next;
+          fst.next = grp;
+          grp.next = nxt;
+        }
+        return grp;
+      }
+
+      /**
+       * Computes the hash value of a grouping key.
+       * @param key grouping key
+       * @return hash value
+       * @throws QueryException query exception
+       */
+      private int hash(final Item[] key) throws QueryException {
+        int hash = 1;
+        for(int k = 0; k < key.length; k++) {
+          final Item atom = key[k];
+          // If the values are compared using a special collation, we let them collide
+          // here and let the comparison do all the work later.
+          // This enables other non-collation specs to avoid the collision.
+          hash = 31 * hash + (atom == null || colls[k] != null ? 0 : atom.hash(info));
+        }
+        return hash;
+      }
+
+      /**
+       * Writes all groups to the hash partitions and clears the hash table.
+       * @param ctx query context
+       * @throws QueryException query exception
+       */
+      private void spill(final QueryContext ctx) throws QueryException {
+        if(parts == null) parts = new TupleFile[PARTITIONS];
+        for(final Group grp : grps) {
+          final int h = hash(grp.key), p = (h ^ h >>> 16) & PARTITIONS - 1;
+          if(parts[p] == null) parts[p] = new TupleFile(ctx, info);
+          final TupleFile tf = parts[p];
+          for(final Item it : grp.key) tf.write(it == null ? Empty.SEQ : it);
+          for(final ValueBuilder vb : grp.ngv) tf.write(vb.value());
+        }
+        grps = new ArrayList<Group>();
+        map = new IntObjMap<Group>();
+      }
+
+      /**
+       * Reads all spilled groups of a partition and adds them to the current groups.
+       * @param tf partition
+       * @throws QueryException query exception
+       */
+      private void load(final TupleFile tf) throws QueryException {
+        while(true) {
+          final Item[] key = new Item[nonOcc];
+          for(int k = 0; k < nonOcc; k++) {
+            final Value v = tf.read();
+            if(v == null) return;
+            key[k] = v.isEmpty() ? null : (Item) v;
+          }
+          final Group grp = group(key);
+          for(final ValueBuilder vb : grp.ngv) vb.add(tf.read());
+        }
       }
     };
   }
@@ -0,0 +1,387 @@
+package org.basex.query.gflwor;
+
+import static org.basex.query.QueryText.*;
+
+import java.util.*;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.gflwor.GFLWOR.Clause;
+import org.basex.query.gflwor.GFLWOR.Eval;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.value.type.SeqType.Occ;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * FLWOR {@code for} clause, which is joined with the preceding clauses by a predicate
+ * ({@code for $a in A for $b in B where $a/@id = $b/@ref}).
+ *
+ * The bound sequence is evaluated once. If the predicate is an equality comparison,
+ * its items are indexed in a hash table by the atomized values of the operand that
+ * references the clause variable (build phase). For each incoming tuple, the table
+ * is probed with the atomized values of the other operand, and the matching items are
+ * bound in their original order. Hashing is restricted to numbers and strings; if other
+ * values occur, or if numbers are compared with strings or with untyped values that
+ * cannot be cast to numbers, the predicate is evaluated for each item (and incomparable
+ * values will be reported as errors).
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class Join extends Clause {
+  /** Item variable. */
+  final Var var;
+  /** Bound expression. */
+  Expr expr;
+  /** Join predicate. */
+  Expr pred;
+  /** Index of the predicate operand that references the variable ({@code -1}: none). */
+  private int key = -1;
+
+  /**
+   * Constructor.
+   * @param v item variable
+   * @param e bound expression
+   * @param p join predicate
+   * @param ii input info
+   */
+  Join(final Var v, final Expr e, final Expr p, final InputInfo ii) {
+    super(ii, v);
+    var = v;
+    expr = e;
+    pred = p;
+  }
+
+  @Override
+  Eval eval(final Eval sub) {
+    return new Eval() {
+      /** Hash table (will be created with the first incoming tuple). */
+      private Table table;
+      /** Positions of the matching items. */
+      private IntList matches = new IntList(0);
+      /** Index of the next match. */
+      private int m;
+      @Override
+      public boolean next(final QueryContext ctx) throws QueryException {
+        while(true) {
+          if(m < matches.size()) {
+            ctx.set(var, table.items.itemAt(matches.get(m++)), info);
+            return true;
+          }
+          if(!sub.next(ctx)) return false;
+          if(table == null) table = new Table(ctx);
+          matches = table.probe(ctx);
+          m = 0;
+        }
+      }
+    };
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    final FElem e = planElem();
+    var.plan(e);
+    expr.plan(e);
+    pred.plan(e);
+    plan.add(e);
+  }
+
+  @Override
+  public String toString() {
+    return FOR + ' ' + var + ' ' + IN + ' ' + expr + ' ' + WHERE + ' ' + pred;
+  }
+
+  @Override
+  public boolean has(final Flag flag) {
+    return expr.has(flag) || pred.has(flag);
+  }
+
+  @Override
+  public Join compile(final QueryContext ctx, final VarScope scp) throws QueryException {
+    expr = expr.compile(ctx, scp);
+    pred = pred.compile(ctx, scp);
+    return optimize(ctx, scp);
+  }
+
+  @Override
+  public Join optimize(final QueryContext ctx, final VarScope scp) throws QueryException {
+    type = SeqType.get(expr.type().type, Occ.ONE);
+    var.refineType(type, ctx, info);
+    size = -1;
+
+    // choose the operand that will be used for building the hash table
+    key = -1;
+    if(pred instanceof CmpG && ((CmpG) pred).equality()) {
+      final Expr[] ops = ((Arr) pred).expr;
+      final boolean u0 = ops[0].uses(var), u1 = ops[1].uses(var);
+      if(u0 != u1) key = u0 ? 0 : 1;
+    }
+    return this;
+  }
+
+  @Override
+  public boolean removable(final Var v) {
+    return expr.removable(v) && pred.removable(v);
+  }
+
+  @Override
+  public VarUsage count(final Var v) {
+    return expr.count(v).plus(pred.count(v).times(2));
+  }
+
+  @Override
+  public Clause inline(final QueryContext ctx, final VarScope scp,
+      final Var v, final Expr e) throws QueryException {
+    final Expr sub = expr.inline(ctx, scp, v, e), p = pred.inline(ctx, scp, v, e);
+    if(sub == null && p == null) return null;
+    if(sub != null) expr = sub;
+    if(p != null) pred = p;
+    return optimize(ctx, scp);
+  }
+
+  @Override
+  public Join copy(final QueryContext ctx, final VarScope scp, final IntObjMap<Var> vs) {
+    final Expr e = expr.copy(ctx, scp, vs);
+    final Var v = scp.newCopyOf(ctx, var);
+    vs.put(var.id, v);
+    final Join jn = new Join(v, e, pred.copy(ctx, scp, vs), info);
+    jn.key = key;
+    return jn;
+  }
+
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    return expr.accept(visitor) && visitor.declared(var) && pred.accept(visitor);
+  }
+
+  @Override
+  public void checkUp() throws QueryException {
+    checkNoneUp(expr, pred);
+  }
+
+  @Override
+  long calcSize(final long count) {
+    return -1;
+  }
+
+  @Override
+  public int exprSize() {
+    return expr.exprSize() + pred.exprSize();
+  }
+
+  /**
+   * Returns the hash value of a number.
+   * @param d double value
+   * @return hash value
+   */
+  static int hash(final double d) {
+    // positive and negative zero are equal
+    final long l = Double.doubleToLongBits(d == 0 ? 0 : d);
+    return (int) (l ^ l >>> 32);
+  }
+
+  /**
+   * Converts an untyped value to a double, or returns {@link Double#NaN}.
+   * @param s string value
+   * @return double value
+   */
+  static double number(final byte[] s) {
+    final double d = Token.toDouble(s);
+    if(!Double.isNaN(d)) return d;
+    final byte[] t = Token.trim(s);
+    return Token.eq(t, Token.INF) ? Double.POSITIVE_INFINITY :
+      Token.eq(t, Token.NINF) ? Double.NEGATIVE_INFINITY : d;
+  }
+
+  /**
+   * Hash table for the items of the bound sequence.
+   */
+  private final class Table {
+    /** Items of the bound sequence. */
+    final Value items;
+    /** Hash buckets (if {@code null}, the predicate is evaluated for each item). */
+    private int[] buckets;
+    /** Pointers to the next entries. */
+    private int[] next;
+    /** Hash values. */
+    private int[] hashes;
+    /** Keys. */
+    private Item[] keys;
+    /** Item positions. */
+    private int[] pos;
+    /** Number of entries, plus one. */
+    private int size = 1;
+    /** Indicates if the keys include numbers. */
+    private boolean nums;
+    /** Indicates if the keys include strings. */
+    private boolean strs;
+    /** Indicates if the keys include untyped values that cannot be cast to numbers. */
+    private boolean nans;
+
+    /**
+     * Constructor, evaluating the bound sequence and building the hash table.
+     * @param ctx query context
+     * @throws QueryException query exception
+     */
+    Table(final QueryContext ctx) throws QueryException {
+      items = ctx.value(expr);
+      final int is = (int) items.size();
+      if(key == -1 || is < 2) return;
+
+      final int cap = Integer.highestOneBit(Math.max(is, 4)) << 1;
+      buckets = new int[cap];
+      next = new int[cap];
+      hashes = new int[cap];
+      keys = new Item[cap];
+      pos = new int[cap];
+      final Expr op = ((Arr) pred).expr[key];
+      for(int i = 0; i < is; i++) {
+        ctx.set(var, items.itemAt(i), info);
+        final Iter ir = ctx.iter(op);
+        for(Item it; (it = ir.next()) != null;) {
+          if(it instanceof ANum) {
+            add(hash(it.dbl(info)), it, i);
+            nums = true;
+          } else if(it instanceof AStr) {
+            add(Token.hash(it.string(info)), it, i);
+            strs = true;
+          } else if(it.type.isUntyped()) {
+            // untyped values will be compared as strings or numbers
+            final byte[] s = it.string(info);
+            add(Token.hash(s), it, i);
+            final double d = number(s);
+            if(Double.isNaN(d)) nans = true;
+            else add(hash(d), it, i);
+          } else {
+            buckets = null;
+            return;
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns the positions of all items that match the current tuple.
+     * @param ctx query context
+     * @return positions
+     * @throws QueryException query exception
+     */
+    IntList probe(final QueryContext ctx) throws QueryException {
+      final IntList il = new IntList();
+      if(buckets != null) {
+        final Iter ir = ctx.iter(((Arr) pred).expr[1 - key]);
+        for(Item it; (it = ir.next()) != null;) {
+          // numbers are incomparable with strings and with untyped values that cannot
+          // be cast to numbers: raise the error of the nested loop
+          if(it instanceof ANum) {
+            if(strs || nans) return scan(ctx);
+            find(hash(it.dbl(info)), it, il);
+          } else if(it instanceof AStr) {
+            if(nums) return scan(ctx);
+            find(Token.hash(it.string(info)), it, il);
+          } else if(it.type.isUntyped()) {
+            final byte[] s = it.string(info);
+            final double d = number(s);
+            if(Double.isNaN(d)) {
+              if(nums) return scan(ctx);
+            } else {
+              find(hash(d), it, il);
+            }
+            find(Token.hash(s), it, il);
+          } else {
+            return scan(ctx);
+          }
+        }
+        // return distinct positions in document order
+        final int is = il.size();
+        if(is > 1) {
+          il.sort();
+          int s = 1;
+          for(int i = 1; i < is; i++) {
+            final int p = il.get(i);
+            if(p != il.get(s - 1)) il.set(s++, p);
+          }
+          il.size(s);
+        }
+        return il;
+      }
+      return scan(ctx);
+    }
+
+    /**
+     * Evaluates the predicate for all items.
+     * @param ctx query context
+     * @return positions of matching items
+     * @throws QueryException query exception
+     */
+    private IntList scan(final QueryContext ctx) throws QueryException {
+      final IntList il = new IntList();
+      final int is = (int) items.size();
+      for(int i = 0; i < is; i++) {
+        ctx.set(var, items.itemAt(i), info);
+        if(pred.ebv(ctx, info).bool(info)) il.add(i);
+      }
+      return il;
+    }
+
+    /**
+     * Adds an entry to the hash table.
+     * @param h hash value
+     * @param it key
+     * @param p item position
+     */
+    private void add(final int h, final Item it, final int p) {
+      if(size == keys.length) rehash();
+      final int b = h & buckets.length - 1;
+      next[size] = buckets[b];
+      hashes[size] = h;
+      keys[size] = it;
+      pos[size] = p;
+      buckets[b] = size++;
+    }
+
+    /**
+     * Adds the positions of all items with keys that are equal to the specified item.
+     * @param h hash value
+     * @param it item
+     * @param il position list
+     * @throws QueryException query exception
+     */
+    private void find(final int h, final Item it, final IntList il) throws QueryException {
+      for(int e = buckets[h & buckets.length - 1]; e != 0; e = next[e]) {
+        if(hashes[e] != h) continue;
+        // preserve the order of the operands
+        final Item a = key == 0 ? keys[e] : it, b = key == 0 ? it : keys[e];
+        final Type ta = a.type, tb = b.type;
+        if((ta == tb || ta.isUntyped() || tb.isUntyped() ||
+            a instanceof ANum && b instanceof ANum || a instanceof AStr && b instanceof AStr) &&
+            a.eq(b, null, info)) il.add(pos[e]);
+      }
+    }
+
+    /**
+     * Doubles the size of the hash table.
+     */
+    private void rehash() {
+      final int cap = keys.length << 1;
+      next = Arrays.copyOf(next, cap);
+      hashes = Arrays.copyOf(hashes, cap);
+      keys = Array.copy(keys, new Item[cap]);
+      pos = Arrays.copyOf(pos, cap);
+      buckets = new int[cap];
+      for(int e = 1; e < size; e++) {
+        final int b = hashes[e] & cap - 1;
+        next[e] = buckets[b];
+        buckets[b] = e;
+      }
+    }
+  }
+}
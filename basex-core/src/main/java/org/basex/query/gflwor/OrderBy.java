@@ -3,8 +3,8 @@ package org.basex.query.gflwor;
 import static org.basex.query.QueryText.*;
 
 import java.util.*;
-import java.util.List;
 
+import org.basex.core.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.gflwor.GFLWOR.Eval;
@@ -28,6 +28,8 @@ public final class OrderBy extends GFLWOR.Clause {
   private VarRef[] refs;
   /** Sort keys. */
   private final Key[] keys;
+  /** Maximum number of tuples to be returned. */
+  long limit = Long.MAX_VALUE;
 
   /**
    * Constructor.
@@ -46,80 +48,125 @@ public final class OrderBy extends GFLWOR.Clause {
     return new Eval() {
       /** Sorted output tuples. */
       private Value[][] tpls;
-      /** Permutation of the values. */
-      private Integer[] perm;
       /** Current position. */
       int pos;
+      /** Sort keys of the buffered tuples. */
+      private SortKeys ks;
+      /** Values of the buffered tuples. */
+      private ArrayList<Value[]> tuples;
+      /** Runs that have been spilled to disk ({@code null} if tuples are kept in memory). */
+      private Runs runs;
+
       @Override
       public boolean next(final QueryContext ctx) throws QueryException {
         if(tpls == null) sort(ctx);
-        if(pos == tpls.length) return false;
-        final int p = perm[pos++];
-        final Value[] tuple = tpls[p];
-        // free the space occupied by the tuple
-        tpls[p] = null;
+        final Value[] tuple;
+        if(runs != null) {
+          tuple = pos++ < limit ? runs.next() : null;
+          if(tuple == null) {
+            runs.close();
+            return false;
+          }
+        } else {
+          if(pos == tpls.length) return false;
+          tuple = tpls[pos];
+          // free the space occupied by the tuple
+          tpls[pos++] = null;
+        }
         for(int i = 0; i < refs.length; i++) ctx.set(refs[i].var, tuple[i], info);
         return true;
       }
 
       /**
-       * Caches and sorts all incoming tuples.
+       * Caches and sorts all incoming tuples. If the number of buffered items exceeds
+       * {@link MainOptions#SPILLSIZE}, sorted runs are spilled to disk.
        * @param ctx query context
        * @throws QueryException evaluation exception
        */
       private void sort(final QueryContext ctx) throws QueryException {
-        // keys are stored at odd positions, values at even ones
-        List<Value[]> tuples = new ArrayList<Value[]>();
+        final long max = ctx.context.options.get(MainOptions.SPILLSIZE);
+        boolean spill = max > 0;
+        long items = 0;
+        ks = new SortKeys(keys);
+        tuples = new ArrayList<Value[]>();
         while(sub.next(ctx)) {
           final Item[] key = new Item[keys.length];
           for(int i = 0; i < keys.length; i++)
             key[i] = keys[i].expr.item(ctx, keys[i].info);
-          tuples.add(key);
-
           final Value[] vals = new Value[refs.length];
           for(int i = 0; i < refs.length; i++) vals[i] = refs[i].value(ctx);
+
+          if(spill && !(TupleFile.supported(key) && TupleFile.supported(vals))) {
+            // values cannot be spilled: keep all tuples in main memory
+            if(runs != null) {
+              spill(ctx, Long.MAX_VALUE);
+              runs.reload(ks, tuples);
+              runs = null;
+            }
+            spill = false;
+          }
+          ks.add(key);
           tuples.add(vals);
+          if(!spill) continue;
+
+          items += key.length;
+          for(final Value v : vals) items += v.size();
+          if(items > max) {
+            // discard tuples that will not be requested
+            if(limit < tuples.size()) items = prune();
+            if(items > max) {
+              spill(ctx, Long.MAX_VALUE);
+              items = 0;
+            }
+          }
         }
 
-        final int len = tuples.size() >>> 1;
-        final Item[][] ks = new Item[len][];
-        perm = new Integer[len];
-        tpls = new Value[len][];
-        for(int i = 0; i < len; i++) {
-          perm[i] = i;
-          tpls[i] = tuples.get(i << 1 | 1);
-          ks[i] = (Item[]) tuples.get(i << 1);
+        if(runs != null) {
+          if(!tuples.isEmpty()) spill(ctx, limit);
+          tpls = new Value[0][];
+        } else {
+          final int[] perm = ks.sort(limit);
+          final int len = perm.length;
+          tpls = new Value[len][];
+          for(int i = 0; i < len; i++) tpls[i] = tuples.get(perm[i]);
         }
-        // be nice to the garbage collector
+        ks = null;
         tuples = null;
-        try {
-          Arrays.sort(perm, new Comparator<Integer>() {
-            @Override
-            public int compare(final Integer x, final Integer y) {
-              try {
-                final Item[] a = ks[x], b = ks[y];
-                for(int k = 0; k < keys.length; k++) {
-                  final Key or = keys[k];
-                  Item m = a[k], n = b[k];
-                  if(m == Dbl.NAN || m == Flt.NAN) m = null;
-                  if(n == Dbl.NAN || n == Flt.NAN) n = null;
-                  if(m != null && n != null && !m.comparable(n))
-                    throw Err.castError(or.info, m.type, n);
-
-                  final int c = m == null
-                      ? n == null ? 0                 : or.least ? -1 : 1
-                      : n == null ? or.least ? 1 : -1 : m.diff(n, or.coll, or.info);
-                  if(c != 0) return or.desc ? -c : c;
-                }
-                return 0;
-              } catch(final QueryException ex) {
-                throw new QueryRTException(ex);
-              }
-            }
-          });
-        } catch(final QueryRTException ex) {
-          throw ex.getCause();
+      }
+
+      /**
+       * Sorts the buffered tuples and writes them to disk.
+       * @param ctx query context
+       * @param max maximum number of tuples to be written
+       * @throws QueryException evaluation exception
+       */
+      private void spill(final QueryContext ctx, final long max) throws QueryException {
+        if(runs == null) runs = new Runs(keys, refs.length, ctx, info);
+        runs.write(ks, tuples, ks.sort(max));
+        ks = new SortKeys(keys);
+        tuples = new ArrayList<Value[]>();
+      }
+
+      /**
+       * Sorts the buffered tuples and only keeps the ones that may be requested.
+       * @return number of remaining items
+       * @throws QueryException evaluation exception
+       */
+      private long prune() throws QueryException {
+        final int[] perm = ks.sort(limit);
+        final SortKeys nks = new SortKeys(keys);
+        final ArrayList<Value[]> ntuples = new ArrayList<Value[]>(perm.length);
+        long items = 0;
+        for(final int p : perm) {
+          final Value[] vals = tuples.get(p);
+          nks.add(ks.row(p));
+          ntuples.add(vals);
+          items += keys.length;
+          for(final Value v : vals) items += v.size();
         }
+        ks = nks;
+        tuples = ntuples;
+        return items;
       }
     };
   }
@@ -177,8 +224,10 @@ public final class OrderBy extends GFLWOR.Clause {
   @Override
   public OrderBy copy(final QueryContext ctx, final VarScope scp,
       final IntObjMap<Var> vs) {
-    return new OrderBy(Arr.copyAll(ctx, scp, vs, refs),
+    final OrderBy ob = new OrderBy(Arr.copyAll(ctx, scp, vs, refs),
         Arr.copyAll(ctx, scp, vs, keys), info);
+    ob.limit = limit;
+    return ob;
   }
 
   @Override
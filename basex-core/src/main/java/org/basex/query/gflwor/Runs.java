@@ -0,0 +1,174 @@
+package org.basex.query.gflwor;
+
+import java.util.*;
+
+import org.basex.query.*;
+import org.basex.query.gflwor.OrderBy.Key;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
+import org.basex.util.*;
+
+/**
+ * Sorted runs of an {@code order by} clause, which have been spilled to disk.
+ * Each run is stored in a {@link TupleFile}, and the runs are merged with a heap.
+ * If keys are equal, tuples of earlier runs are returned first.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class Runs {
+  /** Sort key definitions. */
+  private final Key[] keys;
+  /** Number of values per tuple. */
+  private final int values;
+  /** Query context. */
+  private final QueryContext ctx;
+  /** Input info. */
+  private final InputInfo info;
+  /** Runs. */
+  private final ArrayList<TupleFile> runs = new ArrayList<TupleFile>();
+
+  /** Heap with the indexes of the runs that have remaining tuples. */
+  private int[] heap;
+  /** Number of heap entries. */
+  private int hs;
+  /** Keys of the current tuples of all runs. */
+  private Item[][] currKeys;
+  /** Values of the current tuples of all runs. */
+  private Value[][] currVals;
+
+  /**
+   * Constructor.
+   * @param ks sort key definitions
+   * @param vs number of values per tuple
+   * @param qc query context
+   * @param ii input info
+   */
+  Runs(final Key[] ks, final int vs, final QueryContext qc, final InputInfo ii) {
+    keys = ks;
+    values = vs;
+    ctx = qc;
+    info = ii;
+  }
+
+  /**
+   * Writes the specified tuples as new run.
+   * @param ks sort keys
+   * @param tuples values of the tuples
+   * @param perm positions of the tuples in sorted order
+   * @throws QueryException query exception
+   */
+  void write(final SortKeys ks, final ArrayList<Value[]> tuples, final int[] perm)
+      throws QueryException {
+
+    final TupleFile tf = new TupleFile(ctx, info);
+    for(final int p : perm) {
+      for(final Item it : ks.row(p)) tf.write(it == null ? Empty.SEQ : it);
+      for(final Value v : tuples.get(p)) tf.write(v);
+    }
+    runs.add(tf);
+  }
+
+  /**
+   * Reads all runs back into main memory and deletes them.
+   * @param ks sort keys
+   * @param tuples values of the tuples
+   * @throws QueryException query exception
+   */
+  void reload(final SortKeys ks, final ArrayList<Value[]> tuples) throws QueryException {
+    final Item[] row = new Item[keys.length];
+    for(final TupleFile tf : runs) {
+      while(true) {
+        final Value[] vals = new Value[values];
+        if(!read(tf, row, vals)) break;
+        ks.add(row.clone());
+        tuples.add(vals);
+      }
+    }
+    runs.clear();
+  }
+
+  /**
+   * Returns the values of the next tuple in sorted order.
+   * @return values, or {@code null} if all tuples have been returned
+   * @throws QueryException query exception
+   */
+  Value[] next() throws QueryException {
+    if(heap == null) {
+      final int rs = runs.size();
+      heap = new int[rs];
+      currKeys = new Item[rs][keys.length];
+      currVals = new Value[rs][];
+      for(int r = 0; r < rs; r++) {
+        currVals[r] = new Value[values];
+        if(read(runs.get(r), currKeys[r], currVals[r])) heap[hs++] = r;
+      }
+      for(int i = (hs >>> 1) - 1; i >= 0; i--) down(i);
+    }
+    if(hs == 0) return null;
+
+    final int r = heap[0];
+    final Value[] vals = currVals[r];
+    currVals[r] = new Value[values];
+    if(!read(runs.get(r), currKeys[r], currVals[r])) heap[0] = heap[--hs];
+    down(0);
+    return vals;
+  }
+
+  /**
+   * Closes and deletes all runs.
+   */
+  void close() {
+    for(final TupleFile tf : runs) tf.close();
+    hs = 0;
+  }
+
+  /**
+   * Reads the next tuple of a run.
+   * @param tf run
+   * @param row keys
+   * @param vals values
+   * @return {@code true} if a tuple was read
+   * @throws QueryException query exception
+   */
+  private static boolean read(final TupleFile tf, final Item[] row, final Value[] vals)
+      throws QueryException {
+
+    for(int k = 0; k < row.length; k++) {
+      final Value v = tf.read();
+      if(v == null) return false;
+      row[k] = v.isEmpty() ? null : (Item) v;
+    }
+    for(int i = 0; i < vals.length; i++) vals[i] = tf.read();
+    return true;
+  }
+
+  /**
+   * Moves a heap entry down to its final position.
+   * @param p position of the entry
+   * @throws QueryException query exception
+   */
+  private void down(final int p) throws QueryException {
+    final int v = heap[p];
+    int i = p;
+    for(int c; (c = (i << 1) + 1) < hs; i = c) {
+      if(c + 1 < hs && smaller(heap[c + 1], heap[c])) c++;
+      if(!smaller(heap[c], v)) break;
+      heap[i] = heap[c];
+    }
+    heap[i] = v;
+  }
+
+  /**
+   * Checks if the current tuple of the first run is sorted before the one of the second run.
+   * @param x index of the first run
+   * @param y index of the second run
+   * @return result of check
+   * @throws QueryException query exception
+   */
+  private boolean smaller(final int x, final int y) throws QueryException {
+    final int c = SortKeys.compare(keys, currKeys[x], currKeys[y]);
+    return c < 0 || c == 0 && x < y;
+  }
+}
@@ -0,0 +1,314 @@
+package org.basex.query.gflwor;
+
+import java.util.*;
+
+import org.basex.query.*;
+import org.basex.query.gflwor.OrderBy.Key;
+import org.basex.query.util.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+
+/**
+ * Sort keys of the tuples of an {@code order by} clause.
+ *
+ * The keys are stored in columns. If all keys of a column have the same type,
+ * they are converted to primitive integers, doubles or tokens, which can be compared
+ * without invoking the generic item comparison. Tuples are sorted by a stable merge sort
+ * on a primitive permutation array. If only the first tuples are requested,
+ * a bounded heap is used instead.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class SortKeys {
+  /** Generic keys. */
+  private static final int ITEM = 0;
+  /** Integer keys. */
+  private static final int LONG = 1;
+  /** Double keys. */
+  private static final int DOUBLE = 2;
+  /** String keys. */
+  private static final int TOKEN = 3;
+
+  /** Sort key definitions. */
+  private final Key[] keys;
+  /** Sort key columns. */
+  private Item[][] items;
+  /** Number of tuples. */
+  private int size;
+
+  /** Column types. */
+  private int[] kinds;
+  /** Flags for empty keys (empty sequences and {@code NaN}). */
+  private boolean[][] empty;
+  /** Integer columns. */
+  private long[][] longs;
+  /** Double columns. */
+  private double[][] doubles;
+  /** String columns. */
+  private byte[][][] tokens;
+
+  /**
+   * Constructor.
+   * @param ks sort key definitions
+   */
+  SortKeys(final Key[] ks) {
+    keys = ks;
+    items = new Item[ks.length][Array.CAPACITY];
+  }
+
+  /**
+   * Adds the keys of a tuple.
+   * @param row keys
+   */
+  void add(final Item[] row) {
+    final int kl = keys.length;
+    if(size == items[0].length) {
+      final int s = Array.newSize(size);
+      for(int k = 0; k < kl; k++) items[k] = Arrays.copyOf(items[k], s);
+    }
+    for(int k = 0; k < kl; k++) items[k][size] = row[k];
+    size++;
+  }
+
+  /**
+   * Returns the keys of a tuple.
+   * @param i position of the tuple
+   * @return keys
+   */
+  Item[] row(final int i) {
+    final int kl = keys.length;
+    final Item[] row = new Item[kl];
+    for(int k = 0; k < kl; k++) row[k] = items[k][i];
+    return row;
+  }
+
+  /**
+   * Returns the positions of the tuples in sorted order.
+   * @param limit maximum number of positions to be returned
+   * @return positions
+   * @throws QueryException query exception
+   */
+  int[] sort(final long limit) throws QueryException {
+    columns();
+    final int[] perm;
+    if(limit < size) {
+      perm = top((int) limit);
+    } else {
+      perm = new int[size];
+      for(int i = 0; i < size; i++) perm[i] = i;
+    }
+    sort(perm, perm.clone(), 0, perm.length);
+    return perm;
+  }
+
+  /**
+   * Compares the keys of two tuples.
+   * @param keys sort key definitions
+   * @param a keys of the first tuple
+   * @param b keys of the second tuple
+   * @return result of comparison
+   * @throws QueryException query exception
+   */
+  static int compare(final Key[] keys, final Item[] a, final Item[] b)
+      throws QueryException {
+
+    for(int k = 0; k < keys.length; k++) {
+      final Key key = keys[k];
+      Item m = a[k], n = b[k];
+      if(m == Dbl.NAN || m == Flt.NAN) m = null;
+      if(n == Dbl.NAN || n == Flt.NAN) n = null;
+      if(m != null && n != null && !m.comparable(n)) throw Err.castError(key.info, m.type, n);
+
+      final int c = m == null
+          ? n == null ? 0                  : key.least ? -1 : 1
+          : n == null ? key.least ? 1 : -1 : m.diff(n, key.coll, key.info);
+      if(c != 0) return key.desc ? -c : c;
+    }
+    return 0;
+  }
+
+  /**
+   * Converts the keys to typed columns.
+   * @throws QueryException query exception
+   */
+  private void columns() throws QueryException {
+    final int kl = keys.length;
+    kinds = new int[kl];
+    empty = new boolean[kl][size];
+    longs = new long[kl][];
+    doubles = new double[kl][];
+    tokens = new byte[kl][][];
+
+    for(int k = 0; k < kl; k++) {
+      final Item[] col = items[k];
+      final boolean[] emp = empty[k];
+      final Key key = keys[k];
+
+      // check if all keys are comparable, and if they can be converted to a primitive type
+      Item first = null;
+      boolean lng = true, dbl = true, tok = key.coll == null;
+      for(int i = 0; i < size; i++) {
+        final Item it = col[i];
+        if(it == null || it == Dbl.NAN || it == Flt.NAN) {
+          emp[i] = true;
+          continue;
+        }
+        if(first == null) first = it;
+        else if(!first.comparable(it)) throw Err.castError(key.info, first.type, it);
+        lng &= it instanceof Int;
+        dbl &= it instanceof Dbl;
+        tok &= it.type.isStringOrUntyped();
+      }
+      if(first == null) continue;
+
+      if(lng) {
+        final long[] l = new long[size];
+        for(int i = 0; i < size; i++) if(!emp[i]) l[i] = col[i].itr(key.info);
+        longs[k] = l;
+        kinds[k] = LONG;
+      } else if(dbl) {
+        final double[] d = new double[size];
+        for(int i = 0; i < size; i++) {
+          if(emp[i]) continue;
+          d[i] = col[i].dbl(key.info);
+          emp[i] = Double.isNaN(d[i]);
+        }
+        doubles[k] = d;
+        kinds[k] = DOUBLE;
+      } else if(tok) {
+        final byte[][] t = new byte[size][];
+        for(int i = 0; i < size; i++) if(!emp[i]) t[i] = col[i].string(key.info);
+        tokens[k] = t;
+        kinds[k] = TOKEN;
+      }
+    }
+  }
+
+  /**
+   * Returns the positions of the specified number of smallest tuples.
+   * The positions are selected via a bounded max-heap and returned in ascending order.
+   * @param k number of tuples
+   * @return positions
+   * @throws QueryException query exception
+   */
+  private int[] top(final int k) throws QueryException {
+    final int[] heap = new int[k];
+    if(k == 0) return heap;
+    for(int i = 0; i < k; i++) heap[i] = i;
+    for(int i = (k >>> 1) - 1; i >= 0; i--) down(heap, i);
+    // replace largest tuple with smaller ones; later tuples are larger if keys are equal
+    for(int i = k; i < size; i++) {
+      if(compare(i, heap[0]) < 0) {
+        heap[0] = i;
+        down(heap, 0);
+      }
+    }
+    Arrays.sort(heap);
+    return heap;
+  }
+
+  /**
+   * Moves a heap entry down to its final position.
+   * @param heap heap
+   * @param p position of the entry
+   * @throws QueryException query exception
+   */
+  private void down(final int[] heap, final int p) throws QueryException {
+    final int hs = heap.length, v = heap[p];
+    int i = p;
+    for(int c; (c = (i << 1) + 1) < hs; i = c) {
+      if(c + 1 < hs && larger(heap[c + 1], heap[c])) c++;
+      if(!larger(heap[c], v)) break;
+      heap[i] = heap[c];
+    }
+    heap[i] = v;
+  }
+
+  /**
+   * Checks if the first tuple is sorted after the second one.
+   * If the keys are equal, the original order is considered.
+   * @param x position of the first tuple
+   * @param y position of the second tuple
+   * @return result of check
+   * @throws QueryException query exception
+   */
+  private boolean larger(final int x, final int y) throws QueryException {
+    final int c = compare(x, y);
+    return c > 0 || c == 0 && x > y;
+  }
+
+  /**
+   * Sorts the specified range of positions (stable merge sort).
+   * @param perm positions to be sorted
+   * @param tmp temporary array, containing the same positions
+   * @param s start of the range
+   * @param e end of the range
+   * @throws QueryException query exception
+   */
+  private void sort(final int[] perm, final int[] tmp, final int s, final int e)
+      throws QueryException {
+
+    // insertion sort for small ranges
+    if(e - s < 7) {
+      for(int i = s + 1; i < e; i++) {
+        for(int j = i; j > s && compare(perm[j - 1], perm[j]) > 0; j--) {
+          final int t = perm[j];
+          perm[j] = perm[j - 1];
+          perm[j - 1] = t;
+        }
+      }
+      return;
+    }
+
+    // sort both halves, using the target array as temporary array
+    final int m = s + e >>> 1;
+    sort(tmp, perm, s, m);
+    sort(tmp, perm, m, e);
+    // merge halves
+    if(compare(tmp[m - 1], tmp[m]) <= 0) {
+      System.arraycopy(tmp, s, perm, s, e - s);
+      return;
+    }
+    for(int i = s, p = s, q = m; i < e; i++) {
+      perm[i] = q >= e || p < m && compare(tmp[p], tmp[q]) <= 0 ? tmp[p++] : tmp[q++];
+    }
+  }
+
+  /**
+   * Compares the keys of two tuples.
+   * @param x position of the first tuple
+   * @param y position of the second tuple
+   * @return result of comparison
+   * @throws QueryException query exception
+   */
+  private int compare(final int x, final int y) throws QueryException {
+    final int kl = keys.length;
+    for(int k = 0; k < kl; k++) {
+      final Key key = keys[k];
+      final boolean ex = empty[k][x], ey = empty[k][y];
+      final int c;
+      if(ex || ey) {
+        c = ex == ey ? 0 : ex == key.least ? -1 : 1;
+      } else {
+        switch(kinds[k]) {
+          case LONG:
+            final long l1 = longs[k][x], l2 = longs[k][y];
+            c = l1 < l2 ? -1 : l1 > l2 ? 1 : 0;
+            break;
+          case DOUBLE:
+            final double d1 = doubles[k][x], d2 = doubles[k][y];
+            c = d1 < d2 ? -1 : d1 > d2 ? 1 : 0;
+            break;
+          case TOKEN:
+            c = Token.diff(tokens[k][x], tokens[k][y]);
+            break;
+          default:
+            c = items[k][x].diff(items[k][y], key.coll, key.info);
+        }
+      }
+      if(c != 0) return key.desc ? -c : c;
+    }
+    return 0;
+  }
+}
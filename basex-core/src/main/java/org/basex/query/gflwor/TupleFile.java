@@ -0,0 +1,219 @@
+package org.basex.query.gflwor;
+
+import static org.basex.query.util.Err.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * Temporary file, which stores the values of tuples that are spilled to disk by
+ * {@code order by} and {@code group by} clauses. Atomic items of the most common types
+ * and database nodes are supported; database nodes are stored as references.
+ * The file is written once, and then read once in the original order. It is closed
+ * when all values have been read, or when the query is closed.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class TupleFile implements Closeable {
+  /** Tag for database nodes. */
+  private static final int NODE = 0;
+
+  /** Query context. */
+  private final QueryContext ctx;
+  /** Input info. */
+  private final InputInfo info;
+  /** Temporary file. */
+  private final IOFile file;
+  /** Referenced databases. */
+  private final ArrayList<Data> datas = new ArrayList<Data>();
+  /** Output stream ({@code null} if the file has been completely written). */
+  private DataOutput out;
+  /** Input stream ({@code null} if the file is not being read). */
+  private DataInput in;
+  /** Number of written values. */
+  private long written;
+  /** Number of read values. */
+  private long read;
+
+  /**
+   * Constructor, creating the temporary file.
+   * @param qc query context
+   * @param ii input info
+   * @throws QueryException query exception
+   */
+  TupleFile(final QueryContext qc, final InputInfo ii) throws QueryException {
+    ctx = qc;
+    info = ii;
+    file = qc.resource.temp(this);
+    try {
+      out = new DataOutput(file);
+    } catch(final IOException ex) {
+      throw IOERR.get(info, ex);
+    }
+  }
+
+  /**
+   * Checks if the specified values can be stored in a tuple file.
+   * @param values values ({@code null} references will be ignored)
+   * @return result of check
+   */
+  static boolean supported(final Value... values) {
+    for(final Value v : values) {
+      if(v == null) continue;
+      for(final Item it : v) {
+        if(!(it instanceof DBNode || it instanceof Int || it instanceof Dbl ||
+            it instanceof Flt || it instanceof Dec || it instanceof Bln || it instanceof Str ||
+            it instanceof Atm || it instanceof ADate || it instanceof Dur || it instanceof Uri))
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes a value.
+   * @param value value
+   * @throws QueryException query exception
+   */
+  void write(final Value value) throws QueryException {
+    try {
+      out.writeNum((int) value.size());
+      for(final Item it : value) {
+        if(it instanceof DBNode) {
+          final DBNode n = (DBNode) it;
+          int d = datas.indexOf(n.data);
+          if(d == -1) {
+            d = datas.size();
+            datas.add(n.data);
+          }
+          out.write(NODE);
+          out.writeNum(d);
+          out.writeNum(n.pre);
+          continue;
+        }
+        out.write(it.type.id().asByte());
+        if(it instanceof Int) {
+          write8(it.itr(info));
+        } else if(it instanceof Dbl) {
+          write8(Double.doubleToRawLongBits(it.dbl(info)));
+        } else if(it instanceof Flt) {
+          out.write4(Float.floatToRawIntBits(it.flt(info)));
+        } else if(it instanceof Bln) {
+          out.writeBool(it.bool(info));
+        } else {
+          out.writeToken(it.string(info));
+        }
+      }
+      written++;
+    } catch(final IOException ex) {
+      throw IOERR.get(info, ex);
+    }
+  }
+
+  /**
+   * Reads the next value. The first call finishes the output.
+   * @return value, or {@code null} if all values have been read
+   * @throws QueryException query exception
+   */
+  Value read() throws QueryException {
+    try {
+      if(in == null) {
+        if(read == written) return null;
+        out.close();
+        in = new DataInput(file);
+      }
+      if(read == written) {
+        close();
+        return null;
+      }
+      read++;
+
+      final int s = in.readNum();
+      final ValueBuilder vb = new ValueBuilder(s);
+      for(int i = 0; i < s; i++) {
+        final int tag = in.read();
+        if(tag == NODE) {
+          final Data data = datas.get(in.readNum());
+          vb.add(new DBNode(data, in.readNum()));
+          continue;
+        }
+        final Type type = Type.ID.getType((byte) tag);
+        if(type.instanceOf(AtomType.ITR)) {
+          vb.add(Int.get(read8(), type));
+        } else if(type == AtomType.DBL) {
+          vb.add(Dbl.get(Double.longBitsToDouble(read8())));
+        } else if(type == AtomType.FLT) {
+          vb.add(Flt.get(Float.intBitsToFloat(read4())));
+        } else if(type == AtomType.BLN) {
+          vb.add(Bln.get(in.readBool()));
+        } else if(type == AtomType.ATM) {
+          vb.add(new Atm(in.readToken()));
+        } else if(type.instanceOf(AtomType.STR)) {
+          vb.add(new Str(in.readToken(), (AtomType) type));
+        } else {
+          vb.add(type.cast(Str.get(in.readToken()), ctx, null, info));
+        }
+      }
+      return vb.value();
+    } catch(final IOException ex) {
+      throw IOERR.get(info, ex);
+    }
+  }
+
+  /**
+   * Closes all streams and deletes the file.
+   */
+  @Override
+  public void close() {
+    try {
+      if(out != null) out.close();
+      if(in != null) in.close();
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+    out = null;
+    in = null;
+    file.delete();
+  }
+
+  /**
+   * Writes a long value.
+   * @param v value
+   * @throws IOException I/O exception
+   */
+  private void write8(final long v) throws IOException {
+    out.write4((int) (v >>> 32));
+    out.write4((int) v);
+  }
+
+  /**
+   * Reads a long value.
+   * @return value
+   * @throws IOException I/O exception
+   */
+  private long read8() throws IOException {
+    return (long) read4() << 32 | read4() & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Reads an integer value.
+   * @return value
+   * @throws IOException I/O exception
+   */
+  private int read4() throws IOException {
+    return in.read() << 24 | in.read() << 16 | in.read() << 8 | in.read();
+  }
+}
@@ -12,4 +12,17 @@ import org.basex.query.value.node.*;
 public abstract class FTIter extends Iter {
   @Override
   public abstract FTNode next() throws QueryException;
+
+  /**
+   * Returns the next node with a pre value that is equal to or greater than the
+   * specified value. Iterators can overwrite this method to skip nodes without
+   * computing them.
+   * @param pre pre value
+   * @return node or {@code null}
+   * @throws QueryException query exception
+   */
+  public FTNode next(final int pre) throws QueryException {
+    for(FTNode n; (n = next()) != null;) if(n.pre >= pre) return n;
+    return null;
+  }
 }
@@ -141,26 +141,31 @@ public abstract class AxisPath extends Path {
     // cheapest predicate and step
     int pmin = 0;
     int smin = 0;
+    // predicates, including comparisons that can be evaluated by a composite index
+    final Expr[][] merged = new Expr[steps.length][];
 
     // check if path can be converted to an index access
     for(int s = 0; s < steps.length; ++s) {
       // find cheapest index access
       final Step stp = step(s);
       if(!stp.axis.down) break;
+      // merge comparisons that can be evaluated by a composite index
+      final Expr[] preds = CmpComposite.merge(stp, data);
+      merged[s] = preds;
 
       // check if resulting index path will be duplicate free
       final boolean i = pathNodes(data, s) != null;
       final IndexContext ictx = new IndexContext(data, i);
 
       // choose cheapest index access
-      for(int p = 0; p < stp.preds.length; ++p) {
+      for(int p = 0; p < preds.length; ++p) {
         final IndexCosts ic = new IndexCosts(ictx, ctx, stp);
-        if(!stp.preds[p].indexAccessible(ic)) continue;
+        if(!preds[p].indexAccessible(ic)) continue;
 
         if(ic.costs() == 0) {
           if(ic.not) {
             // not operator... accept all results
-            stp.preds[p] = Bln.TRUE;
+            preds[p] = Bln.TRUE;
             continue;
           }
           // no results...
@@ -180,7 +185,16 @@ public abstract class AxisPath extends Path {
 
     // replace expressions for index access
     final Step stp = step(smin);
-    final Expr ie = stp.preds[pmin].indexEquivalent(ics);
+    final Expr pr = merged[smin][pmin];
+    if(pr instanceof CmpComposite) {
+      // composite index access: adopt merged comparisons
+      stp.preds = merged[smin];
+    } else {
+      // keep original predicates
+      pmin = 0;
+      while(stp.preds[pmin] != pr) pmin++;
+    }
+    final Expr ie = pr.indexEquivalent(ics);
 
     if(ics.seq) {
       // sequential evaluation; do not invert path
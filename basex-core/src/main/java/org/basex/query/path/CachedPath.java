@@ -21,8 +21,6 @@ import org.basex.util.hash.*;
 final class CachedPath extends AxisPath {
   /** Flag for result caching. */
   private boolean cache;
-  /** Cached result. */
-  private NodeSeqBuilder citer;
   /** Last visited item. */
   private Value lvalue;
 
@@ -59,7 +57,7 @@ final class CachedPath extends AxisPath {
        * - the code is called for the first time
        * - the value has changed and the underlying node is not the same
        */
-      citer = new NodeSeqBuilder().check();
+      final NodeSeqBuilder citer = new NodeSeqBuilder().check();
       if(r != null) {
         final Iter ir = ctx.iter(r);
         for(Item it; (it = ir.next()) != null;) {
@@ -113,7 +111,6 @@ final class CachedPath extends AxisPath {
     final CachedPath ap = copyType(
         new CachedPath(info, root == null ? null : root.copy(ctx, scp, vs), stps));
     ap.cache = cache;
-    if(citer != null) ap.citer = citer.copy();
     if(lvalue != null) ap.lvalue = lvalue;
     return ap;
   }
@@ -90,10 +90,10 @@ public final class NameTest extends Test {
       // namespaces wildcard: only check local name
       case LN: return Token.eq(ln, Token.local(node.name()));
       // name wildcard: only check namespace
-      case NS: return Token.eq(name.uri(), node.qname(tmpq).uri());
+      case NS: return Token.eq(name.uri(), node.qname(TMPQ.get()).uri());
       // check attributes, or check everything
       default: return type == NodeType.ATT && !name.hasURI() ?
-        Token.eq(ln, node.name()) : name.eq(node.qname(tmpq));
+        Token.eq(ln, node.name()) : name.eq(node.qname(TMPQ.get()));
     }
   }
 
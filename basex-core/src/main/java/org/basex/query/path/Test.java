@@ -48,8 +48,13 @@ public abstract class Test {
   /** Name test. Set to {@code null} for other kind tests. */
   public QNm name;
 
-  /** Mutable QName instance. */
-  final QNm tmpq = new QNm();
+  /** Mutable QName instances (tests may be evaluated by several threads). */
+  static final ThreadLocal<QNm> TMPQ = new ThreadLocal<QNm>() {
+    @Override
+    protected QNm initialValue() {
+      return new QNm();
+    }
+  };
 
   /**
    * Returns a test instance.
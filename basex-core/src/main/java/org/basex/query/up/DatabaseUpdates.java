@@ -155,7 +155,11 @@ final class DatabaseUpdates {
    * @throws QueryException query exception
    */
   void startUpdate() throws QueryException {
-    if(!data.startUpdate()) throw BXDB_OPENED.get(null, data.meta.name);
+    try {
+      if(!data.startUpdate()) throw BXDB_OPENED.get(null, data.meta.name);
+    } catch(final IOException ex) {
+      throw UPDBOPTERR.get(null, ex);
+    }
   }
 
   /**
@@ -79,7 +79,11 @@ public final class DBCreate extends DBNew {
 
     // add initial documents
     if(md != null) {
-      if(!data.startUpdate()) throw BXDB_OPENED.get(null, data.meta.name);
+      try {
+        if(!data.startUpdate()) throw BXDB_OPENED.get(null, data.meta.name);
+      } catch(final IOException ex) {
+        throw UPDBOPTERR.get(info, ex);
+      }
       data.insert(data.meta.size, -1, new DataClip(md));
       try {
         Optimize.optimize(data, false, null);
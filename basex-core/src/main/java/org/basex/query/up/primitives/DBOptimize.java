@@ -55,13 +55,16 @@ public final class DBOptimize extends DBNew {
     nprops.put(MainOptions.TEXTINDEX, meta.createtext);
     nprops.put(MainOptions.ATTRINDEX, meta.createattr);
     nprops.put(MainOptions.FTINDEX,   meta.createftxt);
+    nprops.put(MainOptions.NUMINDEX,  meta.numindex);
     initOptions();
     assignOptions();
 
     final boolean rebuild = opts.get(MainOptions.MAXCATS) != meta.maxcats ||
-        opts.get(MainOptions.MAXLEN) != meta.maxlen;
+        opts.get(MainOptions.MAXLEN) != meta.maxlen ||
+        opts.get(MainOptions.NUMINDEX) != meta.numindex;
     meta.maxcats = opts.get(MainOptions.MAXCATS);
     meta.maxlen  = opts.get(MainOptions.MAXLEN);
+    meta.numindex = opts.get(MainOptions.NUMINDEX);
     meta.createtext = opts.get(MainOptions.TEXTINDEX);
     meta.createattr = opts.get(MainOptions.ATTRINDEX);
     meta.createftxt = opts.get(MainOptions.FTINDEX);
@@ -1,8 +1,11 @@
 package org.basex.query.util;
 
+import org.basex.index.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.path.*;
+import org.basex.query.path.Test.Mode;
+import org.basex.query.value.type.*;
 import org.basex.util.*;
 
 /**
@@ -69,6 +72,39 @@ public final class IndexCosts {
     return path;
   }
 
+  /**
+   * Checks if the values of the nodes addressed by the specified expression are
+   * included in the text or attribute index. If the indexed names are restricted,
+   * the expression must address texts of elements or attributes with included names.
+   * @param ex expression (context reference or location path)
+   * @param text text or attribute index
+   * @return result of check
+   */
+  public boolean includes(final Expr ex, final boolean text) {
+    final IndexNames names = new IndexNames(ictx.data, text);
+    if(names.all()) return true;
+
+    final Step s;
+    if(ex instanceof Context) {
+      // attribute step; texts of the parent step are unknown
+      if(text) return false;
+      s = step;
+    } else {
+      final AxisPath path = (AxisPath) ex;
+      final int st = path.steps.length;
+      if(text) {
+        // texts must be children of the element step
+        if(!path.step(st - 1).axis(Axis.CHILD)) return false;
+        s = st == 1 ? step : path.step(st - 2);
+      } else {
+        s = path.step(st - 1);
+      }
+    }
+    final Test t = s.test;
+    return (t.mode == Mode.LN || t.mode == Mode.STD) && t.name != null &&
+        t.type == (text ? NodeType.ELM : NodeType.ATT) && names.contains(t.name);
+  }
+
   /**
    * Adds the estimated costs.
    * @param c cost to be added
@@ -0,0 +1,99 @@
+package org.basex.query.util;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.query.*;
+import org.basex.query.value.*;
+import org.basex.util.*;
+
+/**
+ * This class evaluates a number of independent tasks in parallel.
+ *
+ * The tasks are distributed to the specified number of threads, including the
+ * calling thread. Each thread uses a separate {@link QueryContext#worker() worker
+ * context}. The results are returned in the order of the tasks. If a task fails,
+ * the remaining tasks are skipped, and the first error is passed on.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public abstract class Parallel {
+  /** Thread pool, creating new daemon threads if required. */
+  private static final ExecutorService POOL = Executors.newCachedThreadPool(
+    new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread th = new Thread(r, Util.className(Parallel.class));
+        th.setDaemon(true);
+        return th;
+      }
+    });
+
+  /**
+   * Evaluates the specified number of tasks.
+   * @param tasks number of tasks
+   * @param threads maximum number of threads
+   * @param ctx query context
+   * @return results
+   * @throws QueryException query exception
+   */
+  public final Value[] eval(final int tasks, final int threads, final QueryContext ctx)
+      throws QueryException {
+
+    final Value[] results = new Value[tasks];
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+    // worker contexts are created in the calling thread
+    final int ts = Math.max(1, Math.min(threads, tasks));
+    final Future<?>[] futures = new Future<?>[ts - 1];
+    final Runnable[] runners = new Runnable[ts];
+    for(int t = 0; t < ts; t++) {
+      final QueryContext qc = ctx.worker();
+      runners[t] = new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for(int i; error.get() == null && (i = next.getAndIncrement()) < tasks;) {
+              ctx.checkStop();
+              results[i] = task(i, qc);
+            }
+          } catch(final Throwable th) {
+            error.compareAndSet(null, th);
+          }
+        }
+      };
+    }
+    for(int t = 1; t < ts; t++) futures[t - 1] = POOL.submit(runners[t]);
+    runners[0].run();
+
+    // wait for remaining threads
+    for(final Future<?> f : futures) {
+      try {
+        f.get();
+      } catch(final InterruptedException ex) {
+        error.compareAndSet(null, ex);
+      } catch(final ExecutionException ex) {
+        error.compareAndSet(null, ex.getCause());
+      }
+    }
+
+    final Throwable th = error.get();
+    if(th instanceof QueryException) throw (QueryException) th;
+    if(th instanceof RuntimeException) throw (RuntimeException) th;
+    if(th instanceof Error) throw (Error) th;
+    if(th != null) throw Util.notExpected(th);
+    return results;
+  }
+
+  /**
+   * Evaluates a single task.
+   * @param task index of the task
+   * @param qc worker context
+   * @return result
+   * @throws QueryException query exception
+   */
+  protected abstract Value task(final int task, final QueryContext qc)
+      throws QueryException;
+}
@@ -58,6 +58,24 @@ public final class QueryStack {
     }
   }
 
+  /**
+   * Returns a copy of the bindings of the current stack frame.
+   * @return bindings
+   */
+  public Value[] frame() {
+    final Value[] frame = new Value[sl - fp];
+    System.arraycopy(stack, fp, frame, 0, frame.length);
+    return frame;
+  }
+
+  /**
+   * Replaces the bindings of the current stack frame.
+   * @param frame bindings, as returned by {@link #frame()}
+   */
+  public void frame(final Value[] frame) {
+    System.arraycopy(frame, 0, stack, fp, frame.length);
+  }
+
   /**
    * Calculates the position of the given variable on the stack.
    * @param v variable
@@ -99,12 +99,13 @@ public final class StaticVar extends StaticDecl {
   }
 
   /**
-   * Evaluates this variable lazily.
+   * Evaluates this variable lazily. Evaluation is synchronized, as the variable may be
+   * referenced by expressions that are evaluated in parallel.
    * @param ctx query context
    * @return value of this variable
    * @throws QueryException query exception
    */
-  public Value value(final QueryContext ctx) throws QueryException {
+  public synchronized Value value(final QueryContext ctx) throws QueryException {
     if(dontEnter) throw circVarError(this);
     if(lazy) {
       if(!compiled) throw Util.notExpected(this + " was not compiled.");
@@ -152,6 +153,32 @@ public final class StaticVar extends StaticDecl {
     return bind(e, true, ctx, info);
   }
 
+  /**
+   * Replaces the value of a compiled external variable.
+   * @param e value to bind
+   * @param ctx query context
+   * @return {@code false} if the value does not match the type that was assumed at
+   *   compile time
+   * @throws QueryException query exception
+   */
+  boolean rebind(final Expr e, final QueryContext ctx) throws QueryException {
+    if(!external || !compiled || !(e instanceof Value)) return false;
+    final SeqType st = type();
+    Value v = (Value) e;
+    if(declType != null && !declType.instance(v)) v = declType.cast(v, ctx, sc, info, e);
+    if(!st.instance(v)) return false;
+    bind(v);
+    return true;
+  }
+
+  /**
+   * Indicates if this variable can be bound from outside the query.
+   * @return result of check
+   */
+  public boolean external() {
+    return external;
+  }
+
   /**
    * Binds the specified expression to the variable.
    * @param e expression to be set
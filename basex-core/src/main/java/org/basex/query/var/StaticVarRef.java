@@ -45,7 +45,8 @@ public final class StaticVarRef extends ParseExpr {
   public Expr compile(final QueryContext ctx, final VarScope o) throws QueryException {
     var.compile(ctx);
     type = var.type();
-    return var.value != null ? var.value : this;
+    // values of external variables of prepared queries may be replaced later on
+    return var.value != null && !(ctx.prepared && var.external()) ? var.value : this;
   }
 
   @Override
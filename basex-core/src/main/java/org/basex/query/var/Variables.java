@@ -141,6 +141,20 @@ public final class Variables extends ExprInfo implements Iterable<StaticVar> {
     }
   }
 
+  /**
+   * Replaces the value of an external variable of a compiled query.
+   * @param nm variable name
+   * @param e value to be bound
+   * @param ctx query context
+   * @return {@code false} if the value cannot be bound without compiling the query again
+   * @throws QueryException query exception
+   */
+  public boolean rebind(final QNm nm, final Expr e, final QueryContext ctx)
+      throws QueryException {
+    final VarEntry ve = vars.get(nm);
+    return ve == null || ve.var == null || ve.var.rebind(e, ctx);
+  }
+
   @Override
   public Iterator<StaticVar> iterator() {
     final Iterator<Entry<QNm, VarEntry>> iter = vars.entrySet().iterator();
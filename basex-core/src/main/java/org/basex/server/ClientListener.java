@@ -5,7 +5,10 @@ import static org.basex.util.Token.*;
 
 import java.io.*;
 import java.net.*;
-import java.util.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import org.basex.*;
 import org.basex.core.*;
@@ -20,27 +23,42 @@ import org.basex.util.list.*;
 /**
  * Server-side client session in the client-server architecture.
  *
+ * <p>A session does not own a thread. The greeting is sent by the selector thread of
+ * the server, which also buffers the incoming data (see {@link RequestInput}).
+ * As soon as a request has been completely received, the session is dispatched
+ * to the worker threads of the server, authenticates the client or processes the
+ * pending requests, and is then returned to the server in order to wait for the
+ * next request.</p>
+ *
  * @author BaseX Team 2005-13, BSD License
  * @author Andreas Weiler
  * @author Christian Gruen
  */
-public final class ClientListener extends Thread {
-  /** Timer for authentication time out. */
-  public final Timer auth = new Timer();
+public final class ClientListener implements Runnable {
+  /** Session id counter. */
+  private static final AtomicLong IDS = new AtomicLong();
   /** Timestamp of last interaction. */
-  public long last;
+  public volatile long last;
 
   /** Active queries. */
-  private final HashMap<String, QueryListener> queries =
-    new HashMap<String, QueryListener>();
+  private final ConcurrentHashMap<String, QueryListener> queries =
+    new ConcurrentHashMap<String, QueryListener>();
+  /** Cache for compiled queries. */
+  private final PlanCache plans;
   /** Performance measurement. */
   private final Performance perf = new Performance();
   /** Database context. */
   private final Context context;
   /** Server reference. */
   private final BaseXServer server;
+  /** Socket channel. */
+  private final SocketChannel channel;
   /** Socket reference. */
   private final Socket socket;
+  /** Buffered client data. */
+  private final RequestInput input;
+  /** Session id. */
+  private final long sid = IDS.incrementAndGet();
 
   /** Socket for events. */
   private Socket esocket;
@@ -56,117 +74,208 @@ public final class ClientListener extends Thread {
   private Command command;
   /** Query id counter. */
   private int id;
-  /** Indicates if the server thread is running. */
-  private boolean running;
+  /** Timestamp sent to the client for authentication. */
+  private String ts;
+  /** Indicates if the session is authenticated and running. */
+  private volatile boolean running;
+  /** Indicates if results are sent as length-prefixed chunks. */
+  private boolean chunks;
 
   /**
    * Constructor.
-   * @param s socket
+   * @param ch socket channel
    * @param c database context
    * @param srv server reference
    */
-  public ClientListener(final Socket s, final Context c, final BaseXServer srv) {
+  public ClientListener(final SocketChannel ch, final Context c, final BaseXServer srv) {
     context = new Context(c, this);
-    socket = s;
+    plans = new PlanCache(context);
+    channel = ch;
+    socket = ch.socket();
+    input = new RequestInput(ch);
     server = srv;
     last = System.currentTimeMillis();
-    setDaemon(true);
+  }
+
+  /**
+   * Returns the channel of this session.
+   * @return socket channel
+   */
+  public SocketChannel channel() {
+    return channel;
+  }
+
+  /**
+   * Returns the id of this session.
+   * @return id
+   */
+  public long getId() {
+    return sid;
+  }
+
+  /**
+   * Sends a timestamp to the client, which is needed for authentication.
+   * This method is called by the selector thread of the server; the channel is
+   * non-blocking, and the timestamp fits into the empty socket buffer.
+   * @throws IOException I/O exception
+   */
+  public void greet() throws IOException {
+    // remaining bytes of large requests are read with a timeout
+    final int ka = context.globalopts.get(GlobalOptions.KEEPALIVE);
+    if(ka > 0) socket.setSoTimeout(ka * 1000);
+
+    ts = Long.toString(System.nanoTime());
+    // send {TIMESTAMP}0
+    final ByteBuffer bb = ByteBuffer.wrap(new ByteList().add(token(ts)).add(0).toArray());
+    while(bb.hasRemaining()) {
+      if(channel.write(bb) == 0) throw new IOException("Timestamp could not be sent.");
+    }
+  }
+
+  /**
+   * Reads the available client data. This method is called by the selector thread
+   * of the server.
+   * @return {@code true} if the session needs to be dispatched to a worker thread
+   */
+  public boolean fill() {
+    last = System.currentTimeMillis();
+    return input.fill();
   }
 
   @Override
   public void run() {
-    if(!authenticate()) return;
-
     try {
-      while(running) {
+      // the channel must be blocking while it is processed by a worker thread
+      channel.configureBlocking(true);
+      if(in == null) {
+        in = new BufferInput(input);
+        out = PrintOutput.get(socket.getOutputStream());
+      }
+      if(!running && !authenticate()) {
+        socket.close();
+        return;
+      }
+      // process all requests that have been completely received
+      while(running && (in.buffered() > 0 || input.requests())) request();
+
+      // wait for next request
+      if(socket.isClosed()) return;
+      input.resume();
+      channel.configureBlocking(false);
+      server.idle(this);
+    } catch(final IOException ex) {
+      if(running) {
+        log(ex, false);
         command = null;
-        String cmd;
-        final ServerCmd sc;
+        quit();
+      } else {
+        // socket has been closed while waiting for authentication
         try {
-          final int b = in.read();
-          if(b == -1) {
-            // end of stream: exit session
-            quit();
-            break;
-          }
-
-          last = System.currentTimeMillis();
-          perf.time();
-          sc = ServerCmd.get(b);
-          cmd = null;
-          if(sc == ServerCmd.CREATE) {
-            create();
-          } else if(sc == ServerCmd.ADD) {
-            add();
-          } else if(sc == ServerCmd.WATCH) {
-            watch();
-          } else if(sc == ServerCmd.UNWATCH) {
-            unwatch();
-          } else if(sc == ServerCmd.REPLACE) {
-            replace();
-          } else if(sc == ServerCmd.STORE) {
-            store();
-          } else if(sc != ServerCmd.COMMAND) {
-            query(sc);
-          } else {
-            // database command
-            cmd = new ByteList().add(b).add(in.readBytes()).toString();
-          }
-        } catch(final IOException ex) {
-          // this exception may be thrown if a session is stopped
-          quit();
-          break;
+          socket.close();
+        } catch(final IOException e) {
+          Util.debug(e);
         }
-        if(sc != ServerCmd.COMMAND) continue;
+      }
+    }
+  }
 
-        // parse input and create command instance
-        try {
-          command = new CommandParser(cmd, context).parseSingle();
-          log(command, null);
-        } catch(final QueryException ex) {
-          // log invalid command
-          final String msg = ex.getMessage();
-          log(cmd, null);
-          log(msg, false);
-          // send 0 to mark end of potential result
-          out.write(0);
-          // send {INFO}0
-          out.writeString(msg);
-          // send 1 to mark error
-          send(false);
-          continue;
+  /**
+   * Processes a single request.
+   * @throws IOException I/O exception
+   */
+  private void request() throws IOException {
+    try {
+      command = null;
+      String cmd;
+      final ServerCmd sc;
+      try {
+        int b = in.read();
+        if(b == ServerCmd.PIPE.code) {
+          // pipelined request: send {ID}0 before the response
+          out.writeString(in.readString());
+          b = in.read();
         }
-
-        // execute command and send {RESULT}
-        boolean ok = true;
-        String info;
-        try {
-          // run command
-          command.execute(context, new EncodingOutput(out));
-          info = command.info();
-        } catch(final BaseXException ex) {
-          ok = false;
-          info = ex.getMessage();
-          if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
+        if(b == -1) {
+          // end of stream: exit session
+          quit();
+          return;
         }
 
-        // send 0 to mark end of result
+        last = System.currentTimeMillis();
+        perf.time();
+        sc = ServerCmd.get(b);
+        cmd = null;
+        if(sc == ServerCmd.CREATE) {
+          create();
+        } else if(sc == ServerCmd.ADD) {
+          add();
+        } else if(sc == ServerCmd.WATCH) {
+          watch();
+        } else if(sc == ServerCmd.UNWATCH) {
+          unwatch();
+        } else if(sc == ServerCmd.REPLACE) {
+          replace();
+        } else if(sc == ServerCmd.STORE) {
+          store();
+        } else if(sc == ServerCmd.CHUNKS) {
+          chunks();
+        } else if(sc != ServerCmd.COMMAND) {
+          query(sc);
+        } else {
+          // database command
+          cmd = new ByteList().add(b).add(in.readBytes()).toString();
+        }
+      } catch(final IOException ex) {
+        // this exception may be thrown if a session is stopped
+        quit();
+        return;
+      }
+      if(sc != ServerCmd.COMMAND) return;
+
+      // parse input and create command instance
+      try {
+        command = new CommandParser(cmd, context).parseSingle();
+        log(command, null);
+      } catch(final QueryException ex) {
+        // log invalid command
+        final String msg = ex.getMessage();
+        log(cmd, null);
+        log(msg, false);
+        // send 0 to mark end of potential result
         out.write(0);
-        // send info
-        info(info, ok);
+        // send {INFO}0
+        out.writeString(msg);
+        // send 1 to mark error
+        send(false);
+        return;
+      }
 
-        // stop console
-        if(command instanceof Exit) {
-          command = null;
-          quit();
-        }
+      // execute command and send {RESULT}
+      boolean ok = true;
+      String info;
+      try {
+        // run command
+        command.execute(context, encode());
+        info = command.info();
+      } catch(final BaseXException ex) {
+        ok = false;
+        info = ex.getMessage();
+        if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
       }
-    } catch(final IOException ex) {
-      log(ex, false);
+
+      // send 0 to mark end of result
+      out.write(0);
+      // send info
+      info(info, ok);
+
+      // stop console
+      if(command instanceof Exit) {
+        command = null;
+        quit();
+      }
+    } finally {
       command = null;
-      quit();
     }
-    command = null;
   }
 
   /**
@@ -175,28 +284,22 @@ public final class ClientListener extends Thread {
    */
   private boolean authenticate() {
     try {
-      final String ts = Long.toString(System.nanoTime());
       final byte[] address = socket.getInetAddress().getAddress();
 
-      // send {TIMESTAMP}0
-      out = PrintOutput.get(socket.getOutputStream());
-      out.print(ts);
-      send(true);
-
       // evaluate login data
-      in = new BufferInput(socket.getInputStream());
       // receive {USER}0{PASSWORD}0
       final String us = in.readString();
       final String pw = in.readString();
       context.user = context.users.get(us);
-      running = context.user != null && md5(context.user.password + ts).equals(pw);
+      final boolean ok = context.user != null && md5(context.user.password + ts).equals(pw);
 
       // write log information
-      if(running) {
+      if(ok) {
         // send {OK}
         send(true);
         context.blocker.remove(address);
         context.sessions.add(this);
+        running = true;
       } else {
         if(!us.isEmpty()) log(ACCESS_DENIED, false);
         // delay users with wrong passwords
@@ -204,11 +307,7 @@ public final class ClientListener extends Thread {
         send(false);
       }
     } catch(final IOException ex) {
-      if(running) {
-        Util.stack(ex);
-        log(ex, false);
-        running = false;
-      }
+      Util.debug(ex);
     }
 
     server.remove(this);
@@ -241,6 +340,11 @@ public final class ClientListener extends Thread {
     }
     context.sessions.remove(this);
 
+    // close compiled queries
+    for(final QueryListener ql : queries.values()) ql.close(false);
+    queries.clear();
+    plans.close();
+
     try {
       new Close().run(context);
       socket.close();
@@ -255,6 +359,16 @@ public final class ClientListener extends Thread {
     }
   }
 
+  /**
+   * Closes all compiled queries of this session that access the specified database
+   * and that are not currently evaluated.
+   * @param db name of database
+   */
+  public void release(final String db) {
+    for(final QueryListener ql : queries.values()) ql.release(db);
+    plans.release(db);
+  }
+
   /**
    * Returns the context of this session.
    * @return user reference
@@ -389,6 +503,38 @@ public final class ClientListener extends Thread {
     }
   }
 
+  /**
+   * Switches to length-prefixed result chunks.
+   * @throws IOException I/O exception
+   */
+  private void chunks() throws IOException {
+    // options are reserved for future use
+    in.readString();
+    chunks = true;
+    // send 0 to mark end of result
+    out.write(0);
+    success("");
+  }
+
+  /**
+   * Returns an output stream for sending result data to the client.
+   * @return output stream
+   */
+  private OutputStream encode() {
+    return chunks ? new ChunkOutput(out) : new EncodingOutput(out);
+  }
+
+  /**
+   * Sends a string as result data to the client.
+   * @param string string to be sent
+   * @throws IOException I/O exception
+   */
+  private void result(final String string) throws IOException {
+    final PrintOutput po = PrintOutput.get(encode());
+    po.print(string);
+    po.flush();
+  }
+
   /**
    * Watches an event.
    * @throws IOException I/O exception
@@ -455,11 +601,12 @@ public final class ClientListener extends Thread {
       final StringBuilder info = new StringBuilder();
       if(sc == ServerCmd.QUERY) {
         final String query = arg;
-        qp = new QueryListener(query, context);
+        qp = new QueryListener(query, context, plans);
         arg = Integer.toString(id++);
         queries.put(arg, qp);
         // send {ID}0
-        out.writeString(arg);
+        result(arg);
+        out.write(0);
         // write log file
         info.append(query);
       } else {
@@ -482,19 +629,20 @@ public final class ClientListener extends Thread {
           info.append(val);
           if(!typ.isEmpty()) info.append(" as ").append(typ);
         } else if(sc == ServerCmd.RESULTS) {
-          qp.execute(true, out, true, false);
+          qp.execute(true, out, encode(), false);
         } else if(sc == ServerCmd.EXEC) {
-          qp.execute(false, out, true, false);
+          qp.execute(false, out, encode(), false);
         } else if(sc == ServerCmd.FULL) {
-          qp.execute(true, out, true, true);
+          qp.execute(true, out, encode(), true);
         } else if(sc == ServerCmd.INFO) {
-          out.print(qp.info());
+          result(qp.info());
         } else if(sc == ServerCmd.OPTIONS) {
-          out.print(qp.parameters());
+          result(qp.parameters());
         } else if(sc == ServerCmd.UPDATING) {
-          out.print(Boolean.toString(qp.updating()));
+          result(Boolean.toString(qp.updating()));
         } else if(sc == ServerCmd.CLOSE) {
           queries.remove(arg);
+          qp.close(true);
         } else if(sc == ServerCmd.NEXT) {
           throw new Exception("Protocol for query iteration is out-of-date.");
         }
@@ -512,7 +660,8 @@ public final class ClientListener extends Thread {
       err = Util.message(ex);
       log(sc + "[" + arg + ']', null);
       log(err, false);
-      queries.remove(arg);
+      final QueryListener qp = queries.remove(arg);
+      if(qp != null) qp.close(false);
     }
     if(err != null) {
       // send 0 as end marker, 1 as error flag, and {MSG}0
@@ -73,11 +73,13 @@ public class ClientQuery extends Query {
 
   @Override
   protected void cache() throws IOException {
-    cs.sout.write(ServerCmd.RESULTS.code);
-    cs.send(id);
-    cs.sout.flush();
-    final BufferInput bi = new BufferInput(cs.sin);
-    cache(bi);
-    if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+    synchronized(cs) {
+      cs.sout.write(ServerCmd.RESULTS.code);
+      cs.send(id);
+      cs.sout.flush();
+      final BufferInput bi = cs.input();
+      cache(bi, cs.chunks);
+      if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+    }
   }
 }
@@ -0,0 +1,68 @@
+package org.basex.server;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.io.out.*;
+
+/**
+ * This class represents the response to a command that has been submitted to the
+ * server without waiting for its result (see {@link ClientSession#submit(String)}).
+ * The response is read from the server when it is requested for the first time.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientResponse {
+  /** Request id. */
+  final String id;
+  /** Result. */
+  final ArrayOutput result = new ArrayOutput();
+  /** Client session. */
+  private final ClientSession cs;
+  /** Info string. */
+  String info;
+  /** Success flag. */
+  boolean ok;
+  /** Indicates if the response has been received. */
+  volatile boolean done;
+
+  /**
+   * Constructor.
+   * @param session client session
+   * @param i request id
+   */
+  ClientResponse(final ClientSession session, final String i) {
+    cs = session;
+    id = i;
+  }
+
+  /**
+   * Waits for the response and returns the result of the command.
+   * @return result
+   * @throws IOException I/O exception, or {@link BaseXException} if the command failed
+   */
+  public String result() throws IOException {
+    cs.await(this);
+    if(!ok) throw new BaseXException(info);
+    return result.toString();
+  }
+
+  /**
+   * Waits for the response and returns the info string of the command.
+   * @return info string
+   * @throws IOException I/O exception
+   */
+  public String info() throws IOException {
+    cs.await(this);
+    return info;
+  }
+
+  /**
+   * Checks if the response has already been received.
+   * @return result of check
+   */
+  public boolean done() {
+    return done;
+  }
+}
@@ -25,6 +25,13 @@ import org.basex.util.*;
  * <li> {@link #close} closes the session by sending the {@link Cmd#EXIT}
  * command to the server.</li>
  * </ul>
+ * <p>By default, result data is sent with {@code 0x00} and {@code 0xFF} bytes being
+ * escaped. If {@link #chunks} is called, it is sent as length-prefixed chunks instead.</p>
+ * <p>Commands can also be pipelined via {@link #submit}: the command is sent to the
+ * server, prefixed with a request id, and the response is read when it is requested.
+ * Multiple commands can thus be sent without waiting for the results of the
+ * preceding commands. Submitted and executed commands are synchronized on the
+ * session, so a session can be shared by several threads.</p>
  *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
@@ -35,8 +42,15 @@ public class ClientSession extends Session {
     Collections.synchronizedMap(new HashMap<String, EventNotifier>());
   /** Server output (buffered). */
   protected final PrintOutput sout;
-  /** Server input. */
-  protected final InputStream sin;
+  /** Server input (buffered). */
+  protected final BufferInput sin;
+  /** Responses of submitted commands that have not been received yet. */
+  private final HashMap<String, ClientResponse> pending =
+    new HashMap<String, ClientResponse>();
+  /** Request id counter. */
+  private int rid;
+  /** Indicates if result data is sent as length-prefixed chunks. */
+  boolean chunks;
 
   /** Socket reference. */
   private final Socket socket;
@@ -108,11 +122,10 @@ public class ClientSession extends Session {
     } catch(final IllegalArgumentException ex) {
       throw new BaseXException(ex);
     }
-    sin = socket.getInputStream();
+    sin = new BufferInput(socket.getInputStream());
 
     // receive timestamp
-    final BufferInput bi = new BufferInput(sin);
-    final String ts = bi.readString();
+    final String ts = sin.readString();
 
     // send user name and hashed password/timestamp
     sout = PrintOutput.get(socket.getOutputStream());
@@ -121,7 +134,7 @@ public class ClientSession extends Session {
     sout.flush();
 
     // receive success flag
-    if(!ok(bi)) throw new LoginException();
+    if(!ok(sin)) throw new LoginException();
   }
 
   @Override
@@ -155,8 +168,59 @@ public class ClientSession extends Session {
     socket.close();
   }
 
+  /**
+   * Requests the server to send all further result data as length-prefixed chunks
+   * (see {@link ChunkOutput}). Chunks can be received without unescaping single bytes.
+   * @return {@code true} if the server supports chunks
+   * @throws IOException I/O exception
+   */
+  public synchronized boolean chunks() throws IOException {
+    if(!chunks) {
+      sout.write(ServerCmd.CHUNKS.code);
+      send("");
+      sout.flush();
+      // servers without chunk support will return an error
+      final BufferInput bi = input();
+      receive(bi, new NullOutput());
+      info = bi.readString();
+      chunks = ok(bi);
+    }
+    return chunks;
+  }
+
+  /**
+   * Sends a command to the server without waiting for its result.
+   * The returned response can be used to wait for the result.
+   * @param command command to be executed
+   * @return response
+   * @throws IOException I/O exception
+   */
+  public synchronized ClientResponse submit(final String command) throws IOException {
+    // receive responses that have already arrived to keep the socket buffers small
+    while(!pending.isEmpty() && (sin.buffered() > 0 || socket.getInputStream().available() > 0)) {
+      receiveNext();
+    }
+    final ClientResponse r = new ClientResponse(this, Integer.toString(rid++));
+    sout.write(ServerCmd.PIPE.code);
+    send(r.id);
+    send(command);
+    sout.flush();
+    pending.put(r.id, r);
+    return r;
+  }
+
+  /**
+   * Sends a command to the server without waiting for its result.
+   * @param command command to be executed
+   * @return response
+   * @throws IOException I/O exception
+   */
+  public ClientResponse submit(final Command command) throws IOException {
+    return submit(command.toString());
+  }
+
   @Override
-  protected void execute(final String cmd, final OutputStream os) throws IOException {
+  protected synchronized void execute(final String cmd, final OutputStream os) throws IOException {
     send(cmd);
     sout.flush();
     receive(os);
@@ -173,11 +237,13 @@ public class ClientSession extends Session {
    * @param notifier event notification
    * @throws IOException I/O exception
    */
-  public void watch(final String name, final EventNotifier notifier) throws IOException {
+  public synchronized void watch(final String name, final EventNotifier notifier)
+      throws IOException {
+
     sout.write(ServerCmd.WATCH.code);
     if(esocket == null) {
       sout.flush();
-      final BufferInput bi = new BufferInput(sin);
+      final BufferInput bi = input();
       final int eport = Integer.parseInt(bi.readString());
       // initialize event socket
       esocket = new Socket();
@@ -201,7 +267,7 @@ public class ClientSession extends Session {
    * @param name event name
    * @throws IOException I/O exception
    */
-  public void unwatch(final String name) throws IOException {
+  public synchronized void unwatch(final String name) throws IOException {
     sout.write(ServerCmd.UNWATCH.code);
     send(name);
     sout.flush();
@@ -251,12 +317,46 @@ public class ClientSession extends Session {
    * @throws IOException I/O exception
    */
   private void receive(final OutputStream os) throws IOException {
-    final BufferInput bi = new BufferInput(sin);
-    if(os != null) receive(bi, os);
+    final BufferInput bi = input();
+    if(os != null) result(bi, os);
     info = bi.readString();
     if(!ok(bi)) throw new BaseXException(info);
   }
 
+  /**
+   * Waits until the specified response has been received.
+   * @param r response
+   * @throws IOException I/O exception
+   */
+  synchronized void await(final ClientResponse r) throws IOException {
+    while(!r.done) receiveNext();
+  }
+
+  /**
+   * Returns the server input. Responses of submitted commands that have not been
+   * received yet will be read first.
+   * @return server input
+   * @throws IOException I/O exception
+   */
+  protected final synchronized BufferInput input() throws IOException {
+    while(!pending.isEmpty()) receiveNext();
+    return sin;
+  }
+
+  /**
+   * Receives the next response of a submitted command: {ID}0{RESULT}0{INFO}0{FLAG}.
+   * @throws IOException I/O exception
+   */
+  private void receiveNext() throws IOException {
+    final String id = sin.readString();
+    final ClientResponse r = pending.remove(id);
+    if(r == null) throw new IOException("Unknown request id: " + id);
+    result(sin, r.result);
+    r.info = sin.readString();
+    r.ok = ok(sin);
+    r.done = true;
+  }
+
   /**
    * Checks the next success flag.
    * @param bi buffer input
@@ -274,7 +374,7 @@ public class ClientSession extends Session {
    * @param strings string arguments
    * @throws IOException I/O exception
    */
-  void send(final ServerCmd cmd, final InputStream input, final String... strings)
+  synchronized void send(final ServerCmd cmd, final InputStream input, final String... strings)
       throws IOException {
 
     sout.write(cmd.code);
@@ -294,6 +394,17 @@ public class ClientSession extends Session {
     for(int b; (b = di.read()) != -1;) os.write(b);
   }
 
+  /**
+   * Retrieves result data from the server.
+   * @param bi buffered server input
+   * @param os output stream
+   * @throws IOException I/O exception
+   */
+  private void result(final BufferInput bi, final OutputStream os) throws IOException {
+    if(chunks) new ChunkInput(bi).transfer(os);
+    else receive(bi, os);
+  }
+
   /**
    * Sends a string to the server.
    * @param s string to be sent
@@ -312,13 +423,15 @@ public class ClientSession extends Session {
    * @return string
    * @throws IOException I/O exception
    */
-  String exec(final ServerCmd cmd, final String arg, final OutputStream os) throws IOException {
+  synchronized String exec(final ServerCmd cmd, final String arg, final OutputStream os)
+      throws IOException {
+
     final OutputStream o = os == null ? new ArrayOutput() : os;
     sout.write(cmd.code);
     send(arg);
     sout.flush();
-    final BufferInput bi = new BufferInput(sin);
-    receive(bi, o);
+    final BufferInput bi = input();
+    result(bi, o);
     if(!ok(bi)) throw new BaseXException(bi.readString());
     return o.toString();
   }
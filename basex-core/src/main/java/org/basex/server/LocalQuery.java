@@ -25,7 +25,7 @@ public class LocalQuery extends Query {
    * @param o output stream to write query output
    */
   LocalQuery(final String q, final Context ctx, final OutputStream o) {
-    ql = new QueryListener(q, ctx);
+    ql = new QueryListener(q, ctx, null);
     out = o;
   }
 
@@ -44,14 +44,14 @@ public class LocalQuery extends Query {
   @Override
   protected void cache() throws IOException {
     final ArrayOutput ao = new ArrayOutput();
-    ql.execute(true, ao, true, false);
-    cache(new ArrayInput(ao.toArray()));
+    ql.execute(true, ao, new EncodingOutput(ao), false);
+    cache(new ArrayInput(ao.toArray()), false);
   }
 
   @Override
   public String execute() throws IOException {
     final OutputStream os = out == null ? new ArrayOutput() : out;
-    ql.execute(false, os, false, false);
+    ql.execute(false, os, os, false);
     return out == null ? os.toString() : null;
   }
 
@@ -0,0 +1,121 @@
+package org.basex.server;
+
+import java.util.*;
+
+import org.basex.core.*;
+
+/**
+ * Cache for the compiled queries of a client session, which are indexed by their
+ * query strings. The maximum number of cached queries is specified by the
+ * {@link MainOptions#PLANCACHE} option; the least recently added queries will be
+ * closed first.
+ *
+ * <p>As prepared queries cannot be optimized for the values of their external
+ * variables, a query is only prepared if its query string has been evaluated before.
+ * The cache remembers the query strings of these queries as well.</p>
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class PlanCache {
+  /** Cached queries. */
+  private final LinkedHashMap<String, QueryPlan> plans =
+    new LinkedHashMap<String, QueryPlan>();
+  /** Query strings of evaluated queries. */
+  private final LinkedHashSet<String> queries = new LinkedHashSet<String>();
+  /** Database context. */
+  private final Context ctx;
+  /** Indicates if the cache has been closed. */
+  private boolean closed;
+
+  /**
+   * Constructor.
+   * @param c database context
+   */
+  PlanCache(final Context c) {
+    ctx = c;
+  }
+
+  /**
+   * Indicates if compiled queries will be reused.
+   * @return result of check
+   */
+  boolean enabled() {
+    return ctx.options.get(MainOptions.PLANCACHE) > 0;
+  }
+
+  /**
+   * Indicates if a query will be prepared, which is the case if the same query string
+   * has already been evaluated.
+   * @param query query string
+   * @return result of check
+   */
+  synchronized boolean prepare(final String query) {
+    return enabled() && queries.contains(query);
+  }
+
+  /**
+   * Remembers the query string of an evaluated query. The least recently added
+   * query strings will be discarded first.
+   * @param query query string
+   */
+  synchronized void evaluated(final String query) {
+    final int max = ctx.options.get(MainOptions.PLANCACHE);
+    if(closed || max <= 0) return;
+    queries.remove(query);
+    queries.add(query);
+    for(final Iterator<String> it = queries.iterator(); queries.size() > max;) {
+      it.next();
+      it.remove();
+    }
+  }
+
+  /**
+   * Removes a compiled query from the cache and returns it.
+   * @param query query string
+   * @return compiled query, or {@code null}
+   */
+  synchronized QueryPlan take(final String query) {
+    return plans.remove(query);
+  }
+
+  /**
+   * Adds a compiled query to the cache. An existing query with the same query string
+   * and the least recently added query will be closed.
+   * @param query query string
+   * @param plan compiled query
+   */
+  synchronized void add(final String query, final QueryPlan plan) {
+    final int max = ctx.options.get(MainOptions.PLANCACHE);
+    if(closed || max <= 0) {
+      plan.close();
+      return;
+    }
+    final QueryPlan old = plans.put(query, plan);
+    if(old != null) old.close();
+    for(final Iterator<QueryPlan> it = plans.values().iterator(); plans.size() > max;) {
+      it.next().close();
+      it.remove();
+    }
+  }
+
+  /**
+   * Closes all cached queries that access the specified database.
+   * @param db name of database
+   */
+  synchronized void release(final String db) {
+    for(final Iterator<QueryPlan> it = plans.values().iterator(); it.hasNext();) {
+      if(it.next().release(db)) it.remove();
+    }
+  }
+
+  /**
+   * Closes all cached queries.
+   */
+  synchronized void close() {
+    closed = true;
+    for(final QueryPlan plan : plans.values()) plan.close();
+    plans.clear();
+    queries.clear();
+  }
+}
@@ -3,6 +3,7 @@ package org.basex.server;
 import java.io.*;
 
 import org.basex.io.in.*;
+import org.basex.io.out.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
@@ -108,19 +109,24 @@ public abstract class Query {
 
   /**
    * Caches the incoming input.
-   * @param is input stream
+   * @param bi buffer input
+   * @param chunks indicates if the result data is sent as length-prefixed chunks
    * @throws IOException I/O exception
    */
-  void cache(final InputStream is) throws IOException {
+  void cache(final BufferInput bi, final boolean chunks) throws IOException {
     cache = new TokenList();
     types = new ByteList();
-    final ByteList bl = new ByteList();
-    for(int t; (t = is.read()) > 0;) {
-      final DecodingInput di = new DecodingInput(is);
-      for(int b; (b = di.read()) != -1;) bl.add(b);
-      cache.add(bl.toArray());
+    final ArrayOutput ao = new ArrayOutput();
+    for(int t; (t = bi.read()) > 0;) {
+      if(chunks) {
+        new ChunkInput(bi).transfer(ao);
+      } else {
+        final DecodingInput di = new DecodingInput(bi);
+        for(int b; (b = di.read()) != -1;) ao.write(b);
+      }
+      cache.add(ao.toArray());
       types.add(t);
-      bl.reset();
+      ao.reset();
     }
     pos = 0;
   }
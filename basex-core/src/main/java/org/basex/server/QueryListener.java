@@ -5,8 +5,11 @@ import static org.basex.io.serial.SerializerOptions.*;
 import static org.basex.query.util.Err.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.Map.Entry;
 
 import org.basex.core.*;
+import org.basex.data.*;
 import org.basex.io.out.*;
 import org.basex.io.serial.*;
 import org.basex.query.*;
@@ -17,6 +20,13 @@ import org.basex.util.*;
 /**
  * Server-side query session in the client-server architecture.
  *
+ * <p>A query is first compiled with the values of its external variables, which
+ * allows for optimizations like index rewritings. If it is evaluated again, it will be
+ * prepared: its external variables will not be inlined, and the compiled query will
+ * be kept and evaluated again if the same external variables are bound. When the
+ * query is closed, it is passed on to the query cache of the client session
+ * (see {@link PlanCache}).</p>
+ *
  * @author BaseX Team 2005-13, BSD License
  * @author Andreas Weiler
  * @author Christian Gruen
@@ -24,17 +34,30 @@ import org.basex.util.*;
 final class QueryListener extends Proc {
   /** Performance. */
   private final Performance perf = new Performance();
+  /** Bindings of external variables (values and types), indexed by their names. */
+  private final LinkedHashMap<String, Object[]> bindings =
+    new LinkedHashMap<String, Object[]>();
   /** Query string. */
   private final String query;
   /** Database context. */
   private final Context ctx;
+  /** Cache for compiled queries ({@code null} if queries will not be reused). */
+  private final PlanCache cache;
 
-  /** Query processor. */
+  /** Compiled query, which can be evaluated again (may be {@code null}). */
+  private volatile QueryPlan plan;
+  /** Query processor, which will be compiled for the next evaluation. */
   private QueryProcessor qp;
+  /** Context nodes of the query processor. */
+  private Nodes nodes;
   /** Serialization parameters. */
   private SerializerOptions parameters;
   /** Parsing flag. */
   private boolean parsed;
+  /** Indicates if a context value has been bound. */
+  private boolean bound;
+  /** Indicates if the query will be prepared for repeated evaluation. */
+  private boolean prepare;
   /** Query info. */
   private String info = "";
 
@@ -42,10 +65,16 @@ final class QueryListener extends Proc {
    * Constructor.
    * @param qu query string
    * @param c database context
+   * @param pc cache for compiled queries (may be {@code null})
    */
-  QueryListener(final String qu, final Context c) {
+  QueryListener(final String qu, final Context c, final PlanCache pc) {
     query = qu;
     ctx = c;
+    cache = pc;
+    if(pc != null) {
+      plan = pc.take(qu);
+      prepare = pc.prepare(qu);
+    }
   }
 
   /**
@@ -57,7 +86,13 @@ final class QueryListener extends Proc {
    */
   void bind(final String n, final Object v, final String t) throws IOException {
     try {
-      init().bind(n, v, t);
+      bindings.put(n, new Object[] { v, t });
+      // replace value of compiled query, or compile query again
+      if(plan != null && !plan.qp.ctx.rebind(n, v, t)) discard();
+      if(plan == null) {
+        if(qp == null) init();
+        else qp.bind(n, v, t);
+      }
     } catch(final QueryException ex) {
       throw new BaseXException(ex);
     }
@@ -71,7 +106,9 @@ final class QueryListener extends Proc {
    */
   void context(final Object v, final String t) throws IOException {
     try {
+      discard();
       init().context(v, t);
+      bound = true;
     } catch(final QueryException ex) {
       throw new BaseXException(ex);
     }
@@ -91,7 +128,7 @@ final class QueryListener extends Proc {
    * @throws IOException I/O Exception
    */
   String parameters() throws IOException {
-    if(parameters == null) parameters = parse().ctx.serParams();
+    if(parameters == null) parameters = (plan != null ? plan.qp : parse()).ctx.serParams();
     return parameters.toString();
   }
 
@@ -101,46 +138,69 @@ final class QueryListener extends Proc {
    * @throws IOException I/O Exception
    */
   boolean updating() throws IOException {
-    return parse().updating;
+    return (plan != null ? plan.qp : parse()).updating;
   }
 
   /**
    * Executes the query.
    * @param iter iterative evaluation
    * @param out output stream
-   * @param enc encode stream
+   * @param enc output stream for result data (may be identical to the output stream)
    * @param full return full type information
    * @throws IOException I/O Exception
    */
-  void execute(final boolean iter, final OutputStream out, final boolean enc, final boolean full)
-      throws IOException {
+  void execute(final boolean iter, final OutputStream out, final OutputStream enc,
+      final boolean full) throws IOException {
+
+    // compiled query can only be reused if the same variables have been bound
+    if(bound || plan != null && !plan.names.equals(bindings.keySet())) discard();
 
+    QueryProcessor proc = null;
+    boolean ok = false;
     try {
       try {
-        // parses the query and registers the process
-        ctx.register(parse());
+        if(plan != null) {
+          // registers the compiled query and checks if it is still valid
+          perf.time();
+          proc = plan.qp;
+          ctx.register(proc);
+          if(plan.claim(ctx)) {
+            proc.ctx.reset();
+          } else {
+            ctx.unregister(proc);
+            proc = null;
+            discard();
+          }
+        }
+        if(proc == null) {
+          // parses the query and registers the process
+          proc = parse();
+          ctx.register(proc);
+          proc.compile();
+        }
 
         // create serializer
-        qp.compile();
-        final QueryInfo qi = qp.ctx.info;
+        final QueryInfo qi = proc.ctx.info;
         qi.compiling = perf.time();
-        final Iter ir = qp.iter();
+        final Iter ir = proc.iter();
         qi.evaluating = perf.time();
         parameters();
         final boolean wrap = !parameters.get(WRAP_PREFIX).isEmpty();
 
-        // iterate through results
-        final PrintOutput po = PrintOutput.get(enc ? new EncodingOutput(out) : out);
-        if(iter && wrap) po.write(1);
+        // iterate through results (type bytes are sent before the encoded result data)
+        final PrintOutput po = PrintOutput.get(enc);
+        if(iter && wrap) out.write(1);
 
         final Serializer ser = Serializer.get(po, full ? null : parameters);
         int c = 0;
         for(Item it; (it = ir.next()) != null;) {
           if(iter && !wrap) {
             if(full) {
-              po.write(it.xdmInfo());
+              final byte[] xi = it.xdmInfo();
+              out.write(xi[0]);
+              po.write(xi, 1, xi.length - 1);
             } else {
-              po.write(it.typeId().asByte());
+              out.write(it.typeId().asByte());
             }
             ser.reset();
           }
@@ -156,7 +216,8 @@ final class QueryListener extends Proc {
         qi.serializing = perf.time();
 
         // generate query info
-        info = qi.toString(qp, po.size(), c, ctx.options.get(MainOptions.QUERYINFO));
+        info = qi.toString(proc, po.size(), c, ctx.options.get(MainOptions.QUERYINFO));
+        ok = true;
 
       } catch(final QueryException ex) {
         throw new BaseXException(ex);
@@ -167,15 +228,59 @@ final class QueryListener extends Proc {
         throw new BaseXException(TIMEOUT_EXCEEDED);
       }
     } finally {
-      // close processor and unregisters the process
-      if(qp != null) {
-        qp.close();
-        if(parsed) {
-          ctx.unregister(qp);
-          parsed = false;
-        }
+      // unregisters the process, and keeps or closes the processor
+      if(proc != null && proc.registered()) ctx.unregister(proc);
+      if(plan != null) {
+        plan.done();
+        if(!ok) discard();
+      } else if(qp != null) {
+        if(ok && qp.ctx.reusable()) plan = new QueryPlan(qp, nodes, bindings.keySet(), ctx);
+        else qp.close();
         qp = null;
       }
+      // prepare the query for the next evaluation
+      if(ok) prepare = cache != null && cache.enabled();
+      // variables need to be bound again for the next evaluation
+      bindings.clear();
+      bound = false;
+    }
+  }
+
+  /**
+   * Closes the query.
+   * @param keep pass on the compiled query to the cache
+   */
+  void close(final boolean keep) {
+    if(keep && prepare) cache.evaluated(query);
+    final QueryPlan pl = plan;
+    if(pl != null) {
+      plan = null;
+      if(keep && cache != null) cache.add(query, pl);
+      else pl.close();
+    }
+    if(qp != null) {
+      qp.close();
+      qp = null;
+    }
+  }
+
+  /**
+   * Closes the compiled query if it accesses the specified database and if it is
+   * not currently evaluated. Called by other sessions.
+   * @param db name of database
+   */
+  void release(final String db) {
+    final QueryPlan pl = plan;
+    if(pl != null) pl.release(db);
+  }
+
+  /**
+   * Closes the compiled query.
+   */
+  private void discard() {
+    if(plan != null) {
+      plan.close();
+      plan = null;
     }
   }
 
@@ -185,27 +290,36 @@ final class QueryListener extends Proc {
    * @throws IOException I/O Exception
    */
   private QueryProcessor parse() throws IOException {
-    if(!parsed) {
-      try {
+    try {
+      final QueryProcessor proc = init();
+      if(!parsed) {
         perf.time();
-        init().parse();
-        qp.ctx.info.parsing = perf.time();
+        proc.parse();
+        proc.ctx.info.parsing = perf.time();
         parsed = true;
-      } catch(final QueryException ex) {
-        throw new BaseXException(ex);
       }
+      return proc;
+    } catch(final QueryException ex) {
+      throw new BaseXException(ex);
     }
-    return qp;
   }
 
   /**
-   * Returns an instance of the query processor.
+   * Returns an instance of the query processor. A new instance will be created if
+   * none exists, and all variables that have been bound so far will be assigned to it.
    * @return query processor
+   * @throws QueryException query exception
    */
-  private QueryProcessor init() {
-    if(parsed || qp == null) {
+  private QueryProcessor init() throws QueryException {
+    if(qp == null) {
       qp = new QueryProcessor(query, ctx);
+      qp.ctx.prepared = prepare;
+      nodes = ctx.current();
       parsed = false;
+      for(final Entry<String, Object[]> e : bindings.entrySet()) {
+        final Object[] b = e.getValue();
+        qp.bind(e.getKey(), b[0], (String) b[1]);
+      }
     }
     return qp;
   }
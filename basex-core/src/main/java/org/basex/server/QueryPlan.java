@@ -0,0 +1,118 @@
+package org.basex.server;
+
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.query.*;
+
+/**
+ * Compiled query of a client session, which can be evaluated repeatedly.
+ * The query is compiled again if the options of the session, its context nodes,
+ * or the accessed databases have changed since the last evaluation.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class QueryPlan {
+  /** Query processor. */
+  final QueryProcessor qp;
+  /** Names of the variables that have been bound before compilation. */
+  final Set<String> names;
+  /** Options and permissions at compile time. */
+  private final String options;
+  /** Context nodes at compile time. */
+  private final Nodes nodes;
+
+  /** Accessed databases. */
+  private Data[] datas = {};
+  /** Versions of the accessed databases. */
+  private long[] versions = {};
+  /** Indicates if the query is currently evaluated. */
+  private boolean busy;
+  /** Indicates if the query has been closed. */
+  private boolean closed;
+
+  /**
+   * Constructor.
+   * @param proc compiled query processor
+   * @param nds context nodes at compile time
+   * @param nms names of the bound variables
+   * @param ctx database context
+   */
+  QueryPlan(final QueryProcessor proc, final Nodes nds, final Set<String> nms,
+      final Context ctx) {
+    qp = proc;
+    nodes = nds;
+    names = new HashSet<String>(nms);
+    options = options(ctx);
+    done();
+  }
+
+  /**
+   * Claims the query for another evaluation. Must be called after the query
+   * has been registered.
+   * @param ctx database context
+   * @return {@code false} if the query needs to be compiled again
+   */
+  synchronized boolean claim(final Context ctx) {
+    if(closed || nodes != ctx.current() || !options.equals(options(ctx))) return false;
+    final int dl = datas.length;
+    for(int d = 0; d < dl; d++) {
+      if(datas[d].meta.version() != versions[d]) return false;
+    }
+    busy = true;
+    return true;
+  }
+
+  /**
+   * Finishes an evaluation and remembers the versions of all accessed databases.
+   */
+  synchronized void done() {
+    busy = false;
+    if(closed) {
+      qp.close();
+    } else {
+      datas = qp.ctx.resource.datas();
+      final int dl = datas.length;
+      versions = new long[dl];
+      for(int d = 0; d < dl; d++) versions[d] = datas[d].meta.version();
+    }
+  }
+
+  /**
+   * Closes the query if it accesses the specified database and if it is not
+   * currently evaluated.
+   * @param db name of database
+   * @return {@code true} if the query has been closed
+   */
+  synchronized boolean release(final String db) {
+    if(busy || closed) return closed;
+    for(final Data d : datas) {
+      if(d.meta.name.equals(db)) {
+        close();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Closes the query. If it is currently evaluated, it will be closed afterwards.
+   */
+  synchronized void close() {
+    if(closed) return;
+    closed = true;
+    if(!busy) qp.close();
+  }
+
+  /**
+   * Returns a string representation of the options and permissions that may
+   * influence the compilation of a query.
+   * @param ctx database context
+   * @return string
+   */
+  private static String options(final Context ctx) {
+    return ctx.user.perm + " " + ctx.options;
+  }
+}
@@ -0,0 +1,215 @@
+package org.basex.server;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class buffers the data that is sent by a client. It is filled by the
+ * selector thread of the server, which reads all available bytes from the
+ * non-blocking channel and detects when a request has been completely received.
+ * A session is only dispatched to a worker thread if it has complete requests, so
+ * clients that send incomplete requests cannot block worker threads.
+ *
+ * <p>Requests that exceed {@link #MAX} bytes are not completely buffered. Instead,
+ * their remaining bytes are read by the worker thread from the blocking channel.
+ * In this case, the socket timeout limits the time spent waiting.</p>
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class RequestInput extends InputStream {
+  /** Maximum number of bytes of an incomplete request. */
+  static final int MAX = 1 << 20;
+
+  /** Socket channel. */
+  private final SocketChannel channel;
+  /** Buffer. */
+  private byte[] buffer = new byte[IO.BLOCKSIZE];
+  /** Current read position. */
+  private int pos;
+  /** End of the complete requests. */
+  private int end;
+  /** Scanned bytes. */
+  private int scan;
+  /** Number of buffered bytes. */
+  private int size;
+
+  /** Number of remaining strings of the current request ({@code 0}: new request). */
+  private int strings;
+  /** Indicates if the last string of the current request contains escaped input. */
+  private boolean input;
+  /** Indicates if the previous input byte was an escape character. */
+  private boolean escape;
+  /** Indicates if the current request is a prefix of another request. */
+  private boolean prefix;
+  /** Indicates if the next request contains the login data. */
+  private boolean login = true;
+  /** Indicates if events have been watched before. */
+  private boolean watch;
+
+  /** Indicates if the end of the stream has been reached. */
+  private boolean eof;
+  /** Indicates if the remaining bytes are read from the blocking channel. */
+  private boolean stream;
+
+  /**
+   * Constructor.
+   * @param ch socket channel
+   */
+  RequestInput(final SocketChannel ch) {
+    channel = ch;
+  }
+
+  /**
+   * Reads the available bytes from the non-blocking channel.
+   * This method is called by the selector thread.
+   * @return {@code true} if the session needs to be dispatched to a worker thread
+   */
+  boolean fill() {
+    // discard processed bytes
+    if(pos > 0) {
+      System.arraycopy(buffer, pos, buffer, 0, size - pos);
+      end -= pos;
+      scan -= pos;
+      size -= pos;
+      pos = 0;
+    }
+    if(size == buffer.length) buffer = Arrays.copyOf(buffer, Array.newSize(size));
+
+    int r;
+    try {
+      r = channel.read(ByteBuffer.wrap(buffer, size, buffer.length - size));
+    } catch(final IOException ex) {
+      // connection has been reset by the client
+      Util.debug(ex);
+      r = -1;
+    }
+    if(r < 0) eof = true;
+    else size += r;
+
+    scan();
+    if(size - end > MAX) stream = true;
+    return eof || stream || pos < end;
+  }
+
+  /**
+   * Checks if the buffered bytes can be processed without waiting for the client.
+   * @return result of check
+   */
+  boolean requests() {
+    return stream ? pos < size : pos < end || eof;
+  }
+
+  /**
+   * Resets the request detection if the remaining bytes of a request have been read
+   * from the channel. This method is called before the session is returned to the
+   * selector thread.
+   */
+  void resume() {
+    if(stream && pos == size) {
+      stream = false;
+      input = false;
+      escape = false;
+      prefix = false;
+      strings = 0;
+      pos = 0;
+      end = 0;
+      scan = 0;
+      size = 0;
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    final byte[] b = new byte[1];
+    return read(b, 0, 1) == 1 ? b[0] & 0xFF : -1;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    // request is incomplete: read remaining bytes from the channel
+    if(pos == end && !eof) stream = true;
+    final int lim = stream ? size : end;
+    if(pos < lim) {
+      final int l = Math.min(len, lim - pos);
+      System.arraycopy(buffer, pos, b, off, l);
+      pos += l;
+      return l;
+    }
+    return eof ? -1 : channel.socket().getInputStream().read(b, off, len);
+  }
+
+  /**
+   * Scans the new bytes and marks the end of the complete requests.
+   */
+  private void scan() {
+    while(scan < size) {
+      final int b = buffer[scan++] & 0xFF;
+      if(strings == 0) {
+        if(login) {
+          // login data: {USER}0{PASSWORD}0
+          login = false;
+          strings = 2;
+        } else {
+          final ServerCmd sc = ServerCmd.get(b);
+          if(sc == ServerCmd.WATCH && !watch) {
+            // first event: the client waits for the event port before sending the name,
+            // which will be read from the blocking channel
+            watch = true;
+            prefix = false;
+            end = scan;
+            continue;
+          }
+          if(sc != ServerCmd.COMMAND) {
+            strings = strings(sc);
+            input = sc == ServerCmd.CREATE || sc == ServerCmd.ADD ||
+                sc == ServerCmd.REPLACE || sc == ServerCmd.STORE;
+            prefix = sc == ServerCmd.PIPE;
+            continue;
+          }
+          // database command: the first byte is part of the command string
+          strings = 1;
+        }
+      }
+      if(input && strings == 1) {
+        // input is terminated by a 0 byte; 0 and 0xFF bytes are escaped with 0xFF
+        if(escape) escape = false;
+        else if(b == 0xFF) escape = true;
+        else if(b == 0) strings--;
+      } else if(b == 0) {
+        strings--;
+      }
+      if(strings == 0) {
+        input = false;
+        if(prefix) prefix = false;
+        else end = scan;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of strings of a request.
+   * @param sc server command
+   * @return number of strings
+   */
+  private static int strings(final ServerCmd sc) {
+    switch(sc) {
+      case BIND:
+        return 4;
+      case CONTEXT:
+        return 3;
+      case CREATE:
+      case ADD:
+      case REPLACE:
+      case STORE:
+        return 2;
+      default:
+        return 1;
+    }
+  }
+}
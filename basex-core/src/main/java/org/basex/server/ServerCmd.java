@@ -37,6 +37,12 @@ public enum ServerCmd {
   STORE(13),
   /** Code for binding a context item: {id}0{val}0{type}0. */
   CONTEXT(14),
+  /** Code for a pipelined request, the response of which is prefixed with the id:
+   * {id}0{request}. */
+  PIPE(15),
+  /** Code for switching to length-prefixed result chunks (see
+   * {@link org.basex.io.out.ChunkOutput}): {options}0. */
+  CHUNKS(16),
   /** Code for returning the update flag: {id}0. */
   UPDATING(30),
   /** Code for executing a query and returning all information relevant for XQJ: {id}0. */
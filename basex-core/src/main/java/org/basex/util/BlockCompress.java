@@ -0,0 +1,154 @@
+package org.basex.util;
+
+import java.util.*;
+
+/**
+ * This class compresses and decompresses blocks of bytes. It uses a simple
+ * LZ77 variant, which is based on the LZ4 block format: the compressed data consists
+ * of sequences, each comprising a token byte, a number of literal bytes, and a reference
+ * to a previous occurrence of the following bytes. Decompression is very fast, as
+ * only bytes need to be copied. References are limited to 64 KB.
+ *
+ * NOTE: this class is not thread-safe.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class BlockCompress {
+  /** Minimum match length. */
+  private static final int MINMATCH = 4;
+  /** Maximum offset of a match. */
+  private static final int MAXOFF = 0xFFFF;
+  /** Number of literals at the end of a block. */
+  private static final int LASTLITERALS = 5;
+  /** Minimum distance between the start of the last match and the end of a block. */
+  private static final int MFLIMIT = 12;
+  /** Power of the hash table size. */
+  private static final int HASHPOWER = 12;
+
+  /** Hash table, containing the last positions of 4-byte sequences. */
+  private final int[] table = new int[1 << HASHPOWER];
+
+  /**
+   * Returns the maximum size of a compressed block.
+   * @param len length of the uncompressed block
+   * @return maximum size
+   */
+  public static int max(final int len) {
+    return len + len / 255 + 16;
+  }
+
+  /**
+   * Compresses the specified bytes.
+   * @param src source array
+   * @param len number of bytes to compress
+   * @param dst target array; must provide at least {@link #max} bytes
+   * @return size of the compressed data
+   */
+  public int pack(final byte[] src, final int len, final byte[] dst) {
+    Arrays.fill(table, -1);
+    final int mflimit = len - MFLIMIT, mlimit = len - LASTLITERALS;
+    int s = 0, a = 0, d = 0;
+    while(s < mflimit) {
+      final int v = get4(src, s), h = v * 0x9E3779B1 >>> 32 - HASHPOWER;
+      final int r = table[h];
+      table[h] = s;
+      if(r < 0 || s - r > MAXOFF || get4(src, r) != v) {
+        // skip incompressible data faster
+        s += 1 + (s - a >>> 6);
+        continue;
+      }
+      int ml = MINMATCH;
+      while(s + ml < mlimit && src[r + ml] == src[s + ml]) ml++;
+      d = sequence(src, a, s - a, dst, d, ml - MINMATCH);
+      dst[d++] = (byte) (s - r);
+      dst[d++] = (byte) (s - r >>> 8);
+      if(ml - MINMATCH >= 15) d = length(ml - MINMATCH - 15, dst, d);
+      s += ml;
+      a = s;
+    }
+    return sequence(src, a, len - a, dst, d, 0);
+  }
+
+  /**
+   * Decompresses the specified bytes.
+   * @param src source array
+   * @param off offset to the compressed data
+   * @param len length of the compressed data
+   * @param dst target array
+   * @return size of the decompressed data
+   */
+  public static int unpack(final byte[] src, final int off, final int len, final byte[] dst) {
+    final int end = off + len;
+    int s = off, d = 0;
+    while(s < end) {
+      final int t = src[s++] & 0xFF;
+      // copy literals
+      int l = t >>> 4;
+      if(l == 15) for(int b = 0xFF; b == 0xFF; l += b) b = src[s++] & 0xFF;
+      System.arraycopy(src, s, dst, d, l);
+      s += l;
+      d += l;
+      if(s >= end) break;
+
+      // copy match
+      int r = d - (src[s++] & 0xFF | (src[s++] & 0xFF) << 8);
+      int ml = t & 0x0F;
+      if(ml == 15) for(int b = 0xFF; b == 0xFF; ml += b) b = src[s++] & 0xFF;
+      ml += MINMATCH;
+      if(d - r >= ml) {
+        System.arraycopy(dst, r, dst, d, ml);
+        d += ml;
+      } else {
+        // overlapping match
+        while(ml-- > 0) dst[d++] = dst[r++];
+      }
+    }
+    return d;
+  }
+
+  /**
+   * Writes the token and the literals of a sequence.
+   * @param src source array
+   * @param s offset to the literals
+   * @param l number of literals
+   * @param dst target array
+   * @param off target offset
+   * @param ml match length, minus the minimum match length
+   * @return new target offset
+   */
+  private static int sequence(final byte[] src, final int s, final int l, final byte[] dst,
+      final int off, final int ml) {
+
+    int d = off;
+    dst[d++] = (byte) (Math.min(l, 15) << 4 | Math.min(ml, 15));
+    if(l >= 15) d = length(l - 15, dst, d);
+    System.arraycopy(src, s, dst, d, l);
+    return d + l;
+  }
+
+  /**
+   * Writes the remaining part of a length.
+   * @param len length
+   * @param dst target array
+   * @param off target offset
+   * @return new target offset
+   */
+  private static int length(final int len, final byte[] dst, final int off) {
+    int d = off, l = len;
+    for(; l >= 0xFF; l -= 0xFF) dst[d++] = (byte) 0xFF;
+    dst[d++] = (byte) l;
+    return d;
+  }
+
+  /**
+   * Returns an integer value from the specified array.
+   * @param b array
+   * @param o offset
+   * @return value
+   */
+  private static int get4(final byte[] b, final int o) {
+    return (b[o] & 0xFF) + ((b[o + 1] & 0xFF) << 8) + ((b[o + 2] & 0xFF) << 16) +
+      ((b[o + 3] & 0xFF) << 24);
+  }
+}
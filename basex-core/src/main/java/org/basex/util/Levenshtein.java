@@ -8,17 +8,24 @@ import static org.basex.util.Token.*;
  * and deletions of ones, and Damerau (1964): A technique for computer
  * detection and correction of spelling errors.
  *
+ * <p>The distance matrix is computed row by row. As each row only depends on the
+ * characters that have already been processed, the static methods of this class
+ * can also be used to compare a token with a sorted list of tokens, sharing the rows
+ * of common prefixes and skipping all tokens with a prefix that cannot match.</p>
+ *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
  */
 public final class Levenshtein {
   /** Maximum token size. */
-  private static final int MAX = 50;
+  public static final int MAX = 50;
 
   /** Default number of allowed errors; dynamic calculation if value is 0. */
   private final int error;
-  /** Matrix for calculating Levenshtein distance. */
-  private int[][] matrix;
+  /** Previous row of the distance matrix. */
+  private int[] prev = new int[MAX + 1];
+  /** Current row of the distance matrix. */
+  private int[] row = new int[MAX + 1];
 
   /**
    * Constructor.
@@ -53,56 +60,78 @@ public final class Levenshtein {
    * @return true if the arrays are similar
    */
   public boolean similar(final byte[] token, final byte[] sub, final int err) {
-    int sl = 0;
-    for(int s = 0; s < sub.length; s += cl(sub, s)) ++sl;
-    int tl = 0;
-    for(int t = 0; t < token.length; t += cl(token, t)) ++tl;
+    final int[] tk = chars(token), sb = chars(sub);
+    final int tl = tk.length, sl = sb.length;
     if(tl == 0) return false;
 
-    // use exact search for too short and too long values
-    if(sl < 4 || tl > MAX || sl > MAX) return sl == tl && same(token, sub);
-
+    // use exact search for too long values
+    final int k = tl > MAX ? 0 : errors(sl, err);
     // skip different tokens with too different lengths
-    final int k = err == 0 ? Math.max(1, sl >> 2) : err;
-    return Math.abs(sl - tl) <= k && ls(token, tl, sub, sl, k);
+    if(Math.abs(sl - tl) > k) return false;
+
+    if(prev.length <= sl) {
+      prev = new int[sl + 1];
+      row = new int[sl + 1];
+    }
+    int[] p = prev, r = row;
+    for(int s = 0; s <= sl; s++) p[s] = s;
+    for(int t = 0; t < tl; t++) {
+      if(row(p, r, tk[t], t == 0 ? -1 : tk[t - 1], sb) > k) return false;
+      final int[] tmp = p;
+      p = r;
+      r = tmp;
+    }
+    return p[sl] <= k;
   }
 
   /**
-   * Calculates a Levenshtein distance.
-   * @param tk token to be compared
-   * @param tl token length
-   * @param sb sub token to be compared
-   * @param sl string length
-   * @param k maximum number of accepted errors
-   * @return true if the arrays are similar
+   * Returns the normalized characters of a token.
+   * @param token token
+   * @return characters
    */
-  private boolean ls(final byte[] tk, final int tl, final byte[] sb, final int sl, final int k) {
-    int[][] m = matrix;
-    if(m == null) {
-      m = new int[MAX + 2][MAX + 2];
-      for(int i = 0; i < m.length; ++i) {
-        m[0][i] = i;
-        m[i][0] = i;
-      }
-      matrix = m;
-    }
+  public static int[] chars(final byte[] token) {
+    final int[] cps = cps(token);
+    final int cl = cps.length;
+    for(int c = 0; c < cl; c++) cps[c] = norm(lc(cps[c]));
+    return cps;
+  }
+
+  /**
+   * Returns the number of errors that will be accepted for a token.
+   * Exact search is used for too short and too long values.
+   * @param length number of characters of the token
+   * @param err number of allowed errors; dynamic calculation if value is 0
+   * @return number of errors
+   */
+  public static int errors(final int length, final int err) {
+    if(length < 4 || length > MAX) return 0;
+    return err == 0 ? Math.max(1, length >> 2) : err;
+  }
 
-    int e2 = -1, f2 = -1;
-    for(int t = 0; t < tl; t += cl(tk, t)) {
-      final int e = norm(lc(cp(tk, t)));
-      int d = Integer.MAX_VALUE;
-      for(int s = 0; s < sl; s += cl(sb, s)) {
-        final int f = norm(lc(cp(sb, s)));
-        int c = m(m[t][s + 1] + 1, m[t + 1][s] + 1, m[t][s] + (e == f ? 0 : 1));
-        if(e == f2 && f == e2) c = m[t][s];
-        m[t + 1][s + 1] = c;
-        d = Math.min(d, c);
-        f2 = f;
-      }
-      if(d > k) return false;
-      e2 = e;
+  /**
+   * Computes the next row of the distance matrix.
+   * @param prev previous row
+   * @param row row to be computed
+   * @param ch current character
+   * @param pch previous character ({@code -1} if there is none)
+   * @param sub characters of the token to be compared
+   * @return minimum distance of the row; no match is possible anymore if it exceeds
+   * the number of allowed errors
+   */
+  public static int row(final int[] prev, final int[] row, final int ch, final int pch,
+      final int[] sub) {
+    final int sl = sub.length;
+    row[0] = prev[0] + 1;
+    int d = Integer.MAX_VALUE;
+    for(int s = 0; s < sl; s++) {
+      final int f = sub[s];
+      int c = m(prev[s + 1] + 1, row[s] + 1, prev[s] + (ch == f ? 0 : 1));
+      // transposition
+      if(s > 0 && ch == sub[s - 1] && f == pch) c = prev[s];
+      row[s + 1] = c;
+      d = Math.min(d, c);
     }
-    return m[tl][sl] <= k;
+    return d;
   }
 
   /**
@@ -116,18 +145,4 @@ public final class Levenshtein {
     final int d = a < b ? a : b;
     return d < c ? d : c;
   }
-
-  /**
-   * Compares two character arrays for equality.
-   * @param tk token to be compared
-   * @param sb second token to be compared
-   * @return true if the arrays are equal
-   */
-  private static boolean same(final byte[] tk, final byte[] sb) {
-    int t = 0;
-    for(int s = 0; t < tk.length && s < sb.length; t += cl(tk, t), s += cl(sb, s)) {
-      if(lc(norm(cp(tk, t))) != lc(norm(cp(sb, t)))) return false;
-    }
-    return true;
-  }
 }
@@ -29,4 +29,6 @@ public class FTIndexOptions extends Options {
   /** Option: content. */
   public static final EnumOption<FTContents> CONTENT =
       new EnumOption<FTContents>("content", FTContents.class);
+  /** Option: maximum number of results with the highest scores (0: all results). */
+  public static final NumberOption TOP = new NumberOption("top", 0);
 }
@@ -0,0 +1,127 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests the column-oriented table format ({@link DiskData}): reading nodes, conversion to
+ * the regular format with the first update, and recovery of interrupted conversions.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ColumnarDataTest extends DiskDataTest {
+  @Override
+  @Before
+  public void setUp() throws BaseXException {
+    context.options.set(MainOptions.COLUMNAR, true);
+    super.setUp();
+  }
+
+  @Override
+  @After
+  public void cleanUp() throws BaseXException {
+    super.cleanUp();
+    context.options.set(MainOptions.COLUMNAR, false);
+  }
+
+  /**
+   * Reads nodes from the compressed table, and converts it with the first update.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void read() throws BaseXException {
+    assertTrue(context.data().meta.columnar);
+    assertEquals("4", new XQuery("count(/a/*)").execute(context));
+    assertEquals("test1", new XQuery("/a/f[1]/text()").execute(context));
+    assertEquals("testtest1test3", new XQuery("string(/a)").execute(context));
+
+    new XQuery("insert node <g>test4</g> into /a").execute(context);
+    assertFalse(context.data().meta.columnar);
+    assertEquals("testtest1test3test4", new XQuery("string(/a)").execute(context));
+  }
+
+  /**
+   * Discards temporary files if the table has not been converted yet.
+   * @throws Exception exception
+   */
+  @Test
+  public void discard() throws Exception {
+    final MetaData meta = context.data().meta;
+    final IOFile tmp = meta.dbfile(DataText.DATATBL + "tmp");
+    new Close().execute(context);
+    tmp.write(Token.token("x"));
+    new Open(meta.name).execute(context);
+    assertFalse(tmp.exists());
+    assertTrue(context.data().meta.columnar);
+    assertEquals("testtest1test3", new XQuery("string(/a)").execute(context));
+  }
+
+  /**
+   * Discards temporary files and the update marker if the conversion fails.
+   * @throws Exception exception
+   */
+  @Test
+  public void failed() throws Exception {
+    final MetaData meta = context.data().meta;
+    final IOFile tmp = meta.dbfile(DataText.DATATBL + "tmp");
+    // the temporary table cannot be created if a directory with the same name exists
+    assertTrue(tmp.md());
+    assertTrue(new IOFile(tmp, "x").touch());
+    try {
+      new XQuery("insert node <g>test4</g> into /a").execute(context);
+      fail("Conversion should have failed.");
+    } catch(final BaseXException ex) {
+      // expected
+    }
+    assertFalse(tmp.exists());
+    assertFalse(meta.dbfile(DataText.DATAUPD).exists());
+    new Close().execute(context);
+    new Open(meta.name).execute(context);
+    assertTrue(context.data().meta.columnar);
+    assertEquals("testtest1test3", new XQuery("string(/a)").execute(context));
+  }
+
+  /**
+   * Completes a conversion that was interrupted after the meta data had been written.
+   * @throws Exception exception
+   */
+  @Test
+  public void rollForward() throws Exception {
+    new XQuery("insert node <g>test4</g> into /a").execute(context);
+    final MetaData meta = context.data().meta;
+    assertFalse(meta.columnar);
+    new Close().execute(context);
+    // move the converted table back to the temporary files
+    for(final String fn : new String[] { DataText.DATATBL, DataText.DATATBL + 'i' }) {
+      final String tmp = DataText.DATATBL + "tmp" + fn.substring(DataText.DATATBL.length());
+      assertTrue(meta.dbfile(fn).rename(meta.dbfile(tmp)));
+    }
+    new Open(meta.name).execute(context);
+    assertFalse(meta.dbfile(DataText.DATATBL + "tmp").exists());
+    assertEquals("testtest1test3test4", new XQuery("string(/a)").execute(context));
+  }
+
+  /**
+   * Compares a larger document with the result of the regular table format.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void compare() throws BaseXException {
+    final String doc = "<x>{ for $i in 1 to 3000 return <a n='{ $i }'>{ " +
+        "if($i mod 7 = 0) then <b/> else 'text' || $i }</a> }</x>";
+    final String query = "serialize(/)";
+    new CreateDB(NAME, "<x/>").execute(context);
+    new XQuery("replace node /x with " + doc).execute(context);
+    final String exp = new XQuery(query).execute(context);
+    new OptimizeAll().execute(context);
+    assertTrue(context.data().meta.columnar);
+    assertEquals(exp, new XQuery(query).execute(context));
+    new DropDB(NAME).execute(context);
+  }
+}
@@ -0,0 +1,86 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.junit.*;
+
+/**
+ * Tests block-compressed texts and attribute values ({@link DiskData}): reading entries,
+ * decompression with the first update, recovery of interrupted decompressions, and
+ * comparison with uncompressed databases.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class CompressedDataTest extends DiskDataTest {
+  @Override
+  @Before
+  public void setUp() throws BaseXException {
+    context.options.set(MainOptions.COMPRESSION, true);
+    super.setUp();
+  }
+
+  @Override
+  @After
+  public void cleanUp() throws BaseXException {
+    super.cleanUp();
+    context.options.set(MainOptions.COMPRESSION, false);
+  }
+
+  /**
+   * Reads texts from the compressed files, and decompresses them with the first update.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void read() throws BaseXException {
+    assertTrue(context.data().meta.compressed);
+    assertEquals("test1", new XQuery("/a/f[1]/text()").execute(context));
+    assertEquals("testtest1test3", new XQuery("string(/a)").execute(context));
+
+    new XQuery("insert node <g x='y'>test4</g> into /a").execute(context);
+    assertFalse(context.data().meta.compressed);
+    assertEquals("testtest1test3test4y", new XQuery("string(/a) || /a/g/@x").
+        execute(context));
+  }
+
+  /**
+   * Completes a decompression that was interrupted after the meta data had been written.
+   * @throws Exception exception
+   */
+  @Test
+  public void rollForward() throws Exception {
+    new XQuery("insert node <g x='y'>test4</g> into /a").execute(context);
+    final MetaData meta = context.data().meta;
+    assertFalse(meta.compressed);
+    new Close().execute(context);
+    // move the decompressed files back to the temporary files
+    final IOFile txt = meta.dbfile(DataText.DATATXT), atv = meta.dbfile(DataText.DATAATV);
+    assertTrue(txt.rename(new IOFile(txt.path() + ".tmp")));
+    assertTrue(atv.rename(new IOFile(atv.path() + ".tmp")));
+    new Open(meta.name).execute(context);
+    assertTrue(txt.exists());
+    assertEquals("testtest1test3test4y", new XQuery("string(/a) || /a/g/@x").
+        execute(context));
+  }
+
+  /**
+   * Compares a larger document with the result of the uncompressed format.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void compare() throws BaseXException {
+    final String doc = "<x>{ for $i in 1 to 20000 return <a n='{ $i * $i }'>{ " +
+        "'text' || $i }</a> }</x>";
+    final String query = "serialize(/)";
+    new CreateDB(NAME, "<x/>").execute(context);
+    new XQuery("replace node /x with " + doc).execute(context);
+    final String exp = new XQuery(query).execute(context);
+    new OptimizeAll().execute(context);
+    assertTrue(context.data().meta.compressed);
+    assertEquals(exp, new XQuery(query).execute(context));
+    new DropDB(NAME).execute(context);
+  }
+}
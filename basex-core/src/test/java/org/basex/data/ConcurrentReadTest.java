@@ -0,0 +1,114 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests concurrent read access to the table and texts of a disk database.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ConcurrentReadTest extends SandboxTest {
+  /** Number of elements. */
+  private static final int SIZE = 5000;
+  /** Number of threads. */
+  private static final int THREADS = 8;
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int e = 1; e <= SIZE; e++) sb.append("<a n='").append(e).append("'>text").
+      append(e).append("</a>");
+    new CreateDB(NAME, sb.append("</x>").toString()).execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void cleanUp() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Reads nodes in parallel.
+   * @throws Exception exception
+   */
+  @Test
+  public void read() throws Exception {
+    read(context.data());
+  }
+
+  /**
+   * Reads nodes in parallel after an update.
+   * @throws Exception exception
+   */
+  @Test
+  public void readAfterUpdate() throws Exception {
+    new XQuery("for $a in //a[@n mod 2 = 0] return replace value of node $a with " +
+        "'text' || $a/@n").execute(context);
+    read(context.data());
+  }
+
+  /**
+   * Creates the query info of queries that open and close a database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void queryInfo() throws BaseXException {
+    new Close().execute(context);
+    new Set(MainOptions.QUERYINFO, true).execute(context);
+    try {
+      final String db = "db:open('" + NAME + "')";
+      new XQuery("insert node <b/> into " + db + "/x").execute(context);
+      assertEquals("1", new XQuery("count(" + db + "//b)").execute(context));
+    } finally {
+      new Set(MainOptions.QUERYINFO, false).execute(context);
+    }
+  }
+
+  /**
+   * Reads all nodes of the specified database in parallel.
+   * @param data data reference
+   * @throws Exception exception
+   */
+  private static void read(final Data data) throws Exception {
+    final String[] errors = new String[THREADS];
+    final Thread[] threads = new Thread[THREADS];
+    for(int t = 0; t < THREADS; t++) {
+      final int nr = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          // traverse elements in different orders
+          for(int i = 0; i < SIZE; i++) {
+            final int e = (i * (nr + 1) * 7919) % SIZE + 1;
+            final int pre = 2 + (e - 1) * 3;
+            final String t1 = "text" + e;
+            final String t2 = Token.string(data.text(pre + 2, true));
+            final String a = Token.string(data.text(pre + 1, false));
+            if(data.kind(pre) != Data.ELEM || !t1.equals(t2) || !a.equals(
+                Integer.toString(e)) || data.textLen(pre + 2, true) != t1.length()) {
+              errors[nr] = "Pre " + pre + ": " + t2 + ", " + a;
+              return;
+            }
+          }
+        }
+      };
+    }
+    for(final Thread th : threads) th.start();
+    for(final Thread th : threads) th.join();
+    for(final String e : errors) assertNull(e);
+  }
+}
@@ -0,0 +1,40 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+
+/**
+ * Test index updates when using memory-mapped disk storage ({@link DiskData}).
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class MappedDataTest extends DiskDataTest {
+  @Override
+  @Before
+  public void setUp() throws BaseXException {
+    context.options.set(MainOptions.MMAP, true);
+    super.setUp();
+  }
+
+  @Override
+  @After
+  public void cleanUp() throws BaseXException {
+    super.cleanUp();
+    context.options.set(MainOptions.MMAP, false);
+  }
+
+  /**
+   * Reads nodes from the mapped table and text files.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void read() throws BaseXException {
+    assertEquals("4", new XQuery("count(/a/*)").execute(context));
+    assertEquals("test1", new XQuery("/a/f[1]/text()").execute(context));
+    assertEquals("testtest1test3", new XQuery("string(/a)").execute(context));
+  }
+}
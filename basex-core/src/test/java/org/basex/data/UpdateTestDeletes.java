@@ -2,6 +2,8 @@ package org.basex.data;
 
 import static org.junit.Assert.*;
 
+import java.io.*;
+
 import org.junit.*;
 
 /**
@@ -13,9 +15,10 @@ import org.junit.*;
 public final class UpdateTestDeletes extends UpdateTest {
   /**
    * Tests deletion of a simple node.
+   * @throws IOException I/O exception
    */
   @Test
-  public void simpleNodeDelete() {
+  public void simpleNodeDelete() throws IOException {
     final Data data = context.data();
     final int oldDocSize = data.size(0, Data.DOC);
     final int oldRootSize = data.size(1, Data.ELEM);
@@ -40,9 +43,10 @@ public final class UpdateTestDeletes extends UpdateTest {
 
   /**
    * Tests deletion of a node with a child.
+   * @throws IOException I/O exception
    */
   @Test
-  public void cascadingDelete() {
+  public void cascadingDelete() throws IOException {
     final Data data = context.data();
     final int oldDocSize = data.size(0, Data.DOC);
     final int oldRootSize = data.size(1, Data.ELEM);
@@ -64,9 +68,10 @@ public final class UpdateTestDeletes extends UpdateTest {
 
   /**
    * Tests deletion of a node with a child (with text) and attribute.
+   * @throws IOException I/O exception
    */
   @Test
-  public void cascadingDelete2() {
+  public void cascadingDelete2() throws IOException {
     final Data data = context.data();
     final int oldDocSize = data.size(0, Data.DOC);
     final int oldRootSize = data.size(1, Data.ELEM);
@@ -91,9 +96,10 @@ public final class UpdateTestDeletes extends UpdateTest {
 
   /**
    * Tests deletion of an attribute.
+   * @throws IOException I/O exception
    */
   @Test
-  public void deleteAttribute() {
+  public void deleteAttribute() throws IOException {
     final Data data = context.data();
     final int oldRootSize = data.size(1, Data.ELEM);
     final int oldParentSize = data.size(6, Data.ELEM);
@@ -120,9 +126,10 @@ public final class UpdateTestDeletes extends UpdateTest {
   /**
    * For the sake of completeness.
    * Tests deletion of a text-node.
+   * @throws IOException I/O exception
    */
   @Test
-  public void deleteText() {
+  public void deleteText() throws IOException {
     final Data data = context.data();
     data.startUpdate();
     data.delete(10);
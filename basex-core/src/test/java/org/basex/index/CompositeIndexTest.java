@@ -0,0 +1,167 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.junit.*;
+
+/**
+ * Tests for composite indexes.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class CompositeIndexTest extends AdvancedQueryTest {
+  /** Test document. */
+  private static final String DOC = "<x>{ for $i in 1 to 300 return <order id='{ $i }' " +
+    "region='{ ('EU', 'US', 'AS')[$i mod 3 + 1] }' " +
+    "status='{ ('open', 'closed')[$i mod 2 + 1] }'>" +
+    "<item>{ ('a', 'b', 'c', 'd', 'e')[$i mod 5 + 1] }</item>" +
+    "<item>{ ('a', 'b', 'c', 'd', 'e')[$i mod 7 mod 5 + 1] }</item>" +
+    "<price>{ $i mod 11 }</price></order> }</x>";
+  /** Index definitions. */
+  private static final String DEFS = "order(@region, @status); order(item, price)";
+
+  /** Queries and their sequential counterparts. */
+  private static final String[][] QUERIES = {
+    { "//order[@region = 'EU'][@status = 'open']",
+      "//order[@region ! string() = 'EU'][@status ! string() = 'open']" },
+    { "//order[@status = 'open' and @region = 'US']",
+      "//order[@status ! string() = 'open'][@region ! string() = 'US']" },
+    { "//order[@region = ('EU', 'AS')][@status = 'closed'][@id < 100]",
+      "//order[@region ! string() = ('EU', 'AS')][@status ! string() = 'closed']" +
+      "[@id < 100]" },
+    { "//order[item = 'c'][price = '3']",
+      "//order[item ! string() = 'c'][price ! string() = '3']" },
+    { "//order[item = ('a', 'b')][price = ('1', '2')][@region = 'EU']",
+      "//order[item ! string() = ('a', 'b')][price ! string() = ('1', '2')]" +
+      "[@region ! string() = 'EU']" },
+    { "/x/order[@region = 'EU'][@status = 'open'][item = 'b']",
+      "/x/order[@region ! string() = 'EU'][@status ! string() = 'open']" +
+      "[item ! string() = 'b']" },
+  };
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws Exception exception
+   */
+  @After
+  public void finish() throws Exception {
+    context.options.set(MainOptions.COMPINDEX, "");
+    context.options.set(MainOptions.INDEXTHREADS, 1);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Creates and queries a composite index.
+   * @throws Exception exception
+   */
+  @Test
+  public void create() throws Exception {
+    createDB();
+    assertTrue(context.data().meta.compindex);
+    assertTrue(new InfoDB().execute(context).contains("COMPINDEX: " + DEFS));
+    assertTrue(new InfoIndex("composite").execute(context).contains("order(@region,@status)"));
+    check(true);
+    query("count(//order[@region = 'EU'][@status = 'unknown'])", "0");
+
+    // index is not applied to other comparisons
+    indexed("//order[@region = 'EU']", false);
+    indexed("//order[@region = 'EU'][@status != 'open']", false);
+    indexed("//order[@region = 'EU'][status = 'open']", false);
+    indexed("//x[@region = 'EU'][@status = 'open']", false);
+    // comparisons are not merged if another index access is cheaper
+    indexed("//order[@id = '6'][@region = 'EU'][@status = 'open']", false);
+    query("//order[@id = '6'][@region = 'EU'][@status = 'open']/@id ! string()", "6");
+
+    // index is adopted when the database is reopened
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    check(true);
+
+    // index is dropped
+    new DropIndex("composite").execute(context);
+    assertFalse(context.data().meta.compindex);
+    check(false);
+  }
+
+  /**
+   * Builds the index in parallel.
+   * @throws Exception exception
+   */
+  @Test
+  public void parallel() throws Exception {
+    context.options.set(MainOptions.INDEXTHREADS, 3);
+    createDB();
+    check(true);
+  }
+
+  /**
+   * Updates a database with a composite index.
+   * @throws Exception exception
+   */
+  @Test
+  public void update() throws Exception {
+    createDB();
+    query("insert node <order region='EU' status='open'/> into /x");
+    query("delete node /x/order[1]");
+    assertFalse(context.data().meta.compindex);
+    check(false);
+
+    // index is rebuilt when the database is optimized
+    new Optimize().execute(context);
+    assertTrue(context.data().meta.compindex);
+    check(true);
+  }
+
+  /**
+   * Rejects invalid definitions.
+   */
+  @Test
+  public void invalid() {
+    for(final String def : new String[] { "order", "order(@region)", "order(@1, x)" }) {
+      context.options.set(MainOptions.COMPINDEX, def);
+      try {
+        new CreateDB(NAME, DOC).execute(context);
+        fail("Definition accepted: " + def);
+      } catch(final BaseXException ex) {
+        /* expected */
+      }
+    }
+  }
+
+  /**
+   * Creates the test database.
+   * @throws Exception exception
+   */
+  private static void createDB() throws Exception {
+    context.options.set(MainOptions.COMPINDEX, DEFS);
+    create(DOC);
+  }
+
+  /**
+   * Checks if the queries return the same nodes as their sequential counterparts,
+   * and if they are rewritten for composite index access.
+   * @param index expected index access
+   */
+  private static void check(final boolean index) {
+    for(final String[] q : QUERIES) {
+      compare(q[0] + "/@id ! string()", q[1] + "/@id ! string()");
+      indexed(q[0], index);
+    }
+  }
+
+  /**
+   * Checks if the specified query is rewritten for composite index access.
+   * If not, the comparisons must not be merged.
+   * @param query query
+   * @param index expected result
+   */
+  private static void indexed(final String query, final boolean index) {
+    plan(query, index, CompositeAccess.class);
+    if(!index) plan(query, false, CmpComposite.class);
+  }
+}
@@ -0,0 +1,127 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.ft.*;
+import org.junit.*;
+
+/**
+ * Tests for fuzzy and wildcard lookups in the full-text index.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class FTLookupTest extends AdvancedQueryTest {
+  /** Test document. */
+  private static final String DOC = "<x>{ " +
+    "(1 to 3000) ! <a>{ string-join(for $j in 1 to 3 + . mod 9 return " +
+    "codepoints-to-string(97 + (. * $j * 7919 + $j * $j) mod 13)) }</a>, " +
+    "<a>apple apples applet maple grapple</a>, <a>banana bandana cabana</a>, " +
+    "<a>cherry sherry chery cherries</a>, <a>überschüsse Überschuss</a>, " +
+    "<a>café cafe caffè</a> }</x>";
+  /** Fuzzy search terms. */
+  private static final String[] FUZZY = {
+    "apple", "aple", "banana", "bananna", "cherry", "cheery", "überschuss", "cafe",
+    "abcdefg", "gfedcba", "abcabcab", "mlkjihg", "ab", "x"
+  };
+  /** Wildcard search terms. */
+  private static final String[] WILDCARDS = {
+    "app.*", "ch.?rry", "über.*", "caf.", "a.*b", "m.*"
+  };
+  /** Wildcard search terms that are only looked up in the index via ft:search. */
+  private static final String[] PATTERNS = {
+    ".*ple", ".*pl.", "b.n.n.", ".{1,3}rry", ".+e", ".*üsse", ".*abc.*", "d.?.?.?.e",
+    ".*", "..", ".*l.{2,2}e", ".*a", ".{2,5000}ry",
+    "app.{0,4000}.{0,4000}"
+  };
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws Exception exception
+   */
+  @After
+  public void finish() throws Exception {
+    context.options.set(MainOptions.UPDINDEX, false);
+    context.options.set(MainOptions.FTINDEX, false);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares the results of index-based and sequential lookups.
+   * @throws Exception exception
+   */
+  @Test
+  public void lookups() throws Exception {
+    create();
+    check();
+    // reversed token dictionary has been created for suffix queries
+    assertTrue(context.data().meta.dbfile(DataText.DATAFTX + 'r').exists());
+
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    check();
+
+    // dictionary is dropped if the index is rebuilt
+    new CreateIndex("fulltext").execute(context);
+    assertFalse(context.data().meta.dbfile(DataText.DATAFTX + 'r').exists());
+    check();
+  }
+
+  /**
+   * Compares the results of index-based and sequential lookups after updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void updates() throws Exception {
+    context.options.set(MainOptions.UPDINDEX, true);
+    create();
+    query("insert node <a>grapple chary überschuß bandanas</a> into /x");
+    query("delete node //a[. = 'cherry sherry chery cherries']");
+    check();
+    assertTrue(context.data().meta.dbfile(DataText.DATAFTX + 'r').exists());
+
+    // dictionary is dropped if the updates are merged
+    new Optimize().execute(context);
+    assertFalse(context.data().meta.dbfile(DataText.DATAFTX + 'r').exists());
+    check();
+  }
+
+  /**
+   * Creates the test database.
+   * @throws Exception exception
+   */
+  private static void create() throws Exception {
+    context.options.set(MainOptions.FTINDEX, true);
+    create(DOC);
+    assertTrue(context.data().meta.ftxtindex);
+  }
+
+  /**
+   * Checks all search terms.
+   */
+  private static void check() {
+    for(final String t : FUZZY) check(t, "fuzzy", true);
+    for(final String t : WILDCARDS) check(t, "wildcards", true);
+    for(final String t : PATTERNS) check(t, "wildcards", false);
+  }
+
+  /**
+   * Checks if the index lookups of a search term yield the texts that are found by a
+   * sequential search, and if the full-text expression is rewritten for index access.
+   * @param term search term
+   * @param option match option
+   * @param index expected index access
+   */
+  private static void check(final String term, final String option, final boolean index) {
+    final String ct = " contains text '" + term + "' using " + option + ']';
+    final String seq = query("//text()[string()" + ct + " ! string()");
+    query("//text()[." + ct + " ! string()", seq);
+    query("ft:search('" + NAME + "', '" + term + "', map { '" + option + "': true() }) " +
+        "! string()", seq);
+    plan("//text()[." + ct, index, FTIndexAccess.class);
+  }
+}
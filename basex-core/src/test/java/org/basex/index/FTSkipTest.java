@@ -0,0 +1,117 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.basex.query.ft.*;
+import org.junit.*;
+
+/**
+ * Tests for the skip pointers of full-text posting lists.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class FTSkipTest extends AdvancedQueryTest {
+  /** Test document. */
+  private static final String DOC = "<x>{ for $i in 1 to 5000 return <a>{ string-join(" +
+    "('common', ('even')[$i mod 2 = 0], ('seven')[$i mod 7 = 0], 'common', " +
+    "('rare')[$i mod 997 = 0], ('odd')[$i mod 2 = 1]), ' ') }</a> }</x>";
+  /** Full-text expressions. */
+  private static final String[] QUERIES = {
+    "'common' ftand 'rare'", "'rare' ftand 'common'", "'even' ftand 'seven'",
+    "'seven' ftand 'even' ftand 'rare'", "'even' ftand 'odd'", "'rare' ftand 'odd'",
+    "{ 'common', 'rare' } all words", "{ 'seven', 'even' } all words",
+    "'common rare'", "'common even seven'", "'even seven common'",
+    "'rare' ftand ftnot 'seven'", "'seven' ftand ftnot 'even'",
+    "'seven' ftand ('even' ftor 'rare')", "'common' ftand 'unknown'"
+  };
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws Exception exception
+   */
+  @After
+  public void finish() throws Exception {
+    context.options.set(MainOptions.FTINDEX, false);
+    context.options.set(MainOptions.FTINDEXSPLITSIZE, 0);
+    context.options.set(MainOptions.INDEXTHREADS, 1);
+    context.options.set(MainOptions.UPDINDEX, false);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Creates skip pointers and uses them after the database has been reopened.
+   * @throws Exception exception
+   */
+  @Test
+  public void skips() throws Exception {
+    create();
+    assertTrue(context.data().meta.ftskips);
+    check();
+
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    check();
+  }
+
+  /**
+   * Builds the index in several steps.
+   * @throws Exception exception
+   */
+  @Test
+  public void splits() throws Exception {
+    context.options.set(MainOptions.FTINDEXSPLITSIZE, 3000);
+    create();
+    assertTrue(context.data().meta.ftskips);
+    check();
+  }
+
+  /**
+   * Builds the index in parallel.
+   * @throws Exception exception
+   */
+  @Test
+  public void parallel() throws Exception {
+    context.options.set(MainOptions.INDEXTHREADS, 3);
+    create();
+    assertTrue(context.data().meta.ftskips);
+    check();
+  }
+
+  /**
+   * Checks that no skip pointers are created if the index is incrementally updated.
+   * @throws Exception exception
+   */
+  @Test
+  public void updates() throws Exception {
+    context.options.set(MainOptions.UPDINDEX, true);
+    create();
+    assertFalse(context.data().meta.ftskips);
+    check();
+  }
+
+  /**
+   * Creates the test database.
+   * @throws Exception exception
+   */
+  private static void create() throws Exception {
+    context.options.set(MainOptions.FTINDEX, true);
+    create(DOC);
+    assertTrue(context.data().meta.ftxtindex);
+  }
+
+  /**
+   * Checks if the full-text expressions are evaluated by the index, and if they
+   * yield the same number of results as a sequential search.
+   */
+  private static void check() {
+    for(final String q : QUERIES) {
+      final String query = "//text()[. contains text " + q + ']';
+      compare("count(" + query + ')', "count(//text()[string() contains text " + q + "])");
+      plan(query, true, FTIndexAccess.class);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.junit.*;
+
+/**
+ * Tests for retrieving the full-text results with the highest scores.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class FTTopTest extends AdvancedQueryTest {
+  /** Test document. */
+  private static final String DOC = "<x>{ for $i in 1 to 6000 return <a>{ string-join((" +
+    "(1 to $i mod 5 + 1) ! 'common', ('even')[$i mod 2 = 0], ('rare')[$i mod 397 = 0], " +
+    "(1 to $i mod 11) ! 'filler', ('seven')[$i mod 7 = 0]), ' ') }</a> }</x>";
+  /** Search terms and options. */
+  private static final String[][] QUERIES = {
+    { "'common'", "" }, { "'rare'", "" }, { "('common', 'rare')", "" },
+    { "('even', 'seven')", "'mode': 'all'" }, { "'common rare'", "'mode': 'any word'" },
+    { "'seven common even'", "'mode': 'all words'" }, { "'comon'", "'fuzzy': true()" },
+    { "'common even'", "'mode': 'all words', 'distance': map { 'max': 3 }" },
+    { "'unknown'", "" }
+  };
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws Exception exception
+   */
+  @After
+  public void finish() throws Exception {
+    context.options.set(MainOptions.FTINDEX, false);
+    context.options.set(MainOptions.UPDINDEX, false);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Finds the best nodes with the score bounds of the skip pointers.
+   * @throws Exception exception
+   */
+  @Test
+  public void top() throws Exception {
+    create();
+    assertTrue(context.data().meta.ftskips);
+    check();
+  }
+
+  /**
+   * Compares the results if the index contains no score bounds.
+   * @throws Exception exception
+   */
+  @Test
+  public void updates() throws Exception {
+    context.options.set(MainOptions.UPDINDEX, true);
+    create();
+    assertFalse(context.data().meta.ftskips);
+    check();
+  }
+
+  /**
+   * Creates the test database.
+   * @throws Exception exception
+   */
+  private static void create() throws Exception {
+    context.options.set(MainOptions.FTINDEX, true);
+    create(DOC);
+    assertTrue(context.data().meta.ftxtindex);
+  }
+
+  /**
+   * Compares the results with the best nodes of a complete search.
+   */
+  private static void check() {
+    for(final String[] q : QUERIES) {
+      for(final int top : new int[] { 1, 10, 100, 10000 }) {
+        final String opts = "map { 'top': " + top + (q[1].isEmpty() ? "" : ", ") + q[1] + " }";
+        final String all = "(for $n in ft:search('" + NAME + "', " + q[0] + ", map { " + q[1] +
+            " }) let $p := db:node-pre($n), $s := ft:score($n) order by $s descending, $p " +
+            "return $p || ':' || $s)[position() <= " + top + ']';
+        final String exp = query("for $e in " + all + " order by xs:integer(" +
+            "substring-before($e, ':')) return $e");
+        query("ft:search('" + NAME + "', " + q[0] + ", " + opts + ") ! " +
+            "(db:node-pre(.) || ':' || ft:score(.))", exp.replace('\n', ' '));
+      }
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.query.ft.*;
+import org.basex.util.*;
+import org.basex.util.ft.*;
+import org.junit.*;
+
+/**
+ * Tests for incremental updates of the full-text index.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class FTUpdateTest extends AdvancedQueryTest {
+  /** Search terms. */
+  private static final String[] TERMS = { "apple", "banana", "cherry", "date", "fig" };
+
+  /**
+   * Creates the test database.
+   * @throws Exception exception
+   */
+  @Before
+  public void init() throws Exception {
+    context.options.set(MainOptions.UPDINDEX, true);
+    context.options.set(MainOptions.FTINDEX, true);
+    new CreateDB(NAME, "<x><a>apple banana</a><a>cherry apple</a><b>date</b></x>").
+      execute(context);
+  }
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws Exception exception
+   */
+  @After
+  public void finish() throws Exception {
+    context.options.set(MainOptions.UPDINDEX, false);
+    context.options.set(MainOptions.FTINDEX, false);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Inserts, replaces and deletes texts.
+   * @throws Exception exception
+   */
+  @Test
+  public void update() throws Exception {
+    check();
+    query("insert node <a>fig apple</a> into /x");
+    check();
+    query("replace value of node (//a)[1] with 'cherry fig'");
+    check();
+    query("for $a in //a[. contains text 'cherry'] return replace value of node $a " +
+        "with 'date date banana'");
+    check();
+    query("delete node (//a)[2]");
+    check();
+    query("insert node <c><a>apple</a><a>banana</a></c> before /x/b");
+    query("delete node /x/c/a[1]");
+    check();
+    assertTrue(context.data().meta.ftxtindex);
+    query("ft:search('" + NAME + "', 'dat', map { 'wildcards': true() }) ! string()", "");
+    query("count(ft:search('" + NAME + "', 'dat.*', map { 'wildcards': true() }))", "2");
+    query("count(ft:search('" + NAME + "', 'figg', map { 'fuzzy': true() }))", "1");
+    query("ft:tokens('" + NAME + "', 'ba') ! string()", "banana");
+    query("ft:tokens('" + NAME + "', 'ba') ! @count ! string()", "2");
+
+    // pending updates are written to disk
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertTrue(context.data().meta.dbfile(DataText.DATAFTX + 'd').exists());
+    check();
+
+    // pending updates are merged
+    new Optimize().execute(context);
+    assertFalse(context.data().meta.dbfile(DataText.DATAFTX + 'd').exists());
+    check();
+    query("insert node <a>fig</a> into /x");
+    check();
+  }
+
+  /**
+   * Includes pending deletions in the estimated costs.
+   */
+  @Test
+  public void costs() {
+    query("delete node //a[. contains text 'apple']");
+    assertEquals(0, costs("apple"));
+    assertEquals(1, costs("date"));
+    query("insert node <a>apple</a> into /x");
+    assertEquals(1, costs("apple"));
+  }
+
+  /**
+   * Completes a merge that was interrupted while the index files were renamed.
+   * @throws Exception exception
+   */
+  @Test
+  public void recover() throws Exception {
+    query("insert node <a>fig apple</a> into /x");
+    query("delete node (//a)[1]");
+    final MetaData meta = context.data().meta;
+    new Close().execute(context);
+    final byte[] y = file(meta, "y").read(), z = file(meta, "z").read();
+    final byte[] d = file(meta, "d").read();
+
+    // merge pending updates; simulate that only the first index file has been replaced
+    new Open(NAME).execute(context);
+    new Optimize().execute(context);
+    new Close().execute(context);
+    assertTrue(file(meta, "y").rename(file(meta, "my")));
+    assertTrue(file(meta, "z").rename(file(meta, "mz")));
+    file(meta, "y").write(y);
+    file(meta, "z").write(z);
+    file(meta, "d").write(d);
+    file(meta, "m").write(new byte[0]);
+
+    new Open(NAME).execute(context);
+    assertFalse(file(meta, "m").exists());
+    assertFalse(file(meta, "d").exists());
+    check();
+  }
+
+  /**
+   * Ignores an incrementally updated index that references pre values.
+   * @throws Exception exception
+   */
+  @Test
+  public void legacy() throws Exception {
+    // simulate an index that has been created before ids were stored
+    MetaData meta = context.data().meta;
+    assertTrue(meta.ftids);
+    meta.ftids = false;
+    meta.dirty = true;
+    new Close().execute(context);
+
+    new Open(NAME).execute(context);
+    meta = context.data().meta;
+    assertFalse(meta.ftxtindex);
+    query("insert node <a>fig apple</a> into /x");
+    query("count(//text()[. contains text 'apple'])", "3");
+
+    // index is rebuilt
+    new Optimize().execute(context);
+    assertTrue(meta.ftxtindex);
+    assertTrue(meta.ftids);
+    check();
+  }
+
+  /**
+   * Returns a file of the full-text index.
+   * @param meta meta data
+   * @param suffix suffix
+   * @return file
+   */
+  private static IOFile file(final MetaData meta, final String suffix) {
+    return meta.dbfile(DataText.DATAFTX + suffix);
+  }
+
+  /**
+   * Returns the estimated costs for the specified token.
+   * @param token token
+   * @return costs
+   */
+  private static int costs(final String token) {
+    final Data data = context.data();
+    final FTLexer lex = new FTLexer(new FTOpt().copy(data.meta)).init(Token.token(token));
+    lex.nextToken();
+    return data.costs(lex);
+  }
+
+  /**
+   * Checks if the updated full-text index is used and returns all texts that
+   * are found by a sequential search.
+   */
+  private static void check() {
+    for(final String t : TERMS) {
+      final String query = "//text()[. contains text '" + t + "']";
+      final String seq = query("//text()[string() contains text '" + t + "'] ! string()");
+      query("ft:search('" + NAME + "', '" + t + "') ! string()", seq);
+      query(query + " ! string()", seq);
+      plan(query, true, FTIndexAccess.class);
+    }
+  }
+}
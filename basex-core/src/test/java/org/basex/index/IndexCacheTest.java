@@ -5,6 +5,11 @@ import static org.junit.Assert.*;
 
 import java.util.*;
 
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.util.*;
 import org.junit.*;
 
 /**
@@ -13,7 +18,7 @@ import org.junit.*;
  * @author BaseX Team 2005-13, BSD License
  * @author Dimitar Popov
  */
-public final class IndexCacheTest {
+public final class IndexCacheTest extends AdvancedQueryTest {
   /** Test instance. */
   private IndexCache cache;
 
@@ -74,6 +79,83 @@ public final class IndexCacheTest {
     assertNull(cache.get(key));
   }
 
+  /** Tests if the number of cached entries is bounded. */
+  @Test
+  public void testEntryBudget() {
+    cache = new IndexCache(160, Long.MAX_VALUE);
+    for(int i = 0; i < 10000; ++i) cache.add(token("keyBudget" + i), i, i);
+    assertTrue(cached("keyBudget", 10000) <= 160);
+  }
+
+  /** Tests if the estimated memory consumption of the cached entries is bounded. */
+  @Test
+  public void testMemoryBudget() {
+    cache = new IndexCache(Integer.MAX_VALUE, 64 * 1024);
+    final byte[] pad = new byte[1000];
+    for(int i = 0; i < 1000; ++i) cache.add(concat(token(i), pad), i, i);
+    int c = 0;
+    for(int i = 0; i < 1000; ++i) if(cache.get(concat(token(i), pad)) != null) c++;
+    assertTrue(c > 0 && c <= 64);
+  }
+
+  /** Tests if frequently requested entries are not replaced by a scan. */
+  @Test
+  public void testAdmission() {
+    cache = new IndexCache(320, Long.MAX_VALUE);
+    // request entries repeatedly
+    for(int r = 0; r < 10; ++r) {
+      for(int i = 0; i < 100; ++i) {
+        final byte[] key = token("keyHot" + i);
+        if(cache.get(key) == null) cache.add(key, i, i);
+      }
+    }
+    // scan many entries that are requested once
+    for(int i = 0; i < 5000; ++i) {
+      final byte[] key = token("keyScan" + i);
+      if(cache.get(key) == null) cache.add(key, i, i);
+    }
+    assertTrue(cached("keyHot", 100) > 90);
+  }
+
+  /** Tests the statistics. */
+  @Test
+  public void testInfo() {
+    final byte[] key = token("keyInfo");
+    assertNull(cache.get(key));
+    cache.add(key, 1, 1);
+    assertNotNull(cache.get(key));
+    final TokenBuilder tb = new TokenBuilder();
+    cache.info(tb);
+    final String info = tb.toString();
+    assertTrue(info, info.contains("1 entries"));
+    assertTrue(info, info.contains("1 hits, 1 misses (50% hits)"));
+  }
+
+  /**
+   * Tests if the cache of a value index is bounded, and if its statistics are
+   * shown by INFO INDEX.
+   * @throws Exception exception
+   */
+  @Test
+  public void testInfoIndex() throws Exception {
+    context.options.set(MainOptions.INDEXCACHE, 16);
+    try {
+      create("<x>{ (1 to 1000) ! <a>{ . }</a> }</x>");
+      plan("//a[text() = '1']", true, ValueAccess.class);
+      for(int i = 1; i <= 1000; i += 5) query("count(//a[text() = '" + i + "'])", "1");
+
+      final String info = new InfoIndex("text").execute(context);
+      final int i = info.indexOf(Text.LI_CACHE) + Text.LI_CACHE.length();
+      assertTrue(info, i >= Text.LI_CACHE.length());
+      final int entries = Integer.parseInt(info.substring(i, info.indexOf(' ', i)));
+      assertTrue(info, entries > 0 && entries <= 16);
+      assertTrue(info, info.contains(" evictions"));
+    } finally {
+      context.options.set(MainOptions.INDEXCACHE, MainOptions.INDEXCACHE.value);
+      new DropDB(NAME).execute(context);
+    }
+  }
+
   /**
    * Test that new records can be continuously added without hitting
    * {@link OutOfMemoryError}.
@@ -93,6 +175,18 @@ public final class IndexCacheTest {
     }
   }
 
+  /**
+   * Returns the number of cached entries with the specified prefix.
+   * @param prefix key prefix
+   * @param n number of keys
+   * @return number of cached entries
+   */
+  private int cached(final String prefix, final int n) {
+    int c = 0;
+    for(int i = 0; i < n; ++i) if(cache.get(token(prefix + i)) != null) c++;
+    return c;
+  }
+
   /**
    * Assert a cache entry is found in the cache.
    * @param key key
@@ -0,0 +1,151 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.junit.*;
+
+/**
+ * Tests for value indexes that are restricted to specific element and attribute names.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexIncludeTest extends AdvancedQueryTest {
+  /** Test document. */
+  private static final String DOC = "<x><a id='1' n='1'>A</a><b id='2' n='2'>B</b>" +
+    "<c><a id='3'>A</a><d:a xmlns:d='d' n='3'>C</d:a></c><a>D</a><b>A</b></x>";
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws Exception exception
+   */
+  @After
+  public void finish() throws Exception {
+    context.options.set(MainOptions.TEXTINCLUDE, "");
+    context.options.set(MainOptions.ATTRINCLUDE, "");
+    context.options.set(MainOptions.UPDINDEX, false);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Creates an index with restricted names.
+   * @throws Exception exception
+   */
+  @Test
+  public void create() throws Exception {
+    create(false);
+    query("index:texts('" + NAME + "') ! string()", "A C D");
+    query("index:attributes('" + NAME + "') ! string()", "1 2 3");
+    query("index:texts('" + NAME + "', 'A') ! @count ! string()", "2");
+    assertTrue(new InfoDB().execute(context).contains("TEXTINCLUDE: a, e"));
+
+    check();
+    indexed("//a[text() = 'A']", true);
+    indexed("//*:a[text() = 'C']", true);
+    indexed("//a[@id = '1']", true);
+    indexed("//b[text() = 'B']", false);
+    indexed("//*[text() = 'A']", false);
+    indexed("//a[.//text() = 'A']", false);
+    indexed("//a[@n = '1']", false);
+    indexed("//@*[. = '1']", false);
+
+    // names are adopted when the database is optimized
+    context.options.set(MainOptions.TEXTINCLUDE, "");
+    new OptimizeAll().execute(context);
+    query("index:texts('" + NAME + "') ! string()", "A C D");
+    check();
+
+    // names are reassigned when the index is created
+    context.options.set(MainOptions.TEXTINCLUDE, "");
+    new CreateIndex("text").execute(context);
+    query("index:texts('" + NAME + "') ! string()", "A B C D");
+    indexed("//b[text() = 'B']", true);
+    check();
+  }
+
+  /**
+   * Updates a database with restricted index names.
+   * @throws Exception exception
+   */
+  @Test
+  public void update() throws Exception {
+    create(true);
+    query("insert node <e id='4' n='4'>E</e> into /x");
+    query("insert node (<a>F</a>, <b>G</b>, <a id='5'/>) into /x/c");
+    check();
+    indexed("//a[text() = 'F']", true);
+    indexed("//b[text() = 'G']", false);
+    indexed("//e[@id = '4']", true);
+    indexed("//e[@n = '4']", false);
+    query("index:texts('" + NAME + "') ! string()", "A C D E F");
+    query("index:attributes('" + NAME + "') ! string()", "1 2 3 4 5");
+
+    query("replace node /x/c/b with <a>G</a>");
+    query("replace value of node /x/b[1] with 'H'");
+    query("replace value of node /x/a[1] with 'I'");
+    check();
+    query("index:texts('" + NAME + "') ! string()", "A C D E F G I");
+
+    // renamed nodes
+    query("rename node /x/b[1] as 'a'");
+    query("rename node /x/e as 'f'");
+    query("rename node /x/c/*:a/@n as 'id'");
+    query("rename node /x/f/@id as 'm'");
+    check();
+    query("index:texts('" + NAME + "') ! string()", "A C D F G H I");
+    query("index:attributes('" + NAME + "') ! string()", "1 2 3 5");
+    query("index:attributes('" + NAME + "', '3') ! @count ! string()", "2");
+
+    query("delete node /x/c");
+    query("delete node //@id");
+    check();
+    query("index:texts('" + NAME + "') ! string()", "D H I");
+    query("index:attributes('" + NAME + "') ! string()", "");
+
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    check();
+  }
+
+  /**
+   * Creates the test database.
+   * @param updindex updatable index
+   * @throws Exception exception
+   */
+  private static void create(final boolean updindex) throws Exception {
+    context.options.set(MainOptions.UPDINDEX, updindex);
+    context.options.set(MainOptions.TEXTINCLUDE, "a, e");
+    context.options.set(MainOptions.ATTRINCLUDE, "id");
+    new CreateDB(NAME, DOC).execute(context);
+  }
+
+  /**
+   * Checks if the results of comparisons with included and excluded names are
+   * the same as those of comparisons that cannot be rewritten for index access.
+   */
+  private static void check() {
+    for(final String v : new String[] { "A", "B", "C", "D", "E", "F", "G", "H", "I" }) {
+      compare("//(a | e | *:a)[text() = '" + v + "'] ! name()",
+          "//(a | e | *:a)[text() ! string() = '" + v + "'] ! name()");
+      compare("//*[text() = '" + v + "'] ! name()",
+          "//*[text() ! string() = '" + v + "'] ! name()");
+    }
+    for(final String v : new String[] { "1", "2", "3", "4", "5" }) {
+      compare("//*[@id = '" + v + "'] ! name()", "//*[@id ! string() = '" + v + "'] ! name()");
+      compare("//*[@n = '" + v + "'] ! name()", "//*[@n ! string() = '" + v + "'] ! name()");
+    }
+  }
+
+  /**
+   * Checks if the specified query is rewritten for index access.
+   * @param query query
+   * @param index expected result
+   */
+  private static void indexed(final String query, final boolean index) {
+    plan(query, index, ValueAccess.class);
+  }
+}
@@ -0,0 +1,147 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.junit.*;
+
+/**
+ * Tests for range queries on value indexes with numeric keys.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class NumericIndexTest extends AdvancedQueryTest {
+  /** Test document. */
+  private static final String DOC = "<x>{ (1 to 1000) ! <a n='{ . * 2 }'>{ . }</a>, " +
+      "<a n='-3.5'>1.5</a>, <a n='1e1'> 20 </a> }</x>";
+  /** Range queries with inclusive limits and expected results. */
+  private static final String[][] INCLUSIVE = {
+    { "count(//a[text() >= 10 and text() <= 20])", "12" },
+    { "count(//a[@n >= -5 and @n <= 10])", "7" },
+  };
+  /** Range queries with exclusive limits and expected results. */
+  private static final String[][] EXCLUSIVE = {
+    { "count(//a[text() > -1 and text() < 2])", "2" },
+    { "count(//a[text() > 1 and text() < 2])", "1" },
+    { "count(//a[@n > 1 and @n <= 10])", "6" },
+  };
+  /** Range queries without upper or lower limit and expected results. */
+  private static final String[][] OPEN = {
+    { "count(//a[text() > 999])", "1" },
+    { "count(//a[text() >= 995])", "6" },
+    { "count(//a[text() < 2])", "2" },
+  };
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws Exception exception
+   */
+  @After
+  public void finish() throws Exception {
+    context.options.set(MainOptions.NUMINDEX, false);
+    context.options.set(MainOptions.UPDINDEX, false);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares the results of range queries with and without numeric keys.
+   * @throws Exception exception
+   */
+  @Test
+  public void ranges() throws Exception {
+    create(false);
+    assertFalse(context.data().meta.numindex);
+    check();
+    create(true);
+    assertTrue(context.data().meta.numindex);
+    assertTrue(context.data().meta.dbfile("txtn").exists());
+    assertTrue(context.data().meta.dbfile("atvn").exists());
+    check();
+
+    // numeric keys are dropped with the index
+    new DropIndex("text").execute(context);
+    assertFalse(context.data().meta.dbfile("txtn").exists());
+    new CreateIndex("text").execute(context);
+    assertTrue(context.data().meta.dbfile("txtn").exists());
+    check();
+
+    // numeric keys are preserved by optimizations
+    new Optimize().execute(context);
+    check();
+    new OptimizeAll().execute(context);
+    assertTrue(context.data().meta.numindex);
+    check();
+
+    // numeric keys can be enabled and disabled via db:optimize
+    query("db:optimize('" + NAME + "', false(), map { 'numindex': false() })");
+    assertFalse(context.data().meta.numindex);
+    assertFalse(context.data().meta.dbfile("txtn").exists());
+    check();
+    query("db:optimize('" + NAME + "', false(), map { 'numindex': true() })");
+    assertTrue(context.data().meta.dbfile("txtn").exists());
+    check();
+  }
+
+  /**
+   * Updates the index.
+   * @throws Exception exception
+   */
+  @Test
+  public void update() throws Exception {
+    context.options.set(MainOptions.UPDINDEX, true);
+    create(true);
+    check();
+    query("insert node <a n='7'>15.5</a> into /x");
+    query("count(//a[text() >= 10 and text() <= 20])", "13");
+    query("count(//a[@n >= -5 and @n <= 10])", "8");
+    query("replace value of node //a[. = '15.5'] with 25");
+    query("count(//a[text() >= 10 and text() <= 20])", "12");
+    query("delete node //a[@n = '7']");
+    check();
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    check();
+
+    // numeric keys are rebuilt when the database is optimized
+    new Optimize().execute(context);
+    assertTrue(context.data().meta.uptodate);
+    check();
+  }
+
+  /**
+   * Creates the test database.
+   * @param num numeric keys
+   * @throws Exception exception
+   */
+  private static void create(final boolean num) throws Exception {
+    context.options.set(MainOptions.NUMINDEX, num);
+    create(DOC);
+  }
+
+  /**
+   * Checks the results of the range queries and their index access.
+   * Range queries are only rewritten if the statistics are up-to-date.
+   * Exclusive limits can only be resolved with numeric keys.
+   */
+  private static void check() {
+    final MetaData meta = context.data().meta;
+    for(final String[] q : INCLUSIVE) check(q, meta.uptodate);
+    for(final String[] q : EXCLUSIVE) check(q, meta.uptodate && meta.numindex);
+    for(final String[] q : OPEN) check(q, false);
+  }
+
+  /**
+   * Checks the result of a range query and its index access.
+   * @param query query and expected result
+   * @param index expected index access
+   */
+  private static void check(final String[] query, final boolean index) {
+    query(query[0], query[1]);
+    plan(query[0], index, RangeAccess.class);
+  }
+}
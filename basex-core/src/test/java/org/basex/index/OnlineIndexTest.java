@@ -0,0 +1,178 @@
+package org.basex.index;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.Context;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.ft.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests for indexes that are built online.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class OnlineIndexTest extends AdvancedQueryTest {
+  /** Test document. */
+  private static final String DOC = "<x>{ for $i in 1 to 2000 return <a id='{ $i mod 13 }' " +
+    "type='{ ('x', 'y', 'z')[$i mod 3 + 1] }'>{ ('one', 'two words', 'three more words')" +
+    "[$i mod 3 + 1] } { $i mod 17 }</a> }</x>";
+  /** Queries and their sequential counterparts. */
+  private static final String[][] QUERIES = {
+    { "//a[text() = 'two words3']", "//a[text() ! string() = 'two words3']" },
+    { "//a[@id = '7']", "//a[@id ! string() = '7']" },
+    { "//a[text() contains text 'words']", "//a[string() contains text 'words']" },
+    { "//a[@id = '1'][@type = 'y']", "//a[@id ! string() = '1'][@type ! string() = 'y']" },
+  };
+  /** Expected index access of the queries. */
+  private static final Class<?>[] ACCESS = {
+    ValueAccess.class, ValueAccess.class, FTIndexAccess.class, CompositeAccess.class
+  };
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws Exception exception
+   */
+  @After
+  public void finish() throws Exception {
+    context.options.set(MainOptions.ONLINEINDEX, false);
+    context.options.set(MainOptions.COMPINDEX, "");
+    context.options.set(MainOptions.INDEXTHREADS, 1);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Creates indexes online.
+   * @throws Exception exception
+   */
+  @Test
+  public void create() throws Exception {
+    createDB();
+    new DropIndex(IndexType.TEXT).execute(context);
+    new DropIndex(IndexType.ATTRIBUTE).execute(context);
+
+    context.options.set(MainOptions.ONLINEINDEX, true);
+    context.options.set(MainOptions.COMPINDEX, "a(@id, @type)");
+    for(final IndexType index : new IndexType[] { IndexType.TEXT, IndexType.ATTRIBUTE,
+        IndexType.FULLTEXT, IndexType.COMPOSITE }) {
+      final CreateIndex cmd = new CreateIndex(index);
+      assertFalse(cmd.updating(context));
+      cmd.execute(context);
+    }
+    check();
+
+    // indexes are adopted when the database is reopened
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    check();
+  }
+
+  /**
+   * Creates indexes online and in parallel.
+   * @throws Exception exception
+   */
+  @Test
+  public void parallel() throws Exception {
+    context.options.set(MainOptions.INDEXTHREADS, 3);
+    context.options.set(MainOptions.COMPINDEX, "a(@id, @type)");
+    context.options.set(MainOptions.FTINDEX, true);
+    try {
+      createDB();
+    } finally {
+      context.options.set(MainOptions.FTINDEX, false);
+    }
+    query("insert node <a/> into /x");
+    assertFalse(context.data().meta.textindex);
+
+    context.options.set(MainOptions.ONLINEINDEX, true);
+    new Optimize().execute(context);
+    check();
+  }
+
+  /**
+   * Creates an index while the database is read-locked by another process.
+   * @throws Exception exception
+   */
+  @Test
+  public void readers() throws Exception {
+    createDB();
+    new DropIndex(IndexType.TEXT).execute(context);
+    final Context ctx = new Context(context, null);
+    ctx.user = context.user;
+    final Data data = context.data();
+
+    // run query that keeps the database read-locked
+    final Thread reader = new Thread() {
+      @Override
+      public void run() {
+        try {
+          new XQuery("db:open('" + NAME + "'), prof:sleep(2000)").execute(ctx);
+        } catch(final BaseXException ex) {
+          Util.stack(ex);
+        }
+      }
+    };
+    reader.start();
+    Performance.sleep(200);
+
+    context.options.set(MainOptions.ONLINEINDEX, true);
+    final Thread creator = new Thread() {
+      @Override
+      public void run() {
+        try {
+          new CreateIndex(IndexType.TEXT).execute(context);
+        } catch(final BaseXException ex) {
+          Util.stack(ex);
+        }
+      }
+    };
+    creator.start();
+
+    // index files are written while the database is read-locked
+    final IOFile file = data.meta.dbfile(DATAONL + DATATXT + 'l');
+    for(int i = 0; i < 100 && !file.exists(); i++) Performance.sleep(10);
+    assertTrue(file.exists());
+    assertTrue(reader.isAlive());
+    assertFalse(data.meta.textindex);
+
+    // index is swapped in as soon as the reader has finished
+    reader.join();
+    creator.join();
+    assertTrue(data.meta.textindex);
+    assertFalse(file.exists());
+    compare(QUERIES[0][0] + "/@id ! string()", QUERIES[0][1] + "/@id ! string()");
+    plan(QUERIES[0][0], true, ACCESS[0]);
+  }
+
+  /**
+   * Creates the test database.
+   * @throws Exception exception
+   */
+  private static void createDB() throws Exception {
+    create(DOC);
+  }
+
+  /**
+   * Checks the meta data, the database files, the query results and the index access.
+   */
+  private static void check() {
+    final MetaData meta = context.data().meta;
+    assertTrue(meta.textindex);
+    assertTrue(meta.attrindex);
+    assertTrue(meta.ftxtindex);
+    assertTrue(meta.compindex);
+    assertEquals(0, meta.path.children(DATAONL + ".*").length);
+    for(int q = 0; q < QUERIES.length; q++) {
+      compare(QUERIES[q][0] + "/@id ! string()", QUERIES[q][1] + "/@id ! string()");
+      plan(QUERIES[q][0], true, ACCESS[q]);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.ft.*;
+import org.junit.*;
+
+/**
+ * Tests for building index structures in parallel.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelIndexTest extends AdvancedQueryTest {
+  /** Test document. */
+  private static final String DOC = "<x>{ (1 to 5000) ! <a id='{ . mod 97 }'>{ " +
+    "string-join(for $j in 1 to 1 + . mod 5 return " +
+    "codepoints-to-string(97 + (. * $j * 7919) mod 13)) }</a> }</x>";
+  /** Queries, comparing the index entries. */
+  private static final String[] QUERIES = {
+    "index:texts('" + NAME + "') ! (string(), string(@count))",
+    "index:attributes('" + NAME + "') ! (string(), string(@count))",
+    "ft:tokens('" + NAME + "') ! (string(), string(@count))",
+    "count(//a[text() = 'b'])",
+    "//a[@id = '13'] ! string()",
+    "//a[text() contains text 'hj'] ! @id ! string()"
+  };
+
+  /**
+   * Resets the options and drops the test database.
+   * @throws Exception exception
+   */
+  @After
+  public void finish() throws Exception {
+    context.options.set(MainOptions.INDEXTHREADS, 1);
+    context.options.set(MainOptions.INDEXSPLITSIZE, 0);
+    context.options.set(MainOptions.FTINDEXSPLITSIZE, 0);
+    context.options.set(MainOptions.UPDINDEX, false);
+    context.options.set(MainOptions.FTINDEX, false);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares the results of sequentially and parallel built indexes.
+   * @throws Exception exception
+   */
+  @Test
+  public void create() throws Exception {
+    compare();
+  }
+
+  /**
+   * Compares the results of sequentially and parallel built indexes,
+   * using small split sizes.
+   * @throws Exception exception
+   */
+  @Test
+  public void splits() throws Exception {
+    context.options.set(MainOptions.INDEXSPLITSIZE, 500);
+    context.options.set(MainOptions.FTINDEXSPLITSIZE, 700);
+    compare();
+  }
+
+  /**
+   * Compares the results of sequentially and parallel built updatable indexes.
+   * @throws Exception exception
+   */
+  @Test
+  public void updindex() throws Exception {
+    context.options.set(MainOptions.UPDINDEX, true);
+    compare();
+    query("insert node <a id='13'>bb</a> into /x");
+    query("count(//a[text() = 'bb'])", "1");
+    query("count(//a[@id = '13'])", "53");
+    indexed();
+  }
+
+  /**
+   * Builds the indexes sequentially and in parallel, and compares the results.
+   * @throws Exception exception
+   */
+  private static void compare() throws Exception {
+    context.options.set(MainOptions.FTINDEX, true);
+    final String[] seq = results(1);
+    assertEquals(seq.length, QUERIES.length);
+    for(final int threads : new int[] { 2, 4, 0 }) {
+      final String[] par = results(threads);
+      for(int q = 0; q < QUERIES.length; q++) assertEquals(QUERIES[q], seq[q], par[q]);
+    }
+
+    // indexes are rebuilt in parallel
+    new Optimize().execute(context);
+    new OptimizeAll().execute(context);
+    new CreateIndex("text").execute(context);
+    for(int q = 0; q < QUERIES.length; q++) query(QUERIES[q], seq[q]);
+  }
+
+  /**
+   * Checks if the queries are rewritten for index access.
+   */
+  private static void indexed() {
+    plan("//a[text() = 'b']", true, ValueAccess.class);
+    plan("//a[@id = '13']", true, ValueAccess.class);
+    plan("//a[text() contains text 'hj']", true, FTIndexAccess.class);
+  }
+
+  /**
+   * Creates the database with the specified number of threads and returns the
+   * query results.
+   * @param threads number of threads
+   * @return results
+   * @throws Exception exception
+   */
+  private static String[] results(final int threads) throws Exception {
+    context.options.set(MainOptions.INDEXTHREADS, threads);
+    create(DOC);
+    new OptimizeAll().execute(context);
+    final Data data = context.data();
+    assertTrue(data.meta.textindex && data.meta.attrindex && data.meta.ftxtindex);
+    indexed();
+
+    final String[] results = new String[QUERIES.length];
+    for(int q = 0; q < QUERIES.length; q++) results[q] = query(QUERIES[q]);
+    return results;
+  }
+}
@@ -202,6 +202,27 @@ public class DataAccessTest {
     assertEquals(STR, Token.string(da.readToken()));
   }
 
+  /** Test method for {@link DataAccess#token(long)}. */
+  @Test
+  public final void testToken() {
+    assertEquals(STR, Token.string(da.token(0L)));
+    assertEquals(STR, Token.string(da.token(BLOCK_BOUNDARY_POS)));
+    assertEquals(STR, Token.string(da.readToken(0L)));
+  }
+
+  /** Test method for {@link DataAccess#token(long)}, called after the file was closed. */
+  @Test
+  public final void testTokenClosed() {
+    assertEquals(STR, Token.string(da.token(0L)));
+    da.close();
+    try {
+      da.token(BLOCK_BOUNDARY_POS);
+      fail("Read error expected.");
+    } catch(final RuntimeException ex) {
+      // expected: stale buffers must not be returned
+    }
+  }
+
   /** Test method for {@link DataAccess#readBytes(long, int)}. */
   @Test
   public final void testReadBytesLongInt() {
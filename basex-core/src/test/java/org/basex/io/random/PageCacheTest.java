@@ -0,0 +1,90 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.io.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link PageCache}.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class PageCacheTest {
+  /** Number of cached pages. */
+  private static final int PAGES = 16;
+
+  /**
+   * Stores and reads pages.
+   */
+  @Test
+  public void readWrite() {
+    final PageCache pc = new PageCache(PAGES);
+    final byte[] page = page(1);
+    pc.add(PageCache.key(1, 0), page);
+
+    final byte[] read = new byte[IO.BLOCKSIZE];
+    assertTrue(pc.read(PageCache.key(1, 0), read));
+    assertArrayEquals(page, read);
+    assertFalse(pc.read(PageCache.key(2, 0), read));
+    assertEquals(1, pc.hits());
+    assertEquals(1, pc.misses());
+
+    // updates are reflected in the cached copy
+    assertTrue(pc.update(PageCache.key(1, 0), page(2)));
+    assertTrue(pc.read(PageCache.key(1, 0), read));
+    assertArrayEquals(page(2), read);
+    assertFalse(pc.update(PageCache.key(1, 1), page(2)));
+
+    // pages of closed files are discarded
+    pc.remove(1);
+    assertFalse(pc.read(PageCache.key(1, 0), read));
+    assertEquals(0, pc.pages());
+  }
+
+  /**
+   * Checks that frequently accessed pages survive a sequential scan.
+   */
+  @Test
+  public void scanResistance() {
+    final PageCache pc = new PageCache(PAGES);
+    final byte[] read = new byte[IO.BLOCKSIZE];
+    // request hot pages, evict them from the FIFO queue, and request them again
+    for(int b = 0; b < 4; b++) pc.add(PageCache.key(1, b), page(b));
+    for(int b = 4; b < PAGES + 4; b++) pc.add(PageCache.key(1, b), page(b));
+    for(int b = 0; b < 4; b++) {
+      assertFalse(pc.read(PageCache.key(1, b), read));
+      pc.add(PageCache.key(1, b), page(b));
+    }
+    // scan
+    for(int b = 0; b < PAGES * 8; b++) pc.add(PageCache.key(2, b), page(b));
+
+    for(int b = 0; b < 4; b++) assertTrue(pc.read(PageCache.key(1, b), read));
+    assertTrue(pc.pages() <= PAGES);
+  }
+
+  /**
+   * Checks that a cache without capacity does not store any pages.
+   */
+  @Test
+  public void disabled() {
+    final PageCache pc = new PageCache(0);
+    pc.add(PageCache.key(1, 0), page(1));
+    assertEquals(0, pc.pages());
+    assertFalse(pc.read(PageCache.key(1, 0), new byte[IO.BLOCKSIZE]));
+  }
+
+  /**
+   * Creates a page filled with the specified value.
+   * @param v value
+   * @return page
+   */
+  private static byte[] page(final int v) {
+    final byte[] page = new byte[IO.BLOCKSIZE];
+    Arrays.fill(page, (byte) v);
+    return page;
+  }
+}
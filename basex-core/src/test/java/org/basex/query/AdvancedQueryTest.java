@@ -2,6 +2,8 @@ package org.basex.query;
 
 import static org.junit.Assert.*;
 
+import org.basex.core.*;
+import org.basex.core.cmd.*;
 import org.basex.io.out.*;
 import org.basex.io.serial.*;
 import org.basex.query.util.*;
@@ -51,6 +53,53 @@ public abstract class AdvancedQueryTest extends SandboxTest {
           "\u00ab\n[F] \u00bb" + res + '\u00ab');
   }
 
+  /**
+   * Checks if a query yields the same result as a reference query.
+   * @param query query string
+   * @param reference reference query
+   */
+  protected static void compare(final String query, final String reference) {
+    query(query, query(reference));
+  }
+
+  /**
+   * Checks if the compiled query plan contains expressions of the specified types.
+   * @param query query string
+   * @param exists expected result
+   * @param types expression types
+   */
+  protected static void plan(final String query, final boolean exists,
+      final Class<?>... types) {
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      qp.compile();
+      final String plan = qp.plan().serialize().toString();
+      for(final Class<?> type : types) {
+        final String name = Util.className(type);
+        assertEquals(name + " expected: " + exists + "\n[Q] " + query + "\n[P] " + plan,
+            exists, plan.contains('<' + name));
+      }
+    } catch(final Exception ex) {
+      final AssertionError err = new AssertionError("Query failed:\n" + query);
+      err.initCause(ex);
+      throw err;
+    } finally {
+      qp.close();
+    }
+  }
+
+  /**
+   * Creates the test database. Its root node is replaced with the result of the
+   * specified expression, and the database is optimized.
+   * @param doc expression that creates the document
+   * @throws BaseXException database exception
+   */
+  protected static void create(final String doc) throws BaseXException {
+    new CreateDB(NAME, "<x/>").execute(context);
+    query("replace node /x with " + doc);
+    new Optimize().execute(context);
+  }
+
   /**
    * Creates a transform expression from a given input, modification and return clause.
    *
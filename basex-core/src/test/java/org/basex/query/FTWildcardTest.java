@@ -21,7 +21,9 @@ public final class FTWildcardTest {
     { "wisdomness", "witches" },
     { "site" },
     { "Usability\\", "Usable\\" },
-    { "\u00fcbersch\u00fcsse", "\u00fcberschuss" }
+    { "\u00fcbersch\u00fcsse", "\u00fcberschuss" },
+    { "a", "abc" },
+    { "a", "abc" }
   };
   /** Sample texts which should NOT be matched. */
   private static final String[][] TEXTS_BAD = {
@@ -31,7 +33,9 @@ public final class FTWildcardTest {
     { "witch", "wiskey", "wisdomnetts" },
     { "\\s\\i\\t\\e" },
     { "Usability", "Usab\\", "usability\\" },
-    { "ueberschuss" }
+    { "ueberschuss" },
+    { new String(new char[101]).replace('\0', 'a') },
+    { "b", "ba" }
   };
 
   /** Valid wild-card expressions. */
@@ -42,7 +46,9 @@ public final class FTWildcardTest {
     "wi.{4,7}s",
     "\\s\\i\\t\\e",
     "Usab.+\\\\",
-    "\u00fcbersch.ss.?"
+    "\u00fcbersch.ss.?",
+    ".{0,100}",
+    "a.{0,4000}.{0,4000}"
   };
 
   /** Valid wild card expressions. */
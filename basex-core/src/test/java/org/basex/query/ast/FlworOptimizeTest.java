@@ -2,6 +2,7 @@ package org.basex.query.ast;
 
 import org.basex.query.expr.*;
 import org.basex.query.gflwor.*;
+import org.basex.query.util.*;
 import org.basex.util.*;
 import org.junit.*;
 
@@ -265,4 +266,41 @@ public final class FlworOptimizeTest extends QueryPlanTest {
         "exists(//Let)"
     );
   }
+
+  /** Tests the rewriting of equality predicates to hash joins. */
+  @Test public void hashJoin() {
+    check("let $d := <d>{ (1 to 6) ! <a id='{ . }'/>, (2, 5, 4, 2, 9) ! <b ref='{ . }'/> }</d> " +
+        "for $x in $d/a for $y in $d/b where $x/@id = $y/@ref return $x/@id || $y/@ref",
+        "22 22 44 55",
+        "exists(//Join)"
+    );
+    // swapped operands, mixed types, multiple keys
+    check("for $x in (1, 2.0, ('3', '4') ! xs:untypedAtomic(.)) " +
+        "for $y in (xs:untypedAtomic('1'), 2, xs:untypedAtomic('3'), 4e0, " +
+        "xs:untypedAtomic('1.0'), 1) where $y = $x return $x || ':' || $y",
+        "1:1 1:1.0 1:1 2:2 3:3 4:4",
+        "exists(//Join)"
+    );
+    // fallback to nested loop for values that are not hashed
+    check("for $x in (true(), false()) for $y in ('true', 'false', '1') ! " +
+        "xs:untypedAtomic(.) where $x = $y return $y",
+        "true 1 false",
+        "exists(//Join)"
+    );
+    // incomparable numbers and strings
+    final String query = "for $x in (1, 2) for $y in ('1', '2') where $x = $y return $y";
+    check(query, null, "exists(//Join)");
+    error(query, Err.INVTYPECMP);
+    error("for $x in ('1', 2) for $y in (1, 2) where $y = $x return $y", Err.INVTYPECMP);
+    // untyped values that cannot be cast to numbers
+    error("for $x in (<x>abc</x>, <x>1</x>) for $y in (1, 2) where data($x) = $y return $y",
+        Err.FUNCAST);
+    error("for $x in (1, 2) for $y in (<x>abc</x>, <x>1</x>) where data($y) = $x return $y",
+        Err.FUNCAST);
+    // no join: bound expression depends on preceding clause
+    check("for $x in 1 to 3 for $y in $x to 3 where $x = $y return $y",
+        "1 2 3",
+        "empty(//Join)"
+    );
+  }
 }
@@ -28,6 +28,32 @@ public final class FLWORTest extends AdvancedQueryTest {
     query("let $i := 1 group by $i, $i return $i", "1");
   }
 
+  /** Tests the order by clause. */
+  @Test
+  public void orderByTest() {
+    query("for $i in (3, 1, 2) order by $i return $i", "1 2 3");
+    query("for $i in (2, 1.5e0, 1) order by $i return $i", "1 1.5 2");
+    query("for $s in ('b', xs:untypedAtomic('c'), 'a') order by $s return $s", "a b c");
+    query("for $i in 1 to 6 order by $i mod 2 return $i", "2 4 6 1 3 5");
+    query("for $i in 1 to 6 order by $i mod 2 descending, -$i return $i", "5 3 1 6 4 2");
+    query("for $k in (<a>2</a>, <a/>, <a>NaN</a>, <a>1</a>) " +
+        "order by xs:double($k[text()]) descending empty least return (data($k), '-')[.][1]",
+        "2 1 - NaN");
+    error("for $i in ('a', 1) order by $i return $i", Err.INVCASTEX);
+  }
+
+  /** Tests the order by clause if only the first results are requested. */
+  @Test
+  public void orderByLimitTest() {
+    query("(for $i in 1 to 100 order by $i mod 10, $i return $i)[position() <= 3]",
+        "10 20 30");
+    query("(for $i in 1 to 10 order by $i mod 3 return $i)[2]", "6");
+    query("subsequence(for $i in 1 to 10 order by -$i return $i, 2, 3)", "9 8 7");
+    query("head(for $i in 1 to 10 order by $i mod 5 descending return $i)", "4");
+    query("(for $i in 1 to 5 order by -$i return ($i, $i))[position() <= 3]", "5 5 4");
+    query("(for $i in 1 to 5 order by $i return $i)[position() < 1]", "");
+  }
+
   /**
    * Runs an updating query and matches the result of the second query
    * against the expected output.
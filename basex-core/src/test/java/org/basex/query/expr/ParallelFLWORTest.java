@@ -0,0 +1,88 @@
+package org.basex.query.expr;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.query.util.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Test cases for the parallel evaluation of FLWOR expressions.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelFLWORTest extends AdvancedQueryTest {
+  /** Enables parallel evaluation. */
+  @Before
+  public void init() {
+    context.options.set(MainOptions.QUERYTHREADS, 4);
+  }
+
+  /** Disables parallel evaluation. */
+  @After
+  public void finish() {
+    context.options.set(MainOptions.QUERYTHREADS, 1);
+  }
+
+  /** Checks the order of the results. */
+  @Test
+  public void order() {
+    query("deep-equal(for $i in 1 to 10000 return $i * 2, (1 to 10000) ! (. * 2))", "true");
+    query("for $i in 1 to 5 let $j := $i + 1 return ($i, $j)",
+        "1 2 2 3 3 4 4 5 5 6");
+    query("for $i in 1 to 10000 where $i mod 2500 = 0 order by $i descending return $i",
+        "10000 7500 5000 2500");
+    query("(for $i in 1 to 10000 return <a>{ $i }</a>)[last()]/text()", "10000");
+  }
+
+  /** Evaluates nested expressions and references to the dynamic context. */
+  @Test
+  public void context() {
+    query("sum(for $i in 1 to 1000 return for $j in 1 to $i return $j)", "167167000");
+    query("declare variable $v := 1 to 100; sum(for $i in 1 to 1000 return $v[$i mod 100])",
+        "49500");
+    query("<x><a/><a/></x>/(for $i in 1 to 1000 return count(a)) = 2", "true");
+    query("count(distinct-values(for $i in 1 to 1000 return current-dateTime()))", "1");
+    query("declare function local:f($i) { $i * $i }; " +
+        "sum(for $i in 1 to 1000 return local:f($i))", "333833500");
+  }
+
+  /**
+   * Opens documents and databases in the return clause.
+   * @throws Exception exception
+   */
+  @Test
+  public void resources() throws Exception {
+    final IOFile dir = new IOFile(sandbox(), "parallel");
+    dir.md();
+    for(int f = 0; f < 8; f++) {
+      new IOFile(dir, f + ".xml").write(Token.token("<x>" + f + "</x>"));
+    }
+    final String path = dir.path() + '/';
+    query("sum(for $i in 1 to 1000 return doc('" + path + "' || $i mod 8 || '.xml')/x)",
+        "3500");
+    query("count(distinct-values(for $i in 1 to 1000 return " +
+        "collection('" + path + "')[$i mod 8 + 1]/x))", "8");
+
+    new CreateDB(NAME, "<x><a/><a/></x>").execute(context);
+    new Close().execute(context);
+    query("sum(for $i in 1 to 1000 return count(db:open('" + NAME + "')//a))", "2000");
+    new DropDB(NAME).execute(context);
+  }
+
+  /** Uses a pragma to enable parallel evaluation. */
+  @Test
+  public void pragma() {
+    finish();
+    query("(# db:querythreads 4 #) { sum(for $i in 1 to 10000 return $i) }", "50005000");
+  }
+
+  /** Passes on errors. */
+  @Test
+  public void error() {
+    error("for $i in 1 to 10000 return if($i = 9999) then error() else $i", Err.FUNERR1);
+  }
+}
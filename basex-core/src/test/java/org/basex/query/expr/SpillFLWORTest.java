@@ -0,0 +1,94 @@
+package org.basex.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.junit.*;
+
+/**
+ * Test cases for spilling the tuples of {@code order by} and {@code group by} clauses.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class SpillFLWORTest extends AdvancedQueryTest {
+  /** Sorting query. */
+  private static final String SORT = "for $i in 1 to 5000 let $k := $i * 7919 mod 500 " +
+      "order by $k descending, $i mod 3 return ($k, $i div 7, string($i), $i mod 2 = 0)";
+  /** Grouping query. */
+  private static final String GROUP = "for $i in 1 to 5000 let $k := $i mod 97 " +
+      "group by $k, $s := string($i mod 13) order by $k, $s return ($k, $s, $i)";
+
+  /** Creates a test database. */
+  @BeforeClass
+  public static void init() {
+    query("db:create('" + NAME + "', <x>{ (1 to 1000) ! <a>{ . mod 10 }</a> }</x>, 'x.xml')");
+  }
+
+  /** Disables spilling and checks that no temporary files remain. */
+  @After
+  public void finish() {
+    context.options.set(MainOptions.SPILLSIZE, 0);
+    final IOFile dir = context.globalopts.dbpath();
+    for(final IOFile file : dir.children()) assertFalse(file.name().startsWith(".tmp"));
+  }
+
+  /** Drops the test database. */
+  @AfterClass
+  public static void drop() {
+    query("db:drop('" + NAME + "')");
+  }
+
+  /** Spills sorted runs. */
+  @Test
+  public void orderBy() {
+    query("deep-equal((# db:spillsize 100 #) { " + SORT + " }, " + SORT + ")", "true");
+    query("deep-equal((# db:spillsize 100 #) { (" + SORT + ")[position() <= 20] }, " +
+        "(" + SORT + ")[position() <= 20])", "true");
+    context.options.set(MainOptions.SPILLSIZE, 10);
+    query("(for $i in 1 to 100 order by $i mod 10, -$i return $i)[position() = 1 to 3]",
+        "100 90 80");
+    query("count(for $i in 1 to 100 order by -$i return <a/>)", "100");
+  }
+
+  /**
+   * Closes the spilled runs if the result is not completely consumed.
+   * @throws QueryException query exception
+   */
+  @Test
+  public void dropped() throws QueryException {
+    context.options.set(MainOptions.SPILLSIZE, 10);
+    final QueryProcessor qp = new QueryProcessor(
+        "for $i in 1 to 100 order by -$i return $i", context);
+    try {
+      final Iter iter = qp.iter();
+      assertEquals(100, iter.next().itr(null));
+      assertEquals(99, iter.next().itr(null));
+    } finally {
+      qp.close();
+    }
+  }
+
+  /** Spills groups to hash partitions. */
+  @Test
+  public void groupBy() {
+    query("deep-equal((# db:spillsize 100 #) { " + GROUP + " }, " + GROUP + ")", "true");
+    context.options.set(MainOptions.SPILLSIZE, 10);
+    query("for $i in 1 to 100 group by $k := $i mod 3 order by $k " +
+        "return string-join($i[position() <= 3] ! string(), '-')", "3-6-9 1-4-7 2-5-8");
+    query("count(for $i in 1 to 100 group by $k := $i mod 3 return <a>{ $i }</a>)", "3");
+  }
+
+  /** Spills database nodes. */
+  @Test
+  public void nodes() {
+    context.options.set(MainOptions.SPILLSIZE, 10);
+    query("for $a in db:open('" + NAME + "')//a group by $t := $a/text() order by $t " +
+        "return count($a)", "100 100 100 100 100 100 100 100 100 100");
+    query("(for $a in db:open('" + NAME + "')//a order by $a descending return $a)[1] " +
+        "is (db:open('" + NAME + "')//a)[9]", "true");
+  }
+}
@@ -114,6 +114,11 @@ public final class FNFtTest extends AdvancedQueryTest {
     query(_FT_SEARCH.args(NAME, "databases xml", " map { 'mode':'all words'," +
         "'window':map {'size':3} }"), "Databases and XML");
 
+    // return results with the highest scores
+    query(_FT_SEARCH.args(NAME, " ('exercise','1')", " map { 'top':1 }"), "Exercise 1");
+    query(_FT_SEARCH.args(NAME, " ('exercise','1')", " map { 'top':5 }"),
+        "Exercise 1Exercise 2");
+
     // check buggy options
     error(_FT_SEARCH.args(NAME, "x", " map { 'x':'y' }"), Err.INVALIDOPT);
     error(_FT_SEARCH.args(NAME, "x", " map { 'mode':'' }"), Err.INVALIDOPT);
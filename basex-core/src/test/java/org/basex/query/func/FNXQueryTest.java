@@ -2,6 +2,7 @@ package org.basex.query.func;
 
 import static org.basex.query.func.Function.*;
 
+import org.basex.core.*;
 import org.basex.query.util.*;
 import org.basex.query.*;
 import org.junit.*;
@@ -54,6 +55,33 @@ public final class FNXQueryTest extends AdvancedQueryTest {
     error(_XQUERY_INVOKE.args("src/test/resources/xxx.xq"), Err.WHICHRES);
   }
 
+  /** Test method. */
+  @Test
+  public void forkJoin() {
+    // functions are evaluated sequentially and in parallel
+    for(final int threads : new int[] { 1, 4 }) {
+      context.options.set(MainOptions.QUERYTHREADS, threads);
+      try {
+        query(_XQUERY_FORK_JOIN.args("()"), "");
+        query(_XQUERY_FORK_JOIN.args("function() { 1 }"), 1);
+        query(_XQUERY_FORK_JOIN.args("(function() { 1 }, function() { (2, 3) }, " +
+            "function() { () }, function() { 4 })"), "1 2 3 4");
+        query("sum(" + _XQUERY_FORK_JOIN.args("(1 to 100) ! (let $i := . return " +
+            "function() { sum(1 to $i) })") + ")", 171700);
+        query("declare function local:f($i) { $i * 2 }; " +
+            _XQUERY_FORK_JOIN.args("(function() { local:f(1) }, function() { local:f(1.5) })"),
+            "2 3");
+        query("count(" + _XQUERY_FORK_JOIN.args("(1 to 4) ! function() { " +
+            DOC.args(PATH) + "//li }") + ")", 8);
+        error(_XQUERY_FORK_JOIN.args("function() { error() }"), Err.FUNERR1);
+        error(_XQUERY_FORK_JOIN.args("function($a) { $a }"), Err.INVCAST);
+        error(_XQUERY_FORK_JOIN.args("1"), Err.INVCAST);
+      } finally {
+        context.options.set(MainOptions.QUERYTHREADS, 1);
+      }
+    }
+  }
+
   /** Test method. */
   @Test
   public void type() {
@@ -0,0 +1,54 @@
+package org.basex.server;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.io.out.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class tests the client/server session API with results being sent as
+ * length-prefixed chunks.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientChunkTest extends ClientSessionTest {
+  /** Initializes the test. */
+  @Override
+  @Before
+  public void startSession() {
+    out = new ArrayOutput();
+    super.startSession();
+    try {
+      assertTrue(((ClientSession) session).chunks());
+    } catch(final IOException ex) {
+      fail(Util.message(ex));
+    }
+  }
+
+  /**
+   * Sends results that are split into several chunks.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void large() throws IOException {
+    final String query = "string-join((1 to 100000) ! codepoints-to-string(. mod 250 + 32))";
+    final ClientSession cs = createClient();
+    try {
+      final String exp = cs.execute("xquery " + query);
+      session.execute("xquery " + query);
+      assertEquals(exp, out.toString());
+      out.reset();
+      final Query q = session.query(query);
+      assertTrue(q.more());
+      assertNull(q.next());
+      assertEquals(exp, out.toString());
+      q.close();
+    } finally {
+      cs.close();
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package org.basex.server;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+
+/**
+ * This class tests pipelined commands of the client/server session API.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientPipelineTest extends SandboxTest {
+  /** Number of submitted commands. */
+  private static final int COMMANDS = 200;
+  /** Server reference. */
+  private static BaseXServer server;
+  /** Client session. */
+  private ClientSession session;
+
+  /**
+   * Starts the server.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void startServer() throws IOException {
+    server = createServer();
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    stopServer(server);
+  }
+
+  /**
+   * Starts a session.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void startSession() throws IOException {
+    session = createClient();
+  }
+
+  /**
+   * Closes the session.
+   * @throws IOException I/O exception
+   */
+  @After
+  public void closeSession() throws IOException {
+    session.close();
+  }
+
+  /**
+   * Submits commands and requests the results in reverse order.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void submit() throws IOException {
+    final ClientResponse[] rs = new ClientResponse[COMMANDS];
+    for(int i = 0; i < COMMANDS; i++) rs[i] = session.submit(new XQuery(i + " * 2"));
+    for(int i = COMMANDS - 1; i >= 0; i--) {
+      assertEquals(Integer.toString(i * 2), rs[i].result());
+      assertTrue(rs[i].done());
+    }
+  }
+
+  /**
+   * Submits commands that fail.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void errors() throws IOException {
+    final ClientResponse r1 = session.submit("xquery 1+");
+    final ClientResponse r2 = session.submit("unknown");
+    final ClientResponse r3 = session.submit("xquery 1+1");
+    assertEquals("2", r3.result());
+    for(final ClientResponse r : new ClientResponse[] { r1, r2 }) {
+      try {
+        r.result();
+        fail("Error expected.");
+      } catch(final BaseXException ex) {
+        assertEquals(ex.getMessage(), r.info());
+      }
+    }
+  }
+
+  /**
+   * Mixes submitted and regular commands.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void mixed() throws IOException {
+    final ClientResponse r1 = session.submit("xquery 'a'");
+    assertEquals("b", session.execute("xquery 'b'"));
+    assertTrue(r1.done());
+    final ClientResponse r2 = session.submit("xquery 'c'");
+    final Query q = session.query("'d'");
+    assertEquals("d", q.execute());
+    q.close();
+    assertEquals("a", r1.result());
+    assertEquals("c", r2.result());
+  }
+
+  /**
+   * Submits commands from several threads.
+   * @throws Exception exception
+   */
+  @Test
+  public void threads() throws Exception {
+    final Thread[] threads = new Thread[8];
+    final Throwable[] errors = new Throwable[threads.length];
+    for(int t = 0; t < threads.length; t++) {
+      final int nr = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for(int i = 0; i < 20; i++) {
+              final String q = nr + " * 100 + " + i;
+              final ClientResponse r = session.submit(new XQuery(q));
+              assertEquals(Integer.toString(nr * 100 + i), r.result());
+            }
+          } catch(final Throwable ex) {
+            errors[nr] = ex;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for(final Thread t : threads) t.join();
+    for(final Throwable ex : errors) {
+      if(ex instanceof Exception) throw (Exception) ex;
+      if(ex instanceof Error) throw (Error) ex;
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package org.basex.server;
+
+import static org.basex.core.Text.*;
+import static org.basex.query.QueryText.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+
+/**
+ * This class tests the reuse of compiled queries in the client/server architecture.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryPlanTest extends SandboxTest {
+  /** Query with an external variable. */
+  private static final String DOUBLE = "declare variable $x external; $x * 2";
+  /** Server reference. */
+  private static BaseXServer server;
+  /** Client session. */
+  private ClientSession session;
+
+  /**
+   * Starts the server.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void startServer() throws IOException {
+    server = createServer();
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    stopServer(server);
+  }
+
+  /**
+   * Starts a session.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void startSession() throws IOException {
+    session = createClient();
+    session.execute(new Set(MainOptions.QUERYINFO, true));
+  }
+
+  /**
+   * Closes the session.
+   * @throws IOException I/O exception
+   */
+  @After
+  public void closeSession() throws IOException {
+    session.execute(new DropDB(NAME));
+    session.close();
+  }
+
+  /**
+   * Binds new values to a compiled query. The query is prepared for its second
+   * evaluation, and reused from then on.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void rebind() throws IOException {
+    final Query q = session.query(DOUBLE);
+    for(int i = 0; i < 5; i++) {
+      q.bind("x", i, "xs:integer");
+      assertEquals(Integer.toString(i * 2), q.execute());
+      assertEquals(i > 1, reused(q));
+    }
+    q.close();
+  }
+
+  /**
+   * The values of external variables are inlined when a query is evaluated for the
+   * first time, so that index structures can be utilized.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void index() throws IOException {
+    session.execute(new CreateDB(NAME, "<x><a>A</a><a>B</a></x>"));
+    session.execute(new Close());
+    final String query = "declare variable $db external; db:open($db)//a[text() = 'A']";
+    final Query q = session.query(query);
+    q.bind("db", NAME);
+    assertEquals("<a>A</a>", q.execute());
+    assertTrue(q.info().contains(OPTTXTINDEX));
+    // second evaluation: query is prepared
+    q.bind("db", NAME);
+    assertEquals("<a>A</a>", q.execute());
+    assertFalse(q.info().contains(OPTTXTINDEX));
+    q.close();
+  }
+
+  /**
+   * Binds values of different types.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void types() throws IOException {
+    final Query q = session.query("declare variable $x external; $x");
+    q.bind("x", 1, "xs:integer");
+    assertEquals("1", q.execute());
+    q.bind("x", "a");
+    assertEquals("a", q.execute());
+    assertFalse(reused(q));
+    q.bind("x", "b");
+    assertEquals("b", q.execute());
+    assertTrue(reused(q));
+    q.close();
+  }
+
+  /**
+   * Variables need to be bound again for each evaluation.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void unbound() throws IOException {
+    final Query q = session.query(DOUBLE);
+    q.bind("x", 1, "xs:integer");
+    assertEquals("2", q.execute());
+    try {
+      q.execute();
+      fail("Unbound variable expected.");
+    } catch(final BaseXException ex) {
+      // expected
+    }
+  }
+
+  /**
+   * Compiled queries are passed on to new queries with the same query string.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void cache() throws IOException {
+    for(int i = 0; i < 3; i++) {
+      final Query q = session.query(DOUBLE);
+      q.bind("x", i, "xs:integer");
+      assertEquals(Integer.toString(i * 2), q.execute());
+      // the query is prepared for its second evaluation
+      assertEquals(i > 1, reused(q));
+      q.close();
+    }
+
+    // disable reuse of compiled queries
+    session.execute(new Set(MainOptions.PLANCACHE, 0));
+    for(int i = 0; i < 3; i++) {
+      final Query q = session.query(DOUBLE);
+      q.bind("x", 3, "xs:integer");
+      assertEquals("6", q.execute());
+      assertFalse(reused(q));
+      q.close();
+    }
+  }
+
+  /**
+   * Compiled queries are compiled again after database updates.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void update() throws IOException {
+    session.execute(new CreateDB(NAME, "<a><b/></a>"));
+    session.execute(new Close());
+    final String count = "declare variable $n external; count(db:open('" + NAME + "')//b) + $n";
+    final Query q = session.query(count);
+    q.bind("n", 0, "xs:integer");
+    assertEquals("1", q.execute());
+    session.execute(new XQuery("insert node <b/> into db:open('" + NAME + "')/a"));
+    q.bind("n", 0, "xs:integer");
+    assertEquals("2", q.execute());
+    assertFalse(reused(q));
+    q.bind("n", 1, "xs:integer");
+    assertEquals("3", q.execute());
+    assertTrue(reused(q));
+    q.close();
+  }
+
+  /**
+   * Databases can be dropped while compiled queries are cached.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void drop() throws IOException {
+    session.execute(new CreateDB(NAME, "<a><b>X</b></a>"));
+    session.execute(new Close());
+    final String query = "declare variable $s external; db:open('" + NAME + "')//b[. = $s]";
+    final Query q1 = session.query(query), q2 = session.query(query);
+    for(final Query q : new Query[] { q1, q2 }) {
+      q.bind("s", "X");
+      assertEquals("<b>X</b>", q.execute());
+    }
+    q2.close();
+
+    // drop database from another session
+    final ClientSession cs = createClient();
+    try {
+      cs.execute(new DropDB(NAME));
+    } finally {
+      cs.close();
+    }
+    q1.bind("s", "X");
+    try {
+      q1.execute();
+      fail("Database should have been dropped.");
+    } catch(final BaseXException ex) {
+      // expected
+    }
+  }
+
+  /**
+   * Checks if a compiled query has been reused.
+   * @param q query
+   * @return result of check
+   * @throws IOException I/O exception
+   */
+  private static boolean reused(final Query q) throws IOException {
+    return q.info().contains(PARSING_CC + "0.0 ms");
+  }
+}
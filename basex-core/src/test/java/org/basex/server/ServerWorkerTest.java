@@ -0,0 +1,140 @@
+package org.basex.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests the multiplexing of client sessions by a small number of worker threads.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ServerWorkerTest extends SandboxTest {
+  /** Number of clients. */
+  private static final int CLIENTS = 40;
+  /** Server reference. */
+  private BaseXServer server;
+
+  /**
+   * Starts a server with two worker threads.
+   * @throws IOException exception
+   */
+  @Before
+  public void start() throws IOException {
+    final Context ctx = new Context();
+    ctx.globalopts.set(GlobalOptions.DBPATH, sandbox().path());
+    ctx.globalopts.set(GlobalOptions.SERVERTHREADS, 2);
+    try {
+      System.setOut(NULL);
+      server = new BaseXServer(ctx, "-z", "-p9999", "-e9998");
+    } finally {
+      System.setOut(OUT);
+    }
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException exception
+   */
+  @After
+  public void stop() throws IOException {
+    stopServer(server);
+  }
+
+  /**
+   * Idle sessions do not block other sessions.
+   * @throws IOException exception
+   */
+  @Test
+  public void idle() throws IOException {
+    final ClientSession[] cs = new ClientSession[CLIENTS];
+    for(int c = 0; c < CLIENTS; c++) cs[c] = createClient();
+    for(int r = 0; r < 3; r++) {
+      for(int c = 0; c < CLIENTS; c++) {
+        assertEquals(Integer.toString(c + r), cs[c].query(c + " + " + r).execute());
+      }
+    }
+    for(final ClientSession c : cs) c.close();
+  }
+
+  /**
+   * A long-running request does not block requests of other sessions.
+   * @throws Exception exception
+   */
+  @Test
+  public void active() throws Exception {
+    final ClientSession slow = createClient(), fast = createClient();
+    final Thread t = new Thread() {
+      @Override
+      public void run() {
+        try {
+          slow.query("prof:sleep(2000)").execute();
+        } catch(final IOException ex) {
+          Util.stack(ex);
+        }
+      }
+    };
+    t.start();
+    Performance.sleep(200);
+
+    final Performance perf = new Performance();
+    for(int i = 0; i < 100; i++) assertEquals("1", fast.query("1").execute());
+    assertTrue(t.isAlive());
+    assertTrue(perf.time() < 2000000000L);
+    t.join();
+    slow.close();
+    fast.close();
+  }
+
+  /**
+   * Clients that send incomplete requests do not block other sessions.
+   * @throws IOException exception
+   */
+  @Test
+  public void stalled() throws IOException {
+    final Socket[] sockets = new Socket[CLIENTS];
+    try {
+      for(int c = 0; c < CLIENTS; c++) {
+        sockets[c] = new Socket(S_LOCALHOST, 9999);
+        // send incomplete login data
+        if(c % 2 == 0) sockets[c].getOutputStream().write(Token.token("admin"));
+      }
+      final Performance perf = new Performance();
+      final ClientSession cs = createClient();
+      assertEquals("1", cs.query("1").execute());
+      cs.close();
+      assertTrue(perf.time() < 2000000000L);
+    } finally {
+      for(final Socket s : sockets) if(s != null) s.close();
+    }
+  }
+
+  /**
+   * Clients that do not send their login data are disconnected after the timeout.
+   * @throws IOException exception
+   */
+  @Test
+  public void keepAlive() throws IOException {
+    server.context.globalopts.set(GlobalOptions.KEEPALIVE, 1);
+    final Socket s = new Socket(S_LOCALHOST, 9999);
+    try {
+      s.setSoTimeout(10000);
+      final InputStream is = s.getInputStream();
+      // skip timestamp
+      while(is.read() > 0);
+      s.getOutputStream().write(Token.token("admin"));
+      // wait until the connection is closed by the server
+      assertEquals(-1, is.read());
+    } finally {
+      s.close();
+    }
+  }
+}
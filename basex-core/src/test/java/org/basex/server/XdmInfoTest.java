@@ -113,8 +113,12 @@ public final class XdmInfoTest extends SandboxTest {
       sout.write(cmd.code);
       send(arg);
       sout.flush();
-      final BufferInput bi = new BufferInput(sin);
+      final BufferInput bi = input();
+      // receive {TYPE}{ITEM}0, or the end marker if an error occurred
       ClientSession.receive(bi, o);
+      // single result item: check end marker
+      if(o.size() != 0) assertEquals("End marker expected.", 0, bi.read());
+      // check success flag
       if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
       return o.toArray();
     }
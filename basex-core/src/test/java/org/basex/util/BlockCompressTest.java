@@ -0,0 +1,68 @@
+package org.basex.util;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+/**
+ * Class for testing the {@link BlockCompress} methods.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class BlockCompressTest {
+  /** Test. */
+  @Test
+  public void empty() {
+    run(new byte[0]);
+    run(token("abc"));
+  }
+
+  /** Test. */
+  @Test
+  public void repeated() {
+    final byte[] b = new byte[1 << 16];
+    Arrays.fill(b, (byte) 'a');
+    assertTrue(run(b) < 1024);
+  }
+
+  /** Test. */
+  @Test
+  public void text() {
+    final TokenBuilder tb = new TokenBuilder();
+    for(int i = 0; i < 5000; i++) tb.add("<entry id='").addLong(i).add("'>text</entry>");
+    final byte[] b = tb.finish();
+    assertTrue(run(b) < b.length / 4);
+  }
+
+  /** Test. */
+  @Test
+  public void random() {
+    final Random rnd = new Random(1);
+    for(int l = 1; l < 1 << 16; l <<= 1) {
+      final byte[] b = new byte[l];
+      rnd.nextBytes(b);
+      run(b);
+      // partially compressible data
+      for(int i = 0; i < l; i++) b[i] = (byte) (rnd.nextInt(4) + 'a');
+      run(b);
+    }
+  }
+
+  /**
+   * Compresses and decompresses the specified bytes.
+   * @param b bytes
+   * @return size of the compressed data
+   */
+  private static int run(final byte[] b) {
+    final byte[] packed = new byte[BlockCompress.max(b.length)];
+    final int pl = new BlockCompress().pack(b, b.length, packed);
+    final byte[] unpacked = new byte[b.length];
+    assertEquals(b.length, BlockCompress.unpack(packed, 0, pl, unpacked));
+    assertArrayEquals(b, unpacked);
+    return pl;
+  }
+}